@@ -0,0 +1,56 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+
+/**
+ * Visitor interface that allows applications to process the DataObjects of a containment tree, walked by
+ * {@link org.apache.tuscany.sdo.util.GraphWalker}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface SDOGraphVisitor {
+    /**
+     * Visit a DataObject, before its properties.
+     *
+     * @param dataObject the DataObject to visit
+     * @return whether to visit the properties and the contained DataObjects of the DataObject
+     */
+    boolean visitDataObject(DataObject dataObject);
+
+    /**
+     * Visit a value of a set property, each value of a many-valued property being visited in turn. A contained
+     * DataObject is visited next.
+     *
+     * @param dataObject the DataObject of the property
+     * @param property the property
+     * @param value the value
+     */
+    void visitProperty(DataObject dataObject, Property property, Object value);
+
+    /**
+     * Visit after all properties of a DataObject whose properties were visited.
+     *
+     * @param dataObject the DataObject visited
+     */
+    void visitEnd(DataObject dataObject);
+}
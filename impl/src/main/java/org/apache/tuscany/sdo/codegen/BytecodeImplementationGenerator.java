@@ -0,0 +1,286 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.codegen;
+
+import java.util.Arrays;
+
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import org.apache.tuscany.sdo.SDOTypeVisitor;
+import org.apache.tuscany.sdo.impl.FieldDataObjectImpl;
+
+/**
+ * Implementation of a generator that will directly emit bytecode for a {@link FieldDataObjectImpl} subclass holding
+ * the field properties of a dynamic SDO type, as laid out by a {@link FieldDataObjectImpl.Layout}: a Java field per
+ * property and switch-based accessors by feature ID.
+ *
+ * @version $Rev$ $Date$
+ */
+public class BytecodeImplementationGenerator implements SDOTypeVisitor, Opcodes {
+    static final String BASE = "org/apache/tuscany/sdo/impl/FieldDataObjectImpl";
+
+    static final String CONSTRUCTOR = "(Lorg/eclipse/emf/ecore/EClass;Lorg/apache/tuscany/sdo/impl/FieldDataObjectImpl$Layout;)V";
+
+    /**
+     * Field descriptors by Layout kind
+     */
+    static final String[] DESCRIPTORS = { "Ljava/lang/Object;", "Z", "B", "C", "S", "I", "J", "F", "D" };
+
+    static final String[] WRAPPERS = { null, "java/lang/Boolean", "java/lang/Byte", "java/lang/Character", "java/lang/Short",
+            "java/lang/Integer", "java/lang/Long", "java/lang/Float", "java/lang/Double" };
+
+    static final String[] UNWRAP_METHODS = { null, "booleanValue", "byteValue", "charValue", "shortValue", "intValue",
+            "longValue", "floatValue", "doubleValue" };
+
+    private final ClassWriter cw;
+
+    private final String name;
+
+    private final FieldDataObjectImpl.Layout layout;
+
+    private EClass eClass;
+
+    private int[] featureIDs = new int[8];
+
+    private int fieldCount;
+
+    /**
+     * @param className
+     *            the fully qualified name of the class
+     */
+    public BytecodeImplementationGenerator(String className, FieldDataObjectImpl.Layout layout) {
+        cw = new ClassWriter(true);
+        name = className.replace('.', '/');
+        this.layout = layout;
+    }
+
+    public void visitType(Type type) {
+        eClass = (EClass) type;
+        cw.visit(V1_4, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, name, null, BASE, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, BASE, "<init>", CONSTRUCTOR);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    public void visitProperty(Property property) {
+        int featureID = eClass.getFeatureID((EStructuralFeature) property);
+        if (featureID == -1 || !layout.isField(featureID))
+            return;
+        cw.visitField(ACC_PRIVATE, fieldName(featureID), DESCRIPTORS[layout.getKind(featureID)], null, null).visitEnd();
+        if (fieldCount == featureIDs.length) {
+            int[] grown = new int[fieldCount << 1];
+            System.arraycopy(featureIDs, 0, grown, 0, fieldCount);
+            featureIDs = grown;
+        }
+        featureIDs[fieldCount++] = featureID;
+    }
+
+    public void visitEnd() {
+        int[] keys = new int[fieldCount];
+        System.arraycopy(featureIDs, 0, keys, 0, fieldCount);
+        Arrays.sort(keys);
+
+        generateGetField(keys);
+        generateSetField(keys);
+        generateTypedAccessors(keys, FieldDataObjectImpl.Layout.BOOLEAN, "Boolean");
+        generateTypedAccessors(keys, FieldDataObjectImpl.Layout.INT, "Int");
+        generateTypedAccessors(keys, FieldDataObjectImpl.Layout.LONG, "Long");
+        generateTypedAccessors(keys, FieldDataObjectImpl.Layout.FLOAT, "Float");
+        generateTypedAccessors(keys, FieldDataObjectImpl.Layout.DOUBLE, "Double");
+        cw.visitEnd();
+    }
+
+    /**
+     * Return the bytecode for the implementation class in a form that can be passed to a ClassLoader.
+     *
+     * @return the bytecode for the SDO Type's implementation class
+     */
+    public byte[] getClassData() {
+        return cw.toByteArray();
+    }
+
+    static String fieldName(int featureID) {
+        return "f" + featureID;
+    }
+
+    /**
+     * @return the labels of the cases, one per feature ID
+     */
+    private static Label[] switchOnFeatureID(MethodVisitor mv, int[] keys, Label dflt) {
+        Label[] labels = new Label[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            labels[i] = new Label();
+        if (keys.length != 0) {
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+        return labels;
+    }
+
+    /**
+     * protected Object eGetField(int featureID), boxing the primitive fields
+     */
+    private void generateGetField(int[] keys) {
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "eGetField", "(I)Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        Label dflt = new Label();
+        Label[] labels = switchOnFeatureID(mv, keys, dflt);
+        for (int i = 0; i < keys.length; i++) {
+            int kind = layout.getKind(keys[i]);
+            mv.visitLabel(labels[i]);
+            if (kind == FieldDataObjectImpl.Layout.OBJECT) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, name, fieldName(keys[i]), DESCRIPTORS[kind]);
+            } else {
+                // new Wrapper(field): the valueOf(primitive) methods are Java 5, the generated classes V1_4
+                mv.visitTypeInsn(NEW, WRAPPERS[kind]);
+                mv.visitInsn(DUP);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, name, fieldName(keys[i]), DESCRIPTORS[kind]);
+                mv.visitMethodInsn(INVOKESPECIAL, WRAPPERS[kind], "<init>", '(' + DESCRIPTORS[kind] + ")V");
+            }
+            mv.visitInsn(ARETURN);
+        }
+        mv.visitLabel(dflt);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * protected void eSetField(int featureID, Object value), unboxing to the primitive fields
+     */
+    private void generateSetField(int[] keys) {
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "eSetField", "(ILjava/lang/Object;)V", null, null);
+        mv.visitCode();
+        Label dflt = new Label();
+        Label[] labels = switchOnFeatureID(mv, keys, dflt);
+        for (int i = 0; i < keys.length; i++) {
+            int kind = layout.getKind(keys[i]);
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 2);
+            switch (kind) {
+            case FieldDataObjectImpl.Layout.OBJECT:
+                break;
+            case FieldDataObjectImpl.Layout.BOOLEAN:
+            case FieldDataObjectImpl.Layout.CHAR:
+                mv.visitTypeInsn(CHECKCAST, WRAPPERS[kind]);
+                mv.visitMethodInsn(INVOKEVIRTUAL, WRAPPERS[kind], UNWRAP_METHODS[kind], "()" + DESCRIPTORS[kind]);
+                break;
+            default:
+                mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+                mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", UNWRAP_METHODS[kind], "()" + DESCRIPTORS[kind]);
+            }
+            mv.visitFieldInsn(PUTFIELD, name, fieldName(keys[i]), DESCRIPTORS[kind]);
+            mv.visitInsn(RETURN);
+        }
+        mv.visitLabel(dflt);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * protected <type> eGet<Type>(int featureID) and protected void eSet<Type>(int featureID, <type> value) over the
+     * fields of the kind
+     */
+    private void generateTypedAccessors(int[] keys, int kind, String typeName) {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++)
+            if (layout.getKind(keys[i]) == kind)
+                ++count;
+        int[] kindKeys = new int[count];
+        for (int i = 0, k = 0; i < keys.length; i++)
+            if (layout.getKind(keys[i]) == kind)
+                kindKeys[k++] = keys[i];
+
+        String descriptor = DESCRIPTORS[kind];
+        int load, returnInsn, zero;
+        switch (kind) {
+        case FieldDataObjectImpl.Layout.LONG:
+            load = LLOAD;
+            returnInsn = LRETURN;
+            zero = LCONST_0;
+            break;
+        case FieldDataObjectImpl.Layout.FLOAT:
+            load = FLOAD;
+            returnInsn = FRETURN;
+            zero = FCONST_0;
+            break;
+        case FieldDataObjectImpl.Layout.DOUBLE:
+            load = DLOAD;
+            returnInsn = DRETURN;
+            zero = DCONST_0;
+            break;
+        default:
+            load = ILOAD;
+            returnInsn = IRETURN;
+            zero = ICONST_0;
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "eGet" + typeName, "(I)" + descriptor, null, null);
+        mv.visitCode();
+        Label dflt = new Label();
+        Label[] labels = switchOnFeatureID(mv, kindKeys, dflt);
+        for (int i = 0; i < kindKeys.length; i++) {
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, name, fieldName(kindKeys[i]), descriptor);
+            mv.visitInsn(returnInsn);
+        }
+        mv.visitLabel(dflt);
+        mv.visitInsn(zero);
+        mv.visitInsn(returnInsn);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PROTECTED, "eSet" + typeName, "(I" + descriptor + ")V", null, null);
+        mv.visitCode();
+        dflt = new Label();
+        labels = switchOnFeatureID(mv, kindKeys, dflt);
+        for (int i = 0; i < kindKeys.length; i++) {
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(load, 2);
+            mv.visitFieldInsn(PUTFIELD, name, fieldName(kindKeys[i]), descriptor);
+            mv.visitInsn(RETURN);
+        }
+        mv.visitLabel(dflt);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
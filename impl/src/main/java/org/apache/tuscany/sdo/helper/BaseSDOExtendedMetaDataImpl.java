@@ -42,6 +42,12 @@ public class BaseSDOExtendedMetaDataImpl extends BasicExtendedMetaData {
 	protected EcoreFactory ecoreFactory = EcoreFactory.eINSTANCE;
 	protected DemandMetaData demandMetaData = new DemandMetaData();
 
+	/**
+	 * the count of the packages and types put or demanded, letting the caches
+	 * of the types not found detect them
+	 */
+	protected volatile int modificationCount;
+
 	public static class DemandMetaData {
 		EClassifier getEObject() {
 			return EcorePackage.eINSTANCE.getEObject();
@@ -64,6 +70,15 @@ public class BaseSDOExtendedMetaDataImpl extends BasicExtendedMetaData {
 		super(registry);
 	}
 
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
+	public void putPackage(String namespace, EPackage ePackage) {
+		super.putPackage(namespace, ePackage);
+		++modificationCount;
+	}
+
 	public EPackage demandPackage(String namespace) {
 		EPackage ePackage = demandRegistry.getEPackage(namespace);
 		if (ePackage == null) {
@@ -86,6 +101,7 @@ public class BaseSDOExtendedMetaDataImpl extends BasicExtendedMetaData {
 			documentRootEClass.setName("DocumentRoot");
 			ePackage.getEClassifiers().add(documentRootEClass);
 			setDocumentRoot(documentRootEClass);
+			++modificationCount;
 		}
 		return ePackage;
 	}
@@ -109,6 +125,7 @@ public class BaseSDOExtendedMetaDataImpl extends BasicExtendedMetaData {
 			//}
 
 			ePackage.getEClassifiers().add(eClass);
+			++modificationCount;
 			return eClass;
 		}
 	}
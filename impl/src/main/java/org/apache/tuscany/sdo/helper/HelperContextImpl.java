@@ -24,11 +24,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EcorePackage;
 import org.eclipse.emf.ecore.change.ChangePackage;
 import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
 import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
 import org.eclipse.emf.ecore.xml.namespace.XMLNamespacePackage;
 import org.eclipse.emf.ecore.xml.type.XMLTypePackage;
 
@@ -42,7 +44,17 @@ import commonj.sdo.helper.XMLHelper;
 import commonj.sdo.helper.XSDHelper;
 
 import org.apache.tuscany.sdo.SDOPackage;
+import org.apache.tuscany.sdo.api.SDOHelper;
 import org.apache.tuscany.sdo.api.XMLStreamHelper;
+import org.apache.tuscany.sdo.impl.ColumnDataObjectImpl;
+import org.apache.tuscany.sdo.impl.DynamicDataObjectImpl;
+import org.apache.tuscany.sdo.impl.FieldDataObjectImpl;
+import org.apache.tuscany.sdo.impl.OffHeapDataObjectImpl;
+import org.apache.tuscany.sdo.impl.PackedDataObjectImpl;
+import org.apache.tuscany.sdo.util.ColumnStore;
+import org.apache.tuscany.sdo.util.OffHeapStore;
+import org.apache.tuscany.sdo.util.resource.SDOXMLParserPool;
+import org.apache.tuscany.sdo.util.resource.XMLNameTable;
 
 public class HelperContextImpl implements HelperContext {
     /*
@@ -52,16 +64,23 @@ public class HelperContextImpl implements HelperContext {
      */
 
     protected ExtendedMetaData extendedMetaData;
+    protected TypeRegistry typeRegistry;
     protected DataFactory dataFactory;
     protected TypeHelper typeHelper;
     protected XMLHelper xmlHelper;
     protected XSDHelper xsdHelper;
     protected XMLStreamHelper xmlStreamHelper;
     protected Map defaultOptions = null;
+    protected XMLNameTable xmlNameTable = null;
+    protected XMLDocumentEngine.Pool xmlDocumentEngines = null;
+    protected XMLParserPool xmlParserPool = null;
+    protected OffHeapStore offHeapStore = null;
+    protected ColumnStore columnStore = null;
     
     public HelperContextImpl(ExtendedMetaData extendedMetaData, boolean extensibleNamespaces) {
         this.defaultOptions = null;
         this.extendedMetaData = extendedMetaData;
+        typeRegistry = new TypeRegistry(extendedMetaData);
         typeHelper = new TypeHelperImpl(this);
         dataFactory = new DataFactoryImpl(this);
         xmlHelper = new XMLHelperImpl(this);
@@ -73,6 +92,7 @@ public class HelperContextImpl implements HelperContext {
     public HelperContextImpl(ExtendedMetaData extendedMetaData, boolean extensibleNamespaces, Map options) {
         this.defaultOptions = options;
         this.extendedMetaData = extendedMetaData;
+        typeRegistry = new TypeRegistry(extendedMetaData);
         typeHelper = new TypeHelperImpl(this);
         dataFactory = new DataFactoryImpl(this);
         xmlHelper = new XMLHelperImpl(this);
@@ -94,6 +114,7 @@ public class HelperContextImpl implements HelperContext {
         this.defaultOptions = options;
         typeHelper = scope;
         this.extendedMetaData = ((TypeHelperImpl)scope).getExtendedMetaData();
+        typeRegistry = ((TypeHelperImpl)scope).getTypeRegistry();
         dataFactory = new DataFactoryImpl(this);
         xmlHelper = new XMLHelperImpl(this);
         xsdHelper = new XSDHelperImpl(this);
@@ -190,4 +211,95 @@ public class HelperContextImpl implements HelperContext {
     public ExtendedMetaData getExtendedMetaData() {
         return extendedMetaData;
     }
+
+    /**
+     * @return the registry of the Types of this scope, whose lock guards the definitions of Types
+     */
+    public TypeRegistry getTypeRegistry() {
+        return typeRegistry;
+    }
+
+    /**
+     * @return the pre-encoded element, attribute and xsi:type markup of the Types in this scope
+     */
+    public synchronized XMLNameTable getXMLNameTable() {
+        if (xmlNameTable == null) {
+            xmlNameTable = new XMLNameTable(extendedMetaData);
+        }
+        return xmlNameTable;
+    }
+
+    /**
+     * @return the reusable XMLHelper load and save setup of this scope
+     */
+    public synchronized XMLDocumentEngine.Pool getXMLDocumentEngines() {
+        if (xmlDocumentEngines == null) {
+            xmlDocumentEngines = new XMLDocumentEngine.Pool(extendedMetaData, getXMLParserPool());
+        }
+        return xmlDocumentEngines;
+    }
+
+    /**
+     * @return the parser pool of the XMLHelper loads: the XML_LOAD_PARSER_POOL option if any, otherwise a
+     *         SDOXMLParserPool configured by the XML_LOAD_PARSER_POOL_* options when first called
+     */
+    public synchronized XMLParserPool getXMLParserPool() {
+        if (xmlParserPool == null) {
+            Object pool = defaultOptions == null ? null : defaultOptions.get(SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL);
+            xmlParserPool = pool == null ? new SDOXMLParserPool(defaultOptions) : (XMLParserPool)pool;
+        }
+        return xmlParserPool;
+    }
+
+    /**
+     * Lets the host supply the parser pool of the XMLHelper loads
+     */
+    public synchronized void setXMLParserPool(XMLParserPool xmlParserPool) {
+        this.xmlParserPool = xmlParserPool;
+        xmlDocumentEngines = null;
+    }
+
+    /**
+     * @return the EFactory of a new package of dynamic Types in this scope: one creating the DataObjects in the
+     *         OffHeapStore of the OFF_HEAP_STORE option or the ColumnStore of the COLUMN_STORE one, one generating
+     *         implementation classes if the GENERATE_IMPLEMENTATION_CLASSES option is set, one packing the primitive
+     *         properties if the PACK_PRIMITIVE_PROPERTIES option is, otherwise one creating DynamicDataObjectImpl
+     *         instances; with the PRIMITIVE_LISTS option, the last three hold the many-valued int, long and double
+     *         properties in primitive arrays
+     */
+    public synchronized EFactory createEFactory() {
+        if (defaultOptions != null) {
+            Object store = defaultOptions.get(SDOHelper.DynamicTypeOptions.OFF_HEAP_STORE);
+            if (store instanceof OffHeapStore) {
+                return new OffHeapDataObjectImpl.FactoryImpl((OffHeapStore) store);
+            }
+            if (Boolean.TRUE.equals(store)) {
+                if (offHeapStore == null) {
+                    offHeapStore = new OffHeapStore();
+                }
+                return new OffHeapDataObjectImpl.FactoryImpl(offHeapStore);
+            }
+            store = defaultOptions.get(SDOHelper.DynamicTypeOptions.COLUMN_STORE);
+            if (store instanceof ColumnStore) {
+                return new ColumnDataObjectImpl.FactoryImpl((ColumnStore) store);
+            }
+            if (Boolean.TRUE.equals(store)) {
+                if (columnStore == null) {
+                    columnStore = new ColumnStore();
+                }
+                return new ColumnDataObjectImpl.FactoryImpl(columnStore);
+            }
+            DynamicDataObjectImpl.FactoryImpl eFactory;
+            if (Boolean.TRUE.equals(defaultOptions.get(SDOHelper.DynamicTypeOptions.GENERATE_IMPLEMENTATION_CLASSES))) {
+                eFactory = new FieldDataObjectImpl.FactoryImpl();
+            } else if (Boolean.TRUE.equals(defaultOptions.get(SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES))) {
+                eFactory = new PackedDataObjectImpl.FactoryImpl();
+            } else {
+                eFactory = new DynamicDataObjectImpl.FactoryImpl();
+            }
+            eFactory.setPrimitiveLists(Boolean.TRUE.equals(defaultOptions.get(SDOHelper.DynamicTypeOptions.PRIMITIVE_LISTS)));
+            return eFactory;
+        }
+        return new DynamicDataObjectImpl.FactoryImpl();
+    }
 }
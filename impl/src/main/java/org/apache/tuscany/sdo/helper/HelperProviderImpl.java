@@ -20,9 +20,18 @@
 package org.apache.tuscany.sdo.helper;
 
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.apache.tuscany.sdo.lib.SDOObjectInputStream;
+import org.apache.tuscany.sdo.lib.SDOObjectOutputStream;
 import org.apache.tuscany.sdo.spi.HelperProviderBase;
+import org.apache.tuscany.sdo.util.resource.TypeExternalizer;
 
+import commonj.sdo.DataObject;
 import commonj.sdo.helper.HelperContext;
+import commonj.sdo.impl.ExternalizableDelegator.Resolvable;
 
 /**
  * Create and manage all the default helper INSTANCEs
@@ -47,4 +56,40 @@ public class HelperProviderImpl extends HelperProviderBase
     
     return hc;
   }  
+
+  public Resolvable resolvable()
+  {
+    return new ExternalizerResolvableImpl();
+  }
+
+  public Resolvable resolvable(Object target)
+  {
+    return new ExternalizerResolvableImpl(target);
+  }
+
+  /**
+   * Writes the root DataObjects of the Types having a generated TypeExternalizer in their binary form
+   */
+  protected class ExternalizerResolvableImpl extends ResolvableImpl
+  {
+    public ExternalizerResolvableImpl(Object target) { super(target); }
+
+    public ExternalizerResolvableImpl() { super(); }
+
+    protected boolean writeRootObject(DataObject dataObject, ObjectOutput objectOutput) throws IOException
+    {
+      HelperContext scope = objectOutput instanceof SDOObjectOutputStream ? ((SDOObjectOutputStream)objectOutput).getHelperContext() : defaultContext;
+      return TypeExternalizer.writeRoot(dataObject, objectOutput, scope);
+    }
+
+    protected DataObject readRootObject(byte kind, ObjectInput objectInput) throws IOException, ClassNotFoundException
+    {
+      if (kind != TypeExternalizer.KIND)
+      {
+        return super.readRootObject(kind, objectInput);
+      }
+      HelperContext scope = objectInput instanceof SDOObjectInputStream ? ((SDOObjectInputStream)objectInput).getHelperContext() : defaultContext;
+      return TypeExternalizer.readRoot(objectInput, scope);
+    }
+  }
 }
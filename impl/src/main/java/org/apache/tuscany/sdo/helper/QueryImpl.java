@@ -0,0 +1,1020 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.helper;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.util.KeyIndex;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * A query of the XPath subset described by {@link SDOHelper.Query}, parsed once into a tree of expressions. A location
+ * path is evaluated as a chain of iterators, each step pulling the nodes of the previous one, so that the nodes are
+ * only computed as the result is iterated. A step whose first predicate compares a key Property with a literal looks
+ * the matching DataObjects up in the KeyIndex of the list, if any, instead of scanning it.
+ */
+public class QueryImpl implements SDOHelper.Query {
+    protected final HelperContext helperContext;
+
+    protected final String query;
+
+    protected final NodeSetExpression expression;
+
+    public QueryImpl(HelperContext helperContext, String query) {
+        this.helperContext = helperContext;
+        this.query = query;
+        expression = new Parser(query).parseQuery();
+    }
+
+    public Iterator iterator(DataObject dataObject) {
+        return expression.iterator(dataObject, false);
+    }
+
+    public List list(DataObject dataObject) {
+        List result = new ArrayList();
+        for (Iterator i = iterator(dataObject); i.hasNext();) {
+            result.add(i.next());
+        }
+        return result;
+    }
+
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * An expression evaluated for a context node at a position
+     */
+    protected abstract static class Expression {
+        protected abstract Object evaluate(Object node, int position);
+    }
+
+    /**
+     * An expression evaluated as the nodes it selects
+     */
+    protected abstract static class NodeSetExpression extends Expression {
+        /**
+         * @param atomize
+         *            whether the data values are converted for comparisons: Strings, Numbers and Booleans are kept,
+         *            the other values are converted to their literal
+         */
+        protected abstract Iterator iterator(Object node, boolean atomize);
+
+        protected Object evaluate(Object node, int position) {
+            return Boolean.valueOf(iterator(node, true).hasNext());
+        }
+    }
+
+    protected static final class Literal extends Expression {
+        protected final Object value;
+
+        protected Literal(Object value) {
+            this.value = value;
+        }
+
+        protected Object evaluate(Object node, int position) {
+            return value;
+        }
+    }
+
+    protected static final class Union extends NodeSetExpression {
+        protected final NodeSetExpression[] paths;
+
+        protected Union(NodeSetExpression[] paths) {
+            this.paths = paths;
+        }
+
+        protected Iterator iterator(final Object node, final boolean atomize) {
+            return new DistinctIterator(new FlatMapIterator(Collections.nCopies(paths.length, node).iterator()) {
+                int index;
+
+                protected Iterator map(Object node) {
+                    return paths[index++].iterator(node, atomize);
+                }
+            });
+        }
+    }
+
+    protected static final class LocationPath extends NodeSetExpression {
+        protected final boolean absolute;
+
+        protected final Step[] steps;
+
+        /**
+         * whether a DataObject can be reached more than once, through .. or nested //
+         */
+        protected final boolean duplicates;
+
+        protected LocationPath(boolean absolute, Step[] steps) {
+            this.absolute = absolute;
+            this.steps = steps;
+            int descendants = 0;
+            boolean parent = false;
+            for (int i = 0; i < steps.length; ++i) {
+                if (steps[i].descendant) {
+                    ++descendants;
+                }
+                parent |= steps[i].axis == Step.PARENT;
+            }
+            duplicates = parent || descendants > 1;
+        }
+
+        protected Iterator iterator(Object node, boolean atomize) {
+            if (absolute) {
+                if (!(node instanceof EObject)) {
+                    return Collections.EMPTY_LIST.iterator();
+                }
+                node = EcoreUtil.getRootContainer((EObject)node);
+            }
+            Iterator result = Collections.singletonList(node).iterator();
+            for (int i = 0; i < steps.length; ++i) {
+                result = steps[i].apply(result, atomize && i == steps.length - 1);
+            }
+            return duplicates ? new DistinctIterator(result) : result;
+        }
+
+        /**
+         * @return the name of a relative path of one child step without predicate, or null
+         */
+        protected String getPropertyName() {
+            return !absolute && steps.length == 1 && steps[0].axis == Step.CHILD && !steps[0].descendant
+                && steps[0].predicates.length == 0 ? steps[0].name : null;
+        }
+    }
+
+    protected static final class Step {
+        static final int CHILD = 0, SELF = 1, PARENT = 2;
+
+        protected final int axis;
+
+        /**
+         * whether the step applies to the descendants or self of the nodes, after //
+         */
+        protected final boolean descendant;
+
+        /**
+         * the Property name, or null for *
+         */
+        protected final String name;
+
+        protected final Expression[] predicates;
+
+        /**
+         * the key Property name and literal of the first predicate, if it can be looked up in a KeyIndex
+         */
+        protected final String keyName;
+
+        protected final Object keyValue;
+
+        protected Step(int axis, boolean descendant, String name, Expression[] predicates) {
+            this.axis = axis;
+            this.descendant = descendant;
+            this.name = name;
+            this.predicates = predicates;
+            String keyName = null;
+            Object keyValue = null;
+            if (axis == CHILD && name != null && predicates.length != 0 && predicates[0] instanceof Comparison) {
+                Comparison comparison = (Comparison)predicates[0];
+                if (comparison.operator == Comparison.EQ) {
+                    if (comparison.left instanceof LocationPath && comparison.right instanceof Literal) {
+                        keyName = ((LocationPath)comparison.left).getPropertyName();
+                        keyValue = ((Literal)comparison.right).value;
+                    } else if (comparison.right instanceof LocationPath && comparison.left instanceof Literal) {
+                        keyName = ((LocationPath)comparison.right).getPropertyName();
+                        keyValue = ((Literal)comparison.left).value;
+                    }
+                }
+            }
+            this.keyName = keyName;
+            this.keyValue = keyName == null ? null : keyValue;
+        }
+
+        protected Iterator apply(Iterator nodes, final boolean atomize) {
+            if (descendant) {
+                nodes = new FlatMapIterator(nodes) {
+                    protected Iterator map(Object node) {
+                        return node instanceof EObject ? new DescendantIterator((EObject)node)
+                            : Collections.EMPTY_LIST.iterator();
+                    }
+                };
+            }
+            return new FlatMapIterator(nodes) {
+                protected Iterator map(Object node) {
+                    return select(node, atomize);
+                }
+            };
+        }
+
+        protected Iterator select(Object node, boolean atomize) {
+            Iterator result;
+            int predicate = 0;
+            switch (axis) {
+            case SELF:
+                result = Collections.singletonList(node).iterator();
+                break;
+            case PARENT:
+                Object container = node instanceof DataObject ? ((DataObject)node).getContainer() : null;
+                result = container == null ? Collections.EMPTY_LIST.iterator() : Collections.singletonList(container)
+                    .iterator();
+                break;
+            default:
+                if (!(node instanceof DataObject)) {
+                    return Collections.EMPTY_LIST.iterator();
+                }
+                DataObject dataObject = (DataObject)node;
+                if (name == null) {
+                    result = new ChildIterator(dataObject, dataObject.getInstanceProperties().iterator(), atomize);
+                    break;
+                }
+                Property property = dataObject.getInstanceProperty(name);
+                if (property == null) {
+                    return Collections.EMPTY_LIST.iterator();
+                }
+                List keyed = keyName == null ? null : lookup(dataObject, property);
+                if (keyed != null) {
+                    result = keyed.iterator();
+                    predicate = 1;
+                } else {
+                    result = new ChildIterator(dataObject, Collections.singletonList(property).iterator(), atomize);
+                }
+            }
+            for (; predicate < predicates.length; ++predicate) {
+                result = new PredicateIterator(result, predicates[predicate]);
+            }
+            return result;
+        }
+
+        /**
+         * @return the DataObjects of the Property matching the first predicate, if indexed, or null
+         */
+        protected List lookup(DataObject dataObject, Property property) {
+            if (!property.isMany() || !property.isContainment()) {
+                return null;
+            }
+            KeyIndex index = KeyIndex.getIndex((EObject)dataObject, (EStructuralFeature)property, keyName);
+            if (index == null) {
+                return null;
+            }
+            Class keyClass = index.getKeyProperty().getType().getInstanceClass();
+            String literal = null;
+            if (keyValue instanceof String) {
+                if (keyClass == String.class) {
+                    literal = (String)keyValue;
+                }
+            } else {
+                double number = ((Double)keyValue).doubleValue();
+                if (number == Math.floor(number) && !Double.isInfinite(number) && isIntegral(keyClass)) {
+                    literal = Long.toString((long)number);
+                }
+            }
+            return literal == null ? null : index.getDataObjects(literal);
+        }
+
+        static boolean isIntegral(Class keyClass) {
+            return keyClass == int.class || keyClass == long.class || keyClass == short.class || keyClass == byte.class
+                || keyClass == Integer.class || keyClass == Long.class || keyClass == Short.class
+                || keyClass == Byte.class || keyClass == BigInteger.class;
+        }
+    }
+
+    /**
+     * The set values of Properties of a DataObject
+     */
+    protected static final class ChildIterator implements Iterator {
+        protected final DataObject dataObject;
+
+        protected final Iterator properties;
+
+        protected final boolean atomize;
+
+        protected Property property;
+
+        protected List values;
+
+        protected int index;
+
+        protected Object next;
+
+        protected ChildIterator(DataObject dataObject, Iterator properties, boolean atomize) {
+            this.dataObject = dataObject;
+            this.properties = properties;
+            this.atomize = atomize;
+        }
+
+        public boolean hasNext() {
+            while (next == null) {
+                if (values != null && index < values.size()) {
+                    next = values.get(index++);
+                } else if (properties.hasNext()) {
+                    property = (Property)properties.next();
+                    index = 0;
+                    if (property.isMany()) {
+                        values = dataObject.getList(property);
+                    } else {
+                        values = null;
+                        if (dataObject.isSet(property)) {
+                            next = dataObject.get(property);
+                        }
+                    }
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object result = next;
+            next = null;
+            return atomize ? atomize(property, result) : result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A node and the DataObjects it contains, directly or not, in document order
+     */
+    protected static final class DescendantIterator implements Iterator {
+        protected final List stack = new ArrayList();
+
+        protected Object next;
+
+        protected DescendantIterator(EObject eObject) {
+            next = eObject;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Object next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Object result = next;
+            next = null;
+            stack.add(((EObject)result).eContents().iterator());
+            while (!stack.isEmpty()) {
+                Iterator contents = (Iterator)stack.get(stack.size() - 1);
+                if (contents.hasNext()) {
+                    next = contents.next();
+                    break;
+                }
+                stack.remove(stack.size() - 1);
+            }
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    protected static final class PredicateIterator implements Iterator {
+        protected final Iterator nodes;
+
+        protected final Expression predicate;
+
+        protected int position;
+
+        protected Object next;
+
+        protected boolean hasNext;
+
+        protected PredicateIterator(Iterator nodes, Expression predicate) {
+            this.nodes = nodes;
+            this.predicate = predicate;
+        }
+
+        public boolean hasNext() {
+            while (!hasNext && nodes.hasNext()) {
+                Object node = nodes.next();
+                Object value = predicate.evaluate(node, ++position);
+                hasNext = value instanceof Double ? ((Double)value).doubleValue() == position : toBoolean(value);
+                next = node;
+            }
+            return hasNext;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = false;
+            return next;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Skips the DataObjects already iterated
+     */
+    protected static final class DistinctIterator implements Iterator {
+        protected final Iterator nodes;
+
+        protected final IdentityHashMap iterated = new IdentityHashMap();
+
+        protected Object next;
+
+        protected boolean hasNext;
+
+        protected DistinctIterator(Iterator nodes) {
+            this.nodes = nodes;
+        }
+
+        public boolean hasNext() {
+            while (!hasNext && nodes.hasNext()) {
+                next = nodes.next();
+                hasNext = !(next instanceof DataObject) || iterated.put(next, next) == null;
+            }
+            return hasNext;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = false;
+            return next;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    protected abstract static class FlatMapIterator implements Iterator {
+        protected final Iterator nodes;
+
+        protected Iterator mapped = Collections.EMPTY_LIST.iterator();
+
+        protected FlatMapIterator(Iterator nodes) {
+            this.nodes = nodes;
+        }
+
+        protected abstract Iterator map(Object node);
+
+        public boolean hasNext() {
+            while (!mapped.hasNext()) {
+                if (!nodes.hasNext()) {
+                    return false;
+                }
+                mapped = map(nodes.next());
+            }
+            return true;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mapped.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    protected static final class Comparison extends Expression {
+        static final int EQ = 0, NE = 1, LT = 2, LE = 3, GT = 4, GE = 5;
+
+        protected final int operator;
+
+        protected final Expression left, right;
+
+        protected Comparison(int operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Compares the values of node sets as XPath does: the comparison holds if it holds for a pair of their values
+         */
+        protected Object evaluate(Object node, int position) {
+            for (Iterator l = values(left, node, position); l.hasNext();) {
+                Object leftValue = l.next();
+                for (Iterator r = values(right, node, position); r.hasNext();) {
+                    if (compare(leftValue, r.next())) {
+                        return Boolean.TRUE;
+                    }
+                }
+            }
+            return Boolean.FALSE;
+        }
+
+        protected boolean compare(Object left, Object right) {
+            if (left == null || right == null) {
+                return false;
+            }
+            if (left instanceof DataObject || right instanceof DataObject) {
+                return operator == EQ ? left == right : operator == NE && left != right;
+            }
+            int comparison;
+            if (left instanceof Boolean || right instanceof Boolean) {
+                comparison = (toBoolean(left) ? 1 : 0) - (toBoolean(right) ? 1 : 0);
+            } else if (left instanceof Number || right instanceof Number) {
+                double leftNumber = toNumber(left), rightNumber = toNumber(right);
+                if (Double.isNaN(leftNumber) || Double.isNaN(rightNumber)) {
+                    return operator == NE;
+                }
+                comparison = leftNumber < rightNumber ? -1 : leftNumber == rightNumber ? 0 : 1;
+            } else {
+                comparison = left.toString().compareTo(right.toString());
+            }
+            switch (operator) {
+            case EQ:
+                return comparison == 0;
+            case NE:
+                return comparison != 0;
+            case LT:
+                return comparison < 0;
+            case LE:
+                return comparison <= 0;
+            case GT:
+                return comparison > 0;
+            }
+            return comparison >= 0;
+        }
+    }
+
+    protected static final class Logical extends Expression {
+        protected final boolean and;
+
+        protected final Expression left, right;
+
+        protected Logical(boolean and, Expression left, Expression right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        protected Object evaluate(Object node, int position) {
+            boolean result = toBoolean(left.evaluate(node, position));
+            if (result != and) {
+                return Boolean.valueOf(result);
+            }
+            return Boolean.valueOf(toBoolean(right.evaluate(node, position)));
+        }
+    }
+
+    protected static final class Function extends Expression {
+        static final String[] NAMES = { "count", "position", "not", "true", "false", "contains", "starts-with",
+            "string-length", "string", "number", "instance-of" };
+
+        static final int[] ARITIES = { 1, 0, 1, 0, 0, 2, 2, 1, 1, 1, 2 };
+
+        static final int COUNT = 0, POSITION = 1, NOT = 2, TRUE = 3, FALSE = 4, CONTAINS = 5, STARTS_WITH = 6,
+            STRING_LENGTH = 7, STRING = 8, NUMBER = 9, INSTANCE_OF = 10;
+
+        protected final int function;
+
+        protected final Expression[] arguments;
+
+        /**
+         * the Type of instance-of
+         */
+        protected final Type type;
+
+        protected Function(int function, Expression[] arguments, Type type) {
+            this.function = function;
+            this.arguments = arguments;
+            this.type = type;
+        }
+
+        protected Object evaluate(Object node, int position) {
+            switch (function) {
+            case COUNT:
+                int count = 0;
+                for (Iterator i = values(arguments[0], node, position); i.hasNext(); i.next()) {
+                    ++count;
+                }
+                return new Double(count);
+            case POSITION:
+                return new Double(position);
+            case NOT:
+                return Boolean.valueOf(!toBoolean(arguments[0].evaluate(node, position)));
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case CONTAINS:
+                return Boolean.valueOf(string(arguments[0], node, position).indexOf(
+                    string(arguments[1], node, position)) != -1);
+            case STARTS_WITH:
+                return Boolean.valueOf(string(arguments[0], node, position).startsWith(
+                    string(arguments[1], node, position)));
+            case STRING_LENGTH:
+                return new Double(string(arguments[0], node, position).length());
+            case STRING:
+                return string(arguments[0], node, position);
+            case NUMBER:
+                Iterator values = values(arguments[0], node, position);
+                return new Double(values.hasNext() ? toNumber(values.next()) : Double.NaN);
+            }
+            return Boolean.valueOf(node instanceof EObject && ((EClass)type).isSuperTypeOf(((EObject)node).eClass()));
+        }
+
+        static String string(Expression expression, Object node, int position) {
+            Iterator values = values(expression, node, position);
+            if (!values.hasNext()) {
+                return "";
+            }
+            Object value = values.next();
+            if (value instanceof Double) {
+                double number = ((Double)value).doubleValue();
+                if (number == Math.floor(number) && !Double.isInfinite(number)) {
+                    return Long.toString((long)number);
+                }
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * @return the values of the node set, or the value, of the expression
+     */
+    static Iterator values(Expression expression, Object node, int position) {
+        if (expression instanceof NodeSetExpression) {
+            return ((NodeSetExpression)expression).iterator(node, true);
+        }
+        return Collections.singletonList(expression.evaluate(node, position)).iterator();
+    }
+
+    static Object atomize(Property property, Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+            || value instanceof DataObject || !property.getType().isDataType()) {
+            return value;
+        }
+        return EcoreUtil.convertToString((EDataType)property.getType(), value);
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return ((Boolean)value).booleanValue();
+        }
+        if (value instanceof Number) {
+            double number = ((Number)value).doubleValue();
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (value instanceof String) {
+            return ((String)value).length() != 0;
+        }
+        return value != null;
+    }
+
+    static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number)value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean)value).booleanValue() ? 1 : 0;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * A recursive descent parser of the query, over its tokens
+     */
+    protected final class Parser {
+        static final int NAME = 0, STRING = 1, NUMBER = 2, SYMBOL = 3, END = 4;
+
+        protected final String text;
+
+        protected final List tokens = new ArrayList();
+
+        protected final List kinds = new ArrayList();
+
+        protected final List offsets = new ArrayList();
+
+        protected int token;
+
+        protected Parser(String text) {
+            this.text = text;
+            tokenize();
+        }
+
+        protected void tokenize() {
+            int length = text.length();
+            for (int pos = 0; pos < length;) {
+                char c = text.charAt(pos);
+                char next = pos + 1 < length ? text.charAt(pos + 1) : 0;
+                int start = pos;
+                if (Character.isWhitespace(c)) {
+                    ++pos;
+                    continue;
+                }
+                int kind = SYMBOL;
+                if (c == '/' || c == '.') {
+                    pos += next == c ? 2 : 1;
+                    if (c == '.' && Character.isDigit(next)) {
+                        pos = scanNumber(start);
+                        kind = NUMBER;
+                    }
+                } else if (c == '!' || c == '<' || c == '>') {
+                    pos += next == '=' ? 2 : 1;
+                    if (c == '!' && next != '=') {
+                        throw error("'=' expected", pos);
+                    }
+                } else if ("[]()@*|=,".indexOf(c) != -1) {
+                    ++pos;
+                } else if (c == '\'' || c == '"') {
+                    pos = text.indexOf(c, pos + 1);
+                    if (pos == -1) {
+                        throw error("Unterminated literal", start);
+                    }
+                    addToken(text.substring(start + 1, pos++), STRING, start);
+                    continue;
+                } else if (Character.isDigit(c) || c == '-' && Character.isDigit(next)) {
+                    pos = scanNumber(pos + 1);
+                    kind = NUMBER;
+                } else if (Character.isLetter(c) || c == '_') {
+                    while (++pos < length) {
+                        c = text.charAt(pos);
+                        if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':') {
+                            break;
+                        }
+                    }
+                    kind = NAME;
+                } else {
+                    throw error("Unexpected character '" + c + '\'', pos);
+                }
+                addToken(text.substring(start, pos), kind, start);
+            }
+            addToken("", END, length);
+        }
+
+        protected int scanNumber(int pos) {
+            int length = text.length();
+            while (pos < length && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                ++pos;
+            }
+            return pos;
+        }
+
+        protected void addToken(String value, int kind, int offset) {
+            tokens.add(value);
+            kinds.add(new Integer(kind));
+            offsets.add(new Integer(offset));
+        }
+
+        protected IllegalArgumentException error(String message, int offset) {
+            return new IllegalArgumentException(message + " at " + offset + " in the query " + text);
+        }
+
+        protected IllegalArgumentException error(String message) {
+            return error(message, ((Integer)offsets.get(token)).intValue());
+        }
+
+        protected String peek() {
+            return (String)tokens.get(token);
+        }
+
+        protected int kind() {
+            return ((Integer)kinds.get(token)).intValue();
+        }
+
+        protected boolean isSymbol(String symbol) {
+            return kind() == SYMBOL && symbol.equals(peek());
+        }
+
+        protected boolean isFunction() {
+            return kind() == NAME && token + 1 < tokens.size() && "(".equals(tokens.get(token + 1))
+                && ((Integer)kinds.get(token + 1)).intValue() == SYMBOL;
+        }
+
+        protected void expect(String symbol) {
+            if (!isSymbol(symbol)) {
+                throw error("'" + symbol + "' expected");
+            }
+            ++token;
+        }
+
+        protected NodeSetExpression parseQuery() {
+            NodeSetExpression result = parseUnion();
+            if (kind() != END) {
+                throw error("Unexpected '" + peek() + '\'');
+            }
+            return result;
+        }
+
+        protected NodeSetExpression parseUnion() {
+            List paths = new ArrayList();
+            paths.add(parsePath());
+            while (isSymbol("|")) {
+                ++token;
+                paths.add(parsePath());
+            }
+            return paths.size() == 1 ? (NodeSetExpression)paths.get(0) : new Union(
+                (NodeSetExpression[])paths.toArray(new NodeSetExpression[paths.size()]));
+        }
+
+        protected LocationPath parsePath() {
+            boolean absolute = false;
+            boolean descendant = false;
+            List steps = new ArrayList();
+            if (isSymbol("/")) {
+                ++token;
+                absolute = true;
+                if (!isStep()) {
+                    return new LocationPath(true, new Step[0]);
+                }
+            } else if (isSymbol("//")) {
+                ++token;
+                absolute = true;
+                descendant = true;
+            }
+            for (;;) {
+                steps.add(parseStep(descendant));
+                if (isSymbol("/")) {
+                    descendant = false;
+                } else if (isSymbol("//")) {
+                    descendant = true;
+                } else {
+                    break;
+                }
+                ++token;
+            }
+            return new LocationPath(absolute, (Step[])steps.toArray(new Step[steps.size()]));
+        }
+
+        protected boolean isStep() {
+            return kind() == NAME && !isFunction() || isSymbol(".") || isSymbol("..") || isSymbol("@")
+                || isSymbol("*");
+        }
+
+        protected Step parseStep(boolean descendant) {
+            int axis = Step.CHILD;
+            String name = null;
+            if (isSymbol(".")) {
+                axis = Step.SELF;
+            } else if (isSymbol("..")) {
+                if (descendant) {
+                    throw error("'..' can't follow '//'");
+                }
+                axis = Step.PARENT;
+            } else {
+                if (isSymbol("@")) {
+                    ++token;
+                }
+                if (kind() == NAME && !isFunction()) {
+                    name = peek();
+                    name = name.substring(name.indexOf(':') + 1);
+                } else if (!isSymbol("*")) {
+                    throw error("Step expected");
+                }
+            }
+            ++token;
+            List predicates = new ArrayList();
+            while (isSymbol("[")) {
+                ++token;
+                predicates.add(parseExpression());
+                expect("]");
+            }
+            return new Step(axis, descendant, name, (Expression[])predicates.toArray(new Expression[predicates.size()]));
+        }
+
+        protected Expression parseExpression() {
+            Expression result = parseAnd();
+            while (kind() == NAME && "or".equals(peek())) {
+                ++token;
+                result = new Logical(false, result, parseAnd());
+            }
+            return result;
+        }
+
+        protected Expression parseAnd() {
+            Expression result = parseComparison();
+            while (kind() == NAME && "and".equals(peek())) {
+                ++token;
+                result = new Logical(true, result, parseComparison());
+            }
+            return result;
+        }
+
+        protected Expression parseComparison() {
+            Expression left = parsePrimary();
+            if (kind() != SYMBOL) {
+                return left;
+            }
+            String symbol = peek();
+            int operator = "=".equals(symbol) ? Comparison.EQ : "!=".equals(symbol) ? Comparison.NE : "<"
+                .equals(symbol) ? Comparison.LT : "<=".equals(symbol) ? Comparison.LE : ">".equals(symbol)
+                ? Comparison.GT : ">=".equals(symbol) ? Comparison.GE : -1;
+            if (operator == -1) {
+                return left;
+            }
+            ++token;
+            return new Comparison(operator, left, parsePrimary());
+        }
+
+        protected Expression parsePrimary() {
+            switch (kind()) {
+            case STRING:
+                return new Literal(tokens.get(token++));
+            case NUMBER:
+                try {
+                    return new Literal(Double.valueOf(peek()));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number '" + peek() + '\'');
+                } finally {
+                    ++token;
+                }
+            }
+            if (isSymbol("(")) {
+                ++token;
+                Expression result = parseExpression();
+                expect(")");
+                return result;
+            }
+            if (isFunction()) {
+                return parseFunction();
+            }
+            return parseUnion();
+        }
+
+        protected Expression parseFunction() {
+            String name = peek();
+            int function = 0;
+            while (function < Function.NAMES.length && !Function.NAMES[function].equals(name)) {
+                ++function;
+            }
+            if (function == Function.NAMES.length) {
+                throw error("Unknown function " + name);
+            }
+            token += 2;
+            List arguments = new ArrayList();
+            if (!isSymbol(")")) {
+                arguments.add(parseExpression());
+                while (isSymbol(",")) {
+                    ++token;
+                    arguments.add(parseExpression());
+                }
+            }
+            expect(")");
+            if (arguments.size() != Function.ARITIES[function]) {
+                throw error(name + " expects " + Function.ARITIES[function] + " arguments");
+            }
+            Type type = null;
+            if (function == Function.INSTANCE_OF) {
+                if (!(arguments.get(0) instanceof Literal) || !(arguments.get(1) instanceof Literal)) {
+                    throw error("instance-of expects the literal URI and name of a Type");
+                }
+                String uri = ((Literal)arguments.get(0)).value.toString();
+                String typeName = ((Literal)arguments.get(1)).value.toString();
+                type = helperContext.getTypeHelper().getType(uri, typeName);
+                if (!(type instanceof EClass)) {
+                    throw error("Unknown Type " + uri + '#' + typeName);
+                }
+            }
+            return new Function(function, (Expression[])arguments.toArray(new Expression[arguments.size()]), type);
+        }
+    }
+}
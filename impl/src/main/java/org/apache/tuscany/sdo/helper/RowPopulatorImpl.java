@@ -0,0 +1,99 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.helper;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.impl.DynamicDataObjectImpl;
+import org.apache.tuscany.sdo.impl.StoreDataObjectImpl;
+import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.FrozenAdapter;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EFactory;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+
+/**
+ * A {@link SDOHelper.RowPopulator} resolving the EFactory of its Type and the feature IDs of its Properties once. The
+ * values of the DataObjects of dynamic Types are set by feature ID, skipping the resolution of the Property of each
+ * value; the other DataObjects are set through the DataObject API.
+ */
+public class RowPopulatorImpl implements SDOHelper.RowPopulator {
+    protected final EClass eClass;
+
+    protected final EFactory eFactory;
+
+    protected final Property[] properties;
+
+    /**
+     * the feature ID of each Property in the dynamic DataObjects
+     */
+    protected final int[] featureIDs;
+
+    public RowPopulatorImpl(Type type, Property[] properties) {
+        eFactory = DataObjectUtil.getEFactory(type);
+        eClass = (EClass) type;
+        this.properties = (Property[]) properties.clone();
+        featureIDs = new int[properties.length];
+        for (int index = 0; index < properties.length; ++index) {
+            featureIDs[index] = eClass.getFeatureID((EStructuralFeature) properties[index]);
+            if (featureIDs[index] == -1)
+                throw new IllegalArgumentException("The Property " + properties[index].getName() + " isn't a Property of "
+                        + type.getName());
+        }
+    }
+
+    public DataObject create(Object[] values) {
+        DataObject dataObject;
+        try {
+            dataObject = (DataObject) eFactory.create(eClass);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException();
+        }
+        populate(dataObject, values);
+        return dataObject;
+    }
+
+    public DataObject[] createMany(Object[][] rows) {
+        DataObject[] dataObjects = new DataObject[rows.length];
+        for (int index = 0; index < rows.length; ++index)
+            dataObjects[index] = create(rows[index]);
+        return dataObjects;
+    }
+
+    public void populate(DataObject dataObject, Object[] values) {
+        if (values.length != properties.length)
+            throw new IllegalArgumentException("The row has " + values.length + " values for " + properties.length
+                    + " Properties");
+        if ((dataObject instanceof DynamicDataObjectImpl || dataObject instanceof StoreDataObjectImpl)
+                && ((InternalEObject) dataObject).eClass() == eClass) {
+            InternalEObject eObject = (InternalEObject) dataObject;
+            FrozenAdapter.checkNotFrozen(eObject);
+            for (int index = 0; index < values.length; ++index)
+                eObject.eSet(featureIDs[index], values[index]);
+        } else {
+            for (int index = 0; index < values.length; ++index)
+                dataObject.set(properties[index], values[index]);
+        }
+    }
+}
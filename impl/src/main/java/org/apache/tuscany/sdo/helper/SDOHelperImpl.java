@@ -39,11 +39,14 @@ import org.apache.tuscany.sdo.api.XMLStreamHelper;
 import org.apache.tuscany.sdo.api.EventListener;
 import org.apache.tuscany.sdo.impl.ClassImpl;
 import org.apache.tuscany.sdo.impl.DataGraphImpl;
-import org.apache.tuscany.sdo.impl.DynamicDataObjectImpl;
 import org.apache.tuscany.sdo.model.ModelFactory;
 import org.apache.tuscany.sdo.model.impl.ModelFactoryImpl;
 import org.apache.tuscany.sdo.spi.SDOHelperBase;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.FrozenAdapter;
+import org.apache.tuscany.sdo.util.SnapshotAdapter;
+import org.apache.tuscany.sdo.util.KeyIndex;
+import org.apache.tuscany.sdo.util.PrimitiveEList;
 import org.eclipse.emf.common.notify.Adapter;
 import org.eclipse.emf.common.notify.Notifier;
 import org.eclipse.emf.common.util.URI;
@@ -296,36 +299,39 @@ public class SDOHelperImpl extends SDOHelperBase implements SDOHelper, SDOHelper
         if ("".equals(uri))
             uri = null; // FB
 
-        EPackage ePackage = extendedMetaData.getPackage(uri);
-        if (ePackage == null) {
-            ePackage = EcoreFactory.eINSTANCE.createEPackage();
-            ePackage.setEFactoryInstance(new DynamicDataObjectImpl.FactoryImpl());
-            ePackage.setNsURI(uri);
-            String packagePrefix = uri != null ? URI.createURI(uri).trimFileExtension().lastSegment() : ""; // FB
-            ePackage.setName(packagePrefix);
-            ePackage.setNsPrefix(packagePrefix);
-            extendedMetaData.putPackage(uri, ePackage);
-        }
+        synchronized (((HelperContextImpl)hc).getTypeRegistry()) {
+            EPackage ePackage = extendedMetaData.getPackage(uri);
+            if (ePackage == null) {
+                ePackage = EcoreFactory.eINSTANCE.createEPackage();
+                ePackage.setEFactoryInstance(((HelperContextImpl)hc).createEFactory());
+                ePackage.setNsURI(uri);
+                String packagePrefix = uri != null ? URI.createURI(uri).trimFileExtension().lastSegment() : ""; // FB
+                ePackage.setName(packagePrefix);
+                ePackage.setNsPrefix(packagePrefix);
+                extendedMetaData.putPackage(uri, ePackage);
+            }
 
-        EClassifier eClassifier = ePackage.getEClassifier(name);
-        if (eClassifier != null) // already defined?
-        {
-            // throw new IllegalArgumentException();
-            return null;
-        }
+            EClassifier eClassifier = ePackage.getEClassifier(name);
+            if (eClassifier != null) // already defined?
+            {
+                // throw new IllegalArgumentException();
+                return null;
+            }
 
-        if (name != null) {
-            eClassifier =
-                isDataType ? (EClassifier)SDOFactory.eINSTANCE.createDataType() : (EClassifier)SDOFactory.eINSTANCE
-                    .createClass();
-            eClassifier.setName(name);
-        } else {
-            eClassifier = DataObjectUtil.createDocumentRoot();
-        }
+            if (name != null) {
+                eClassifier =
+                    isDataType ? (EClassifier)SDOFactory.eINSTANCE.createDataType() : (EClassifier)SDOFactory.eINSTANCE
+                        .createClass();
+                eClassifier.setName(name);
+            } else {
+                eClassifier = DataObjectUtil.createDocumentRoot();
+            }
 
-        ePackage.getEClassifiers().add(eClassifier);
+            ePackage.getEClassifiers().add(eClassifier);
+            ((HelperContextImpl)hc).getTypeRegistry().invalidate();
 
-        return (Type)eClassifier;
+            return (Type)eClassifier;
+        }
     }
 
     public void addBaseType(Type type, Type baseType) {
@@ -525,6 +531,108 @@ public class SDOHelperImpl extends SDOHelperBase implements SDOHelper, SDOHelper
     public void removeChangeListener(DataObject dob, EventListener listener) {
       ((Notifier)dob).eAdapters().remove(listener);
     }
+
+    public int[] getIntArray(DataObject dataObject, Property property) {
+        List list = dataObject.getList(property);
+        return list instanceof PrimitiveEList ? ((PrimitiveEList)list).toIntArray() : super.getIntArray(dataObject, property);
+    }
+
+    public long[] getLongArray(DataObject dataObject, Property property) {
+        List list = dataObject.getList(property);
+        return list instanceof PrimitiveEList ? ((PrimitiveEList)list).toLongArray() : super.getLongArray(dataObject, property);
+    }
+
+    public double[] getDoubleArray(DataObject dataObject, Property property) {
+        List list = dataObject.getList(property);
+        return list instanceof PrimitiveEList ? ((PrimitiveEList)list).toDoubleArray() : super.getDoubleArray(dataObject, property);
+    }
+
+    public void setIntArray(DataObject dataObject, Property property, int[] values) {
+        List list = dataObject.getList(property);
+        if (!(list instanceof PrimitiveEList && ((PrimitiveEList)list).setArray(values))) {
+            super.setIntArray(dataObject, property, values);
+        }
+    }
+
+    public void setLongArray(DataObject dataObject, Property property, long[] values) {
+        List list = dataObject.getList(property);
+        if (!(list instanceof PrimitiveEList && ((PrimitiveEList)list).setArray(values))) {
+            super.setLongArray(dataObject, property, values);
+        }
+    }
+
+    public void setDoubleArray(DataObject dataObject, Property property, double[] values) {
+        List list = dataObject.getList(property);
+        if (!(list instanceof PrimitiveEList && ((PrimitiveEList)list).setArray(values))) {
+            super.setDoubleArray(dataObject, property, values);
+        }
+    }
+
+    public void createIndex(DataObject dataObject, Property listProperty, Property keyProperty) {
+        KeyIndex.createIndex(dataObject, listProperty, keyProperty);
+    }
+
+    public void removeIndex(DataObject dataObject, Property listProperty, Property keyProperty) {
+        KeyIndex.removeIndex(dataObject, listProperty, keyProperty);
+    }
+
+    public DataObject lookup(DataObject dataObject, Property listProperty, Property keyProperty, Object value) {
+        KeyIndex index = KeyIndex.getIndex((EObject)dataObject, (EStructuralFeature)listProperty, keyProperty.getName());
+        return index == null ? super.lookup(dataObject, listProperty, keyProperty, value) : index.lookup(value);
+    }
+
+    public Path compilePath(String path) {
+        return new DataObjectUtil.Accessor.Path(path);
+    }
+
+    public Object tryGet(DataObject dataObject, Path path) {
+        if (!(path instanceof DataObjectUtil.Accessor.Path)) {
+            return tryGet(dataObject, path.toString());
+        }
+        return tryGet(DataObjectUtil.Accessor.create((EObject)dataObject, (DataObjectUtil.Accessor.Path)path, null));
+    }
+
+    public Object tryGet(DataObject dataObject, String path) {
+        Property property = dataObject.getType().getProperty(path);
+        if (property != null) {
+            return dataObject.get(property);
+        }
+        return tryGet(DataObjectUtil.Accessor.create((EObject)dataObject, path));
+    }
+
+    protected Object tryGet(DataObjectUtil.Accessor accessor) {
+        Object result = accessor.isResolved() ? accessor.get() : ABSENT;
+        accessor.recycle();
+        return result;
+    }
+
+    public Query compileQuery(HelperContext helperContext, String query) {
+        return new QueryImpl(helperContext, query);
+    }
+
+    public void freeze(DataObject dataObject) {
+        freeze(HelperProvider.getDefaultContext(), dataObject);
+    }
+
+    public void freeze(HelperContext scope, DataObject dataObject) {
+        FrozenAdapter.freeze(dataObject, ((TypeHelperImpl)scope.getTypeHelper()).getExtendedMetaData());
+    }
+
+    public boolean isFrozen(DataObject dataObject) {
+        return FrozenAdapter.isFrozen((EObject)dataObject);
+    }
+
+    public DataObject snapshot(DataObject dataObject) {
+        return SnapshotAdapter.snapshot(dataObject);
+    }
+
+    public DataObject[] createMany(Type type, int count) {
+        return DataObjectUtil.createMany(type, count);
+    }
+
+    public RowPopulator createRowPopulator(Type type, Property[] properties) {
+        return new RowPopulatorImpl(type, properties);
+    }
     
     
 }
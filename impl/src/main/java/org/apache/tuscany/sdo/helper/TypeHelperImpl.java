@@ -21,6 +21,7 @@ package org.apache.tuscany.sdo.helper;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -53,6 +54,7 @@ import commonj.sdo.helper.TypeHelper;
 public class TypeHelperImpl implements TypeHelper {
     protected HelperContext helperContext;
     private ExtendedMetaData extendedMetaData;
+    protected TypeRegistry typeRegistry;
 
     static protected Set builtInModels = null;
 
@@ -75,6 +77,7 @@ public class TypeHelperImpl implements TypeHelper {
     public TypeHelperImpl(HelperContext hc) {
         this.helperContext = hc;
         this.extendedMetaData = ((HelperContextImpl)hc).extendedMetaData;
+        this.typeRegistry = ((HelperContextImpl)hc).typeRegistry;
         
         // Register the standard (predefined) SDO types
         getBuiltInModels(); // Simply accessing EMF packages causes auto
@@ -85,16 +88,14 @@ public class TypeHelperImpl implements TypeHelper {
 
 
     public Type getType(String uri, String typeName) {
-        EPackage ePackage = extendedMetaData.getPackage(uri);
+        return typeRegistry.getType(uri, typeName);
+    }
 
-        if (ePackage != null) {
-            EClassifier eClassifier = ePackage.getEClassifier(typeName);
-            if (eClassifier == null) {
-                eClassifier = extendedMetaData.getType(ePackage, typeName);
-            }
-            return (Type)eClassifier;
-        }
-        return null;
+    /**
+     * @return the registry of the Types of this scope
+     */
+    public TypeRegistry getTypeRegistry() {
+        return typeRegistry;
     }
 
     private Method getGetStaticTypeMethod(Class classObj) {
@@ -143,6 +144,17 @@ public class TypeHelperImpl implements TypeHelper {
     }
 
     public Type define(DataObject type) {
+        synchronized (typeRegistry) {
+            Type definedType = defineType(type);
+            typeRegistry.publish(Collections.singletonList(definedType));
+            return definedType;
+        }
+    }
+
+    /**
+     * Defines the Type, and the Types it depends on, with the registry locked
+     */
+    protected Type defineType(DataObject type) {
         if (!(type instanceof org.apache.tuscany.sdo.model.Type))
             throw new IllegalArgumentException();
         org.apache.tuscany.sdo.model.Type modeledType = (org.apache.tuscany.sdo.model.Type)type;
@@ -217,8 +229,11 @@ public class TypeHelperImpl implements TypeHelper {
     public List /* Type */define(List /* DataObject */types) {
         int count = types.size();
         List definedTypes = new ArrayList(count);
-        for (int i = 0; i < count; i++) {
-            definedTypes.add(define((DataObject)types.get(i)));
+        synchronized (typeRegistry) {
+            for (int i = 0; i < count; i++) {
+                definedTypes.add(defineType((DataObject)types.get(i)));
+            }
+            typeRegistry.publish(definedTypes);
         }
         return definedTypes;
     }
@@ -231,7 +246,7 @@ public class TypeHelperImpl implements TypeHelper {
             if (eClassifier != null) {
                 return (Type)eClassifier;
             } else {
-                return define((DataObject)modeledType);
+                return defineType((DataObject)modeledType);
             }
         }
     }
@@ -0,0 +1,152 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.helper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+
+import commonj.sdo.Type;
+
+/**
+ * The Types of a HelperContext by URI and name. The Types found are published in tables which are replaced, never
+ * modified, so the lookups of published Types don't lock. The other lookups, as well as the definitions of Types by
+ * the TypeHelper and XSDHelper, lock the registry while going through the EMF registries, which aren't safe to read
+ * while a Type is defined: a Type defined by a TypeHelper or XSDHelper is only found once completely defined. The Types
+ * created through the createType API are found as soon as created.
+ * <p>
+ * The Types not found in a known namespace are published too, with the generation they were looked up in: the count of
+ * the invalidations of the registry, by the definitions of Types, and of the packages and Types put or demanded in the
+ * BaseSDOExtendedMetaDataImpl. A lookup of a Type not found in the current generation doesn't lock either. The
+ * lookups in an unknown namespace lock, as its package can be registered in the global EMF registry.
+ */
+public class TypeRegistry {
+    protected final ExtendedMetaData extendedMetaData;
+
+    /**
+     * the Map of the published Types by name, of each URI ("" for none)
+     */
+    private volatile Map types = Collections.EMPTY_MAP;
+
+    /**
+     * the count of the invalidations of the Types not found
+     */
+    private volatile int invalidations;
+
+    public TypeRegistry(ExtendedMetaData extendedMetaData) {
+        this.extendedMetaData = extendedMetaData;
+    }
+
+    /**
+     * @return the Type of the URI and name, or null
+     */
+    public Type getType(String uri, String name) {
+        Map names = (Map) types.get(uri == null ? "" : uri);
+        if (names != null) {
+            Object type = names.get(name);
+            if (type instanceof Type)
+                return (Type) type;
+            if (type != null && ((Miss) type).generation == generation())
+                return null;
+        }
+        synchronized (this) {
+            long generation = generation();
+            EPackage ePackage = extendedMetaData.getPackage(uri);
+            Type type = ePackage == null ? null : lookup(ePackage, name);
+            if (type != null || ePackage != null && generation != -1) {
+                Map newTypes = new HashMap(types);
+                put(newTypes, uri, name, type == null ? (Object) new Miss(generation) : type);
+                types = newTypes;
+            }
+            return type;
+        }
+    }
+
+    /**
+     * @return the generation of the Types not found, -1 if the changes of the ExtendedMetaData can't be counted
+     */
+    protected long generation() {
+        if (!(extendedMetaData instanceof BaseSDOExtendedMetaDataImpl))
+            return -1;
+        return (long) invalidations << 32
+            | ((BaseSDOExtendedMetaDataImpl) extendedMetaData).getModificationCount() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Invalidates the Types not found; called by the definitions of Types, with the registry locked
+     */
+    public synchronized void invalidate() {
+        ++invalidations;
+    }
+
+    /**
+     * @return the Type of the name in the package, or null; called with the registry locked
+     */
+    protected Type lookup(EPackage ePackage, String name) {
+        EClassifier eClassifier = ePackage.getEClassifier(name);
+        if (eClassifier == null)
+            eClassifier = extendedMetaData.getType(ePackage, name);
+        return (Type) eClassifier;
+    }
+
+    /**
+     * Publishes completely defined Types under their URI and name
+     */
+    public synchronized void publish(Collection definedTypes) {
+        ++invalidations;
+        Map newTypes = new HashMap(types);
+        for (Iterator iterator = definedTypes.iterator(); iterator.hasNext();) {
+            Type type = (Type) iterator.next();
+            if (type != null && type.getName() != null)
+                put(newTypes, type.getURI(), type.getName(), type);
+        }
+        types = newTypes;
+    }
+
+    /**
+     * Puts the Type, or Miss, in a copy of the published tables, copying the table of the URI if still published
+     */
+    private void put(Map newTypes, String uri, String name, Object type) {
+        String key = uri == null ? "" : uri;
+        Map names = (Map) newTypes.get(key);
+        if (names == null || names == types.get(key)) {
+            names = names == null ? new HashMap() : new HashMap(names);
+            newTypes.put(key, names);
+        }
+        names.put(name, type);
+    }
+
+    /**
+     * A Type not found
+     */
+    static final class Miss {
+        final long generation;
+
+        Miss(long generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.resource.SDOURIConverterImpl;
+import org.apache.tuscany.sdo.util.resource.SDOXMLResourceImpl;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * The reusable part of the XMLDocument loads and saves of a scope.
+ * <p>
+ * A {@link Pool} is built once per HelperContext and holds what every document shares: the resource factories
+ * (including the GENERATED_LOADER ones, instantiated once per class) and the default load/save options
+ * DataObjectUtil.configureXMLResource would put on each XMLResource, with the parser pool of the context.
+ * An engine is borrowed from the pool for one load or save and reset when given back: it owns the merged
+ * option Map, the EMF XMLSave lookup table cache, the buffer of the Writer saves and a ResourceSet with its package
+ * registry and SDOURIConverter, none of which are thread-safe. The resource of the document is added to the
+ * ResourceSet for the load or save and removed from it by the reset, so that the document doesn't keep the engine.
+ */
+public class XMLDocumentEngine {
+    static final URI TEMP_URI = URI.createURI("http:///temp.xml");
+
+    protected final Pool pool;
+
+    private final Map options = new HashMap();
+
+    /**
+     * @see XMLResource#OPTION_USE_CACHED_LOOKUP_TABLE
+     */
+    private final List lookupTable = new ArrayList();
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private final ResourceSet resourceSet = new ResourceSetImpl();
+
+    /**
+     * The largest buffer kept between saves
+     */
+    static final int BUFFER_SIZE = 0x10000;
+
+    protected XMLDocumentEngine(Pool pool) {
+        this.pool = pool;
+        resourceSet.setResourceFactoryRegistry(pool.resourceFactoryRegistry);
+        resourceSet.setPackageRegistry(new EPackageRegistryImpl(HelperContextImpl.getBuiltInModelRegistry()));
+        resourceSet.setURIConverter(new SDOURIConverterImpl());
+    }
+
+    public static class Pool {
+        /**
+         * The most idle engines kept
+         */
+        public static final int DEFAULT_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+        protected final ExtendedMetaData extendedMetaData;
+
+        protected final Resource.Factory.Registry resourceFactoryRegistry;
+
+        protected final Map defaultLoadOptions, defaultSaveOptions;
+
+        /**
+         * GENERATED_LOADER Class to resource factory
+         */
+        private final Map resourceFactories = new HashMap();
+
+        private final List idle = new ArrayList();
+
+        private final int size;
+
+        /**
+         * @param parserPool
+         *            the parser pool of the loads, null for the JVM wide one
+         */
+        public Pool(ExtendedMetaData extendedMetaData, XMLParserPool parserPool) {
+            this(extendedMetaData, parserPool, DEFAULT_SIZE);
+        }
+
+        public Pool(ExtendedMetaData extendedMetaData, XMLParserPool parserPool, int size) {
+            this.extendedMetaData = extendedMetaData;
+            this.size = size;
+            ResourceSet resourceSet = DataObjectUtil.createResourceSet();
+            resourceFactoryRegistry = resourceSet.getResourceFactoryRegistry();
+            XMLResource template = new SDOXMLResourceImpl(TEMP_URI);
+            DataObjectUtil.configureXMLResource(template, extendedMetaData);
+            defaultLoadOptions = template.getDefaultLoadOptions();
+            defaultSaveOptions = template.getDefaultSaveOptions();
+            if (parserPool != null)
+                defaultLoadOptions.put(XMLResource.OPTION_USE_PARSER_POOL, parserPool);
+        }
+
+        /**
+         * @return an engine for one load or save, to be {@link #release(XMLDocumentEngine) released} once done
+         */
+        public XMLDocumentEngine acquire() {
+            synchronized (idle) {
+                int last = idle.size() - 1;
+                if (last != -1)
+                    return (XMLDocumentEngine) idle.remove(last);
+            }
+            return new XMLDocumentEngine(this);
+        }
+
+        public void release(XMLDocumentEngine engine) {
+            engine.reset();
+            synchronized (idle) {
+                if (idle.size() < size)
+                    idle.add(engine);
+            }
+        }
+
+        /**
+         * Creates the XMLResource of a document with the factories and default options of the pool, outside of any
+         * ResourceSet: an engine {@link XMLDocumentEngine#attach(XMLResource) attaches} it for each load or save.
+         */
+        protected XMLResource createResource(Object options) {
+            Class resourceFactoryClass = options instanceof Map ? (Class) ((Map) options).get("GENERATED_LOADER") : null;
+            XMLResource resource = (XMLResource) getResourceFactory(resourceFactoryClass).createResource(TEMP_URI);
+            resource.getDefaultLoadOptions().putAll(defaultLoadOptions);
+            resource.getDefaultSaveOptions().putAll(defaultSaveOptions);
+            return resource;
+        }
+
+        protected Resource.Factory getResourceFactory(Class resourceFactoryClass) {
+            if (resourceFactoryClass == null)
+                return resourceFactoryRegistry.getFactory(TEMP_URI);
+            synchronized (resourceFactories) {
+                Resource.Factory resourceFactory = (Resource.Factory) resourceFactories.get(resourceFactoryClass);
+                if (resourceFactory == null) {
+                    try {
+                        resourceFactory = (Resource.Factory) resourceFactoryClass.newInstance();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        return resourceFactoryRegistry.getFactory(TEMP_URI);
+                    }
+                    resourceFactories.put(resourceFactoryClass, resourceFactory);
+                }
+                return resourceFactory;
+            }
+        }
+    }
+
+    /**
+     * @return the XMLResource of a document to load, attached to the ResourceSet of the engine
+     */
+    protected XMLResource createResource(Object options) {
+        XMLResource resource = pool.createResource(options);
+        resourceSet.getResources().add(resource);
+        return resource;
+    }
+
+    /**
+     * Adds the XMLResource of a document to save to the ResourceSet of the engine, unless it already has one
+     */
+    protected void attach(XMLResource resource) {
+        if (resource.getResourceSet() == null)
+            resourceSet.getResources().add(resource);
+    }
+
+    /**
+     * Drops the state of the last document
+     */
+    protected void reset() {
+        resourceSet.getResources().clear();
+        options.clear();
+        if (buffer.size() > BUFFER_SIZE)
+            buffer = new ByteArrayOutputStream();
+        else
+            buffer.reset();
+    }
+
+    /**
+     * @return the options of the HelperContext overridden by the given ones, in a Map owned by the engine
+     */
+    public Map mergeOptions(Map defaultOptions, Map options) {
+        this.options.clear();
+        if (defaultOptions != null)
+            this.options.putAll(defaultOptions);
+        if (options != null)
+            this.options.putAll(options);
+        return this.options;
+    }
+
+    /**
+     * @return the merged options with the EMF XMLSave lookup table cache of the engine
+     */
+    public Map mergeSaveOptions(Map defaultOptions, Map options) {
+        Map saveOptions = mergeOptions(defaultOptions, options);
+        if (!saveOptions.containsKey(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE))
+            saveOptions.put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, lookupTable);
+        return saveOptions;
+    }
+
+    /**
+     * @return an empty buffer for the Writer saves
+     */
+    protected ByteArrayOutputStream getBuffer() {
+        buffer.reset();
+        return buffer;
+    }
+}
@@ -30,12 +30,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.tuscany.sdo.SimpleAnyTypeDataObject;
+import org.apache.tuscany.sdo.api.SDOHelper;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
 import org.apache.tuscany.sdo.util.SDOUtil;
+import org.apache.tuscany.sdo.util.resource.DataObjectStreamSerializer;
+import org.apache.tuscany.sdo.util.resource.DataObjectUTF8Serializer;
 import org.apache.tuscany.sdo.util.resource.SDOXMLResourceImpl;
+import org.apache.tuscany.sdo.util.resource.XMLNameTable;
 import org.eclipse.emf.common.util.EMap;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EAttribute;
@@ -138,10 +145,39 @@ public class XMLDocumentImpl implements XMLDocument
     this(extendedMetaData, null);
   }
 
+  /**
+   * Creates the resource with the factories and default options of the engine pool
+   * instead of building a ResourceSet and configuring the resource.
+   */
+  protected XMLDocumentImpl(XMLDocumentEngine.Pool engines, Object options)
+  {
+    this.extendedMetaData = engines.extendedMetaData;
+    resource = engines.createResource(options);
+  }
+
+  /**
+   * Creates the resource of a document to load in the ResourceSet of the engine.
+   */
+  protected XMLDocumentImpl(XMLDocumentEngine engine, Object options)
+  {
+    this.extendedMetaData = engine.pool.extendedMetaData;
+    resource = engine.createResource(options);
+  }
+
   protected XMLDocumentImpl(ExtendedMetaData extendedMetaData, DataObject dataObject, String rootElementURI, String rootElementName)
   {
     this(extendedMetaData);
+    initRoot(dataObject, rootElementURI, rootElementName);
+  }
 
+  protected XMLDocumentImpl(XMLDocumentEngine.Pool engines, DataObject dataObject, String rootElementURI, String rootElementName)
+  {
+    this(engines, null);
+    initRoot(dataObject, rootElementURI, rootElementName);
+  }
+
+  private void initRoot(DataObject dataObject, String rootElementURI, String rootElementName)
+  {
     rootObject = (EObject)dataObject;
 
     rootElement = extendedMetaData.getElement(rootElementURI, rootElementName);
@@ -157,14 +193,44 @@ public class XMLDocumentImpl implements XMLDocument
 
   protected void save(OutputStream outputStream, Object options) throws IOException
   {
-    save(outputStream, null, options);
+    save(outputStream, options, null);
+  }
+
+  /**
+   * @param nameTable the pre-encoded markup of the scope for the direct save, can be null
+   */
+  protected void save(OutputStream outputStream, Object options, XMLNameTable nameTable) throws IOException
+  {
+    if (isSaveDirect(options))
+    {
+      saveDirect(outputStream, (Map)options, nameTable);
+    }
+    else
+    {
+      save(outputStream, null, options);
+    }
   }
     
+  /**
+   * @return whether the document is saved directly: only if asked, the EMF save being the default
+   */
+  protected boolean isSaveDirect(Object options)
+  {
+    return options instanceof Map && Boolean.TRUE.equals(((Map)options).get(SDOHelper.XMLOptions.XML_SAVE_DIRECT));
+  }
+
   protected void save(Writer outputWriter, Object options) throws IOException
+  {
+    save(outputWriter, options, null, new ByteArrayOutputStream());
+  }
+
+  /**
+   * @param outputStream the empty buffer the document is saved to before being written out
+   */
+  protected void save(Writer outputWriter, Object options, XMLNameTable nameTable, ByteArrayOutputStream outputStream) throws IOException
   {
     // TODO temporary brute-force implementation ... to be replaced
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    save(outputStream, options);
+    save(outputStream, options, nameTable);
     outputWriter.write(new String(outputStream.toByteArray()));
   }
 
@@ -233,6 +299,63 @@ public class XMLDocumentImpl implements XMLDocument
     }
   }
 
+  /**
+   * The XMLOutputFactory of the direct saves, in its own class so that only they need StAX
+   */
+  protected static final class OutputFactory
+  {
+    static final XMLOutputFactory INSTANCE = XMLOutputFactory.newInstance();
+  }
+
+  /**
+   * Writes the XML declaration then streams the DataObjects straight to the outputStream
+   * without going through the EMF XMLSave buffer.
+   * UTF-8 documents are written with the pre-encoded markup of the nameTable if any.
+   */
+  protected void saveDirect(OutputStream outputStream, Map options, XMLNameTable nameTable) throws IOException
+  {
+    String encoding = getEncoding();
+    if (encoding == null)
+    {
+      encoding = "UTF-8";
+    }
+    Object declareXML = options.get(XMLResource.OPTION_DECLARE_XML);
+    if (declareXML == null)
+    {
+      declareXML = resource.getDefaultSaveOptions().get(XMLResource.OPTION_DECLARE_XML);
+    }
+    if (!Boolean.FALSE.equals(declareXML))
+    {
+      String margin = (String)options.get(SDOHelper.XMLOptions.XML_SAVE_MARGIN);
+      String lineBreak = (String)options.get(SDOHelper.XMLOptions.XML_SAVE_LINE_BREAK);
+      StringBuffer declaration = new StringBuffer();
+      if (margin != null)
+      {
+        declaration.append(margin);
+      }
+      declaration.append("<?xml version=\"").append(getXMLVersion()).append("\" encoding=\"").append(encoding).append("\"?>");
+      declaration.append(lineBreak == null ? System.getProperty("line.separator") : lineBreak);
+      outputStream.write(declaration.toString().getBytes(encoding));
+    }
+    if (nameTable != null && "UTF-8".equalsIgnoreCase(encoding))
+    {
+      new DataObjectUTF8Serializer(nameTable, true).serialize(getRootObject(), getRootElementURI(), getRootElementName(),
+          getSchemaLocation(), getNoNamespaceSchemaLocation(), outputStream, options);
+      return;
+    }
+    try
+    {
+      XMLStreamWriter writer = OutputFactory.INSTANCE.createXMLStreamWriter(outputStream, encoding);
+      new DataObjectStreamSerializer(extendedMetaData, true).serialize(getRootObject(), getRootElementURI(), getRootElementName(),
+          getSchemaLocation(), getNoNamespaceSchemaLocation(), writer, options);
+      writer.close();
+    }
+    catch (XMLStreamException e)
+    {
+      throw new Resource.IOWrappedException(e);
+    }
+  }
+
   protected void load(InputStream inputStream, String locationURI, Object options) throws IOException
   {
     InputSource inputSource = new InputSource(inputStream);
@@ -37,8 +37,7 @@ import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
-import org.eclipse.emf.ecore.util.ExtendedMetaData;
-import org.xml.sax.InputSource;
+import org.apache.tuscany.sdo.util.resource.XMLNameTable;
 
 import commonj.sdo.DataObject;
 import commonj.sdo.helper.HelperContext;
@@ -51,12 +50,10 @@ import commonj.sdo.helper.XMLHelper;
  */
 public class XMLHelperImpl implements XMLHelper {
     protected HelperContext helperContext;
-    private ExtendedMetaData extendedMetaData;
 
 
     public XMLHelperImpl(HelperContext hc) {
         this.helperContext = hc;
-        this.extendedMetaData = ((HelperContextImpl)hc).extendedMetaData;
     }
 
     public XMLDocument load(String inputString) {
@@ -91,37 +88,67 @@ public class XMLHelperImpl implements XMLHelper {
         }
     }
 
+    /**
+     * @return the options merged into the engine Map instead of a copy
+     */
+    private Map mergeOptions(XMLDocumentEngine engine, Object options, boolean save) throws IOException {
+        if (options != null && !(options instanceof Map)) {
+            throw new IOException("Invalid load options!");
+        }
+        Map defaultOptions = ((HelperContextImpl)helperContext).getOptions();
+        return save ? engine.mergeSaveOptions(defaultOptions, (Map)options) : engine.mergeOptions(defaultOptions, (Map)options);
+    }
+
+    private XMLDocumentEngine.Pool getEngines() {
+        return ((HelperContextImpl)helperContext).getXMLDocumentEngines();
+    }
+
     public XMLDocument load(InputStream inputStream, String locationURI, Object options) throws IOException {
-        options = checkSetOptions(options);
-        XMLDocumentImpl document = new XMLDocumentImpl(extendedMetaData, options);
-        document.load(inputStream, locationURI, options);
-        return document;
+        XMLDocumentEngine.Pool engines = getEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        try {
+            options = mergeOptions(engine, options, false);
+            XMLDocumentImpl document = new XMLDocumentImpl(engine, options);
+            document.load(inputStream, locationURI, options);
+            return document;
+        } finally {
+            engines.release(engine);
+        }
     }
 
     public XMLDocument load(Reader inputReader, String locationURI, Object options) throws IOException {
-        XMLDocumentImpl document = new XMLDocumentImpl(extendedMetaData, options);
-        options = checkSetOptions(options);
-        document.load(inputReader, locationURI, options);
-        return document;
+        XMLDocumentEngine.Pool engines = getEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        try {
+            options = mergeOptions(engine, options, false);
+            XMLDocumentImpl document = new XMLDocumentImpl(engine, options);
+            document.load(inputReader, locationURI, options);
+            return document;
+        } finally {
+            engines.release(engine);
+        }
     }
 
     public XMLDocument load(Source source, String locationURI, Object options) throws IOException {
-        options = checkSetOptions(options);
-        if (source instanceof DOMSource) {
-            DOMSource domSource = (DOMSource)source;
-            XMLDocumentImpl document = new XMLDocumentImpl(extendedMetaData, options);
-            document.load(domSource.getNode(), options);
-            return document;
-        } else if (source instanceof SAXSource) {
-            XMLDocumentImpl document = new XMLDocumentImpl(extendedMetaData, options);
-            InputSource inputSource = SAXSource.sourceToInputSource(source);
-            document.load(inputSource, locationURI, options);
-            return document;
-        } else if (source instanceof StreamSource) {
+        if (source instanceof StreamSource) {
             return load(((StreamSource)source).getInputStream(), locationURI, options);
-        } else {
+        } else if (!(source instanceof DOMSource) && !(source instanceof SAXSource)) {
             throw new UnsupportedOperationException();
         }
+        XMLDocumentEngine.Pool engines = getEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        try {
+            options = mergeOptions(engine, options, false);
+            XMLDocumentImpl document = new XMLDocumentImpl(engine, options);
+            if (source instanceof DOMSource) {
+                document.load(((DOMSource)source).getNode(), options);
+            } else {
+                document.load(SAXSource.sourceToInputSource(source), locationURI, options);
+            }
+            return document;
+        } finally {
+            engines.release(engine);
+        }
     }
 
     public String save(DataObject dataObject, String rootElementURI, String rootElementName) {
@@ -155,38 +182,58 @@ public class XMLHelperImpl implements XMLHelper {
                      String rootElementName,
                      OutputStream outputStream,
                      Object options) throws IOException {
-        save(createDocument(dataObject, rootElementURI, rootElementName), outputStream, null);
+        save(createDocument(dataObject, rootElementURI, rootElementName), outputStream, options);
     }
 
     public void save(XMLDocument xmlDocument, OutputStream outputStream, Object options) throws IOException {
-        options = checkSetOptions(options);
-        ((XMLDocumentImpl)xmlDocument).save(outputStream, options);
+        XMLDocumentEngine.Pool engines = getEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        try {
+            options = mergeOptions(engine, options, true);
+            engine.attach(((XMLDocumentImpl)xmlDocument).resource);
+            ((XMLDocumentImpl)xmlDocument).save(outputStream, options, getXMLNameTable());
+        } finally {
+            engines.release(engine);
+        }
     }
 
     public void save(XMLDocument xmlDocument, Writer outputWriter, Object options) throws IOException {
-        options = checkSetOptions(options);
-        ((XMLDocumentImpl)xmlDocument).save(outputWriter, options);
+        XMLDocumentEngine.Pool engines = getEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        try {
+            options = mergeOptions(engine, options, true);
+            engine.attach(((XMLDocumentImpl)xmlDocument).resource);
+            ((XMLDocumentImpl)xmlDocument).save(outputWriter, options, getXMLNameTable(), engine.getBuffer());
+        } finally {
+            engines.release(engine);
+        }
     }
 
     public void save(XMLDocument xmlDocument, Result outputResult, Object options) throws IOException {
+        if (outputResult instanceof StreamResult) {
+            save(xmlDocument, ((StreamResult)outputResult).getOutputStream(), options);
+            return;
+        }
         options = checkSetOptions(options);
         if (outputResult instanceof DOMResult) {
             ((XMLDocumentImpl)xmlDocument).save(((DOMResult)outputResult).getNode(), options);
         } else if (outputResult instanceof SAXResult) {
             throw new UnsupportedOperationException();
-        } else if (outputResult instanceof StreamResult) {
-            save(xmlDocument, ((StreamResult)outputResult).getOutputStream(), options);
         } else {
             throw new UnsupportedOperationException();
         }
     }
 
     public XMLDocument createDocument(DataObject dataObject, String rootElementURI, String rootElementName) {
-        XMLDocument xmlDocument = new XMLDocumentImpl(extendedMetaData, dataObject, rootElementURI, rootElementName);
+        XMLDocument xmlDocument = new XMLDocumentImpl(getEngines(), dataObject, rootElementURI, rootElementName);
         xmlDocument.setEncoding("UTF-8");
         return xmlDocument;
     }
 
+    private XMLNameTable getXMLNameTable() {
+        return ((HelperContextImpl)helperContext).getXMLNameTable();
+    }
+
     public HelperContext getHelperContext() {
         return helperContext;
     }
@@ -19,20 +19,28 @@
  */
 package org.apache.tuscany.sdo.helper;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.util.resource.DataObjectStreamSerializer;
 import org.apache.tuscany.sdo.util.resource.DataObjectXMLStreamReader;
+import org.apache.tuscany.sdo.util.resource.RecordedEventXMLStreamReader;
+import org.apache.tuscany.sdo.util.resource.TypeStreamDeserializer;
 import org.apache.tuscany.sdo.util.resource.XMLDocumentStreamReader;
 import org.apache.tuscany.sdo.util.resource.XMLStreamSerializer;
 import org.eclipse.emf.ecore.resource.Resource;
 
 import commonj.sdo.DataObject;
 import commonj.sdo.Property;
+import commonj.sdo.Type;
 import commonj.sdo.helper.HelperContext;
 import commonj.sdo.helper.XMLDocument;
 
@@ -67,11 +75,45 @@ public class XMLStreamHelperImpl implements XMLStreamHelper {
     }
 
     public void save(XMLDocument document, XMLStreamWriter writer, Map options) throws XMLStreamException {
-        XMLStreamReader reader = createXMLStreamReader(document);
         options = checkSetOptions(options);
+        if (isDirect(options)) {
+            createSerializer().serialize(document.getRootObject(), document.getRootElementURI(), document.getRootElementName(),
+                                         writer, options);
+            return;
+        }
+        XMLStreamReader reader = createXMLStreamReader(document);
         new XMLStreamSerializer().serialize(reader, writer, options);
     }
 
+    /**
+     * @return whether the save is direct: only if asked, the XMLStreamReader save being the default
+     */
+    private static boolean isDirect(Map options) {
+        return options != null && Boolean.TRUE.equals(options.get(SDOHelper.XMLOptions.XML_SAVE_DIRECT));
+    }
+
+    /**
+     * The options the handlers have nothing to do with
+     */
+    private static final Set HANDLER_OPTIONS = new HashSet(Arrays.asList(new String[] {OPTION_DEFAULT_ROOT_TYPE,
+        SDOHelper.XMLOptions.XML_SAVE_DIRECT, SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL,
+        SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_SIZE, SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_IDLE_TIMEOUT,
+        SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_MAX_ACTIVE,
+        SDOHelper.DynamicTypeOptions.GENERATE_IMPLEMENTATION_CLASSES,
+        SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES, SDOHelper.DynamicTypeOptions.OFF_HEAP_STORE,
+        SDOHelper.DynamicTypeOptions.COLUMN_STORE, SDOHelper.DynamicTypeOptions.PRIMITIVE_LISTS}));
+
+    /**
+     * @return whether the generated handlers may load: the EMF loader implements all the other load options
+     */
+    private static boolean isHandlerLoad(Map options) {
+        return options == null || HANDLER_OPTIONS.containsAll(options.keySet());
+    }
+
+    protected DataObjectStreamSerializer createSerializer() {
+        return new DataObjectStreamSerializer(((HelperContextImpl)helperContext).extendedMetaData, false);
+    }
+
     public XMLStreamReader createXMLStreamReader(XMLDocument document) throws XMLStreamException {
         XMLStreamReader reader =
             new DataObjectXMLStreamReader(document.getRootObject(), document.getRootElementURI(), document
@@ -86,6 +128,21 @@ public class XMLStreamHelperImpl implements XMLStreamHelper {
         if (reader.getEventType() != XMLStreamConstants.START_ELEMENT)
             throw new IllegalStateException();
 
+        Map loadOptions = checkSetOptions(options);
+        if (isHandlerLoad(loadOptions)) {
+            Type defaultRootType = loadOptions == null ? null : (Type)loadOptions.get(OPTION_DEFAULT_ROOT_TYPE);
+            if (new TypeStreamDeserializer(reader, helperContext).isHandled(defaultRootType)) {
+                // Record the element to load it with the EMF loader if the handlers don't know its content
+                RecordedEventXMLStreamReader.Tag tag = new RecordedEventXMLStreamReader.Tag(reader);
+                tag.record(reader);
+                try {
+                    return new TypeStreamDeserializer(tag.play(reader), helperContext).read(defaultRootType);
+                } catch (TypeStreamDeserializer.UnknownContentException e) {
+                    reader = tag.play(reader);
+                }
+            }
+        }
+
         // StAX2SAXAdapter won't produce START_DOCUMENT if the reader is
         // posisitioned at START_ELEMENT and the EMF loader will fail
         // Wrap the reader so it represents a document
@@ -104,8 +161,14 @@ public class XMLStreamHelperImpl implements XMLStreamHelper {
     }
 
     public void saveObject(DataObject sdo, XMLStreamWriter writer, Map options) throws XMLStreamException {
-        XMLStreamReader reader = createXMLStreamReader(sdo);
         options = checkSetOptions(options);
+        if (isDirect(options)) {
+            Property property = sdo.getContainmentProperty();
+            Type type = property == null ? sdo.getType() : property.getType();
+            createSerializer().serialize(sdo, type.getURI(), property == null ? type.getName() : property.getName(), writer, options);
+            return;
+        }
+        XMLStreamReader reader = createXMLStreamReader(sdo);
         new XMLStreamSerializer().serialize(new XMLDocumentStreamReader(reader), writer, options);
     }
 
@@ -129,8 +192,10 @@ public class XMLStreamHelperImpl implements XMLStreamHelper {
     }
 
     protected XMLDocument loadDocument(XMLStreamReader reader, Map options) throws XMLStreamException {
+        XMLDocumentEngine.Pool engines = ((HelperContextImpl)helperContext).getXMLDocumentEngines();
+        XMLDocumentEngine engine = engines.acquire();
         try {
-            XMLDocumentImpl document = new XMLDocumentImpl(((HelperContextImpl)helperContext).extendedMetaData, null);
+            XMLDocumentImpl document = new XMLDocumentImpl(engine, null);
             options = checkSetOptions(options);
             document.load(reader, options);
             return document;
@@ -142,6 +207,8 @@ public class XMLStreamHelperImpl implements XMLStreamHelper {
                 }
             }
             throw new RuntimeException(e); // ????
+        } finally {
+            engines.release(engine);
         }
     }
 
@@ -38,11 +38,12 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
-import org.apache.tuscany.sdo.impl.DynamicDataObjectImpl;
+import org.apache.tuscany.sdo.impl.FieldDataObjectImpl;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EModelElement;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EStructuralFeature;
@@ -225,6 +226,18 @@ public class XSDHelperImpl implements XSDHelper {
     }
 
     protected List /* Type */define(InputSource inputSource, String schemaLocation) {
+        TypeRegistry typeRegistry = ((HelperContextImpl)helperContext).getTypeRegistry();
+        synchronized (typeRegistry) {
+            List newTypes = defineTypes(inputSource, schemaLocation);
+            typeRegistry.publish(newTypes);
+            return newTypes;
+        }
+    }
+
+    /**
+     * Defines the Types of the schema, with the registry locked
+     */
+    protected List /* Type */defineTypes(InputSource inputSource, String schemaLocation) {
         try {
             SDOXSDEcoreBuilder ecoreBuilder = getEcoreBuilder();
             ResourceSet resourceSet = ecoreBuilder.createResourceSet();
@@ -249,8 +262,12 @@ public class XSDHelperImpl implements XSDHelper {
                     for (Iterator iter = newEPackages.iterator(); iter.hasNext();) {
                         EPackage currentPackage = (EPackage)iter.next();
                         if (!originalEPackages.contains(currentPackage)) {
-                            currentPackage.setEFactoryInstance(new DynamicDataObjectImpl.FactoryImpl());
+                            EFactory eFactory = ((HelperContextImpl)helperContext).createEFactory();
+                            currentPackage.setEFactoryInstance(eFactory);
                             EcoreUtil.freeze(currentPackage);
+                            if (eFactory instanceof FieldDataObjectImpl.FactoryImpl) {
+                                ((FieldDataObjectImpl.FactoryImpl)eFactory).generate(currentPackage);
+                            }
                             newTypes.addAll(currentPackage.getEClassifiers());
                         }
                     }
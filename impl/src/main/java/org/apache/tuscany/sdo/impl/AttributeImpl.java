@@ -28,9 +28,11 @@ import org.apache.tuscany.sdo.model.internal.InternalFactory;
 import org.apache.tuscany.sdo.model.internal.impl.InternalFactoryImpl;
 import org.apache.tuscany.sdo.util.BasicSequence;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.PrimitiveEList;
 import org.apache.tuscany.sdo.util.SDOUtil;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.impl.EAttributeImpl;
@@ -171,6 +173,41 @@ public class AttributeImpl extends EAttributeImpl implements Property
     return false;
   }
   
+  /**
+   * Many-valued int, long and double properties are held in a PrimitiveEList if the factory of their Type asks so
+   */
+  public EStructuralFeature.Internal.SettingDelegate getSettingDelegate()
+  {
+    if (settingDelegate == null && isMany() && !isDerived() && !isVolatile() && getEType() != null
+      && PrimitiveEList.isPrimitive(getEType().getInstanceClass()) && isPrimitiveLists(getEContainingClass()))
+    {
+      settingDelegate = new InternalSettingDelegatePrimitiveList(this);
+    }
+    return super.getSettingDelegate();
+  }
+
+  static boolean isPrimitiveLists(EClass eClass)
+  {
+    EFactory eFactory = eClass == null || eClass.getEPackage() == null ? null : eClass.getEPackage().getEFactoryInstance();
+    return eFactory instanceof DynamicDataObjectImpl.FactoryImpl && ((DynamicDataObjectImpl.FactoryImpl)eFactory).isPrimitiveLists();
+  }
+
+  public static class InternalSettingDelegatePrimitiveList extends InternalSettingDelegateMany
+  {
+    protected final EStructuralFeature attribute;
+
+    InternalSettingDelegatePrimitiveList(EStructuralFeature attribute)
+    {
+      super(InternalSettingDelegateMany.DATA, attribute);
+      this.attribute = attribute;
+    }
+
+    protected EStructuralFeature.Setting createDynamicSetting(InternalEObject owner)
+    {
+      return new PrimitiveEList(owner, owner.eClass().getFeatureID(attribute), attribute.getEType().getInstanceClass());
+    }
+  }
+
   protected EStructuralFeature.Internal.SettingDelegate createFeatureMapSettingDelegate()
   {
     return new InternalSettingDelegateSequence(this);
@@ -0,0 +1,89 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import org.apache.tuscany.sdo.util.ColumnStore;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.impl.EFactoryImpl;
+
+/**
+ * A DataObject whose property values are kept by a ColumnStore, in a row of the table of its Type.
+ */
+public class ColumnDataObjectImpl extends DynamicStoreDataObjectImpl
+{
+  protected final ColumnStore.Table eTable;
+
+  protected final int eRow;
+
+  public ColumnDataObjectImpl(EClass eClass, ColumnStore eStore, ColumnStore.Table eTable, int eRow)
+  {
+    super(eClass, eStore);
+    this.eTable = eTable;
+    this.eRow = eRow;
+  }
+
+  public ColumnStore.Table eTable()
+  {
+    return eTable;
+  }
+
+  public int eRow()
+  {
+    return eRow;
+  }
+
+  protected boolean eIsCaching()
+  {
+    return false;
+  }
+
+  /**
+   * Releases the row of the DataObject, reused once the DataObject is collected
+   */
+  public void delete()
+  {
+    super.delete();
+    ((ColumnStore)eStore()).release(this);
+  }
+
+  /**
+   * An EFactoryImpl that creates the DataObjects in a ColumnStore
+   */
+  public static class FactoryImpl extends EFactoryImpl
+  {
+    protected final ColumnStore store;
+
+    public FactoryImpl(ColumnStore store)
+    {
+      this.store = store;
+    }
+
+    public ColumnStore getStore()
+    {
+      return store;
+    }
+
+    public EObject basicCreate(EClass eClass)
+    {
+      return store.create(eClass);
+    }
+  }
+}
@@ -27,8 +27,10 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.tuscany.sdo.SDOFactory;
@@ -574,6 +576,40 @@ public class DataGraphImpl extends EObjectImpl implements DataGraph, Adapter, Se
     return dataObject;
   }
 
+  /**
+   * the version of the root DataObject, incremented by each commit of a transaction
+   */
+  protected long version;
+
+  /**
+   * the open transactions
+   */
+  protected final List transactions = new ArrayList();
+
+  /**
+   * the committed transactions an open transaction can conflict with, in the order of their commits
+   */
+  protected final List commits = new LinkedList();
+
+  /**
+   * Begins an optimistic transaction over the tree of the root DataObject. The first transaction must begin in the
+   * thread modifying the tree. The transaction must be committed or rolled back, as it's kept open until then.
+   */
+  public DataGraphTransaction beginTransaction()
+  {
+    DataObject rootObject = getRootObject();
+    if (rootObject == null)
+    {
+      throw new IllegalStateException("The DataGraph has no root object");
+    }
+    synchronized (this)
+    {
+      DataGraphTransaction transaction = new DataGraphTransaction(this, version, rootObject);
+      transactions.add(transaction);
+      return transaction;
+    }
+  }
+
   public ChangeSummary getChangeSummary()
   {
     //FB is this the right place to create the resources?
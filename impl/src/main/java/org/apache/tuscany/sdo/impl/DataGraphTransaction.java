@@ -0,0 +1,326 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tuscany.sdo.util.SnapshotAdapter;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+
+/**
+ * An optimistic transaction over the tree of the root DataObject of a DataGraphImpl. The transaction reads a snapshot
+ * of the tree taken when it begins, and keeps its writes in a private layer until committed; other transactions and
+ * readers don't see them, and don't block it.
+ * <p>
+ * The commit validates the Properties of the DataObjects read through {@link #get} and written by the transaction
+ * against those written by the transactions committed since it began: if any was, the commit fails with a
+ * ConcurrentModificationException, otherwise the writes are applied to the tree, in order, through the DataObject API
+ * (logged by the ChangeSummary of the DataGraph, if any). The commits of the transactions of a DataGraph are
+ * serialized; the tree must only be modified through them while transactions are open.
+ * <p>
+ * The DataObjects of the tree, as well as those of the snapshot reached through {@link #getRootObject}, identify the
+ * DataObjects read and written; the reads through the DataObjects of the snapshot are consistent, but aren't
+ * validated.
+ * <p>
+ * A transaction must end, by its commit or rollback, typically in a finally block: an open transaction is referenced
+ * by its DataGraph, and keeps the writes of all the transactions committed since it began.
+ */
+public class DataGraphTransaction
+{
+  /**
+   * the value of an unset Property in the writes
+   */
+  static final Object UNSET = new Object();
+
+  /**
+   * the null value in the writes
+   */
+  static final Object NULL = new Object();
+
+  protected final DataGraphImpl dataGraph;
+
+  /**
+   * the version of the DataGraph the transaction began with
+   */
+  protected final long version;
+
+  protected final SnapshotDataObjectImpl snapshot;
+
+  protected final Set reads = new HashSet();
+
+  /**
+   * the value written to each Setting, or UNSET
+   */
+  protected final Map writes = new LinkedHashMap();
+
+  /**
+   * whether the transaction is committed or rolled back
+   */
+  protected boolean ended;
+
+  /**
+   * the version of the DataGraph committed by the transaction
+   */
+  protected long committedVersion;
+
+  protected DataGraphTransaction(DataGraphImpl dataGraph, long version, DataObject rootObject)
+  {
+    this.dataGraph = dataGraph;
+    this.version = version;
+    snapshot = (SnapshotDataObjectImpl)SnapshotAdapter.snapshot(rootObject);
+  }
+
+  /**
+   * @return the root of the snapshot of the tree read by the transaction
+   */
+  public DataObject getRootObject()
+  {
+    return snapshot;
+  }
+
+  /**
+   * @return the value of the Property of the DataObject written by the transaction, otherwise in the snapshot, the
+   *         DataObjects of the tree being then returned as those of the snapshot
+   */
+  public Object get(DataObject dataObject, Property property)
+  {
+    Setting setting = setting(dataObject, property);
+    reads.add(setting);
+    Object value = writes.get(setting);
+    if (value == UNSET)
+      return property.isMany() ? Collections.EMPTY_LIST : property.getDefault();
+    if (value == NULL)
+      return null;
+    if (value != null)
+      return value;
+    return ((DataObject)snapshot.resolve(setting.dataObject)).get(property);
+  }
+
+  /**
+   * @return whether the Property of the DataObject is set by the transaction, otherwise in the snapshot
+   */
+  public boolean isSet(DataObject dataObject, Property property)
+  {
+    Setting setting = setting(dataObject, property);
+    reads.add(setting);
+    Object value = writes.get(setting);
+    if (value != null)
+      return value != UNSET;
+    return ((DataObject)snapshot.resolve(setting.dataObject)).isSet(property);
+  }
+
+  /**
+   * Writes the value, or the List of values of a many-valued Property, to be set on commit
+   */
+  public void set(DataObject dataObject, Property property, Object value)
+  {
+    Setting setting = setting(dataObject, property);
+    if (property.isMany())
+    {
+      List values = new ArrayList((List)value);
+      for (int index = values.size(); --index >= 0;)
+        values.set(index, live(values.get(index)));
+      value = Collections.unmodifiableList(values);
+    }
+    else
+      value = live(value);
+    writes.put(setting, value == null ? NULL : value);
+  }
+
+  /**
+   * Writes the Property to be unset on commit
+   */
+  public void unset(DataObject dataObject, Property property)
+  {
+    writes.put(setting(dataObject, property), UNSET);
+  }
+
+  /**
+   * Validates and applies the writes of the transaction, which then ends
+   * 
+   * @throws ConcurrentModificationException if a Property read or written by the transaction was written by a
+   *           transaction committed since it began; the transaction is then rolled back
+   * @throws RuntimeException if a write can't be applied; the writes already applied are undone, and the transaction
+   *           is rolled back
+   */
+  public void commit()
+  {
+    synchronized (dataGraph)
+    {
+      checkNotEnded();
+      try
+      {
+        for (Iterator commits = dataGraph.commits.iterator(); commits.hasNext();)
+        {
+          DataGraphTransaction commit = (DataGraphTransaction)commits.next();
+          if (commit.committedVersion <= version)
+            continue;
+          for (Iterator settings = commit.writes.keySet().iterator(); settings.hasNext();)
+          {
+            Object setting = settings.next();
+            if (reads.contains(setting) || writes.containsKey(setting))
+              throw new ConcurrentModificationException("The Property " + ((Setting)setting).property.getName()
+                  + " was modified by a concurrent transaction");
+          }
+        }
+        List oldValues = new ArrayList(writes.size());
+        try
+        {
+          for (Iterator entries = writes.entrySet().iterator(); entries.hasNext();)
+          {
+            Map.Entry entry = (Map.Entry)entries.next();
+            Setting setting = (Setting)entry.getKey();
+            oldValues.add(setting.get());
+            setting.set(entry.getValue());
+          }
+        }
+        catch (RuntimeException e)
+        {
+          // restores the Properties written, latest first, the tree being left as before the commit
+          List settings = new ArrayList(writes.keySet());
+          for (int index = oldValues.size(); --index >= 0;)
+            ((Setting)settings.get(index)).set(oldValues.get(index));
+          throw e;
+        }
+        if (!writes.isEmpty())
+        {
+          committedVersion = ++dataGraph.version;
+          dataGraph.commits.add(this);
+        }
+      }
+      finally
+      {
+        end();
+      }
+    }
+  }
+
+  /**
+   * Discards the writes of the transaction, which then ends
+   */
+  public void rollback()
+  {
+    synchronized (dataGraph)
+    {
+      checkNotEnded();
+      end();
+    }
+  }
+
+  /**
+   * Removes the transaction from the open ones, and the commits no open transaction can conflict with
+   */
+  protected void end()
+  {
+    ended = true;
+    reads.clear();
+    dataGraph.transactions.remove(this);
+    long oldest = dataGraph.version;
+    for (Iterator transactions = dataGraph.transactions.iterator(); transactions.hasNext();)
+      oldest = Math.min(oldest, ((DataGraphTransaction)transactions.next()).version);
+    for (Iterator commits = dataGraph.commits.iterator(); commits.hasNext();)
+    {
+      if (((DataGraphTransaction)commits.next()).committedVersion > oldest)
+        break;
+      commits.remove();
+    }
+  }
+
+  protected void checkNotEnded()
+  {
+    if (ended)
+      throw new IllegalStateException("The transaction has ended");
+  }
+
+  protected Setting setting(DataObject dataObject, Property property)
+  {
+    checkNotEnded();
+    return new Setting((DataObject)live(dataObject), property);
+  }
+
+  /**
+   * @return the DataObject of the tree of the DataObject of the snapshot, otherwise the value
+   */
+  static Object live(Object value)
+  {
+    return value instanceof SnapshotDataObjectImpl ? ((SnapshotDataObjectImpl)value).eNode().eObject : value;
+  }
+
+  /**
+   * A Property of a DataObject, compared by identity
+   */
+  protected static final class Setting
+  {
+    final DataObject dataObject;
+
+    final Property property;
+
+    Setting(DataObject dataObject, Property property)
+    {
+      this.dataObject = dataObject;
+      this.property = property;
+    }
+
+    /**
+     * @return the value of the Property, a copy of the List of a many-valued one, NULL or UNSET
+     */
+    Object get()
+    {
+      if (!dataObject.isSet(property))
+        return UNSET;
+      if (property.isMany())
+        return new ArrayList(dataObject.getList(property));
+      Object value = dataObject.get(property);
+      return value == null ? NULL : value;
+    }
+
+    /**
+     * Sets the value of the Property, or unsets it
+     */
+    void set(Object value)
+    {
+      if (value == UNSET)
+        dataObject.unset(property);
+      else
+        dataObject.set(property, value == NULL ? null : value);
+    }
+
+    public boolean equals(Object object)
+    {
+      return object instanceof Setting && ((Setting)object).dataObject == dataObject
+          && ((Setting)object).property == property;
+    }
+
+    public int hashCode()
+    {
+      return 31 * System.identityHashCode(dataObject) + System.identityHashCode(property);
+    }
+  }
+}
@@ -486,11 +486,13 @@ public abstract class DataObjectBase extends ExtensibleDataObjectImpl
 
   public void eSet(int featureID, Object newValue)
   {
+    checkNotFrozen();
     set(internalConvertIndex(featureID), newValue);
   } 
 
   public void eUnset(int featureID)
   {
+    checkNotFrozen();
     unset(internalConvertIndex(featureID));
   }
   
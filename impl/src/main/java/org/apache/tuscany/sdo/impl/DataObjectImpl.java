@@ -33,10 +33,12 @@ import org.apache.tuscany.sdo.SDOPackage;
 import org.apache.tuscany.sdo.impl.ChangeSummaryImpl.SDOChangeRecorder;
 import org.apache.tuscany.sdo.lib.UnknownPropertyList;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.FrozenAdapter;
 import org.apache.tuscany.sdo.util.VirtualSequence;
 import org.apache.tuscany.sdo.util.DataObjectUtil.Accessor;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.ECollections;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EClass;
@@ -137,7 +139,12 @@ public abstract class DataObjectImpl extends BasicEObjectImpl implements DataObj
    */
   public Object get(Property property)
   {
-    return eGet((EStructuralFeature)property, true, false);
+    Object result = eGet((EStructuralFeature)property, true, false);
+    if (result instanceof EList && eAdapters != null && FrozenAdapter.isFrozen(this))
+    {
+      result = ECollections.unmodifiableEList((EList)result);
+    }
+    return result;
   }
 
   /**
@@ -1265,6 +1272,7 @@ public abstract class DataObjectImpl extends BasicEObjectImpl implements DataObj
    */
   public void delete()
   {
+    FrozenAdapter.checkNotFrozen(this);
     DataObjectUtil.delete(this);
   }
   
@@ -1344,6 +1352,7 @@ public abstract class DataObjectImpl extends BasicEObjectImpl implements DataObj
    */
   public void detach()
   {
+    FrozenAdapter.checkNotFrozen(this);
     DataObjectUtil.detach(this);
   }
   
@@ -1404,6 +1413,10 @@ public abstract class DataObjectImpl extends BasicEObjectImpl implements DataObj
 
   protected void eBasicSetContainer(InternalEObject newContainer, int newContainerFeatureID)
   {
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
     eContainer = newContainer;
     eContainerFeatureID = newContainerFeatureID;
   }
@@ -1473,13 +1486,38 @@ public abstract class DataObjectImpl extends BasicEObjectImpl implements DataObj
     return eDynamicGet(featureID, resolve, coreType);
   }
 
+  /**
+   * @throws UnsupportedOperationException if the DataObject is frozen
+   */
+  protected void checkNotFrozen()
+  {
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+  }
+
   public void eSet(int featureID, Object newValue)
   {
+    checkNotFrozen();
     eDynamicSet(featureID, newValue);
   }
 
+  public void eSet(EStructuralFeature eFeature, Object newValue)
+  {
+    checkNotFrozen();
+    super.eSet(eFeature, newValue);
+  }
+
+  public void eUnset(EStructuralFeature eFeature)
+  {
+    checkNotFrozen();
+    super.eUnset(eFeature);
+  }
+
   public void eUnset(int featureID)
   {
+    checkNotFrozen();
     eDynamicUnset(featureID);
   }
 
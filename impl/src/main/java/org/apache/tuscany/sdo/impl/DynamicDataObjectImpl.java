@@ -63,6 +63,14 @@ public class DynamicDataObjectImpl extends DataObjectImpl implements DataObject,
   {
     super();
     eSetClass(eClass);
+    initializeChangeSummary();
+  }
+
+  /**
+   * Creates the ChangeSummary of a Type with a ChangeSummary property.
+   */
+  protected void initializeChangeSummary()
+  {
     Property csp = ((ClassImpl)eClass).getChangeSummaryProperty();
     if (csp != null)
     {
@@ -203,10 +211,25 @@ public class DynamicDataObjectImpl extends DataObjectImpl implements DataObject,
    */
   public static class FactoryImpl extends EFactoryImpl
   {
+    protected boolean primitiveLists;
+
     public FactoryImpl()
     {
     }
 
+    /**
+     * @return whether the many-valued int, long and double properties are held in a PrimitiveEList
+     */
+    public boolean isPrimitiveLists()
+    {
+      return primitiveLists;
+    }
+
+    public void setPrimitiveLists(boolean primitiveLists)
+    {
+      this.primitiveLists = primitiveLists;
+    }
+
     public EObject basicCreate(EClass eClass)
     {
       return new DynamicDataObjectImpl(eClass);
@@ -0,0 +1,688 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.codegen.BytecodeImplementationGenerator;
+import org.apache.tuscany.sdo.util.DataObjectUtil;
+import org.apache.tuscany.sdo.util.FrozenAdapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.ENotificationImpl;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+
+/**
+ * A dynamic DataObject whose single-valued data properties are held by a subclass, either generated for its Type by
+ * {@link BytecodeImplementationGenerator} with a Java field per property or {@link PackedDataObjectImpl}, the other
+ * properties being kept in the eSettings of DynamicDataObjectImpl.
+ * <p>
+ * The subclass only stores the values, through accessors by feature ID. Whether a field is
+ * set is kept here in a bit per field, and the boolean, int, long, float and double getters and setters read and
+ * write the fields without boxing.
+ */
+public abstract class FieldDataObjectImpl extends DynamicDataObjectImpl
+{
+  protected final Layout eLayout;
+
+  /**
+   * isSet bits of the first 64 fields
+   */
+  private long eFieldBits;
+
+  /**
+   * isSet bits of the fields beyond the first 64
+   */
+  private long[] eMoreFieldBits;
+
+  protected FieldDataObjectImpl(EClass eClass, Layout layout)
+  {
+    super();
+    eLayout = layout;
+    eSetClass(eClass);
+    initializeChangeSummary();
+  }
+
+  protected abstract Object eGetField(int featureID);
+
+  protected abstract void eSetField(int featureID, Object value);
+
+  protected abstract boolean eGetBoolean(int featureID);
+
+  protected abstract void eSetBoolean(int featureID, boolean value);
+
+  protected abstract int eGetInt(int featureID);
+
+  protected abstract void eSetInt(int featureID, int value);
+
+  protected abstract long eGetLong(int featureID);
+
+  protected abstract void eSetLong(int featureID, long value);
+
+  protected abstract float eGetFloat(int featureID);
+
+  protected abstract void eSetFloat(int featureID, float value);
+
+  protected abstract double eGetDouble(int featureID);
+
+  protected abstract void eSetDouble(int featureID, double value);
+
+  private boolean eIsFieldSet(int bit)
+  {
+    if (bit < 64)
+      return (eFieldBits & 1L << bit) != 0;
+    return eMoreFieldBits != null && (eMoreFieldBits[(bit >> 6) - 1] & 1L << bit) != 0;
+  }
+
+  private void eSetFieldBit(int bit)
+  {
+    if (bit < 64)
+      eFieldBits |= 1L << bit;
+    else
+    {
+      if (eMoreFieldBits == null)
+        eMoreFieldBits = new long[(eLayout.fieldCount - 1) >> 6];
+      eMoreFieldBits[(bit >> 6) - 1] |= 1L << bit;
+    }
+  }
+
+  private void eClearFieldBit(int bit)
+  {
+    if (bit < 64)
+      eFieldBits &= ~(1L << bit);
+    else if (eMoreFieldBits != null)
+      eMoreFieldBits[(bit >> 6) - 1] &= ~(1L << bit);
+  }
+
+  /**
+   * @return the isSet bit of the feature, -1 if the feature isn't held in a field
+   */
+  private int eFieldBit(int featureID)
+  {
+    return featureID < eLayout.featureCount ? eLayout.bits[featureID] : -1;
+  }
+
+  /**
+   * @return the feature ID of the property if held in a field of the kind, otherwise -1
+   */
+  private int eFieldID(Property property, int kind)
+  {
+    int featureID = eClass.getFeatureID((EStructuralFeature)property);
+    return featureID != -1 && featureID < eLayout.featureCount && eLayout.kinds[featureID] == kind && eLayout.bits[featureID] != -1
+      ? featureID : -1;
+  }
+
+  public Object eDynamicGet(int featureID, boolean resolve, boolean coreType)
+  {
+    int bit = eFieldBit(featureID);
+    if (bit == -1)
+      return super.eDynamicGet(featureID, resolve, coreType);
+    return eIsFieldSet(bit) ? eGetField(featureID) : eLayout.defaultValues[featureID];
+  }
+
+  /**
+   * Setting a primitive field to null sets it to its default value.
+   */
+  public void eDynamicSet(int featureID, Object newValue)
+  {
+    int bit = eFieldBit(featureID);
+    if (bit == -1)
+    {
+      super.eDynamicSet(featureID, newValue);
+      return;
+    }
+    if (newValue == null && eLayout.kinds[featureID] != Layout.OBJECT)
+      newValue = eLayout.defaultValues[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      Object oldValue = wasSet ? eGetField(featureID) : eLayout.defaultValues[featureID];
+      eSetField(featureID, newValue);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, newValue, !wasSet));
+    }
+    else
+    {
+      eSetField(featureID, newValue);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public void eDynamicUnset(int featureID)
+  {
+    int bit = eFieldBit(featureID);
+    if (bit == -1)
+    {
+      super.eDynamicUnset(featureID);
+      return;
+    }
+    boolean wasSet = eIsFieldSet(bit);
+    Object defaultValue = eLayout.defaultValues[featureID];
+    Object oldValue = wasSet && eNotificationRequired() ? eGetField(featureID) : defaultValue;
+    eClearFieldBit(bit);
+    if (eLayout.kinds[featureID] == Layout.OBJECT)
+      eSetField(featureID, null);
+    if (eNotificationRequired())
+      eNotify(new ENotificationImpl(this, Notification.UNSET, featureID, oldValue, defaultValue, wasSet));
+  }
+
+  public boolean eDynamicIsSet(int featureID)
+  {
+    int bit = eFieldBit(featureID);
+    if (bit == -1)
+      return super.eDynamicIsSet(featureID);
+    return eIsFieldSet(bit);
+  }
+
+  public boolean getBoolean(Property property)
+  {
+    int featureID = eFieldID(property, Layout.BOOLEAN);
+    if (featureID == -1)
+      return super.getBoolean(property);
+    return eIsFieldSet(eLayout.bits[featureID]) ? eGetBoolean(featureID) : ((Boolean)eLayout.defaultValues[featureID]).booleanValue();
+  }
+
+  public void setBoolean(Property property, boolean value)
+  {
+    int featureID = eFieldID(property, Layout.BOOLEAN);
+    if (featureID == -1)
+    {
+      super.setBoolean(property, value);
+      return;
+    }
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+    int bit = eLayout.bits[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      boolean oldValue = wasSet ? eGetBoolean(featureID) : ((Boolean)eLayout.defaultValues[featureID]).booleanValue();
+      eSetBoolean(featureID, value);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, value, !wasSet));
+    }
+    else
+    {
+      eSetBoolean(featureID, value);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public int getInt(Property property)
+  {
+    int featureID = eFieldID(property, Layout.INT);
+    if (featureID == -1)
+      return super.getInt(property);
+    return eIsFieldSet(eLayout.bits[featureID]) ? eGetInt(featureID) : ((Number)eLayout.defaultValues[featureID]).intValue();
+  }
+
+  public void setInt(Property property, int value)
+  {
+    int featureID = eFieldID(property, Layout.INT);
+    if (featureID == -1)
+    {
+      super.setInt(property, value);
+      return;
+    }
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+    int bit = eLayout.bits[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      int oldValue = wasSet ? eGetInt(featureID) : ((Number)eLayout.defaultValues[featureID]).intValue();
+      eSetInt(featureID, value);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, value, !wasSet));
+    }
+    else
+    {
+      eSetInt(featureID, value);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public long getLong(Property property)
+  {
+    int featureID = eFieldID(property, Layout.LONG);
+    if (featureID == -1)
+      return super.getLong(property);
+    return eIsFieldSet(eLayout.bits[featureID]) ? eGetLong(featureID) : ((Number)eLayout.defaultValues[featureID]).longValue();
+  }
+
+  public void setLong(Property property, long value)
+  {
+    int featureID = eFieldID(property, Layout.LONG);
+    if (featureID == -1)
+    {
+      super.setLong(property, value);
+      return;
+    }
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+    int bit = eLayout.bits[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      long oldValue = wasSet ? eGetLong(featureID) : ((Number)eLayout.defaultValues[featureID]).longValue();
+      eSetLong(featureID, value);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, value, !wasSet));
+    }
+    else
+    {
+      eSetLong(featureID, value);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public float getFloat(Property property)
+  {
+    int featureID = eFieldID(property, Layout.FLOAT);
+    if (featureID == -1)
+      return super.getFloat(property);
+    return eIsFieldSet(eLayout.bits[featureID]) ? eGetFloat(featureID) : ((Number)eLayout.defaultValues[featureID]).floatValue();
+  }
+
+  public void setFloat(Property property, float value)
+  {
+    int featureID = eFieldID(property, Layout.FLOAT);
+    if (featureID == -1)
+    {
+      super.setFloat(property, value);
+      return;
+    }
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+    int bit = eLayout.bits[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      float oldValue = wasSet ? eGetFloat(featureID) : ((Number)eLayout.defaultValues[featureID]).floatValue();
+      eSetFloat(featureID, value);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, value, !wasSet));
+    }
+    else
+    {
+      eSetFloat(featureID, value);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public double getDouble(Property property)
+  {
+    int featureID = eFieldID(property, Layout.DOUBLE);
+    if (featureID == -1)
+      return super.getDouble(property);
+    return eIsFieldSet(eLayout.bits[featureID]) ? eGetDouble(featureID) : ((Number)eLayout.defaultValues[featureID]).doubleValue();
+  }
+
+  public void setDouble(Property property, double value)
+  {
+    int featureID = eFieldID(property, Layout.DOUBLE);
+    if (featureID == -1)
+    {
+      super.setDouble(property, value);
+      return;
+    }
+    if (eAdapters != null)
+    {
+      FrozenAdapter.checkNotFrozen(this);
+    }
+    int bit = eLayout.bits[featureID];
+    boolean wasSet = eIsFieldSet(bit);
+    if (eNotificationRequired())
+    {
+      double oldValue = wasSet ? eGetDouble(featureID) : ((Number)eLayout.defaultValues[featureID]).doubleValue();
+      eSetDouble(featureID, value);
+      eSetFieldBit(bit);
+      eNotify(new ENotificationImpl(this, Notification.SET, featureID, oldValue, value, !wasSet));
+    }
+    else
+    {
+      eSetDouble(featureID, value);
+      eSetFieldBit(bit);
+    }
+  }
+
+  public boolean getBoolean(int propertyIndex)
+  {
+    return getBoolean(DataObjectUtil.getProperty(this, propertyIndex));
+  }
+
+  public void setBoolean(int propertyIndex, boolean value)
+  {
+    setBoolean(DataObjectUtil.getProperty(this, propertyIndex), value);
+  }
+
+  public int getInt(int propertyIndex)
+  {
+    return getInt(DataObjectUtil.getProperty(this, propertyIndex));
+  }
+
+  public void setInt(int propertyIndex, int value)
+  {
+    setInt(DataObjectUtil.getProperty(this, propertyIndex), value);
+  }
+
+  public long getLong(int propertyIndex)
+  {
+    return getLong(DataObjectUtil.getProperty(this, propertyIndex));
+  }
+
+  public void setLong(int propertyIndex, long value)
+  {
+    setLong(DataObjectUtil.getProperty(this, propertyIndex), value);
+  }
+
+  public float getFloat(int propertyIndex)
+  {
+    return getFloat(DataObjectUtil.getProperty(this, propertyIndex));
+  }
+
+  public void setFloat(int propertyIndex, float value)
+  {
+    setFloat(DataObjectUtil.getProperty(this, propertyIndex), value);
+  }
+
+  public double getDouble(int propertyIndex)
+  {
+    return getDouble(DataObjectUtil.getProperty(this, propertyIndex));
+  }
+
+  public void setDouble(int propertyIndex, double value)
+  {
+    setDouble(DataObjectUtil.getProperty(this, propertyIndex), value);
+  }
+
+  /**
+   * Which features of an EClass are held in fields, in what kind of field, and the generated class.
+   * A feature is held in a field if it's a single-valued, changeable and unsettable attribute stored by the
+   * DataObject itself, other than the ChangeSummary property.
+   */
+  public static class Layout
+  {
+    public static final int OBJECT = 0, BOOLEAN = 1, BYTE = 2, CHAR = 3, SHORT = 4, INT = 5, LONG = 6, FLOAT = 7, DOUBLE = 8;
+
+    static final Object[] ZEROS = { null, Boolean.FALSE, new Byte((byte)0), new Character('\0'), new Short((short)0),
+      new Integer(0), new Long(0), new Float(0), new Double(0) };
+
+    protected final int featureCount;
+
+    /**
+     * feature ID to isSet bit, -1 for the features kept in the eSettings
+     */
+    protected final int[] bits;
+
+    /**
+     * feature ID to field kind
+     */
+    protected final int[] kinds;
+
+    /**
+     * feature ID to the value of the field when not set
+     */
+    protected final Object[] defaultValues;
+
+    /**
+     * feature ID to the index of the field among the fields of its kind: in the long slots for the boolean, byte,
+     * char, short, int and long fields, in the double slots for the float and double ones
+     */
+    protected final int[] slots;
+
+    protected final int fieldCount, longCount, doubleCount;
+
+    protected Constructor constructor;
+
+    public Layout(EClass eClass)
+    {
+      this(eClass, false);
+    }
+
+    /**
+     * @param primitivesOnly
+     *          true to leave the properties of an Object type in the eSettings
+     */
+    public Layout(EClass eClass, boolean primitivesOnly)
+    {
+      featureCount = eClass.getFeatureCount();
+      bits = new int[featureCount];
+      kinds = new int[featureCount];
+      slots = new int[featureCount];
+      defaultValues = new Object[featureCount];
+      Property csp = ((ClassImpl)eClass).getChangeSummaryProperty();
+      int fieldCount = 0, longCount = 0, doubleCount = 0;
+      for (int featureID = 0; featureID < featureCount; ++featureID)
+      {
+        EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+        int kind = feature instanceof EAttribute ? getKind(feature.getEType().getInstanceClass()) : OBJECT;
+        if (feature instanceof EAttribute && !feature.isMany() && feature.isChangeable() && feature.isUnsettable()
+          && !feature.isDerived() && !feature.isVolatile() && !feature.isTransient() && feature != csp
+          && !FeatureMapUtil.isFeatureMap(feature) && !(primitivesOnly && kind == OBJECT))
+        {
+          Object defaultValue = feature.getDefaultValue();
+          bits[featureID] = fieldCount++;
+          kinds[featureID] = kind;
+          slots[featureID] = kind == FLOAT || kind == DOUBLE ? doubleCount++ : kind == OBJECT ? -1 : longCount++;
+          defaultValues[featureID] = defaultValue == null ? ZEROS[kind] : defaultValue;
+        }
+        else
+          bits[featureID] = slots[featureID] = -1;
+      }
+      this.fieldCount = fieldCount;
+      this.longCount = longCount;
+      this.doubleCount = doubleCount;
+    }
+
+    static int getKind(Class instanceClass)
+    {
+      if (instanceClass == null || !instanceClass.isPrimitive())
+        return OBJECT;
+      if (instanceClass == Boolean.TYPE)
+        return BOOLEAN;
+      if (instanceClass == Byte.TYPE)
+        return BYTE;
+      if (instanceClass == Character.TYPE)
+        return CHAR;
+      if (instanceClass == Short.TYPE)
+        return SHORT;
+      if (instanceClass == Integer.TYPE)
+        return INT;
+      if (instanceClass == Long.TYPE)
+        return LONG;
+      if (instanceClass == Float.TYPE)
+        return FLOAT;
+      return DOUBLE;
+    }
+
+    public boolean isField(int featureID)
+    {
+      return bits[featureID] != -1;
+    }
+
+    public int getKind(int featureID)
+    {
+      return kinds[featureID];
+    }
+
+    public int getFieldCount()
+    {
+      return fieldCount;
+    }
+  }
+
+  /**
+   * An EFactoryImpl that generates, for each EClass with field properties, a FieldDataObjectImpl subclass and creates
+   * its instances. The other EClasses, or all of them if ASM isn't available, get DynamicDataObjectImpl instances.
+   */
+  public static class FactoryImpl extends DynamicDataObjectImpl.FactoryImpl
+  {
+    /**
+     * EClass to Layout, copied on write
+     */
+    private volatile Map layouts = Collections.EMPTY_MAP;
+
+    private GeneratedClassLoader classLoader;
+
+    private int classCount;
+
+    public FactoryImpl()
+    {
+    }
+
+    public EObject basicCreate(EClass eClass)
+    {
+      Layout layout = getLayout(eClass);
+      if (layout == null)
+        return super.basicCreate(eClass);
+      try
+      {
+        return (EObject)layout.constructor.newInstance(new Object[] { eClass, layout });
+      }
+      catch (InvocationTargetException e)
+      {
+        Throwable cause = e.getTargetException();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException)cause;
+        if (cause instanceof Error)
+          throw (Error)cause;
+        throw new IllegalStateException(cause.toString());
+      }
+      catch (Exception e)
+      {
+        throw new IllegalStateException(e.toString());
+      }
+    }
+
+    /**
+     * Generates the implementation classes of the EClasses of the package, otherwise generated on first create.
+     */
+    public void generate(EPackage ePackage)
+    {
+      for (Iterator iterator = ePackage.getEClassifiers().iterator(); iterator.hasNext();)
+      {
+        Object eClassifier = iterator.next();
+        if (eClassifier instanceof EClass && !((EClass)eClassifier).isAbstract())
+          getLayout((EClass)eClassifier);
+      }
+    }
+
+    /**
+     * @return the Layout of the generated class of the EClass, null if the EClass has no field
+     */
+    public Layout getLayout(EClass eClass)
+    {
+      Layout layout = (Layout)layouts.get(eClass);
+      if (layout == null || layout.featureCount != eClass.getFeatureCount())
+        synchronized (this)
+        {
+          layout = (Layout)layouts.get(eClass);
+          if (layout == null || layout.featureCount != eClass.getFeatureCount())
+          {
+            layout = createLayout(eClass);
+            if (layout.fieldCount != 0)
+              layout.constructor = generateClass(eClass, layout);
+            Map layouts = new HashMap(this.layouts);
+            layouts.put(eClass, layout);
+            this.layouts = layouts;
+          }
+        }
+      return layout.constructor == null ? null : layout;
+    }
+
+    protected Layout createLayout(EClass eClass)
+    {
+      return new Layout(eClass);
+    }
+
+    /**
+     * @return the constructor of the generated class, null if it can't be generated
+     */
+    protected Constructor generateClass(EClass eClass, Layout layout)
+    {
+      String name = eClass.getName();
+      StringBuffer className = new StringBuffer("org.apache.tuscany.sdo.generated.");
+      if (name == null || name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0)))
+        className.append('_');
+      if (name != null)
+        for (int index = 0, length = name.length(); index != length; ++index)
+        {
+          char c = name.charAt(index);
+          className.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+      className.append('$').append(++classCount);
+      try
+      {
+        BytecodeImplementationGenerator generator = new BytecodeImplementationGenerator(className.toString(), layout);
+        generator.visitType((Type)eClass);
+        for (Iterator iterator = eClass.getEAllStructuralFeatures().iterator(); iterator.hasNext();)
+          generator.visitProperty((Property)iterator.next());
+        generator.visitEnd();
+        if (classLoader == null)
+          classLoader = new GeneratedClassLoader(FieldDataObjectImpl.class.getClassLoader());
+        Class generatedClass = classLoader.define(className.toString(), generator.getClassData());
+        return generatedClass.getConstructor(new Class[] { EClass.class, Layout.class });
+      }
+      catch (LinkageError e)
+      {
+        // ASM isn't available
+        return null;
+      }
+      catch (NoSuchMethodException e)
+      {
+        return null;
+      }
+    }
+  }
+
+  static class GeneratedClassLoader extends ClassLoader
+  {
+    GeneratedClassLoader(ClassLoader parent)
+    {
+      super(parent);
+    }
+
+    Class define(String name, byte[] classData)
+    {
+      return defineClass(name, classData, 0, classData.length);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import org.apache.tuscany.sdo.util.OffHeapStore;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.impl.EFactoryImpl;
+
+/**
+ * A DataObject whose property values are kept by an OffHeapStore, in a record of its direct ByteBuffer slabs. The
+ * instance is only a handle onto the record: the store materializes another one when the DataObject is navigated to
+ * after this one was collected.
+ */
+public class OffHeapDataObjectImpl extends DynamicStoreDataObjectImpl
+{
+  protected final long eRecord;
+
+  public OffHeapDataObjectImpl(EClass eClass, OffHeapStore eStore, long eRecord)
+  {
+    super(eClass, eStore);
+    this.eRecord = eRecord;
+  }
+
+  /**
+   * @return the address of the record in the store
+   */
+  public long eRecord()
+  {
+    return eRecord;
+  }
+
+  protected boolean eIsCaching()
+  {
+    return false;
+  }
+
+  /**
+   * The adapters would be lost with a collected handle: the handle is pinned in the store while it has adapters
+   */
+  public EList eAdapters()
+  {
+    if (eAdapters == null)
+    {
+      eAdapters = new EAdapterList(this)
+      {
+        protected void didAdd(int index, Object newObject)
+        {
+          if (size == 1)
+            ((OffHeapStore)eStore).pin(OffHeapDataObjectImpl.this);
+          super.didAdd(index, newObject);
+        }
+
+        protected void didRemove(int index, Object oldObject)
+        {
+          super.didRemove(index, oldObject);
+          if (size == 0)
+            ((OffHeapStore)eStore).unpin(OffHeapDataObjectImpl.this);
+        }
+      };
+    }
+    return eAdapters;
+  }
+
+  /**
+   * An EFactoryImpl that creates the DataObjects in an OffHeapStore
+   */
+  public static class FactoryImpl extends EFactoryImpl
+  {
+    protected final OffHeapStore store;
+
+    public FactoryImpl(OffHeapStore store)
+    {
+      this.store = store;
+    }
+
+    public OffHeapStore getStore()
+    {
+      return store;
+    }
+
+    public EObject basicCreate(EClass eClass)
+    {
+      return store.create(eClass);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import java.lang.reflect.Constructor;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * A dynamic DataObject whose single-valued primitive properties are packed in a long and a double array laid out
+ * per Type, the references, Strings and other Object values being kept in the eSettings. Unlike the generated
+ * FieldDataObjectImpl subclasses, it needs no bytecode generation.
+ */
+public class PackedDataObjectImpl extends FieldDataObjectImpl
+{
+  /**
+   * the boolean, byte, char, short, int and long properties
+   */
+  protected final long[] eLongs;
+
+  /**
+   * the float and double properties
+   */
+  protected final double[] eDoubles;
+
+  public PackedDataObjectImpl(EClass eClass, Layout layout)
+  {
+    super(eClass, layout);
+    eLongs = layout.longCount == 0 ? null : new long[layout.longCount];
+    eDoubles = layout.doubleCount == 0 ? null : new double[layout.doubleCount];
+  }
+
+  protected Object eGetField(int featureID)
+  {
+    int slot = eLayout.slots[featureID];
+    switch (eLayout.kinds[featureID])
+    {
+      case Layout.BOOLEAN:
+        return Boolean.valueOf(eLongs[slot] != 0);
+      case Layout.BYTE:
+        return new Byte((byte)eLongs[slot]);
+      case Layout.CHAR:
+        return new Character((char)eLongs[slot]);
+      case Layout.SHORT:
+        return new Short((short)eLongs[slot]);
+      case Layout.INT:
+        return new Integer((int)eLongs[slot]);
+      case Layout.LONG:
+        return new Long(eLongs[slot]);
+      case Layout.FLOAT:
+        return new Float((float)eDoubles[slot]);
+      case Layout.DOUBLE:
+        return new Double(eDoubles[slot]);
+    }
+    return null;
+  }
+
+  protected void eSetField(int featureID, Object value)
+  {
+    int slot = eLayout.slots[featureID];
+    switch (eLayout.kinds[featureID])
+    {
+      case Layout.BOOLEAN:
+        eLongs[slot] = ((Boolean)value).booleanValue() ? 1 : 0;
+        break;
+      case Layout.CHAR:
+        eLongs[slot] = ((Character)value).charValue();
+        break;
+      case Layout.BYTE:
+      case Layout.SHORT:
+      case Layout.INT:
+      case Layout.LONG:
+        eLongs[slot] = ((Number)value).longValue();
+        break;
+      case Layout.FLOAT:
+      case Layout.DOUBLE:
+        eDoubles[slot] = ((Number)value).doubleValue();
+    }
+  }
+
+  protected boolean eGetBoolean(int featureID)
+  {
+    return eLongs[eLayout.slots[featureID]] != 0;
+  }
+
+  protected void eSetBoolean(int featureID, boolean value)
+  {
+    eLongs[eLayout.slots[featureID]] = value ? 1 : 0;
+  }
+
+  protected int eGetInt(int featureID)
+  {
+    return (int)eLongs[eLayout.slots[featureID]];
+  }
+
+  protected void eSetInt(int featureID, int value)
+  {
+    eLongs[eLayout.slots[featureID]] = value;
+  }
+
+  protected long eGetLong(int featureID)
+  {
+    return eLongs[eLayout.slots[featureID]];
+  }
+
+  protected void eSetLong(int featureID, long value)
+  {
+    eLongs[eLayout.slots[featureID]] = value;
+  }
+
+  protected float eGetFloat(int featureID)
+  {
+    return (float)eDoubles[eLayout.slots[featureID]];
+  }
+
+  protected void eSetFloat(int featureID, float value)
+  {
+    eDoubles[eLayout.slots[featureID]] = value;
+  }
+
+  protected double eGetDouble(int featureID)
+  {
+    return eDoubles[eLayout.slots[featureID]];
+  }
+
+  protected void eSetDouble(int featureID, double value)
+  {
+    eDoubles[eLayout.slots[featureID]] = value;
+  }
+
+  /**
+   * An EFactoryImpl that creates PackedDataObjectImpl instances for the EClasses with primitive properties,
+   * DynamicDataObjectImpl ones for the others.
+   */
+  public static class FactoryImpl extends FieldDataObjectImpl.FactoryImpl
+  {
+    static final Class[] CONSTRUCTOR_PARAMETERS = { EClass.class, Layout.class };
+
+    public FactoryImpl()
+    {
+    }
+
+    public EObject basicCreate(EClass eClass)
+    {
+      Layout layout = getLayout(eClass);
+      return layout == null ? new DynamicDataObjectImpl(eClass) : new PackedDataObjectImpl(eClass, layout);
+    }
+
+    protected Layout createLayout(EClass eClass)
+    {
+      return new Layout(eClass, true);
+    }
+
+    protected Constructor generateClass(EClass eClass, Layout layout)
+    {
+      try
+      {
+        return PackedDataObjectImpl.class.getConstructor(CONSTRUCTOR_PARAMETERS);
+      }
+      catch (NoSuchMethodException e)
+      {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.impl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.util.SnapshotAdapter;
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+
+/**
+ * A read-only DataObject viewing the Node of a DataObject in a snapshot of its tree. The contained DataObjects are
+ * viewed on demand, once; the references to DataObjects of the tree are resolved to their views, the references
+ * outside the tree to the live DataObjects.
+ */
+public class SnapshotDataObjectImpl extends DataObjectImpl
+{
+  protected final SnapshotAdapter.Node node;
+
+  /**
+   * the view of the root of the snapshot
+   */
+  protected final SnapshotDataObjectImpl root;
+
+  /**
+   * the view, or the EList of the views, of each containment feature, created on demand
+   */
+  protected Object[] views;
+
+  /**
+   * the view of each live DataObject of the tree, created on demand by the root
+   */
+  protected Map liveViews;
+
+  public SnapshotDataObjectImpl(SnapshotAdapter.Node node)
+  {
+    this(node, null, null, 0);
+  }
+
+  protected SnapshotDataObjectImpl(SnapshotAdapter.Node node, SnapshotDataObjectImpl root,
+      SnapshotDataObjectImpl container, int containerFeatureID)
+  {
+    super();
+    this.node = node;
+    this.root = root == null ? this : root;
+    if (container != null)
+    {
+      eContainer = container;
+      eContainerFeatureID = EOPPOSITE_FEATURE_BASE - containerFeatureID;
+    }
+  }
+
+  public EClass eClass()
+  {
+    return node.eClass();
+  }
+
+  protected int eStaticFeatureCount()
+  {
+    return 0;
+  }
+
+  public int eDerivedStructuralFeatureID(EStructuralFeature eStructuralFeature)
+  {
+    return eClass().getFeatureID(eStructuralFeature);
+  }
+
+  public Object eGet(int featureID, boolean resolve, boolean coreType)
+  {
+    EStructuralFeature feature = eClass().getEStructuralFeature(featureID);
+    if (feature instanceof EReference && ((EReference)feature).isContainment())
+      return getView(featureID);
+    Object value = node.getValue(featureID);
+    if (value == null && feature.isMany())
+      return ECollections.EMPTY_ELIST;
+    if (!(value instanceof Object[]))
+      return feature instanceof EReference ? root.resolve(value) : value;
+    Object[] values = (Object[])value;
+    if (feature instanceof EReference)
+    {
+      Object[] resolved = new Object[values.length];
+      for (int index = 0; index != values.length; ++index)
+        resolved[index] = root.resolve(values[index]);
+      values = resolved;
+    }
+    return new BasicEList.UnmodifiableEList(values.length, values);
+  }
+
+  /**
+   * @return the view, or the EList of the views, of the DataObjects contained by the feature
+   */
+  protected synchronized Object getView(int featureID)
+  {
+    if (views == null)
+      views = new Object[node.eClass().getFeatureCount()];
+    Object view = views[featureID];
+    if (view == null)
+    {
+      Object value = node.getValue(featureID);
+      if (value instanceof Object[])
+      {
+        Object[] nodes = (Object[])value;
+        Object[] children = new Object[nodes.length];
+        for (int index = 0; index != nodes.length; ++index)
+          children[index] = new SnapshotDataObjectImpl((SnapshotAdapter.Node)nodes[index], root, this, featureID);
+        view = new BasicEList.UnmodifiableEList(children.length, children);
+      }
+      else if (value != null)
+        view = new SnapshotDataObjectImpl((SnapshotAdapter.Node)value, root, this, featureID);
+      else
+        return null;
+      views[featureID] = view;
+    }
+    return view;
+  }
+
+  /**
+   * @return the view of the referenced live DataObject if it's in the tree, otherwise the live DataObject
+   */
+  protected synchronized Object resolve(Object value)
+  {
+    if (value == null)
+      return null;
+    if (liveViews == null)
+    {
+      liveViews = new IdentityHashMap();
+      addViews(this);
+    }
+    Object view = liveViews.get(value);
+    return view == null ? value : view;
+  }
+
+  protected void addViews(SnapshotDataObjectImpl view)
+  {
+    liveViews.put(view.node.eObject, view);
+    EClass eClass = view.eClass();
+    for (int featureID = 0, count = eClass.getFeatureCount(); featureID != count; ++featureID)
+    {
+      EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+      if (!(feature instanceof EReference) || !((EReference)feature).isContainment())
+        continue;
+      Object children = view.getView(featureID);
+      if (children instanceof EList)
+      {
+        EList list = (EList)children;
+        for (int index = 0, size = list.size(); index != size; ++index)
+          addViews((SnapshotDataObjectImpl)list.get(index));
+      }
+      else if (children != null)
+        addViews((SnapshotDataObjectImpl)children);
+    }
+  }
+
+  public boolean eIsSet(int featureID)
+  {
+    return node.isSet(featureID);
+  }
+
+  public void eSet(int featureID, Object newValue)
+  {
+    throw new UnsupportedOperationException("The DataObject is a snapshot");
+  }
+
+  public void eUnset(int featureID)
+  {
+    throw new UnsupportedOperationException("The DataObject is a snapshot");
+  }
+
+  protected void eBasicSetContainer(InternalEObject newContainer, int newContainerFeatureID)
+  {
+    throw new UnsupportedOperationException("The DataObject is a snapshot");
+  }
+
+  public boolean eDeliver()
+  {
+    return false;
+  }
+
+  public EList eAdapters()
+  {
+    return ECollections.EMPTY_ELIST;
+  }
+
+  /**
+   * @return the Node viewed
+   */
+  public SnapshotAdapter.Node eNode()
+  {
+    return node;
+  }
+}
@@ -234,6 +234,16 @@ public class StoreDataObjectImpl extends DataObjectImpl implements DataObject, E
     return eContainer;
   }
 
+  public InternalEObject eInternalContainer()
+  {
+    if (eContainer == EUNINITIALIZED_CONTAINER)
+    {
+      eInitializeContainer();
+    }
+
+    return eContainer;
+  }
+
   public int eContainerFeatureID()
   {
     if (eContainer == EUNINITIALIZED_CONTAINER)
@@ -52,6 +52,14 @@ public class BasicSequence implements Sequence, FeatureMap.Internal.Wrapper
     return featureMap.size();
   }
 
+  /**
+   * @throws UnsupportedOperationException if the DataObject of the Sequence is frozen
+   */
+  protected void checkNotFrozen()
+  {
+    FrozenAdapter.checkNotFrozen(featureMap.getEObject());
+  }
+
   public Property getProperty(int index)
   {
     EStructuralFeature feature = featureMap.getEStructuralFeature(index);
@@ -74,6 +82,7 @@ public class BasicSequence implements Sequence, FeatureMap.Internal.Wrapper
   
   public Object setValue(int index, Object value)
   {
+    checkNotFrozen();
     return featureMap.setValue(index, value);
   }
 
@@ -105,31 +114,37 @@ public class BasicSequence implements Sequence, FeatureMap.Internal.Wrapper
 
   public boolean add(String propertyName, Object value)
   {
+    checkNotFrozen();
     return featureMap.add(getEStructuralFeature(propertyName, value), value);
   }
 
   public boolean add(int propertyIndex, Object value)
   {
+    checkNotFrozen();
     return featureMap.add(getEStructuralFeature(propertyIndex), value);
   }
 
   public boolean add(Property property, Object value)
   {
+    checkNotFrozen();
     return featureMap.add((EStructuralFeature)property, value);
   }
 
   public void add(int index, String propertyName, Object value)
   {
+    checkNotFrozen();
     featureMap.add(index, getEStructuralFeature(propertyName, value), value);
   }
 
   public void add(int index, int propertyIndex, Object value)
   {
+    checkNotFrozen();
     featureMap.add(index, getEStructuralFeature(propertyIndex), value);
   }
 
   public void add(int index, Property property, Object value)
   {
+    checkNotFrozen();
     featureMap.add(index, (EStructuralFeature)property, value);
   }
 
@@ -138,6 +153,7 @@ public class BasicSequence implements Sequence, FeatureMap.Internal.Wrapper
    */
   public void add(String text)
   {
+    checkNotFrozen();
     FeatureMapUtil.addText(featureMap, text);
   }
 
@@ -146,26 +162,31 @@ public class BasicSequence implements Sequence, FeatureMap.Internal.Wrapper
    */
   public void add(int index, String text)
   {
+    checkNotFrozen();
     FeatureMapUtil.addText(featureMap, index, text);
   }
  
   public void addText(String text)
   {
+    checkNotFrozen();
     FeatureMapUtil.addText(featureMap, text);
   }
 
   public void addText(int index, String text)
   {
+    checkNotFrozen();
     FeatureMapUtil.addText(featureMap, index, text);
   }
  
   public void remove(int index)
   {
+    checkNotFrozen();
     featureMap.remove(index);
   }
 
   public void move(int toIndex, int fromIndex)
   {
+    checkNotFrozen();
     featureMap.move(toIndex, fromIndex);
   }
 
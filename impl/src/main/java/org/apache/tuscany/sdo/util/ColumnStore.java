@@ -0,0 +1,824 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tuscany.sdo.impl.ColumnDataObjectImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+
+/**
+ * An EStore keeping the DataObjects of each Type in a table, each property in its own column: an int[], long[] or
+ * double[] for the primitive properties, an Object[] for the others. The DataObjects are rows of their table, so that
+ * forEach can scan a few properties of all the DataObjects of a Type reading the columns sequentially, without going
+ * through the DataObjects. Like the DataObjects, the store isn't thread-safe.
+ * <p>
+ * The rows of the DataObjects detached from their container aren't scanned, nor counted, until the DataObjects are
+ * contained again. The row of a deleted DataObject isn't scanned either, and is reused once the DataObject is
+ * collected. When properties are added to a Type, its DataObjects created afterwards go to a new table, and the
+ * DataObjects of the superseded tables are still scanned.
+ */
+public class ColumnStore implements InternalEObject.EStore
+{
+  static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * EClass to its current Table
+   */
+  protected final Map tables = new HashMap();
+
+  /**
+   * the ReleasedRows of the deleted DataObjects not collected yet
+   */
+  private final Set releasedRows = new HashSet();
+
+  private final ReferenceQueue collectedDataObjects = new ReferenceQueue();
+
+  /**
+   * The DataObjects of an EClass and their property values, by column
+   */
+  public static final class Table
+  {
+    final EClass eClass;
+
+    /**
+     * the table superseded by this one, or null
+     */
+    final Table previous;
+
+    final int featureCount;
+
+    final byte[] kinds;
+
+    final boolean[] many;
+
+    int size;
+
+    /**
+     * the DataObject of each row, null once released by the deletion of the DataObject
+     */
+    ColumnDataObjectImpl[] dataObjects = new ColumnDataObjectImpl[INITIAL_CAPACITY];
+
+    /**
+     * the bits of the rows detached from their container
+     */
+    long[] detachedBits = new long[(INITIAL_CAPACITY + 63) >> 6];
+
+    int detachedCount;
+
+    /**
+     * the count of the released rows, free or not
+     */
+    int releasedCount;
+
+    /**
+     * the released rows whose DataObject was collected
+     */
+    int[] freeRows = new int[INITIAL_CAPACITY];
+
+    int freeCount;
+
+    InternalEObject[] containers = new InternalEObject[INITIAL_CAPACITY];
+
+    int[] containingFeatureIDs = new int[INITIAL_CAPACITY];
+
+    /**
+     * the column of each property: int[] for the boolean, byte, char, short and int ones, long[], double[] for the
+     * float and double ones, Object[] for the others and the Lists of the many-valued ones
+     */
+    final Object[] columns;
+
+    /**
+     * the isSet bits of each property, by row
+     */
+    final long[][] setBits;
+
+    Table(EClass eClass, Table previous)
+    {
+      this.eClass = eClass;
+      this.previous = previous;
+      featureCount = eClass.getFeatureCount();
+      kinds = new byte[featureCount];
+      many = new boolean[featureCount];
+      columns = new Object[featureCount];
+      setBits = new long[featureCount][];
+      for (int featureID = 0; featureID != featureCount; ++featureID)
+      {
+        EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+        kinds[featureID] = (byte)OffHeapStore.getKind(feature);
+        many[featureID] = feature.isMany();
+        columns[featureID] = many[featureID] ? new Object[INITIAL_CAPACITY] : newColumn(kinds[featureID], INITIAL_CAPACITY);
+        setBits[featureID] = new long[(INITIAL_CAPACITY + 63) >> 6];
+      }
+    }
+
+    static Object newColumn(int kind, int capacity)
+    {
+      if (kind <= OffHeapStore.INT)
+        return new int[capacity];
+      if (kind == OffHeapStore.LONG)
+        return new long[capacity];
+      if (kind <= OffHeapStore.DOUBLE)
+        return new double[capacity];
+      return new Object[capacity];
+    }
+
+    static Object grow(Object column, int capacity)
+    {
+      Object grown = Array.newInstance(column.getClass().getComponentType(), capacity);
+      System.arraycopy(column, 0, grown, 0, Array.getLength(column));
+      return grown;
+    }
+
+    /**
+     * @return the row for a new DataObject, a free one if any
+     */
+    int nextRow()
+    {
+      return freeCount == 0 ? size : freeRows[freeCount - 1];
+    }
+
+    int addRow(ColumnDataObjectImpl dataObject)
+    {
+      if (freeCount != 0)
+      {
+        int row = freeRows[--freeCount];
+        --releasedCount;
+        dataObjects[row] = dataObject;
+        return row;
+      }
+      if (size == dataObjects.length)
+      {
+        int capacity = size << 1;
+        dataObjects = (ColumnDataObjectImpl[])grow(dataObjects, capacity);
+        detachedBits = (long[])grow(detachedBits, (capacity + 63) >> 6);
+        containers = (InternalEObject[])grow(containers, capacity);
+        containingFeatureIDs = (int[])grow(containingFeatureIDs, capacity);
+        for (int featureID = 0; featureID != featureCount; ++featureID)
+        {
+          columns[featureID] = grow(columns[featureID], capacity);
+          setBits[featureID] = (long[])grow(setBits[featureID], (capacity + 63) >> 6);
+        }
+      }
+      dataObjects[size] = dataObject;
+      return size++;
+    }
+
+    boolean isDetached(int row)
+    {
+      return (detachedBits[row >> 6] & 1L << row) != 0;
+    }
+
+    void setDetached(int row, boolean detached)
+    {
+      if (detached == isDetached(row))
+        return;
+      if (detached)
+      {
+        detachedBits[row >> 6] |= 1L << row;
+        ++detachedCount;
+      }
+      else
+      {
+        detachedBits[row >> 6] &= ~(1L << row);
+        --detachedCount;
+      }
+    }
+
+    /**
+     * @return whether the row is scanned: its DataObject isn't deleted nor detached
+     */
+    boolean isLive(int row)
+    {
+      return dataObjects[row] != null && !isDetached(row);
+    }
+
+    /**
+     * Clears the values of a released row and makes it free
+     */
+    void freeRow(int row)
+    {
+      for (int featureID = 0; featureID != featureCount; ++featureID)
+      {
+        if (many[featureID])
+          ((Object[])columns[featureID])[row] = null;
+        else
+          write(featureID, row, null);
+        setBit(featureID, row, false);
+      }
+      containers[row] = null;
+      containingFeatureIDs[row] = 0;
+      setDetached(row, false);
+      if (freeCount == freeRows.length)
+        freeRows = (int[])grow(freeRows, freeCount << 1);
+      freeRows[freeCount++] = row;
+    }
+
+    public EClass getEClass()
+    {
+      return eClass;
+    }
+
+    /**
+     * @return the number of rows, the released ones included
+     */
+    public int size()
+    {
+      return size;
+    }
+
+    /**
+     * @return the number of rows scanned
+     */
+    public int liveSize()
+    {
+      return size - releasedCount - detachedCount;
+    }
+
+    int featureID(InternalEObject object, EStructuralFeature feature)
+    {
+      int featureID = object.eClass().getFeatureID(feature);
+      if (featureID < 0 || featureID >= featureCount)
+        throw new IllegalArgumentException("The property " + feature.getName() + " isn't in the table of the "
+            + eClass.getName() + " DataObjects");
+      return featureID;
+    }
+
+    boolean isSetBit(int featureID, int row)
+    {
+      return (setBits[featureID][row >> 6] & 1L << row) != 0;
+    }
+
+    void setBit(int featureID, int row, boolean isSet)
+    {
+      if (isSet)
+        setBits[featureID][row >> 6] |= 1L << row;
+      else
+        setBits[featureID][row >> 6] &= ~(1L << row);
+    }
+
+    Object read(int featureID, int row)
+    {
+      Object column = columns[featureID];
+      switch (kinds[featureID])
+      {
+        case OffHeapStore.BOOLEAN:
+          return Boolean.valueOf(((int[])column)[row] != 0);
+        case OffHeapStore.BYTE:
+          return new Byte((byte)((int[])column)[row]);
+        case OffHeapStore.CHAR:
+          return new Character((char)((int[])column)[row]);
+        case OffHeapStore.SHORT:
+          return new Short((short)((int[])column)[row]);
+        case OffHeapStore.INT:
+          return new Integer(((int[])column)[row]);
+        case OffHeapStore.LONG:
+          return new Long(((long[])column)[row]);
+        case OffHeapStore.FLOAT:
+          return new Float((float)((double[])column)[row]);
+        case OffHeapStore.DOUBLE:
+          return new Double(((double[])column)[row]);
+        default:
+          return ((Object[])column)[row];
+      }
+    }
+
+    void write(int featureID, int row, Object value)
+    {
+      Object column = columns[featureID];
+      switch (kinds[featureID])
+      {
+        case OffHeapStore.BOOLEAN:
+          ((int[])column)[row] = value != null && ((Boolean)value).booleanValue() ? 1 : 0;
+          break;
+        case OffHeapStore.CHAR:
+          ((int[])column)[row] = value == null ? 0 : ((Character)value).charValue();
+          break;
+        case OffHeapStore.BYTE:
+        case OffHeapStore.SHORT:
+        case OffHeapStore.INT:
+          ((int[])column)[row] = value == null ? 0 : ((Number)value).intValue();
+          break;
+        case OffHeapStore.LONG:
+          ((long[])column)[row] = value == null ? 0 : ((Number)value).longValue();
+          break;
+        case OffHeapStore.FLOAT:
+        case OffHeapStore.DOUBLE:
+          ((double[])column)[row] = value == null ? 0 : ((Number)value).doubleValue();
+          break;
+        default:
+          ((Object[])column)[row] = value;
+      }
+    }
+
+    List list(int featureID, int row, boolean create)
+    {
+      Object[] column = (Object[])columns[featureID];
+      List list = (List)column[row];
+      if (list == null)
+      {
+        if (!create)
+          return Collections.EMPTY_LIST;
+        column[row] = list = new ArrayList();
+      }
+      return list;
+    }
+  }
+
+  /**
+   * @return the current Table of the EClass, a new one superseding it if properties were added to the EClass
+   */
+  protected Table getTable(EClass eClass)
+  {
+    Table table = (Table)tables.get(eClass);
+    if (table == null || table.featureCount != eClass.getFeatureCount())
+    {
+      table = new Table(eClass, table);
+      tables.put(eClass, table);
+    }
+    return table;
+  }
+
+  /**
+   * @return the number of DataObjects of the Type scanned by forEach, not counting the ones of its subtypes
+   */
+  public int size(Type type)
+  {
+    int size = 0;
+    for (Table table = (Table)tables.get(type); table != null; table = table.previous)
+      size += table.liveSize();
+    return size;
+  }
+
+  /**
+   * The row of a deleted DataObject, freed once the DataObject is collected
+   */
+  private static final class ReleasedRow extends WeakReference
+  {
+    final Table table;
+
+    final int row;
+
+    ReleasedRow(ColumnDataObjectImpl dataObject, ReferenceQueue queue)
+    {
+      super(dataObject, queue);
+      table = dataObject.eTable();
+      row = dataObject.eRow();
+    }
+  }
+
+  /**
+   * Releases the row of a deleted DataObject: the row isn't scanned anymore, and is reused once the DataObject is
+   * collected
+   */
+  public void release(ColumnDataObjectImpl dataObject)
+  {
+    Table table = dataObject.eTable();
+    int row = dataObject.eRow();
+    if (table.dataObjects[row] != dataObject)
+      return;
+    table.setDetached(row, false);
+    table.dataObjects[row] = null;
+    ++table.releasedCount;
+    releasedRows.add(new ReleasedRow(dataObject, collectedDataObjects));
+  }
+
+  /**
+   * Frees the released rows whose DataObject was collected
+   */
+  protected void freeCollectedRows()
+  {
+    for (ReleasedRow collected; (collected = (ReleasedRow)collectedDataObjects.poll()) != null;)
+    {
+      releasedRows.remove(collected);
+      collected.table.freeRow(collected.row);
+    }
+  }
+
+  protected ColumnDataObjectImpl createDataObject(EClass eClass, Table table, int row)
+  {
+    return new ColumnDataObjectImpl(eClass, this, table, row);
+  }
+
+  public EObject create(EClass eClass)
+  {
+    freeCollectedRows();
+    Table table = getTable(eClass);
+    ColumnDataObjectImpl dataObject = createDataObject(eClass, table, table.nextRow());
+    table.addRow(dataObject);
+    return dataObject;
+  }
+
+  protected static boolean isContainment(EStructuralFeature feature)
+  {
+    return OffHeapStore.isContainment(feature);
+  }
+
+  protected void contain(InternalEObject container, int featureID, Object value)
+  {
+    if (value instanceof ColumnDataObjectImpl && ((ColumnDataObjectImpl)value).eStore() == this)
+    {
+      ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)value;
+      dataObject.eTable().containers[dataObject.eRow()] = container;
+      dataObject.eTable().containingFeatureIDs[dataObject.eRow()] = featureID;
+      dataObject.eTable().setDetached(dataObject.eRow(), false);
+    }
+  }
+
+  /**
+   * Clears the container of the value, unless it was already added to another container, and detaches its row
+   */
+  protected void uncontain(InternalEObject container, int featureID, Object value)
+  {
+    if (value instanceof ColumnDataObjectImpl && ((ColumnDataObjectImpl)value).eStore() == this)
+    {
+      ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)value;
+      Table table = dataObject.eTable();
+      int row = dataObject.eRow();
+      if (table.containers[row] == container && table.containingFeatureIDs[row] == featureID)
+      {
+        table.containers[row] = null;
+        table.containingFeatureIDs[row] = 0;
+        if (table.dataObjects[row] != null)
+          table.setDetached(row, true);
+      }
+    }
+  }
+
+  public Object get(InternalEObject object, EStructuralFeature feature, int index)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    Table table = dataObject.eTable();
+    int row = dataObject.eRow();
+    int featureID = table.featureID(object, feature);
+    if (index == NO_INDEX)
+      return table.isSetBit(featureID, row) ? table.read(featureID, row) : null;
+    return table.list(featureID, row, false).get(index);
+  }
+
+  public Object set(InternalEObject object, EStructuralFeature feature, int index, Object value)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    Table table = dataObject.eTable();
+    int row = dataObject.eRow();
+    int featureID = table.featureID(object, feature);
+    Object oldValue;
+    if (index == NO_INDEX)
+    {
+      oldValue = table.isSetBit(featureID, row) ? table.read(featureID, row) : null;
+      table.write(featureID, row, value);
+      table.setBit(featureID, row, true);
+    }
+    else
+      oldValue = table.list(featureID, row, false).set(index, value);
+    if (oldValue != value && isContainment(feature))
+    {
+      uncontain(object, featureID, oldValue);
+      contain(object, featureID, value);
+    }
+    return oldValue;
+  }
+
+  public boolean isSet(InternalEObject object, EStructuralFeature feature)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    Table table = dataObject.eTable();
+    int row = dataObject.eRow();
+    int featureID = table.featureID(object, feature);
+    if (table.many[featureID])
+      return !table.list(featureID, row, false).isEmpty();
+    if (!table.isSetBit(featureID, row))
+      return false;
+    // like a dynamic DataObject, one without unset state is only set if its value isn't the default
+    return feature.isUnsettable() || !OffHeapStore.equal(feature.getDefaultValue(), table.read(featureID, row));
+  }
+
+  public void unset(InternalEObject object, EStructuralFeature feature)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    Table table = dataObject.eTable();
+    int row = dataObject.eRow();
+    int featureID = table.featureID(object, feature);
+    if (table.many[featureID])
+      clear(object, feature);
+    else if (table.isSetBit(featureID, row))
+    {
+      if (isContainment(feature))
+        uncontain(object, featureID, table.read(featureID, row));
+      table.write(featureID, row, null);
+      table.setBit(featureID, row, false);
+    }
+  }
+
+  protected List list(InternalEObject object, EStructuralFeature feature, boolean create)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    Table table = dataObject.eTable();
+    return table.list(table.featureID(object, feature), dataObject.eRow(), create);
+  }
+
+  public boolean isEmpty(InternalEObject object, EStructuralFeature feature)
+  {
+    return list(object, feature, false).isEmpty();
+  }
+
+  public int size(InternalEObject object, EStructuralFeature feature)
+  {
+    return list(object, feature, false).size();
+  }
+
+  public boolean contains(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    return list(object, feature, false).contains(value);
+  }
+
+  public int indexOf(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    return list(object, feature, false).indexOf(value);
+  }
+
+  public int lastIndexOf(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    return list(object, feature, false).lastIndexOf(value);
+  }
+
+  public void add(InternalEObject object, EStructuralFeature feature, int index, Object value)
+  {
+    list(object, feature, true).add(index, value);
+    if (isContainment(feature))
+      contain(object, object.eClass().getFeatureID(feature), value);
+  }
+
+  public Object remove(InternalEObject object, EStructuralFeature feature, int index)
+  {
+    Object oldValue = list(object, feature, false).remove(index);
+    if (isContainment(feature))
+      uncontain(object, object.eClass().getFeatureID(feature), oldValue);
+    return oldValue;
+  }
+
+  public Object move(InternalEObject object, EStructuralFeature feature, int targetIndex, int sourceIndex)
+  {
+    List list = list(object, feature, false);
+    Object value = list.remove(sourceIndex);
+    list.add(targetIndex, value);
+    return value;
+  }
+
+  public void clear(InternalEObject object, EStructuralFeature feature)
+  {
+    List list = list(object, feature, false);
+    if (isContainment(feature))
+    {
+      int featureID = object.eClass().getFeatureID(feature);
+      for (int index = 0, size = list.size(); index != size; ++index)
+        uncontain(object, featureID, list.get(index));
+    }
+    if (!list.isEmpty())
+      list.clear();
+  }
+
+  public Object[] toArray(InternalEObject object, EStructuralFeature feature)
+  {
+    return list(object, feature, false).toArray();
+  }
+
+  public Object[] toArray(InternalEObject object, EStructuralFeature feature, Object[] array)
+  {
+    return list(object, feature, false).toArray(array);
+  }
+
+  public int hashCode(InternalEObject object, EStructuralFeature feature)
+  {
+    return list(object, feature, false).hashCode();
+  }
+
+  public InternalEObject getContainer(InternalEObject object)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    return dataObject.eTable().containers[dataObject.eRow()];
+  }
+
+  public EStructuralFeature getContainingFeature(InternalEObject object)
+  {
+    ColumnDataObjectImpl dataObject = (ColumnDataObjectImpl)object;
+    InternalEObject container = dataObject.eTable().containers[dataObject.eRow()];
+    return container == null ? null : container.eClass().getEStructuralFeature(
+        dataObject.eTable().containingFeatureIDs[dataObject.eRow()]);
+  }
+
+  /**
+   * Visits the rows of a scan
+   */
+  public interface RowVisitor
+  {
+    void visit(Row row);
+  }
+
+  /**
+   * The cursor of a scan over the columns of some properties, read by column index: the index of the property in
+   * the array given to forEach
+   */
+  public static final class Row
+  {
+    final Table table;
+
+    final byte[] kinds;
+
+    final long[][] setBits;
+
+    final int[][] ints;
+
+    final long[][] longs;
+
+    final double[][] doubles;
+
+    final Object[][] objects;
+
+    int row;
+
+    Row(Table table, Property[] properties)
+    {
+      this.table = table;
+      int count = properties.length;
+      kinds = new byte[count];
+      setBits = new long[count][];
+      ints = new int[count][];
+      longs = new long[count][];
+      doubles = new double[count][];
+      objects = new Object[count][];
+      for (int index = 0; index != count; ++index)
+      {
+        EStructuralFeature feature = (EStructuralFeature)properties[index];
+        int featureID = table.eClass.getFeatureID(feature);
+        if (featureID < 0 || featureID >= table.eClass.getFeatureCount())
+          throw new IllegalArgumentException("The property " + properties[index].getName() + " isn't in the table of the "
+              + table.eClass.getName() + " DataObjects");
+        Object column;
+        if (featureID < table.featureCount)
+        {
+          kinds[index] = table.kinds[featureID];
+          setBits[index] = table.setBits[featureID];
+          column = table.columns[featureID];
+        }
+        else
+        {
+          // a property added after the table was superseded, unset in its rows
+          int capacity = table.dataObjects.length;
+          kinds[index] = (byte)OffHeapStore.getKind(feature);
+          setBits[index] = new long[(capacity + 63) >> 6];
+          column = feature.isMany() ? new Object[capacity] : Table.newColumn(kinds[index], capacity);
+        }
+        if (column instanceof int[])
+          ints[index] = (int[])column;
+        else if (column instanceof long[])
+          longs[index] = (long[])column;
+        else if (column instanceof double[])
+          doubles[index] = (double[])column;
+        else
+          objects[index] = (Object[])column;
+      }
+    }
+
+    /**
+     * @return the index of the row in its table
+     */
+    public int getIndex()
+    {
+      return row;
+    }
+
+    public DataObject getDataObject()
+    {
+      return table.dataObjects[row];
+    }
+
+    public boolean isSet(int column)
+    {
+      return (setBits[column][row >> 6] & 1L << row) != 0;
+    }
+
+    public boolean getBoolean(int column)
+    {
+      int[] values = ints[column];
+      return values == null ? Boolean.TRUE.equals(get(column)) : values[row] != 0;
+    }
+
+    public int getInt(int column)
+    {
+      int[] values = ints[column];
+      return values == null ? (int)getLong(column) : values[row];
+    }
+
+    public long getLong(int column)
+    {
+      long[] values = longs[column];
+      if (values != null)
+        return values[row];
+      if (ints[column] != null)
+        return ints[column][row];
+      if (doubles[column] != null)
+        return (long)doubles[column][row];
+      Object value = objects[column][row];
+      return value instanceof Number ? ((Number)value).longValue() : 0;
+    }
+
+    public double getDouble(int column)
+    {
+      double[] values = doubles[column];
+      if (values != null)
+        return values[row];
+      if (ints[column] != null)
+        return ints[column][row];
+      if (longs[column] != null)
+        return longs[column][row];
+      Object value = objects[column][row];
+      return value instanceof Number ? ((Number)value).doubleValue() : 0;
+    }
+
+    /**
+     * @return the value, boxed for a primitive property
+     */
+    public Object get(int column)
+    {
+      if (objects[column] != null)
+        return objects[column][row];
+      switch (kinds[column])
+      {
+        case OffHeapStore.BOOLEAN:
+          return Boolean.valueOf(ints[column][row] != 0);
+        case OffHeapStore.BYTE:
+          return new Byte((byte)ints[column][row]);
+        case OffHeapStore.CHAR:
+          return new Character((char)ints[column][row]);
+        case OffHeapStore.SHORT:
+          return new Short((short)ints[column][row]);
+        case OffHeapStore.INT:
+          return new Integer(ints[column][row]);
+        case OffHeapStore.LONG:
+          return new Long(longs[column][row]);
+        case OffHeapStore.FLOAT:
+          return new Float((float)doubles[column][row]);
+        default:
+          return new Double(doubles[column][row]);
+      }
+    }
+  }
+
+  /**
+   * Visits the rows of the DataObjects of the Type, not the ones of its subtypes, table by table from the oldest, in
+   * row order. The DataObjects deleted or detached from their container aren't visited. The visitor reads the values
+   * of the properties by their index in the array. The DataObjects created during the scan aren't visited, and the
+   * values set during the scan may not be seen.
+   */
+  public void forEach(Type type, Property[] properties, RowVisitor visitor)
+  {
+    List chain = new ArrayList();
+    for (Table table = (Table)tables.get(type); table != null; table = table.previous)
+      chain.add(0, table);
+    for (int t = 0; t != chain.size(); ++t)
+    {
+      Table table = (Table)chain.get(t);
+      Row row = new Row(table, properties);
+      for (int index = 0, size = table.size; index != size; ++index)
+        if (table.isLive(index))
+        {
+          row.row = index;
+          visitor.visit(row);
+        }
+    }
+  }
+}
@@ -38,6 +38,7 @@ import java.util.TimeZone;
 import org.apache.tuscany.sdo.SDOExtendedMetaData;
 import org.apache.tuscany.sdo.SDOFactory;
 import org.apache.tuscany.sdo.SDOPackage;
+import org.apache.tuscany.sdo.api.SDOHelper;
 import org.apache.tuscany.sdo.api.SDOUtil;
 import org.apache.tuscany.sdo.helper.HelperContextImpl;
 import org.apache.tuscany.sdo.impl.ClassImpl;
@@ -47,6 +48,8 @@ import org.apache.tuscany.sdo.model.impl.ModelFactoryImpl;
 import org.apache.tuscany.sdo.util.resource.SDOURIConverterImpl;
 import org.apache.tuscany.sdo.util.resource.SDOXMLResourceFactoryImpl;
 import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.common.util.UniqueEList;
 import org.eclipse.emf.ecore.EAnnotation;
@@ -54,6 +57,7 @@ import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EModelElement;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
@@ -1933,6 +1937,37 @@ public final class DataObjectUtil
       return result;
     }
 
+    /**
+     * Creates an accessor for the path, parsed once, of the object.
+     */
+    public static Accessor create(EObject eObject, Path path, Object value)
+    {
+      Accessor result = pool.get();
+      result.init(eObject, path.tokens, value);
+      return result;
+    }
+
+    /**
+     * A path parsed once, for repeated accesses.
+     */
+    public static final class Path implements SDOHelper.Path
+    {
+      protected final String path;
+
+      protected final TokenList tokens;
+
+      public Path(String path)
+      {
+        this.path = path;
+        tokens = new TokenList(path.toCharArray());
+      }
+
+      public String toString()
+      {
+        return path;
+      }
+    }
+
     /**
      * Only the get and recycle methods should be call; they are the only synchronized methods.
      */
@@ -1992,7 +2027,21 @@ public final class DataObjectUtil
 
     protected int index;
     
-    RuntimeException runtimeException;
+    /**
+     * The reason why the path didn't resolve, whose exception is only created when thrown
+     */
+    protected static final int NO_FAILURE = 0, NO_FEATURE = 1, NO_INDEXED_FEATURE = 2, NOT_A_NUMBER = 3,
+        INDEX_TOO_LOW = 4, NOT_MANY = 5, INDEX_TOO_HIGH = 6;
+
+    protected int failure;
+
+    protected String failureClassName;
+
+    protected String failureName;
+
+    protected String failurePropertyName;
+
+    protected int failureSize;
 
     protected Accessor()
     {
@@ -2003,11 +2052,19 @@ public final class DataObjectUtil
     //  init(eObject, path);
     //}
 
+    protected void init(EObject eObject, TokenList tokens, Object value)
+    {
+      this.eObject = eObject;
+      this.value = value;
+      failure = NO_FAILURE;
+      process(tokens);
+    }
+
     protected void init(EObject eObject, String path, Object value)
     {
       this.eObject = eObject;
       this.value = value;
-      runtimeException = null;
+      failure = NO_FAILURE;
 
       // This should only be called with a path right now.
       //
@@ -2043,6 +2100,10 @@ public final class DataObjectUtil
         {
           value = new BasicSequence((FeatureMap.Internal)value);
         }
+        else if (value instanceof EList && FrozenAdapter.isFrozen(eObject))
+        {
+          value = ECollections.unmodifiableEList((EList)value);
+        }
         return value;
       }
     }
@@ -2056,8 +2117,71 @@ public final class DataObjectUtil
     
     protected final void assertSuccessfulProcess()
     {
-      if (runtimeException != null)  
-        throw runtimeException;
+      if (failure != NO_FAILURE)  
+        throw createException();
+    }
+
+    /**
+     * @return whether the path resolved to an object, or to a Property of an object
+     */
+    public boolean isResolved()
+    {
+      return failure == NO_FAILURE && eObject != null;
+    }
+
+    protected RuntimeException createException()
+    {
+      switch (failure)
+      {
+        case NO_FEATURE:
+          return new IllegalArgumentException("Class '" + failureClassName + "' does not have a feature named '" + failureName + '\'');
+        case NO_INDEXED_FEATURE:
+          return new IllegalArgumentException("Class '" + failureClassName + "' does not have a feature named '" + failureName + "' or '" + failurePropertyName + '\'');
+        case NOT_A_NUMBER:
+          return new NumberFormatException("For input string: \"" + failureName + '"');
+        case INDEX_TOO_LOW:
+          // The index value should not be less than 0.
+          return new IndexOutOfBoundsException("Index value is too low");
+        case NOT_MANY:
+          return new IndexOutOfBoundsException("Index applies only to multi-valued features");
+      }
+      // The index value should be less than size.
+      return new IndexOutOfBoundsException("Index value should have been less than " + failureSize);
+    }
+
+    protected void fail(int failure, String name)
+    {
+      this.failure = failure;
+      failureName = name;
+      if (eObject != null)
+      {
+        failureClassName = eObject.eClass().getName();
+      }
+    }
+
+    /**
+     * @return the int value of the string, an optional sign followed by 1 to 9 digits, or Integer.MIN_VALUE if it
+     *         isn't one
+     */
+    protected static int parseIndex(String string)
+    {
+      int length = string.length();
+      int start = length != 0 && (string.charAt(0) == '-' || string.charAt(0) == '+') ? 1 : 0;
+      if (length == start || length - start > 9)
+      {
+        return Integer.MIN_VALUE;
+      }
+      int result = 0;
+      for (int i = start; i < length; ++i)
+      {
+        char c = string.charAt(i);
+        if (c < '0' || c > '9')
+        {
+          return Integer.MIN_VALUE;
+        }
+        result = result * 10 + c - '0';
+      }
+      return string.charAt(0) == '-' ? -result : result;
     }
 
     public void set(Object newValue)
@@ -2065,6 +2189,7 @@ public final class DataObjectUtil
       assertSuccessfulProcess();
       if (index >= 0)
       {
+        FrozenAdapter.checkNotFrozen(eObject);
         List list = (List)eObject.eGet(feature, true);
         list.set(index, newValue);
       }
@@ -2150,15 +2275,19 @@ public final class DataObjectUtil
               this.index = NO_INDEX;
               return;
             }
-            runtimeException = new IllegalArgumentException("Class '" + eObject.eClass().getName() + "' does not have a feature named '" + name + '\'');
+            fail(NO_FEATURE, name);
           }
           else
           {
             int propertyNameEnd = index;
-            try
+            String indexString = name.substring(++index);
+            index = parseIndex(indexString);
+            if (index == Integer.MIN_VALUE)
+            {
+              fail(NOT_A_NUMBER, indexString);
+            }
+            else
             {
-              index = Integer.parseInt(name.substring(++index));
-                //  NumberFormatException may be thrown
               String propertyName = name.substring(0, propertyNameEnd);
               feature = (EStructuralFeature)((DataObject)eObject).getInstanceProperty(propertyName);
               if (feature != null)
@@ -2166,11 +2295,8 @@ public final class DataObjectUtil
                 setIndex(index);
                 return;
               }
-              runtimeException = new IllegalArgumentException("Class '" + eObject.eClass().getName() + "' does not have a feature named '" + name + "' or '" + propertyName + '\'');
-            }
-            catch(NumberFormatException eNumberFormat)
-            {
-              runtimeException = eNumberFormat;
+              fail(NO_INDEXED_FEATURE, name);
+              failurePropertyName = propertyName;
             }
           }
           setEObject(null);
@@ -2195,13 +2321,13 @@ public final class DataObjectUtil
     {
       if (index < 0) {
         // The index value should not be less than 0.
-        runtimeException = new IndexOutOfBoundsException("Index value is too low");
+        fail(INDEX_TOO_LOW, null);
         setEObject(null);
         return;
       }
       if (!FeatureMapUtil.isMany(eObject, feature))
       {
-        runtimeException = new IndexOutOfBoundsException("Index applies only to multi-valued features");
+        fail(NOT_MANY, null);
         setEObject(null);
         return;
       }
@@ -2209,7 +2335,8 @@ public final class DataObjectUtil
       if (index >= size)
       {
         // The index value should be less than size.
-        runtimeException = new IndexOutOfBoundsException("Index value should have been less than " + size);
+        fail(INDEX_TOO_HIGH, null);
+        failureSize = size;
         setEObject(null);
       }
       this.index = index;
@@ -2217,7 +2344,11 @@ public final class DataObjectUtil
 
     protected void process(String pathString)
     {
-      TokenList tokens = new TokenList(pathString.toCharArray());
+      process(new TokenList(pathString.toCharArray()));
+    }
+
+    protected void process(TokenList tokens)
+    {
       String token;
       int size = tokens.size();
       int x = 0;
@@ -2249,18 +2380,16 @@ public final class DataObjectUtil
           char following = tokens.peek(x + 1).charAt(0);
           if ('=' != following)
           {
-            try
+            int index = parseIndex(token);
+            if (index == Integer.MIN_VALUE)
             {
-              setIndex(Integer.parseInt(token) - 1);
-                //  runtimeException may be recorded
-            }
-            catch(NumberFormatException eNumberFormat)
-            {
-              runtimeException = eNumberFormat;
+              fail(NOT_A_NUMBER, token);
               setEObject(null);
               break;
             }
-            if (runtimeException != null)
+            setIndex(index - 1);
+              //  failure may be recorded
+            if (failure != NO_FAILURE)
               break;
             x++; // skip ]
           }
@@ -2275,7 +2404,8 @@ public final class DataObjectUtil
               attributeValue = tokens.peek(++x);
             }
             x++; // skip ]
-            int index = matchingIndex((List)get(), token, attributeValue);
+            KeyIndex keyIndex = KeyIndex.getIndex(eObject, feature, token);
+            int index = keyIndex == null ? matchingIndex((List)get(), token, attributeValue) : keyIndex.indexOf(attributeValue);
             if (index < 0)
             {
               setEObject(null);
@@ -2548,6 +2678,41 @@ public final class DataObjectUtil
     }
     throw new IllegalArgumentException();
   }
+
+  /**
+   * @return new DataObjects of the Type, created by its EFactory resolved once
+   */
+  public static DataObject[] createMany(Type type, int count)
+  {
+    EClass eClass = (EClass)type;
+    EFactory eFactory = getEFactory(type);
+    DataObject[] dataObjects = new DataObject[count];
+    try
+    {
+      for (int index = 0; index < count; ++index)
+      {
+        dataObjects[index] = (DataObject)eFactory.create(eClass);
+      }
+    }
+    catch (ClassCastException e)
+    {
+      throw new IllegalArgumentException();
+    }
+    return dataObjects;
+  }
+
+  /**
+   * @return the EFactory of the DataObjects of the Type
+   * @throws IllegalArgumentException if the Type isn't a concrete DataObject Type
+   */
+  public static EFactory getEFactory(Type type)
+  {
+    if (!(type instanceof EClass) || type.isAbstract())
+    {
+      throw new IllegalArgumentException();
+    }
+    return ((EClass)type).getEPackage().getEFactoryInstance();
+  }
   
   public static ResourceSet createResourceSet()
   {
@@ -2692,6 +2857,9 @@ public final class DataObjectUtil
     //return path.toString();
   }
   
+  /**
+   * The pool of the resources outside any HelperContext; the XMLHelper loads use HelperContextImpl.getXMLParserPool()
+   */
   protected static XMLParserPool globalXMLParserPool = new XMLParserPoolImpl();
   
   public static void configureXMLResource(XMLResource resource, ExtendedMetaData extendedMetaData)
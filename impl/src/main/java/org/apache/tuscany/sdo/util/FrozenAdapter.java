@@ -0,0 +1,209 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tuscany.sdo.impl.ClassImpl;
+import org.apache.tuscany.sdo.impl.DataObjectImpl;
+import org.apache.tuscany.sdo.impl.SnapshotDataObjectImpl;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+
+/**
+ * The adapter marking the DataObjects of a frozen containment tree. Freezing a tree materializes what EMF and the
+ * Types would otherwise compute lazily on a first read (the setting lists, the resolved proxies, the adapter lists, the
+ * Property lists and maps of the Types, their extended metadata) so that the reads no longer write, then marks each
+ * DataObject.
+ * <p>
+ * The DataObject API of a frozen DataObject refuses to modify it: the setters, delete, detach and the lists it
+ * returns and its Sequence throw UnsupportedOperationException, as do the change of its container, eSet/eUnset and the
+ * typed setters of the generated classes. The EMF lists reached through eGet and the list getters of the generated
+ * classes aren't checked. The tree must be frozen before being published to the reading threads, as any object, for
+ * instance through a volatile or synchronized field.
+ */
+public class FrozenAdapter extends AdapterImpl
+{
+  protected static final FrozenAdapter INSTANCE = new FrozenAdapter();
+
+  protected FrozenAdapter()
+  {
+  }
+
+  /**
+   * Freezes the containment tree of the DataObject
+   * 
+   * @param extendedMetaData the ExtendedMetaData of the scope of the Types, whose caches are computed
+   * @throws IllegalStateException if a ChangeSummary is logging the changes of the tree
+   */
+  public static void freeze(DataObject root, ExtendedMetaData extendedMetaData)
+  {
+    ChangeSummary changeSummary = root.getChangeSummary();
+    if (changeSummary != null && changeSummary.isLogging())
+      throw new IllegalStateException("The changes of the DataObject are being logged");
+    List dataObjects = new ArrayList();
+    Set eClasses = new HashSet();
+    dataObjects.add(root);
+    for (Iterator contents = ((EObject)root).eAllContents(); contents.hasNext();)
+    {
+      dataObjects.add(contents.next());
+    }
+    for (int index = 0, size = dataObjects.size(); index != size; ++index)
+    {
+      EObject eObject = (EObject)dataObjects.get(index);
+      if (eClasses.add(eObject.eClass()))
+        materialize(eObject.eClass(), extendedMetaData);
+      materialize(eObject);
+    }
+    for (int index = 0, size = dataObjects.size(); index != size; ++index)
+    {
+      Object dataObject = dataObjects.get(index);
+      if (dataObject instanceof DataObjectImpl && !isFrozen((Notifier)dataObject))
+        ((DataObjectImpl)dataObject).eAdapters().add(INSTANCE);
+    }
+  }
+
+  /**
+   * Creates the setting lists of the object and resolves its proxies
+   */
+  static void materialize(EObject eObject)
+  {
+    EClass eClass = eObject.eClass();
+    for (int featureID = 0, count = eClass.getFeatureCount(); featureID != count; ++featureID)
+    {
+      EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+      if (feature.isDerived())
+        continue;
+      Object value = eObject.eGet(feature, true);
+      if (feature instanceof EReference && feature.isMany() && !FeatureMapUtil.isFeatureMap(feature))
+      {
+        List values = (List)value;
+        for (int index = 0, size = values.size(); index != size; ++index)
+        {
+          values.get(index);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the cached Properties and metadata of the Type
+   */
+  static void materialize(EClass eClass, ExtendedMetaData extendedMetaData)
+  {
+    Type type = (Type)eClass;
+    type.getAliasNames();
+    type.getBaseTypes();
+    type.getDeclaredProperties();
+    if (eClass instanceof ClassImpl)
+    {
+      ((ClassImpl)eClass).getExtendedProperties();
+      ((ClassImpl)eClass).getAllExtendedProperties();
+      ((ClassImpl)eClass).getChangeSummaryProperty();
+    }
+    for (Iterator properties = type.getProperties().iterator(); properties.hasNext();)
+    {
+      Property property = (Property)properties.next();
+      type.getProperty(property.getName());
+      property.getAliasNames();
+      property.getType().getBaseTypes();
+    }
+    eClass.getEAllSuperTypes();
+    eClass.getEAllAttributes();
+    eClass.getEAllReferences();
+    eClass.getEAllContainments();
+    extendedMetaData.getName(eClass);
+    extendedMetaData.getNamespace(eClass);
+    extendedMetaData.getContentKind(eClass);
+    extendedMetaData.getMixedFeature(eClass);
+    for (Iterator features = eClass.getEAllStructuralFeatures().iterator(); features.hasNext();)
+    {
+      EStructuralFeature feature = (EStructuralFeature)features.next();
+      eClass.getFeatureID(feature);
+      extendedMetaData.getName(feature);
+      extendedMetaData.getNamespace(feature);
+      extendedMetaData.getFeatureKind(feature);
+      extendedMetaData.getGroup(feature);
+      extendedMetaData.getAffiliation(feature);
+    }
+  }
+
+  /**
+   * @return whether the DataObject is frozen, or a snapshot
+   */
+  public static boolean isFrozen(Notifier notifier)
+  {
+    if (notifier instanceof SnapshotDataObjectImpl)
+      return true;
+    if (!(notifier instanceof DataObjectImpl))
+      return false;
+    BasicEList adapters = ((DataObjectImpl)notifier).eBasicAdapters();
+    if (adapters == null)
+      return false;
+    Object[] data = adapters.data();
+    for (int index = adapters.size(); --index >= 0;)
+    {
+      if (data[index] == INSTANCE)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @throws UnsupportedOperationException if the DataObject is frozen
+   */
+  public static void checkNotFrozen(Notifier notifier)
+  {
+    if (isFrozen(notifier))
+      throw new UnsupportedOperationException("The DataObject is frozen");
+  }
+
+  public boolean isAdapterForType(Object type)
+  {
+    return type == FrozenAdapter.class;
+  }
+
+  /**
+   * The adapter is shared by the frozen DataObjects and doesn't keep a target
+   */
+  public void unsetTarget(Notifier oldTarget)
+  {
+  }
+
+  public void setTarget(Notifier newTarget)
+  {
+  }
+}
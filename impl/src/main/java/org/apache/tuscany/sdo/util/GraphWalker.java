@@ -0,0 +1,316 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.SDOGraphVisitor;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+
+/**
+ * Walks the containment tree of a DataObject, visiting each DataObject and the values of its set Properties in
+ * document order. The Properties of each Type are listed once in a plan reused for all its DataObjects, the open
+ * content Properties being looked up per DataObject.
+ * <p>
+ * The parallel walk splits the tree in subtrees visited concurrently by worker threads: a contained DataObject is
+ * handed to an idle thread rather than walked by the thread visiting its container. The visitor must then be thread
+ * safe, and neither it nor other threads may modify the tree during the walk. The subtrees being visited in no
+ * particular order, visitEnd of a DataObject can precede the visits of its descendants.
+ */
+public class GraphWalker
+{
+  /**
+   * the Plan of each Type walked
+   */
+  protected final Map plans = new HashMap();
+
+  public void walk(DataObject root, SDOGraphVisitor visitor)
+  {
+    new Walk(visitor, null).walk(root);
+  }
+
+  /**
+   * Walks the tree with threads, the calling one included
+   */
+  public void walk(DataObject root, SDOGraphVisitor visitor, int threads)
+  {
+    if (threads <= 1)
+    {
+      walk(root, visitor);
+      return;
+    }
+    final Fork fork = new Fork();
+    fork.tasks.add(root);
+    final Walk walk = new Walk(visitor, fork);
+    Thread[] workers = new Thread[threads - 1];
+    for (int index = 0; index != workers.length; ++index)
+    {
+      workers[index] = new Thread("GraphWalker " + index)
+      {
+        public void run()
+        {
+          fork.run(walk.copy());
+        }
+      };
+      workers[index].setDaemon(true);
+      workers[index].start();
+    }
+    fork.run(walk);
+    try
+    {
+      for (int index = 0; index != workers.length; ++index)
+      {
+        workers[index].join();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      throw new RuntimeException(e);
+    }
+    if (fork.failure instanceof RuntimeException)
+      throw (RuntimeException)fork.failure;
+    if (fork.failure instanceof Error)
+      throw (Error)fork.failure;
+    if (fork.failure != null)
+      throw new RuntimeException(fork.failure);
+  }
+
+  protected Plan getPlan(Type type)
+  {
+    synchronized (plans)
+    {
+      Plan plan = (Plan)plans.get(type);
+      if (plan == null)
+      {
+        plan = new Plan(type);
+        plans.put(type, plan);
+      }
+      return plan;
+    }
+  }
+
+  /**
+   * The Properties of a Type
+   */
+  protected static final class Plan
+  {
+    final Property[] properties;
+
+    final boolean[] many;
+
+    final boolean[] containment;
+
+    /**
+     * whether the DataObjects can have open content Properties, after the ones of the Type
+     */
+    final boolean open;
+
+    Plan(Type type)
+    {
+      List typeProperties = type.getProperties();
+      properties = (Property[])typeProperties.toArray(new Property[typeProperties.size()]);
+      many = new boolean[properties.length];
+      containment = new boolean[properties.length];
+      for (int index = 0; index != properties.length; ++index)
+      {
+        many[index] = properties[index].isMany();
+        containment[index] = properties[index].isContainment();
+      }
+      open = type.isOpen();
+    }
+  }
+
+  /**
+   * The walk of a thread
+   */
+  protected class Walk
+  {
+    final SDOGraphVisitor visitor;
+
+    final Fork fork;
+
+    Type type;
+
+    Plan plan;
+
+    Walk(SDOGraphVisitor visitor, Fork fork)
+    {
+      this.visitor = visitor;
+      this.fork = fork;
+    }
+
+    Walk copy()
+    {
+      return new Walk(visitor, fork);
+    }
+
+    void walk(DataObject dataObject)
+    {
+      if (fork != null && fork.failure != null || !visitor.visitDataObject(dataObject))
+        return;
+      if (dataObject.getType() != type)
+      {
+        type = dataObject.getType();
+        plan = getPlan(type);
+      }
+      Plan plan = this.plan;
+      Property[] properties = plan.properties;
+      for (int index = 0; index != properties.length; ++index)
+      {
+        visit(dataObject, properties[index], plan.many[index], plan.containment[index]);
+      }
+      if (plan.open)
+      {
+        List instanceProperties = dataObject.getInstanceProperties();
+        for (int index = properties.length, size = instanceProperties.size(); index < size; ++index)
+        {
+          Property property = (Property)instanceProperties.get(index);
+          visit(dataObject, property, property.isMany(), property.isContainment());
+        }
+      }
+      visitor.visitEnd(dataObject);
+    }
+
+    void visit(DataObject dataObject, Property property, boolean many, boolean containment)
+    {
+      if (!dataObject.isSet(property))
+        return;
+      if (!many)
+      {
+        visit(dataObject, property, dataObject.get(property), containment);
+        return;
+      }
+      List values = dataObject.getList(property);
+      for (int index = 0, size = values.size(); index < size; ++index)
+      {
+        visit(dataObject, property, values.get(index), containment);
+      }
+    }
+
+    void visit(DataObject dataObject, Property property, Object value, boolean containment)
+    {
+      visitor.visitProperty(dataObject, property, value);
+      if (containment && value instanceof DataObject && (fork == null || !fork.fork((DataObject)value)))
+        walk((DataObject)value);
+    }
+  }
+
+  /**
+   * The subtrees left to walk by the threads of a parallel walk
+   */
+  protected static final class Fork
+  {
+    final LinkedList tasks = new LinkedList();
+
+    /**
+     * the number of threads waiting for a subtree
+     */
+    volatile int idle;
+
+    /**
+     * the number of subtrees being walked
+     */
+    int busy;
+
+    volatile Throwable failure;
+
+    /**
+     * Hands the DataObject to an idle thread, if any
+     * 
+     * @return whether the DataObject was handed
+     */
+    boolean fork(DataObject dataObject)
+    {
+      if (idle == 0)
+        return false;
+      synchronized (this)
+      {
+        if (idle <= tasks.size() || failure != null)
+          return false;
+        tasks.add(dataObject);
+        notify();
+        return true;
+      }
+    }
+
+    /**
+     * Walks subtrees until all are walked
+     */
+    void run(Walk walk)
+    {
+      for (;;)
+      {
+        DataObject dataObject;
+        synchronized (this)
+        {
+          while (tasks.isEmpty())
+          {
+            if (busy == 0)
+            {
+              notifyAll();
+              return;
+            }
+            ++idle;
+            try
+            {
+              wait();
+            }
+            catch (InterruptedException e)
+            {
+              fail(e);
+            }
+            --idle;
+          }
+          dataObject = (DataObject)tasks.removeFirst();
+          ++busy;
+        }
+        try
+        {
+          walk.walk(dataObject);
+        }
+        catch (Throwable e)
+        {
+          fail(e);
+        }
+        finally
+        {
+          synchronized (this)
+          {
+            if (--busy == 0 && tasks.isEmpty())
+              notifyAll();
+          }
+        }
+      }
+    }
+
+    synchronized void fail(Throwable e)
+    {
+      if (failure == null)
+        failure = e;
+      tasks.clear();
+    }
+  }
+}
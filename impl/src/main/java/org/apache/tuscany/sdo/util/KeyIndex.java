@@ -0,0 +1,387 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.impl.DataObjectImpl;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+
+/**
+ * A hash index of the DataObjects of a many-valued containment Property of a DataObject by the value of one of their
+ * Properties, used by the path predicates [key=value] on the list and by SDOHelper.lookup. The index is an adapter of
+ * the container and of the indexed DataObjects, and is maintained from their notifications: the DataObjects must
+ * notify their changes (the generated classes with the -noNotification option don't). The values are indexed by their
+ * literal, as the path predicates compare them; the null values and the DataObjects whose Type doesn't have the key
+ * Property aren't indexed.
+ * <p>
+ * The index is only modified by the notifications, hence the lookups don't write and the DataObjects which aren't
+ * modified, such as frozen ones, can be looked up by concurrent threads.
+ */
+public class KeyIndex extends AdapterImpl
+{
+  protected final EObject container;
+
+  protected final EReference listFeature;
+
+  protected final EStructuralFeature keyFeature;
+
+  /**
+   * the DataObject, or the List of DataObjects, of each key literal
+   */
+  protected final Map dataObjects = new HashMap();
+
+  /**
+   * the position in the list of each indexed DataObject, maintained by the notifications of the container
+   */
+  protected final Map positions = new HashMap();
+
+  protected KeyIndex(EObject container, EReference listFeature, EStructuralFeature keyFeature)
+  {
+    this.container = container;
+    this.listFeature = listFeature;
+    this.keyFeature = keyFeature;
+  }
+
+  /**
+   * Indexes the DataObjects of the many-valued containment listProperty by their keyProperty, until the index is
+   * removed
+   * 
+   * @return the new index, or the existing one
+   */
+  public static KeyIndex createIndex(DataObject container, Property listProperty, Property keyProperty)
+  {
+    if (!listProperty.isMany() || !listProperty.isContainment())
+      throw new IllegalArgumentException("The Property " + listProperty.getName() + " isn't a many-valued containment");
+    if (keyProperty.isMany() || !keyProperty.getType().isDataType())
+      throw new IllegalArgumentException("The Property " + keyProperty.getName() + " isn't a single-valued data Property");
+    EObject eObject = (EObject)container;
+    KeyIndex index = getIndex(eObject, (EStructuralFeature)listProperty, keyProperty.getName());
+    if (index == null)
+    {
+      index = new KeyIndex(eObject, (EReference)listProperty, (EStructuralFeature)keyProperty);
+      List list = (List)eObject.eGet(index.listFeature);
+      for (int position = 0, size = list.size(); position < size; ++position)
+      {
+        index.add((EObject)list.get(position));
+      }
+      index.rebuildPositions();
+      eObject.eAdapters().add(index);
+    }
+    return index;
+  }
+
+  /**
+   * Removes the index of the listProperty by the keyProperty, if any
+   */
+  public static void removeIndex(DataObject container, Property listProperty, Property keyProperty)
+  {
+    KeyIndex index = getIndex((EObject)container, (EStructuralFeature)listProperty, keyProperty.getName());
+    if (index != null)
+    {
+      index.dispose();
+    }
+  }
+
+  /**
+   * @return the index of the listFeature of the container by the Property named keyName, or null
+   */
+  public static KeyIndex getIndex(EObject container, EStructuralFeature listFeature, String keyName)
+  {
+    if (!container.eDeliver())
+      return null;
+    // doesn't create the adapter list of a DataObject
+    List adapters = container instanceof DataObjectImpl ? ((DataObjectImpl)container).eBasicAdapters() : container.eAdapters();
+    if (adapters == null)
+      return null;
+    for (int i = 0, size = adapters.size(); i < size; ++i)
+    {
+      Object adapter = adapters.get(i);
+      if (adapter instanceof KeyIndex && ((KeyIndex)adapter).container == container
+          && ((KeyIndex)adapter).listFeature == listFeature && keyName.equals(((KeyIndex)adapter).keyFeature.getName()))
+        return (KeyIndex)adapter;
+    }
+    return null;
+  }
+
+  /**
+   * @return the literal of the value as compared by the path predicates
+   */
+  protected String toLiteral(Object value)
+  {
+    return value instanceof String ? (String)value : EcoreUtil.convertToString((EDataType)keyFeature.getEType(), value);
+  }
+
+  /**
+   * @return the position in the list of the first DataObject whose key has the literal, or -1
+   */
+  public int indexOf(String literal)
+  {
+    Object found = dataObjects.get(literal);
+    if (found == null)
+      return -1;
+    if (!(found instanceof List))
+      return positionOf(found);
+    int result = -1;
+    for (Iterator i = ((List)found).iterator(); i.hasNext();)
+    {
+      int position = positionOf(i.next());
+      if (result == -1 || position < result)
+        result = position;
+    }
+    return result;
+  }
+
+  /**
+   * @return the DataObjects whose key has the literal, in list order
+   */
+  public List getDataObjects(String literal)
+  {
+    Object found = dataObjects.get(literal);
+    if (found == null)
+      return Collections.EMPTY_LIST;
+    if (!(found instanceof List))
+      return Collections.singletonList(found);
+    List result = new ArrayList((List)found);
+    Collections.sort(result, new Comparator()
+    {
+      public int compare(Object dataObject1, Object dataObject2)
+      {
+        return positionOf(dataObject1) - positionOf(dataObject2);
+      }
+    });
+    return result;
+  }
+
+  public Property getKeyProperty()
+  {
+    return (Property)keyFeature;
+  }
+
+  /**
+   * @param value
+   *          the key value or its literal
+   * @return the first DataObject whose key has the value, or null
+   */
+  public DataObject lookup(Object value)
+  {
+    int position = indexOf(toLiteral(value));
+    return position == -1 ? null : (DataObject)((List)container.eGet(listFeature)).get(position);
+  }
+
+  /**
+   * @return the position of the DataObject in the list, searched if the list was changed without notification
+   */
+  protected int positionOf(Object dataObject)
+  {
+    List list = (List)container.eGet(listFeature);
+    Integer position = (Integer)positions.get(dataObject);
+    if (position != null && position.intValue() < list.size() && list.get(position.intValue()) == dataObject)
+      return position.intValue();
+    return list.indexOf(dataObject);
+  }
+
+  protected void rebuildPositions()
+  {
+    positions.clear();
+    List list = (List)container.eGet(listFeature);
+    for (int position = 0, size = list.size(); position < size; ++position)
+    {
+      EObject dataObject = (EObject)list.get(position);
+      if (dataObject.eClass().getFeatureID(keyFeature) != -1)
+        positions.put(dataObject, new Integer(position));
+    }
+  }
+
+  /**
+   * Updates the positions after a change of the list: only the added DataObject's on an append, all of them otherwise
+   */
+  protected void updatePositions(Notification notification)
+  {
+    int position = notification.getPosition();
+    int size = ((List)container.eGet(listFeature)).size();
+    switch (notification.getEventType())
+    {
+      case Notification.ADD:
+        if (position == size - 1)
+        {
+          EObject dataObject = (EObject)notification.getNewValue();
+          if (dataObject.eClass().getFeatureID(keyFeature) != -1)
+            positions.put(dataObject, new Integer(position));
+          return;
+        }
+        break;
+      case Notification.REMOVE:
+        if (position == size)
+          return;
+        break;
+    }
+    rebuildPositions();
+  }
+
+  protected void add(EObject dataObject)
+  {
+    if (dataObject.eClass().getFeatureID(keyFeature) == -1)
+      return;
+    dataObject.eAdapters().add(this);
+    Object value = dataObject.eGet(keyFeature);
+    if (value != null)
+      put(toLiteral(value), dataObject);
+  }
+
+  protected void remove(EObject dataObject)
+  {
+    if (dataObject.eClass().getFeatureID(keyFeature) == -1)
+      return;
+    dataObject.eAdapters().remove(this);
+    positions.remove(dataObject);
+    Object value = dataObject.eGet(keyFeature);
+    if (value != null)
+      remove(toLiteral(value), dataObject);
+  }
+
+  protected void put(String literal, EObject dataObject)
+  {
+    Object found = dataObjects.get(literal);
+    if (found == null)
+    {
+      dataObjects.put(literal, dataObject);
+    }
+    else if (found instanceof List)
+    {
+      ((List)found).add(dataObject);
+    }
+    else
+    {
+      List list = new ArrayList(2);
+      list.add(found);
+      list.add(dataObject);
+      dataObjects.put(literal, list);
+    }
+  }
+
+  protected void remove(String literal, EObject dataObject)
+  {
+    Object found = dataObjects.get(literal);
+    if (found == dataObject)
+    {
+      dataObjects.remove(literal);
+    }
+    else if (found instanceof List)
+    {
+      List list = (List)found;
+      list.remove(dataObject);
+      if (list.size() == 1)
+        dataObjects.put(literal, list.get(0));
+    }
+  }
+
+  public void notifyChanged(Notification notification)
+  {
+    if (notification.isTouch())
+      return;
+    Object notifier = notification.getNotifier();
+    if (notifier == container)
+    {
+      if (notification.getFeature() != listFeature)
+        return;
+      switch (notification.getEventType())
+      {
+        case Notification.ADD_MANY:
+          for (Iterator i = ((Collection)notification.getNewValue()).iterator(); i.hasNext();)
+            add((EObject)i.next());
+          break;
+        case Notification.REMOVE_MANY:
+          for (Iterator i = ((Collection)notification.getOldValue()).iterator(); i.hasNext();)
+            remove((EObject)i.next());
+          break;
+        case Notification.ADD:
+        case Notification.REMOVE:
+        case Notification.SET:
+        case Notification.UNSET:
+          if (notification.getOldValue() instanceof EObject)
+            remove((EObject)notification.getOldValue());
+          if (notification.getNewValue() instanceof EObject)
+            add((EObject)notification.getNewValue());
+          break;
+        case Notification.MOVE:
+          break;
+        default:
+          return;
+      }
+      updatePositions(notification);
+    }
+    else if (notification.getFeature() == keyFeature)
+    {
+      EObject dataObject = (EObject)notifier;
+      if (notification.getOldValue() != null)
+        remove(toLiteral(notification.getOldValue()), dataObject);
+      if (notification.getNewValue() != null)
+        put(toLiteral(notification.getNewValue()), dataObject);
+    }
+  }
+
+  /**
+   * Keeps the container as target, the index being also an adapter of the indexed DataObjects
+   */
+  public void setTarget(Notifier newTarget)
+  {
+    if (newTarget == container)
+      super.setTarget(newTarget);
+  }
+
+  public void unsetTarget(Notifier oldTarget)
+  {
+    if (oldTarget == container)
+      super.unsetTarget(oldTarget);
+  }
+
+  /**
+   * Removes the index from the container and the indexed DataObjects
+   */
+  public void dispose()
+  {
+    container.eAdapters().remove(this);
+    List list = (List)container.eGet(listFeature);
+    for (int position = 0, size = list.size(); position < size; ++position)
+    {
+      ((EObject)list.get(position)).eAdapters().remove(this);
+    }
+    dataObjects.clear();
+    positions.clear();
+  }
+}
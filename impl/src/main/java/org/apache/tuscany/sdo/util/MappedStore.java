@@ -0,0 +1,344 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.tuscany.sdo.impl.OffHeapDataObjectImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * An OffHeapStore whose slabs are regions of a memory-mapped file, to build once a graph of read-mostly DataObjects
+ * and expose it later, without parsing, to the processes mapping the file. The DataObjects are materialized lazily
+ * over the mapped pages, which the operating system shares between the processes of the host.
+ * <p>
+ * The file starts with a header page, then the slabs, then a trailer locating the slabs and naming the Type of each
+ * record layout, resolved against the TypeHelper of the HelperContext opening the file. The values are laid out in
+ * the byte order of the building platform. Values other than Strings, bytes and big numbers are kept Java serialized;
+ * DataObjects of other stores and non Serializable values can't be persisted.
+ * <p>
+ * The DataObjects created in a read-only store are laid out in new slabs allocated in memory, as its mapped slabs
+ * can't be written; a copy-on-write store fills the private pages of its last slab first. Neither grows the file. The
+ * DataObjects of a read-only store can be read by concurrent threads.
+ */
+public class MappedStore extends OffHeapStore
+{
+  static final long MAGIC = 0x53444F4D41500001L;
+
+  static final int VERSION = 1;
+
+  static final int PAGE_SIZE = 4096;
+
+  /**
+   * the file header
+   */
+  static final int HEADER_MAGIC = 0, HEADER_VERSION = 8, HEADER_BIG_ENDIAN = 12, HEADER_TOP = 16,
+      HEADER_RECORD_COUNT = 20, HEADER_ROOT = 24, HEADER_TRAILER = 32, HEADER_TRAILER_LENGTH = 40, HEADER_SIZE = 44;
+
+  protected final RandomAccessFile file;
+
+  protected final FileChannel channel;
+
+  /**
+   * whether the store is being built, otherwise opened
+   */
+  protected final boolean building;
+
+  protected final ByteOrder order;
+
+  protected long[] slabPositions = new long[8];
+
+  protected long fileSize = PAGE_SIZE;
+
+  protected long root;
+
+  protected MappedStore(RandomAccessFile file, boolean building, int slabSize, ByteOrder order)
+  {
+    super(slabSize);
+    this.file = file;
+    channel = file.getChannel();
+    this.building = building;
+    this.order = order;
+  }
+
+  /**
+   * @return a store building the file, whose DataObjects are written in the file on close
+   */
+  public static MappedStore create(File file) throws IOException
+  {
+    return create(file, DEFAULT_SLAB_SIZE);
+  }
+
+  public static MappedStore create(File file, int slabSize) throws IOException
+  {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.setLength(0);
+    return new MappedStore(randomAccessFile, true, slabSize, ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Builds the file of a copy of the graph of the DataObject
+   */
+  public static void write(DataObject root, File file) throws IOException
+  {
+    final MappedStore store = create(file);
+    try
+    {
+      EcoreUtil.Copier copier = new EcoreUtil.Copier()
+      {
+        protected EObject createCopy(EObject eObject)
+        {
+          return store.create(eObject.eClass());
+        }
+      };
+      EObject copy = copier.copy((EObject)root);
+      copier.copyReferences();
+      store.setRoot((DataObject)copy);
+    }
+    finally
+    {
+      store.close();
+    }
+  }
+
+  /**
+   * @return the store of the read-only DataObjects of the file
+   */
+  public static MappedStore open(File file, HelperContext helperContext) throws IOException
+  {
+    return open(file, helperContext, false);
+  }
+
+  /**
+   * @param copyOnWrite
+   *          whether the DataObjects can be modified, the modified pages becoming private to the process and the file
+   *          being left unchanged
+   * @return the store of the DataObjects of the file
+   */
+  public static MappedStore open(File file, HelperContext helperContext, boolean copyOnWrite) throws IOException
+  {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, copyOnWrite ? "rw" : "r");
+    try
+    {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      randomAccessFile.getChannel().read(header, 0);
+      if (header.getLong(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION)
+        throw new IOException(file + " isn't a store file");
+      byte[] trailer = new byte[header.getInt(HEADER_TRAILER_LENGTH)];
+      randomAccessFile.seek(header.getLong(HEADER_TRAILER));
+      randomAccessFile.readFully(trailer);
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(trailer));
+
+      MappedStore store = new MappedStore(randomAccessFile, false, input.readInt(),
+          header.getInt(HEADER_BIG_ENDIAN) != 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+      store.open(header, input, helperContext, copyOnWrite ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY);
+      return store;
+    }
+    catch (IOException e)
+    {
+      randomAccessFile.close();
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  protected void open(ByteBuffer header, DataInputStream input, HelperContext helperContext, FileChannel.MapMode mode)
+      throws IOException
+  {
+    slabCount = input.readInt();
+    slabs = new ByteBuffer[Math.max(slabCount, 8)];
+    slabPositions = new long[slabs.length];
+    for (int index = 0; index != slabCount; ++index)
+    {
+      slabPositions[index] = input.readLong();
+      slabs[index] = channel.map(mode, slabPositions[index], input.readInt()).order(order);
+    }
+    for (int index = 0, typeCount = input.readInt(); index != typeCount; ++index)
+    {
+      String uri = input.readUTF();
+      String name = input.readUTF();
+      Type type = helperContext.getTypeHelper().getType(uri.length() == 0 ? null : uri, name);
+      if (!(type instanceof EClass))
+        throw new IOException("The Type " + uri + '#' + name + " of the store isn't defined");
+      Layout layout = new Layout((EClass)type, index);
+      if (signature(layout) != input.readInt())
+        throw new IOException("The Type " + uri + '#' + name + " differs from the one of the store");
+      layouts.add(layout);
+      eClassLayouts.put(layout.eClass, layout);
+    }
+    top = header.getInt(HEADER_TOP);
+    recordCount = header.getInt(HEADER_RECORD_COUNT);
+    root = header.getLong(HEADER_ROOT);
+    allocatedBytes = getCapacity();
+    if (mode == FileChannel.MapMode.READ_ONLY && slabCount != 0)
+      top = slabs[slabCount - 1].capacity(); // the next record starts a new slab
+  }
+
+  /**
+   * @return the hash of the properties laid out in the records
+   */
+  static int signature(Layout layout)
+  {
+    int signature = layout.size;
+    for (int featureID = 0; featureID != layout.featureCount; ++featureID)
+    {
+      signature = 31 * signature + layout.eClass.getEStructuralFeature(featureID).getName().hashCode();
+      signature = 31 * signature + (layout.many[featureID] ? -1 - layout.kinds[featureID] : layout.kinds[featureID]);
+    }
+    return signature;
+  }
+
+  protected ByteBuffer allocateSlab(int index, int capacity)
+  {
+    if (!building)
+      return super.allocateSlab(index, capacity).order(order);
+    if (index == slabPositions.length)
+    {
+      long[] grown = new long[index << 1];
+      System.arraycopy(slabPositions, 0, grown, 0, index);
+      slabPositions = grown;
+    }
+    slabPositions[index] = fileSize;
+    fileSize += (capacity + PAGE_SIZE - 1) & ~(PAGE_SIZE - 1);
+    try
+    {
+      return channel.map(FileChannel.MapMode.READ_WRITE, slabPositions[index], capacity).order(order);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  protected byte[] serialize(Object value)
+  {
+    if (!building)
+      return super.serialize(value);
+    if (!(value instanceof Serializable))
+      throw new IllegalArgumentException("The " + value.getClass().getName() + " value can't be persisted");
+    try
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream output = new ObjectOutputStream(bytes);
+      output.writeObject(value);
+      output.close();
+      return bytes.toByteArray();
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  protected long putHeapValue(Object value)
+  {
+    if (!building)
+      return super.putHeapValue(value);
+    throw new IllegalArgumentException("The DataObject of another store can't be persisted");
+  }
+
+  public void setRoot(DataObject root)
+  {
+    this.root = ((OffHeapDataObjectImpl)root).eRecord();
+  }
+
+  /**
+   * @return the root DataObject, materialized from its record
+   */
+  public DataObject getRoot()
+  {
+    return root == 0 ? null : (DataObject)getDataObject(root);
+  }
+
+  /**
+   * Writes the header and trailer of the store being built, then closes the file. The DataObjects of an opened store
+   * stay readable until collected.
+   */
+  public void close() throws IOException
+  {
+    try
+    {
+      if (building)
+      {
+        for (int index = 0; index != slabCount; ++index)
+          ((MappedByteBuffer)slabs[index]).force();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(slabSize);
+        output.writeInt(slabCount);
+        for (int index = 0; index != slabCount; ++index)
+        {
+          output.writeLong(slabPositions[index]);
+          output.writeInt(slabs[index].capacity());
+        }
+        output.writeInt(layouts.size());
+        for (int index = 0, typeCount = layouts.size(); index != typeCount; ++index)
+        {
+          Layout layout = (Layout)layouts.get(index);
+          String uri = ((Type)layout.eClass).getURI();
+          output.writeUTF(uri == null ? "" : uri);
+          output.writeUTF(((Type)layout.eClass).getName());
+          output.writeInt(signature(layout));
+        }
+        output.close();
+        channel.write(ByteBuffer.wrap(bytes.toByteArray()), fileSize);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_VERSION, VERSION);
+        header.putInt(HEADER_BIG_ENDIAN, order == ByteOrder.BIG_ENDIAN ? 1 : 0);
+        header.putInt(HEADER_TOP, top);
+        header.putInt(HEADER_RECORD_COUNT, recordCount);
+        header.putLong(HEADER_ROOT, root);
+        header.putLong(HEADER_TRAILER, fileSize);
+        header.putInt(HEADER_TRAILER_LENGTH, bytes.size());
+        channel.write(header, 0);
+        channel.force(true);
+      }
+    }
+    finally
+    {
+      file.close();
+    }
+  }
+}
@@ -0,0 +1,1005 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tuscany.sdo.impl.OffHeapDataObjectImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+/**
+ * An EStore keeping the property values of its DataObjects out of the Java heap, in direct ByteBuffer slabs. Each
+ * DataObject is a record laid out per Type: a header locating its container, the isSet bits, then a fixed size slot
+ * per property. The primitive values are held in their slot, the Strings, bytes and big numbers in length prefixed
+ * blocks of the slabs, the many-valued properties in growable list blocks. The other values (wrapper objects,
+ * feature map entries, DataObjects of other stores) are kept in a side table on the heap.
+ * <p>
+ * The DataObjects are OffHeapDataObjectImpl handles onto the records, weakly cached: a DataObject no longer referenced
+ * is collected and materialized again from its record when navigated to. A DataObject with adapters, like the ones of
+ * a ChangeSummary, is kept as long as the store. The slabs are only appended to, so the space of a grown list or of a
+ * String replaced by a longer one isn't reused. Like the DataObjects, the store isn't thread-safe, except for the
+ * materialization of the DataObjects, which concurrent readers share under a lock.
+ */
+public class OffHeapStore implements InternalEObject.EStore
+{
+  public static final int DEFAULT_SLAB_SIZE = 1 << 24;
+
+  /**
+   * the kinds of slot
+   */
+  protected static final int BOOLEAN = 0, BYTE = 1, CHAR = 2, SHORT = 3, INT = 4, FLOAT = 5, LONG = 6, DOUBLE = 7,
+      REFERENCE = 8, VALUE = 9;
+
+  protected static final int[] WIDTHS = { 1, 1, 2, 2, 4, 4, 8, 8, 8, 8 };
+
+  /**
+   * the record header: the type index, the container record and the containing feature ID
+   */
+  protected static final int TYPE = 0, CONTAINER = 4, CONTAINING_FEATURE = 12, HEADER_SIZE = 16;
+
+  /**
+   * the list block header
+   */
+  protected static final int LIST_CAPACITY = 0, LIST_SIZE = 4, LIST_HEADER_SIZE = 8;
+
+  /**
+   * the value block header
+   */
+  protected static final int VALUE_CAPACITY = 0, VALUE_TAG = 4, VALUE_LENGTH = 5, VALUE_HEADER_SIZE = 9;
+
+  protected static final byte STRING = 1, BYTES = 2, BIG_DECIMAL = 3, BIG_INTEGER = 4, SERIALIZED = 5;
+
+  protected final int slabSize;
+
+  protected ByteBuffer[] slabs = new ByteBuffer[8];
+
+  protected int slabCount;
+
+  /**
+   * the offset of the free space of the last slab
+   */
+  protected int top;
+
+  protected long allocatedBytes;
+
+  protected int recordCount;
+
+  /**
+   * type index to Layout
+   */
+  protected final List layouts = new ArrayList();
+
+  /**
+   * EClass to its current Layout
+   */
+  protected final Map eClassLayouts = new HashMap();
+
+  private final List heapValues = new ArrayList();
+
+  private final List freeHeapIndexes = new ArrayList();
+
+  /**
+   * record to the WeakReference of its DataObject
+   */
+  private final Map handles = new HashMap();
+
+  private final ReferenceQueue collectedHandles = new ReferenceQueue();
+
+  private final Set pinnedHandles = new HashSet();
+
+  public OffHeapStore()
+  {
+    this(DEFAULT_SLAB_SIZE);
+  }
+
+  /**
+   * @param slabSize
+   *          the bytes of each slab, a larger value being allocated alone
+   */
+  public OffHeapStore(int slabSize)
+  {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * @return the number of DataObjects created
+   */
+  public int getRecordCount()
+  {
+    return recordCount;
+  }
+
+  /**
+   * @return the bytes allocated in the slabs
+   */
+  public long getAllocatedBytes()
+  {
+    return allocatedBytes;
+  }
+
+  /**
+   * @return the bytes of the slabs
+   */
+  public long getCapacity()
+  {
+    long capacity = 0;
+    for (int index = 0; index != slabCount; ++index)
+      capacity += slabs[index].capacity();
+    return capacity;
+  }
+
+  /**
+   * @return a new slab of the capacity
+   */
+  protected ByteBuffer allocateSlab(int index, int capacity)
+  {
+    return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @return the address of size free bytes, made of the slab index and the offset in the slab, never 0
+   */
+  protected long allocate(int size)
+  {
+    size = (size + 7) & ~7;
+    if (slabCount == 0 || slabs[slabCount - 1].capacity() - top < size)
+    {
+      int start = slabCount == 0 ? 8 : 0;
+      if (slabCount == slabs.length)
+      {
+        ByteBuffer[] grown = new ByteBuffer[slabCount << 1];
+        System.arraycopy(slabs, 0, grown, 0, slabCount);
+        slabs = grown;
+      }
+      slabs[slabCount] = allocateSlab(slabCount, Math.max(slabSize, start + size));
+      ++slabCount;
+      top = start;
+    }
+    long address = (long)(slabCount - 1) << 32 | top;
+    top += size;
+    allocatedBytes += size;
+    return address;
+  }
+
+  protected final ByteBuffer slab(long address)
+  {
+    return slabs[(int)(address >>> 32)];
+  }
+
+  protected static int offset(long address)
+  {
+    return (int)address;
+  }
+
+  /**
+   * The slots of the records of an EClass
+   */
+  protected static final class Layout
+  {
+    final EClass eClass;
+
+    final int typeIndex;
+
+    final int featureCount;
+
+    final byte[] kinds;
+
+    final boolean[] many;
+
+    final int[] offsets;
+
+    final int size;
+
+    Layout(EClass eClass, int typeIndex)
+    {
+      this.eClass = eClass;
+      this.typeIndex = typeIndex;
+      featureCount = eClass.getFeatureCount();
+      kinds = new byte[featureCount];
+      many = new boolean[featureCount];
+      offsets = new int[featureCount];
+      for (int featureID = 0; featureID != featureCount; ++featureID)
+      {
+        EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+        kinds[featureID] = (byte)getKind(feature);
+        many[featureID] = feature.isMany();
+      }
+      // the widest slots first, so that they're aligned
+      int offset = (HEADER_SIZE + (featureCount + 7) / 8 + 7) & ~7;
+      for (int width = 8; width != 0; width >>= 1)
+        for (int featureID = 0; featureID != featureCount; ++featureID)
+          if ((many[featureID] ? 8 : WIDTHS[kinds[featureID]]) == width)
+          {
+            offsets[featureID] = offset;
+            offset += width;
+          }
+      size = offset;
+    }
+  }
+
+  protected static int getKind(EStructuralFeature feature)
+  {
+    if (feature instanceof EReference)
+      return REFERENCE;
+    if (FeatureMapUtil.isFeatureMap(feature))
+      return VALUE;
+    Class instanceClass = feature.getEType().getInstanceClass();
+    if (instanceClass == Boolean.TYPE)
+      return BOOLEAN;
+    if (instanceClass == Byte.TYPE)
+      return BYTE;
+    if (instanceClass == Character.TYPE)
+      return CHAR;
+    if (instanceClass == Short.TYPE)
+      return SHORT;
+    if (instanceClass == Integer.TYPE)
+      return INT;
+    if (instanceClass == Float.TYPE)
+      return FLOAT;
+    if (instanceClass == Long.TYPE)
+      return LONG;
+    if (instanceClass == Double.TYPE)
+      return DOUBLE;
+    return VALUE;
+  }
+
+  /**
+   * @return the current Layout of the EClass, a new one if properties were added to the EClass
+   */
+  protected Layout getLayout(EClass eClass)
+  {
+    Layout layout = (Layout)eClassLayouts.get(eClass);
+    if (layout == null || layout.featureCount != eClass.getFeatureCount())
+    {
+      layout = new Layout(eClass, layouts.size());
+      layouts.add(layout);
+      eClassLayouts.put(eClass, layout);
+    }
+    return layout;
+  }
+
+  protected final Layout layout(long record)
+  {
+    return (Layout)layouts.get(slab(record).getInt(offset(record) + TYPE));
+  }
+
+  protected long record(InternalEObject object)
+  {
+    return ((OffHeapDataObjectImpl)object).eRecord();
+  }
+
+  protected int featureID(Layout layout, InternalEObject object, EStructuralFeature feature)
+  {
+    int featureID = object.eClass().getFeatureID(feature);
+    if (featureID < 0 || featureID >= layout.featureCount)
+      throw new IllegalArgumentException("The property " + feature.getName() + " isn't in the record of the "
+          + layout.eClass.getName() + " DataObject");
+    return featureID;
+  }
+
+  /**
+   * Keeps the DataObject as long as the store, or until unpinned
+   */
+  public void pin(InternalEObject object)
+  {
+    pinnedHandles.add(object);
+  }
+
+  /**
+   * Lets the DataObject be collected again
+   */
+  public void unpin(InternalEObject object)
+  {
+    pinnedHandles.remove(object);
+  }
+
+  protected InternalEObject createHandle(EClass eClass, long record)
+  {
+    return new OffHeapDataObjectImpl(eClass, this, record);
+  }
+
+  private static final class Handle extends WeakReference
+  {
+    final Long record;
+
+    Handle(Object handle, Long record, ReferenceQueue queue)
+    {
+      super(handle, queue);
+      this.record = record;
+    }
+  }
+
+  private void register(Long record, InternalEObject handle)
+  {
+    synchronized (handles)
+    {
+      for (Handle collected; (collected = (Handle)collectedHandles.poll()) != null;)
+        if (handles.get(collected.record) == collected)
+          handles.remove(collected.record);
+      handles.put(record, new Handle(handle, record, collectedHandles));
+    }
+  }
+
+  /**
+   * @return the DataObject of the record, materialized again if it was collected; the readers of the store share the
+   *         handles under their lock
+   */
+  protected InternalEObject getDataObject(long record)
+  {
+    Long key = new Long(record);
+    synchronized (handles)
+    {
+      Handle handle = (Handle)handles.get(key);
+      InternalEObject dataObject = handle == null ? null : (InternalEObject)handle.get();
+      if (dataObject == null)
+      {
+        dataObject = createHandle(layout(record).eClass, record);
+        register(key, dataObject);
+      }
+      return dataObject;
+    }
+  }
+
+  public EObject create(EClass eClass)
+  {
+    Layout layout = getLayout(eClass);
+    long record = allocate(layout.size);
+    slab(record).putInt(offset(record) + TYPE, layout.typeIndex);
+    ++recordCount;
+    InternalEObject dataObject = createHandle(eClass, record);
+    register(new Long(record), dataObject);
+    return dataObject;
+  }
+
+  protected boolean isSetBit(long record, int featureID)
+  {
+    return (slab(record).get(offset(record) + HEADER_SIZE + (featureID >> 3)) & 1 << (featureID & 7)) != 0;
+  }
+
+  protected void setBit(long record, int featureID, boolean isSet)
+  {
+    ByteBuffer slab = slab(record);
+    int offset = offset(record) + HEADER_SIZE + (featureID >> 3);
+    int bits = slab.get(offset);
+    slab.put(offset, (byte)(isSet ? bits | 1 << (featureID & 7) : bits & ~(1 << (featureID & 7))));
+  }
+
+  protected Object read(int kind, long address)
+  {
+    ByteBuffer slab = slab(address);
+    int offset = offset(address);
+    switch (kind)
+    {
+      case BOOLEAN:
+        return Boolean.valueOf(slab.get(offset) != 0);
+      case BYTE:
+        return new Byte(slab.get(offset));
+      case CHAR:
+        return new Character(slab.getChar(offset));
+      case SHORT:
+        return new Short(slab.getShort(offset));
+      case INT:
+        return new Integer(slab.getInt(offset));
+      case FLOAT:
+        return new Float(slab.getFloat(offset));
+      case LONG:
+        return new Long(slab.getLong(offset));
+      case DOUBLE:
+        return new Double(slab.getDouble(offset));
+      case REFERENCE:
+        long record = slab.getLong(offset);
+        return record > 0 ? getDataObject(record) : getHeapValue(record);
+      default:
+        return getValue(slab.getLong(offset));
+    }
+  }
+
+  protected void write(int kind, long address, Object value)
+  {
+    ByteBuffer slab = slab(address);
+    int offset = offset(address);
+    switch (kind)
+    {
+      case BOOLEAN:
+        slab.put(offset, (byte)(value != null && ((Boolean)value).booleanValue() ? 1 : 0));
+        break;
+      case BYTE:
+        slab.put(offset, value == null ? 0 : ((Number)value).byteValue());
+        break;
+      case CHAR:
+        slab.putChar(offset, value == null ? 0 : ((Character)value).charValue());
+        break;
+      case SHORT:
+        slab.putShort(offset, value == null ? 0 : ((Number)value).shortValue());
+        break;
+      case INT:
+        slab.putInt(offset, value == null ? 0 : ((Number)value).intValue());
+        break;
+      case FLOAT:
+        slab.putFloat(offset, value == null ? 0 : ((Number)value).floatValue());
+        break;
+      case LONG:
+        slab.putLong(offset, value == null ? 0 : ((Number)value).longValue());
+        break;
+      case DOUBLE:
+        slab.putDouble(offset, value == null ? 0 : ((Number)value).doubleValue());
+        break;
+      case REFERENCE:
+        long oldRecord = slab.getLong(offset);
+        if (oldRecord < 0)
+          releaseHeapValue(oldRecord);
+        if (value == null)
+          slab.putLong(offset, 0);
+        else if (value instanceof OffHeapDataObjectImpl && ((OffHeapDataObjectImpl)value).eStore() == this)
+          slab.putLong(offset, ((OffHeapDataObjectImpl)value).eRecord());
+        else
+          slab.putLong(offset, putHeapValue(value));
+        break;
+      default:
+        slab.putLong(offset, putValue(slab.getLong(offset), value));
+    }
+  }
+
+  /**
+   * Releases the heap value of the slot
+   */
+  protected void release(int kind, long address)
+  {
+    if (kind >= REFERENCE)
+    {
+      long handle = slab(address).getLong(offset(address));
+      if (handle < 0)
+        releaseHeapValue(handle);
+    }
+  }
+
+  protected Object getHeapValue(long handle)
+  {
+    return handle == 0 ? null : heapValues.get((int)(-1 - handle));
+  }
+
+  protected long putHeapValue(Object value)
+  {
+    int index;
+    if (freeHeapIndexes.isEmpty())
+    {
+      index = heapValues.size();
+      heapValues.add(value);
+    }
+    else
+    {
+      index = ((Integer)freeHeapIndexes.remove(freeHeapIndexes.size() - 1)).intValue();
+      heapValues.set(index, value);
+    }
+    return -1L - index;
+  }
+
+  protected void releaseHeapValue(long handle)
+  {
+    int index = (int)(-1 - handle);
+    heapValues.set(index, null);
+    freeHeapIndexes.add(new Integer(index));
+  }
+
+  /**
+   * @return the value of the handle: 0 for null, the block address or the negative heap index
+   */
+  protected Object getValue(long handle)
+  {
+    if (handle <= 0)
+      return getHeapValue(handle);
+    ByteBuffer slab = slab(handle);
+    int offset = offset(handle);
+    byte[] bytes = new byte[slab.getInt(offset + VALUE_LENGTH)];
+    ByteBuffer source = slab.duplicate();
+    source.position(offset + VALUE_HEADER_SIZE);
+    source.get(bytes);
+    switch (slab.get(offset + VALUE_TAG))
+    {
+      case BYTES:
+        return bytes;
+      case BIG_DECIMAL:
+        return new BigDecimal(decode(bytes));
+      case BIG_INTEGER:
+        return new BigInteger(decode(bytes));
+      case SERIALIZED:
+        return deserialize(bytes);
+      default:
+        return decode(bytes);
+    }
+  }
+
+  /**
+   * @return the handle of the value, reusing the block of the old handle if the value fits
+   */
+  protected long putValue(long oldHandle, Object value)
+  {
+    if (oldHandle < 0)
+      releaseHeapValue(oldHandle);
+    if (value == null)
+      return 0;
+    byte tag;
+    byte[] bytes;
+    if (value instanceof String)
+    {
+      tag = STRING;
+      bytes = encode((String)value);
+    }
+    else if (value instanceof byte[])
+    {
+      tag = BYTES;
+      bytes = (byte[])value;
+    }
+    else if (value instanceof BigDecimal)
+    {
+      tag = BIG_DECIMAL;
+      bytes = encode(value.toString());
+    }
+    else if (value instanceof BigInteger)
+    {
+      tag = BIG_INTEGER;
+      bytes = encode(value.toString());
+    }
+    else if ((bytes = serialize(value)) != null)
+      tag = SERIALIZED;
+    else
+      return putHeapValue(value);
+    long handle = oldHandle;
+    if (handle <= 0 || slab(handle).getInt(offset(handle) + VALUE_CAPACITY) < bytes.length)
+    {
+      handle = allocate(VALUE_HEADER_SIZE + bytes.length);
+      slab(handle).putInt(offset(handle) + VALUE_CAPACITY, bytes.length);
+    }
+    ByteBuffer slab = slab(handle);
+    int offset = offset(handle);
+    slab.put(offset + VALUE_TAG, tag);
+    slab.putInt(offset + VALUE_LENGTH, bytes.length);
+    ByteBuffer target = slab.duplicate();
+    target.position(offset + VALUE_HEADER_SIZE);
+    target.put(bytes);
+    return handle;
+  }
+
+  /**
+   * @return the bytes of a value other than a String, bytes or big number to keep in the slabs, null to keep it on
+   *         the heap
+   */
+  protected byte[] serialize(Object value)
+  {
+    return null;
+  }
+
+  protected Object deserialize(byte[] bytes)
+  {
+    try
+    {
+      return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    catch (ClassNotFoundException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static byte[] encode(String value)
+  {
+    try
+    {
+      return value.getBytes("UTF-8");
+    }
+    catch (UnsupportedEncodingException e)
+    {
+      throw new IllegalStateException(e.toString());
+    }
+  }
+
+  static String decode(byte[] bytes)
+  {
+    try
+    {
+      return new String(bytes, "UTF-8");
+    }
+    catch (UnsupportedEncodingException e)
+    {
+      throw new IllegalStateException(e.toString());
+    }
+  }
+
+  /**
+   * Copies the bytes of a block within its slab
+   */
+  protected void moveBytes(long from, long to, int length)
+  {
+    if (length == 0)
+      return;
+    ByteBuffer slab = slab(from);
+    byte[] bytes = new byte[length];
+    ByteBuffer source = slab.duplicate();
+    source.position(offset(from));
+    source.get(bytes);
+    ByteBuffer target = slab.duplicate();
+    target.position(offset(to));
+    target.put(bytes);
+  }
+
+  protected static boolean isContainment(EStructuralFeature feature)
+  {
+    return feature instanceof EReference && ((EReference)feature).isContainment();
+  }
+
+  protected void contain(long container, int featureID, Object value)
+  {
+    if (value instanceof OffHeapDataObjectImpl && ((OffHeapDataObjectImpl)value).eStore() == this)
+    {
+      long record = ((OffHeapDataObjectImpl)value).eRecord();
+      ByteBuffer slab = slab(record);
+      slab.putLong(offset(record) + CONTAINER, container);
+      slab.putInt(offset(record) + CONTAINING_FEATURE, featureID);
+    }
+  }
+
+  /**
+   * Clears the container of the value, unless it was already added to another container
+   */
+  protected void uncontain(long container, int featureID, Object value)
+  {
+    if (value instanceof OffHeapDataObjectImpl && ((OffHeapDataObjectImpl)value).eStore() == this)
+    {
+      long record = ((OffHeapDataObjectImpl)value).eRecord();
+      ByteBuffer slab = slab(record);
+      if (slab.getLong(offset(record) + CONTAINER) == container
+          && slab.getInt(offset(record) + CONTAINING_FEATURE) == featureID)
+      {
+        slab.putLong(offset(record) + CONTAINER, 0);
+        slab.putInt(offset(record) + CONTAINING_FEATURE, 0);
+      }
+    }
+  }
+
+  protected long listBlock(long record, Layout layout, int featureID)
+  {
+    return slab(record).getLong(offset(record) + layout.offsets[featureID]);
+  }
+
+  protected int listSize(long block)
+  {
+    return block == 0 ? 0 : slab(block).getInt(offset(block) + LIST_SIZE);
+  }
+
+  protected long element(long block, int kind, int index)
+  {
+    int size = listSize(block);
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+    return block + LIST_HEADER_SIZE + index * WIDTHS[kind];
+  }
+
+  /**
+   * @return the new list block holding the elements of the old one
+   */
+  protected long growList(long slot, long block, int size, int width, int minimum)
+  {
+    int capacity = block == 0 ? 0 : slab(block).getInt(offset(block) + LIST_CAPACITY);
+    capacity += (capacity >> 1) + 4;
+    if (capacity < minimum)
+      capacity = minimum;
+    long newBlock = allocate(LIST_HEADER_SIZE + capacity * width);
+    ByteBuffer slab = slab(newBlock);
+    slab.putInt(offset(newBlock) + LIST_CAPACITY, capacity);
+    slab.putInt(offset(newBlock) + LIST_SIZE, size);
+    if (size != 0)
+    {
+      byte[] bytes = new byte[size * width];
+      ByteBuffer source = slab(block).duplicate();
+      source.position(offset(block) + LIST_HEADER_SIZE);
+      source.get(bytes);
+      ByteBuffer target = slab.duplicate();
+      target.position(offset(newBlock) + LIST_HEADER_SIZE);
+      target.put(bytes);
+    }
+    slab(slot).putLong(offset(slot), newBlock);
+    return newBlock;
+  }
+
+  public Object get(InternalEObject object, EStructuralFeature feature, int index)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    if (index == NO_INDEX)
+      return isSetBit(record, featureID) ? read(kind, record + layout.offsets[featureID]) : null;
+    return read(kind, element(listBlock(record, layout, featureID), kind, index));
+  }
+
+  public Object set(InternalEObject object, EStructuralFeature feature, int index, Object value)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    long address;
+    Object oldValue;
+    if (index == NO_INDEX)
+    {
+      address = record + layout.offsets[featureID];
+      oldValue = isSetBit(record, featureID) ? read(kind, address) : null;
+      setBit(record, featureID, true);
+    }
+    else
+    {
+      address = element(listBlock(record, layout, featureID), kind, index);
+      oldValue = read(kind, address);
+    }
+    write(kind, address, value);
+    if (oldValue != value && isContainment(feature))
+    {
+      uncontain(record, featureID, oldValue);
+      contain(record, featureID, value);
+    }
+    return oldValue;
+  }
+
+  public boolean isSet(InternalEObject object, EStructuralFeature feature)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    if (layout.many[featureID])
+      return listSize(listBlock(record, layout, featureID)) != 0;
+    if (!isSetBit(record, featureID))
+      return false;
+    // like a dynamic DataObject, one without unset state is only set if its value isn't the default
+    return feature.isUnsettable()
+        || !equal(feature.getDefaultValue(), read(layout.kinds[featureID], record + layout.offsets[featureID]));
+  }
+
+  public void unset(InternalEObject object, EStructuralFeature feature)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    if (layout.many[featureID])
+    {
+      clear(object, feature);
+      return;
+    }
+    if (!isSetBit(record, featureID))
+      return;
+    int kind = layout.kinds[featureID];
+    long address = record + layout.offsets[featureID];
+    if (isContainment(feature))
+      uncontain(record, featureID, read(kind, address));
+    write(kind, address, null);
+    setBit(record, featureID, false);
+  }
+
+  public boolean isEmpty(InternalEObject object, EStructuralFeature feature)
+  {
+    return size(object, feature) == 0;
+  }
+
+  public int size(InternalEObject object, EStructuralFeature feature)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    return listSize(listBlock(record, layout, featureID(layout, object, feature)));
+  }
+
+  public boolean contains(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    return indexOf(object, feature, value) != -1;
+  }
+
+  public int indexOf(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    long block = listBlock(record, layout, featureID);
+    for (int index = 0, size = listSize(block); index != size; ++index)
+      if (equal(value, read(kind, block + LIST_HEADER_SIZE + index * WIDTHS[kind])))
+        return index;
+    return -1;
+  }
+
+  public int lastIndexOf(InternalEObject object, EStructuralFeature feature, Object value)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    long block = listBlock(record, layout, featureID);
+    for (int index = listSize(block); --index >= 0;)
+      if (equal(value, read(kind, block + LIST_HEADER_SIZE + index * WIDTHS[kind])))
+        return index;
+    return -1;
+  }
+
+  static boolean equal(Object value, Object element)
+  {
+    return value == null ? element == null : value.equals(element);
+  }
+
+  public void add(InternalEObject object, EStructuralFeature feature, int index, Object value)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    int width = WIDTHS[kind];
+    long slot = record + layout.offsets[featureID];
+    long block = slab(slot).getLong(offset(slot));
+    int size = listSize(block);
+    if (index < 0 || index > size)
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+    if (block == 0 || slab(block).getInt(offset(block) + LIST_CAPACITY) == size)
+      block = growList(slot, block, size, width, size + 1);
+    long address = block + LIST_HEADER_SIZE + index * width;
+    moveBytes(address, address + width, (size - index) * width);
+    if (kind >= REFERENCE)
+      slab(address).putLong(offset(address), 0);
+    write(kind, address, value);
+    slab(block).putInt(offset(block) + LIST_SIZE, size + 1);
+    if (isContainment(feature))
+      contain(record, featureID, value);
+  }
+
+  public Object remove(InternalEObject object, EStructuralFeature feature, int index)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    int width = WIDTHS[kind];
+    long block = listBlock(record, layout, featureID);
+    long address = element(block, kind, index);
+    Object oldValue = read(kind, address);
+    release(kind, address);
+    int size = slab(block).getInt(offset(block) + LIST_SIZE) - 1;
+    moveBytes(address + width, address, (size - index) * width);
+    slab(block).putInt(offset(block) + LIST_SIZE, size);
+    if (isContainment(feature))
+      uncontain(record, featureID, oldValue);
+    return oldValue;
+  }
+
+  public Object move(InternalEObject object, EStructuralFeature feature, int targetIndex, int sourceIndex)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    int width = WIDTHS[kind];
+    long block = listBlock(record, layout, featureID);
+    long target = element(block, kind, targetIndex);
+    long source = element(block, kind, sourceIndex);
+    Object value = read(kind, source);
+    ByteBuffer slab = slab(source);
+    long bits = width == 8 ? slab.getLong(offset(source)) : 0;
+    if (width != 8)
+      for (int index = 0; index != width; ++index)
+        bits |= (slab.get(offset(source) + index) & 0xFFL) << (index << 3);
+    if (sourceIndex < targetIndex)
+      moveBytes(source + width, source, (targetIndex - sourceIndex) * width);
+    else
+      moveBytes(target, target + width, (sourceIndex - targetIndex) * width);
+    if (width == 8)
+      slab.putLong(offset(target), bits);
+    else
+      for (int index = 0; index != width; ++index)
+        slab.put(offset(target) + index, (byte)(bits >>> (index << 3)));
+    return value;
+  }
+
+  public void clear(InternalEObject object, EStructuralFeature feature)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    long block = listBlock(record, layout, featureID);
+    if (block == 0)
+      return;
+    boolean containment = isContainment(feature);
+    for (int index = 0, size = listSize(block); index != size; ++index)
+    {
+      long address = block + LIST_HEADER_SIZE + index * WIDTHS[kind];
+      if (containment)
+        uncontain(record, featureID, read(kind, address));
+      release(kind, address);
+    }
+    slab(block).putInt(offset(block) + LIST_SIZE, 0);
+  }
+
+  public Object[] toArray(InternalEObject object, EStructuralFeature feature)
+  {
+    return toArray(object, feature, null);
+  }
+
+  public Object[] toArray(InternalEObject object, EStructuralFeature feature, Object[] array)
+  {
+    long record = record(object);
+    Layout layout = layout(record);
+    int featureID = featureID(layout, object, feature);
+    int kind = layout.kinds[featureID];
+    long block = listBlock(record, layout, featureID);
+    int size = listSize(block);
+    if (array == null)
+      array = new Object[size];
+    else if (array.length < size)
+      array = (Object[])Array.newInstance(array.getClass().getComponentType(), size);
+    else if (array.length > size)
+      array[size] = null;
+    for (int index = 0; index != size; ++index)
+      array[index] = read(kind, block + LIST_HEADER_SIZE + index * WIDTHS[kind]);
+    return array;
+  }
+
+  public int hashCode(InternalEObject object, EStructuralFeature feature)
+  {
+    Object[] values = toArray(object, feature);
+    int hashCode = 1;
+    for (int index = 0; index != values.length; ++index)
+      hashCode = 31 * hashCode + (values[index] == null ? 0 : values[index].hashCode());
+    return hashCode;
+  }
+
+  public InternalEObject getContainer(InternalEObject object)
+  {
+    long record = record(object);
+    long container = slab(record).getLong(offset(record) + CONTAINER);
+    return container == 0 ? null : getDataObject(container);
+  }
+
+  public EStructuralFeature getContainingFeature(InternalEObject object)
+  {
+    long record = record(object);
+    long container = slab(record).getLong(offset(record) + CONTAINER);
+    return container == 0 ? null : layout(container).eClass.getEStructuralFeature(
+        slab(record).getInt(offset(record) + CONTAINING_FEATURE));
+  }
+}
@@ -0,0 +1,514 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.util.DelegatingEcoreEList;
+
+/**
+ * The list of a many-valued int, long or double property holding the values in a primitive array, in place of the
+ * EDataTypeEList of boxed values. The values are only boxed by get, and the changes are notified like any EMF list
+ * so the ChangeSummary records them. Like the EDataTypeEList, the list can hold null, converted to 0 by the array
+ * accessors.
+ */
+public class PrimitiveEList extends DelegatingEcoreEList
+{
+  protected final int featureID;
+
+  protected final Values values;
+
+  public PrimitiveEList(InternalEObject owner, int featureID, Class instanceClass)
+  {
+    super(owner);
+    this.featureID = featureID;
+    if (instanceClass == Integer.TYPE)
+      values = new IntValues();
+    else if (instanceClass == Long.TYPE)
+      values = new LongValues();
+    else
+      values = new DoubleValues();
+  }
+
+  /**
+   * @return whether the values of the instance class can be held by a PrimitiveEList
+   */
+  public static boolean isPrimitive(Class instanceClass)
+  {
+    return instanceClass == Integer.TYPE || instanceClass == Long.TYPE || instanceClass == Double.TYPE;
+  }
+
+  protected List delegateList()
+  {
+    return values;
+  }
+
+  protected boolean canContainNull()
+  {
+    return true;
+  }
+
+  public int getFeatureID()
+  {
+    return featureID;
+  }
+
+  public EStructuralFeature getEStructuralFeature()
+  {
+    return owner.eClass().getEStructuralFeature(featureID);
+  }
+
+  public int[] toIntArray()
+  {
+    return values.toIntArray();
+  }
+
+  public long[] toLongArray()
+  {
+    return values.toLongArray();
+  }
+
+  public double[] toDoubleArray()
+  {
+    return values.toDoubleArray();
+  }
+
+  /**
+   * Replaces the values by the ones of the array, boxing them only if the change has to be notified.
+   *
+   * @param array
+   *          an int[], long[] or double[] like the values
+   * @return false if the array isn't of the type of the values
+   */
+  public boolean setArray(Object array)
+  {
+    if (!values.isArray(array))
+      return false;
+    if (isNotificationRequired())
+    {
+      Values newValues = values.newValues();
+      newValues.replace(array);
+      clear();
+      addAll(newValues);
+    }
+    else
+      values.replace(array);
+    return true;
+  }
+
+  /**
+   * The values of a PrimitiveEList
+   */
+  protected static abstract class Values extends AbstractList implements RandomAccess
+  {
+    protected int size;
+
+    /**
+     * the positions of the null values, allocated by the first null
+     */
+    protected boolean[] nulls;
+
+    public int size()
+    {
+      return size;
+    }
+
+    public void clear()
+    {
+      size = 0;
+      nulls = null;
+      ++modCount;
+    }
+
+    protected boolean isNull(int index)
+    {
+      return nulls != null && nulls[index];
+    }
+
+    /**
+     * Records whether the value set at the index is null
+     */
+    protected void setNull(int index, boolean isNull)
+    {
+      if (nulls == null)
+      {
+        if (!isNull)
+          return;
+        nulls = new boolean[capacity(size, 0)];
+      }
+      nulls[index] = isNull;
+    }
+
+    /**
+     * Records whether the value inserted at the index is null; called before the size grows
+     */
+    protected void insertNull(int index, boolean isNull)
+    {
+      if (nulls == null)
+      {
+        if (!isNull)
+          return;
+        nulls = new boolean[capacity(size + 1, size)];
+      }
+      else if (size == nulls.length)
+      {
+        boolean[] grown = new boolean[capacity(size + 1, size)];
+        System.arraycopy(nulls, 0, grown, 0, size);
+        nulls = grown;
+      }
+      System.arraycopy(nulls, index, nulls, index + 1, size - index);
+      nulls[index] = isNull;
+    }
+
+    /**
+     * Forgets whether the value removed at the index was null; called before the size shrinks
+     */
+    protected void removeNull(int index)
+    {
+      if (nulls != null)
+      {
+        System.arraycopy(nulls, index + 1, nulls, index, size - index - 1);
+        nulls[size - 1] = false;
+      }
+    }
+
+    protected void checkIndex(int index, int bound)
+    {
+      if (index < 0 || index >= bound)
+        throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+    }
+
+    /**
+     * @return the new capacity to hold the minimum, grown by half
+     */
+    protected static int capacity(int minimum, int capacity)
+    {
+      capacity += (capacity >> 1) + 4;
+      return capacity < minimum ? minimum : capacity;
+    }
+
+    protected abstract int getInt(int index);
+
+    protected abstract long getLong(int index);
+
+    protected abstract double getDouble(int index);
+
+    protected abstract boolean isArray(Object array);
+
+    protected abstract void replace(Object array);
+
+    protected abstract Values newValues();
+
+    protected int[] toIntArray()
+    {
+      int[] array = new int[size];
+      for (int index = 0; index < size; ++index)
+        array[index] = getInt(index);
+      return array;
+    }
+
+    protected long[] toLongArray()
+    {
+      long[] array = new long[size];
+      for (int index = 0; index < size; ++index)
+        array[index] = getLong(index);
+      return array;
+    }
+
+    protected double[] toDoubleArray()
+    {
+      double[] array = new double[size];
+      for (int index = 0; index < size; ++index)
+        array[index] = getDouble(index);
+      return array;
+    }
+  }
+
+  protected static final class IntValues extends Values
+  {
+    private int[] data = new int[0];
+
+    public Object get(int index)
+    {
+      checkIndex(index, size);
+      return isNull(index) ? null : new Integer(data[index]);
+    }
+
+    public Object set(int index, Object value)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Integer(data[index]);
+      data[index] = value == null ? 0 : ((Number)value).intValue();
+      setNull(index, value == null);
+      return oldValue;
+    }
+
+    public void add(int index, Object value)
+    {
+      checkIndex(index, size + 1);
+      int newValue = value == null ? 0 : ((Number)value).intValue();
+      insertNull(index, value == null);
+      if (size == data.length)
+      {
+        int[] grown = new int[capacity(size + 1, size)];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+      }
+      System.arraycopy(data, index, data, index + 1, size - index);
+      data[index] = newValue;
+      ++size;
+      ++modCount;
+    }
+
+    public Object remove(int index)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Integer(data[index]);
+      removeNull(index);
+      System.arraycopy(data, index + 1, data, index, --size - index);
+      ++modCount;
+      return oldValue;
+    }
+
+    protected int getInt(int index)
+    {
+      return data[index];
+    }
+
+    protected long getLong(int index)
+    {
+      return data[index];
+    }
+
+    protected double getDouble(int index)
+    {
+      return data[index];
+    }
+
+    protected int[] toIntArray()
+    {
+      int[] array = new int[size];
+      System.arraycopy(data, 0, array, 0, size);
+      return array;
+    }
+
+    protected boolean isArray(Object array)
+    {
+      return array instanceof int[];
+    }
+
+    protected void replace(Object array)
+    {
+      int[] newData = (int[])array;
+      data = new int[newData.length];
+      System.arraycopy(newData, 0, data, 0, newData.length);
+      size = newData.length;
+      nulls = null;
+      ++modCount;
+    }
+
+    protected Values newValues()
+    {
+      return new IntValues();
+    }
+  }
+
+  protected static final class LongValues extends Values
+  {
+    private long[] data = new long[0];
+
+    public Object get(int index)
+    {
+      checkIndex(index, size);
+      return isNull(index) ? null : new Long(data[index]);
+    }
+
+    public Object set(int index, Object value)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Long(data[index]);
+      data[index] = value == null ? 0 : ((Number)value).longValue();
+      setNull(index, value == null);
+      return oldValue;
+    }
+
+    public void add(int index, Object value)
+    {
+      checkIndex(index, size + 1);
+      long newValue = value == null ? 0 : ((Number)value).longValue();
+      insertNull(index, value == null);
+      if (size == data.length)
+      {
+        long[] grown = new long[capacity(size + 1, size)];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+      }
+      System.arraycopy(data, index, data, index + 1, size - index);
+      data[index] = newValue;
+      ++size;
+      ++modCount;
+    }
+
+    public Object remove(int index)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Long(data[index]);
+      removeNull(index);
+      System.arraycopy(data, index + 1, data, index, --size - index);
+      ++modCount;
+      return oldValue;
+    }
+
+    protected int getInt(int index)
+    {
+      return (int)data[index];
+    }
+
+    protected long getLong(int index)
+    {
+      return data[index];
+    }
+
+    protected double getDouble(int index)
+    {
+      return data[index];
+    }
+
+    protected long[] toLongArray()
+    {
+      long[] array = new long[size];
+      System.arraycopy(data, 0, array, 0, size);
+      return array;
+    }
+
+    protected boolean isArray(Object array)
+    {
+      return array instanceof long[];
+    }
+
+    protected void replace(Object array)
+    {
+      long[] newData = (long[])array;
+      data = new long[newData.length];
+      System.arraycopy(newData, 0, data, 0, newData.length);
+      size = newData.length;
+      nulls = null;
+      ++modCount;
+    }
+
+    protected Values newValues()
+    {
+      return new LongValues();
+    }
+  }
+
+  protected static final class DoubleValues extends Values
+  {
+    private double[] data = new double[0];
+
+    public Object get(int index)
+    {
+      checkIndex(index, size);
+      return isNull(index) ? null : new Double(data[index]);
+    }
+
+    public Object set(int index, Object value)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Double(data[index]);
+      data[index] = value == null ? 0 : ((Number)value).doubleValue();
+      setNull(index, value == null);
+      return oldValue;
+    }
+
+    public void add(int index, Object value)
+    {
+      checkIndex(index, size + 1);
+      double newValue = value == null ? 0 : ((Number)value).doubleValue();
+      insertNull(index, value == null);
+      if (size == data.length)
+      {
+        double[] grown = new double[capacity(size + 1, size)];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+      }
+      System.arraycopy(data, index, data, index + 1, size - index);
+      data[index] = newValue;
+      ++size;
+      ++modCount;
+    }
+
+    public Object remove(int index)
+    {
+      checkIndex(index, size);
+      Object oldValue = isNull(index) ? null : new Double(data[index]);
+      removeNull(index);
+      System.arraycopy(data, index + 1, data, index, --size - index);
+      ++modCount;
+      return oldValue;
+    }
+
+    protected int getInt(int index)
+    {
+      return (int)data[index];
+    }
+
+    protected long getLong(int index)
+    {
+      return (long)data[index];
+    }
+
+    protected double getDouble(int index)
+    {
+      return data[index];
+    }
+
+    protected double[] toDoubleArray()
+    {
+      double[] array = new double[size];
+      System.arraycopy(data, 0, array, 0, size);
+      return array;
+    }
+
+    protected boolean isArray(Object array)
+    {
+      return array instanceof double[];
+    }
+
+    protected void replace(Object array)
+    {
+      double[] newData = (double[])array;
+      data = new double[newData.length];
+      System.arraycopy(newData, 0, data, 0, newData.length);
+      size = newData.length;
+      nulls = null;
+      ++modCount;
+    }
+
+    protected Values newValues()
+    {
+      return new DoubleValues();
+    }
+  }
+}
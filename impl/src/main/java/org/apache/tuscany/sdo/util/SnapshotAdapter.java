@@ -0,0 +1,278 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.tuscany.sdo.impl.ClassImpl;
+import org.apache.tuscany.sdo.impl.SnapshotDataObjectImpl;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+import commonj.sdo.DataObject;
+
+/**
+ * The adapter of a DataObject of a tree whose snapshots are taken, keeping an immutable Node of its state. When a
+ * feature of the DataObject changes, its Node is replaced by a copy holding the new value of the feature, then the Node
+ * of each container up to the root of the tree is replaced by a copy referring to the new Node of its child, found by
+ * the containment feature and index of the child; the Nodes of the unchanged subtrees are shared between the versions
+ * of the tree. A snapshot is a read-only view of the Node of the root when it's taken.
+ * <p>
+ * The Nodes are maintained from the notifications of the DataObjects, by the thread modifying them: the DataObjects
+ * must notify their changes (the generated classes with the -noNotification option don't). The first snapshot of a
+ * tree adapts all its DataObjects, and must be taken by the writer. The next snapshots only read the Node of the root
+ * and can be taken and read by other threads, without synchronizing with the writer. The open content and the
+ * ChangeSummary of the DataObjects aren't part of the Nodes. The DataObjects of sequenced Types, whose Properties
+ * are derived from their Sequence, aren't supported.
+ */
+public class SnapshotAdapter extends AdapterImpl
+{
+  /**
+   * the state of the target, current as long as the target notifies its changes
+   */
+  protected volatile Node node;
+
+  /**
+   * the index of the target in the many-valued containment feature of its container, set by the writer with the Node
+   * of the container
+   */
+  protected int index;
+
+  protected SnapshotAdapter()
+  {
+  }
+
+  /**
+   * @return a read-only view of the current state of the containment tree of the DataObject
+   * @throws UnsupportedOperationException if a DataObject of the tree is sequenced
+   */
+  public static DataObject snapshot(DataObject dataObject)
+  {
+    EObject eObject = (EObject)dataObject;
+    if (EcoreUtil.getExistingAdapter(eObject, SnapshotAdapter.class) == null)
+    {
+      checkNotSequenced(eObject.eClass());
+      for (Iterator contents = eObject.eAllContents(); contents.hasNext();)
+      {
+        checkNotSequenced(((EObject)contents.next()).eClass());
+      }
+    }
+    return new SnapshotDataObjectImpl(track(eObject).node);
+  }
+
+  static void checkNotSequenced(EClass eClass)
+  {
+    if (eClass instanceof ClassImpl && ((ClassImpl)eClass).isSequenced())
+      throw new UnsupportedOperationException("The snapshots don't support the sequenced Type " + eClass.getName());
+  }
+
+  /**
+   * @return the adapter of the object, adapting its containment tree if needed
+   */
+  static SnapshotAdapter track(EObject eObject)
+  {
+    SnapshotAdapter adapter = (SnapshotAdapter)EcoreUtil.getExistingAdapter(eObject, SnapshotAdapter.class);
+    if (adapter == null)
+    {
+      adapter = new SnapshotAdapter();
+      adapter.node = new Node(eObject);
+      eObject.eAdapters().add(adapter);
+    }
+    return adapter;
+  }
+
+  public boolean isAdapterForType(Object type)
+  {
+    return type == SnapshotAdapter.class;
+  }
+
+  public void notifyChanged(Notification notification)
+  {
+    if (notification.isTouch() || !(notification.getFeature() instanceof EStructuralFeature))
+      return;
+    EObject eObject = (EObject)getTarget();
+    EStructuralFeature feature = (EStructuralFeature)notification.getFeature();
+    int featureID = eObject.eClass().getFeatureID(feature);
+    if (featureID == -1 || !Node.isTracked(eObject.eClass(), feature))
+      return;
+    Node oldNode = node;
+    Node newNode = node = oldNode.update(featureID);
+    SnapshotAdapter child = this;
+    for (EObject container = eObject.eContainer(); container != null; container = container.eContainer())
+    {
+      SnapshotAdapter adapter = (SnapshotAdapter)EcoreUtil.getExistingAdapter(container, SnapshotAdapter.class);
+      if (adapter == null)
+        break;
+      Node oldContainerNode = adapter.node;
+      adapter.node = oldContainerNode.replace(container.eClass().getFeatureID(eObject.eContainmentFeature()),
+          child.index, oldNode, newNode);
+      oldNode = oldContainerNode;
+      newNode = adapter.node;
+      child = adapter;
+      eObject = container;
+    }
+  }
+
+  /**
+   * The immutable state of a DataObject
+   */
+  public static final class Node
+  {
+    /**
+     * the DataObject, identifying the Node between the versions of the tree
+     */
+    public final EObject eObject;
+
+    /**
+     * the value of each feature: the Node of a contained DataObject, the values of a many-valued feature in an array
+     */
+    final Object[] values;
+
+    final boolean[] isSet;
+
+    Node(EObject eObject)
+    {
+      this.eObject = eObject;
+      EClass eClass = eObject.eClass();
+      checkNotSequenced(eClass);
+      int count = eClass.getFeatureCount();
+      values = new Object[count];
+      isSet = new boolean[count];
+      for (int featureID = 0; featureID != count; ++featureID)
+      {
+        EStructuralFeature feature = eClass.getEStructuralFeature(featureID);
+        if (isTracked(eClass, feature))
+          read(feature, featureID, values, isSet);
+      }
+    }
+
+    Node(EObject eObject, Object[] values, boolean[] isSet)
+    {
+      this.eObject = eObject;
+      this.values = values;
+      this.isSet = isSet;
+    }
+
+    /**
+     * @return whether the values of the feature are part of the Nodes of its class
+     */
+    static boolean isTracked(EClass eClass, EStructuralFeature feature)
+    {
+      return !feature.isDerived() && !FeatureMapUtil.isFeatureMap(feature)
+          && !(eClass instanceof ClassImpl && feature == ((ClassImpl)eClass).getChangeSummaryProperty());
+    }
+
+    /**
+     * Reads the current value of the feature of the DataObject into the slot of the feature, tracking the contained
+     * DataObjects
+     */
+    void read(EStructuralFeature feature, int featureID, Object[] values, boolean[] isSet)
+    {
+      boolean containment = feature instanceof EReference && ((EReference)feature).isContainment();
+      if (feature.isMany())
+      {
+        List list = (List)eObject.eGet(feature);
+        Object[] array = new Object[list.size()];
+        for (int index = 0; index != array.length; ++index)
+        {
+          Object value = list.get(index);
+          if (containment)
+          {
+            SnapshotAdapter adapter = track((EObject)value);
+            adapter.index = index;
+            value = adapter.node;
+          }
+          array[index] = value;
+        }
+        values[featureID] = array;
+        isSet[featureID] = array.length != 0;
+      }
+      else
+      {
+        Object value = eObject.eGet(feature);
+        values[featureID] = containment && value != null ? track((EObject)value).node : value;
+        isSet[featureID] = eObject.eIsSet(feature);
+      }
+    }
+
+    /**
+     * @return a copy holding the current value of the feature
+     */
+    Node update(int featureID)
+    {
+      Object[] newValues = (Object[])values.clone();
+      boolean[] newIsSet = (boolean[])isSet.clone();
+      read(eObject.eClass().getEStructuralFeature(featureID), featureID, newValues, newIsSet);
+      return new Node(eObject, newValues, newIsSet);
+    }
+
+    /**
+     * @param featureID the containment feature of the child
+     * @param index the index of the child in the feature if many-valued
+     * @return a copy referring to the new Node of a contained DataObject instead of its old one, or holding the
+     *         current value of the feature if the old Node isn't at the index
+     */
+    Node replace(int featureID, int index, Node oldChild, Node newChild)
+    {
+      Object value = values[featureID];
+      if (value instanceof Object[])
+      {
+        Object[] array = (Object[])value;
+        if (index >= array.length || array[index] != oldChild)
+          return update(featureID);
+        Object[] newArray = (Object[])array.clone();
+        newArray[index] = newChild;
+        value = newArray;
+      }
+      else if (value == oldChild)
+        value = newChild;
+      else
+        return update(featureID);
+      Object[] newValues = (Object[])values.clone();
+      newValues[featureID] = value;
+      return new Node(eObject, newValues, isSet);
+    }
+
+    public EClass eClass()
+    {
+      return eObject.eClass();
+    }
+
+    /**
+     * @return the value of the feature: a Node, an array of values, or a value
+     */
+    public Object getValue(int featureID)
+    {
+      return values[featureID];
+    }
+
+    public boolean isSet(int featureID)
+    {
+      return isSet[featureID];
+    }
+  }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import org.apache.tuscany.sdo.impl.ClassImpl;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.FeatureMapUtil;
 
@@ -129,6 +130,7 @@ public class VirtualSequence implements Sequence
 
   public Object setValue(int index, Object value)
   {
+    FrozenAdapter.checkNotFrozen((EObject)dataObject);
     for (Iterator iterator = delegateProperties.iterator() ; iterator.hasNext() ;)
     {
       Property property = (Property)iterator.next();
@@ -186,6 +188,7 @@ public class VirtualSequence implements Sequence
   
   public final boolean add(Property p, Object value)
   {
+    FrozenAdapter.checkNotFrozen((EObject)dataObject);
     Property property;
     int size = delegateProperties.size(), index = size;
     do
@@ -292,6 +295,7 @@ public class VirtualSequence implements Sequence
   
   public final void add(int index, Property p, Object value)
   {
+    FrozenAdapter.checkNotFrozen((EObject)dataObject);
     Iterator iterator = delegateProperties.iterator();
     if (index == 0)
       switch (insert(iterator, p, value))
@@ -385,6 +389,7 @@ public class VirtualSequence implements Sequence
 
   public void remove(int index)
   {
+    FrozenAdapter.checkNotFrozen((EObject)dataObject);
     for (Iterator iterator = delegateProperties.iterator() ; iterator.hasNext() ;)
     {
       Property property = (Property)iterator.next();
@@ -457,6 +462,7 @@ public class VirtualSequence implements Sequence
   
   public void move(int toIndex, int fromIndex)
   {
+    FrozenAdapter.checkNotFrozen((EObject)dataObject);
     for (Iterator iterator = delegateProperties.iterator(); iterator.hasNext() ;)
     {
       Property property = (Property)iterator.next();
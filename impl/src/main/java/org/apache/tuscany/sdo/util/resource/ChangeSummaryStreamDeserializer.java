@@ -620,7 +620,7 @@ public class ChangeSummaryStreamDeserializer extends SDODeserializer {
                         if (tag.ref != null)
                             tag.value = referent(tag.ref, tag.nameSpaceContext);
                         // if (tag.value == null) report error?
-                        else if (tag.events != null)
+                        else if (tag.recorded())
                             tag.value = value(play(tag));
                         if (property.isMany()) {
                             Collection list;
@@ -0,0 +1,580 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.tuscany.sdo.SimpleAnyTypeDataObject;
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.model.internal.InternalFactory;
+import org.apache.tuscany.sdo.model.internal.impl.InternalFactoryImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Sequence;
+import commonj.sdo.Type;
+
+/**
+ * Writes a tree of DataObjects straight to an XMLStreamWriter, walking the instance properties
+ * with the ExtendedMetaData of the scope instead of going through the EMF XMLSaveImpl string buffer
+ * (XMLHelper) or a DataObjectXMLStreamReader event per node (XMLStreamHelper).
+ * <p>
+ * The layout follows the XMLStreamHelper rules: a namespace is declared on the first element that
+ * needs it, xsi:type is written when the DataObject Type differs from the element Type, null values
+ * are written as xsi:nil and non-containment references as IDREF/URI fragment text. A DataObject of an
+ * anonymous Type, which has no QName, is written as the element declaring its Type instead, like XMLHelper does.
+ * {@link SDOHelper.XMLOptions#XML_SAVE_LINE_BREAK}, {@link SDOHelper.XMLOptions#XML_SAVE_INDENT} and
+ * {@link SDOHelper.XMLOptions#XML_SAVE_MARGIN} are honored; mixed content is never reformatted.
+ * <p>
+ * The instance isn't thread-safe, however it's safe to use the instance any times on the same thread.
+ */
+public class DataObjectStreamSerializer {
+    static final String INDENT = "  ", LINE_SEPARATOR = System.getProperty("line.separator");
+
+    static final String NAMESPACE_PREFIX = "p";
+
+    protected final ExtendedMetaData extendedMetaData;
+
+    /**
+     * Whether absent line break and indent options mean the EMF XMLSave defaults or no formatting
+     */
+    protected final boolean formatByDefault;
+
+    private XMLStreamWriter writer;
+
+    private Map options;
+
+    private String lineBreak, indent, margin;
+
+    /**
+     * margin + indent * nesting, grown on demand
+     */
+    private final List indents = new ArrayList();
+
+    private int nest;
+
+    /**
+     * > 0 while inside mixed content that must not be reformatted
+     */
+    private int mixed;
+
+    private boolean started;
+
+    private int prefixSuffix;
+
+    private EObject serializeRoot;
+
+    private ChangeSummaryStreamSerializer changeSummarySerializer/* = null */;
+
+    private Map changeSummaryOptions/* = null */;
+
+    /**
+     * @param extendedMetaData
+     *            the scope metadata, null for ExtendedMetaData.INSTANCE
+     * @param formatByDefault
+     *            true to break lines and indent like XMLHelper when the options don't say otherwise, false to leave
+     *            the output unformatted like XMLStreamHelper
+     */
+    public DataObjectStreamSerializer(ExtendedMetaData extendedMetaData, boolean formatByDefault) {
+        this.extendedMetaData = extendedMetaData == null ? ExtendedMetaData.INSTANCE : extendedMetaData;
+        this.formatByDefault = formatByDefault;
+    }
+
+    /**
+     * Saves the DataObject as the rootElementURI/rootElementName element.
+     *
+     * @param dataObject
+     *            Never null
+     * @param rootElementURI
+     *            namespace of the root element, null if unqualified
+     * @param rootElementName
+     *            Never null
+     * @param writer
+     *            Never null
+     * @param options
+     *            {@link SDOHelper.XMLOptions#XML_SAVE_LINE_BREAK}, {@link SDOHelper.XMLOptions#XML_SAVE_INDENT} and
+     *            {@link SDOHelper.XMLOptions#XML_SAVE_MARGIN}; can be null or empty
+     */
+    public void serialize(DataObject dataObject, String rootElementURI, String rootElementName, XMLStreamWriter writer, Map options)
+            throws XMLStreamException {
+        serialize(dataObject, rootElementURI, rootElementName, null, null, writer, options);
+    }
+
+    /**
+     * Saves the DataObject as the rootElementURI/rootElementName element, with the xsi:schemaLocation and
+     * xsi:noNamespaceSchemaLocation attributes if not null.
+     */
+    public void serialize(DataObject dataObject, String rootElementURI, String rootElementName, String schemaLocation,
+            String noNamespaceSchemaLocation, XMLStreamWriter writer, Map options) throws XMLStreamException {
+        this.writer = writer;
+        begin(options);
+        writeDocument(dataObject, rootElementURI, rootElementName, schemaLocation, noNamespaceSchemaLocation);
+        writer.flush();
+    }
+
+    protected final void writeDocument(DataObject dataObject, String rootElementURI, String rootElementName, String schemaLocation,
+            String noNamespaceSchemaLocation) throws XMLStreamException {
+        EObject object = (EObject) dataObject;
+        serializeRoot = object;
+        EStructuralFeature rootElement = extendedMetaData.getElement(rootElementURI, rootElementName);
+        if (object instanceof SimpleAnyTypeDataObject) {
+            SimpleAnyTypeDataObject simple = (SimpleAnyTypeDataObject) object;
+            EDataType instanceType = simple.getInstanceType();
+            startElement(rootElementURI, rootElementName);
+            if (rootElement == null || rootElement.getEType() != instanceType)
+                writeXSIType(instanceType);
+            writeSchemaLocations(schemaLocation, noNamespaceSchemaLocation);
+            writeCharacters(convertToString(instanceType, simple.getValue()));
+            endElement(false);
+        } else {
+            EClass eClass = object.eClass();
+            String anonymousElementName = rootElement == null || rootElement.getEType() == eClass ? null
+                    : getAnonymousElementName(eClass);
+            if (anonymousElementName != null)
+                startElement(extendedMetaData.getNamespace(eClass.getEPackage()), anonymousElementName);
+            else {
+                startElement(rootElementURI, rootElementName);
+                if (rootElement == null || rootElement.getEType() != eClass)
+                    writeXSIType(eClass);
+            }
+            writeSchemaLocations(schemaLocation, noNamespaceSchemaLocation);
+            endElement(writeContent(dataObject));
+        }
+        serializeRoot = null;
+    }
+
+    /**
+     * Resets the state and reads the formatting options
+     */
+    protected void begin(Map options) {
+        this.options = options;
+        nest = mixed = 0;
+        started = false;
+        indents.clear();
+        lineBreak = indent = margin = null;
+        if (options != null) {
+            lineBreak = (String) options.get(SDOHelper.XMLOptions.XML_SAVE_LINE_BREAK);
+            indent = (String) options.get(SDOHelper.XMLOptions.XML_SAVE_INDENT);
+            margin = (String) options.get(SDOHelper.XMLOptions.XML_SAVE_MARGIN);
+        }
+        if (lineBreak == null)
+            lineBreak = formatByDefault ? LINE_SEPARATOR : "";
+        if (indent == null)
+            indent = formatByDefault ? INDENT : "";
+        if (margin == null)
+            margin = "";
+        indents.add(margin);
+    }
+
+    /**
+     * @return true if the lines are broken
+     */
+    final boolean formatted() {
+        return lineBreak.length() != 0 || indent.length() != 0 || margin.length() != 0;
+    }
+
+    protected final String indentation() {
+        for (int index = indents.size() - 1; index < nest; ++index)
+            indents.add(indents.get(index) + indent);
+        return (String) indents.get(nest);
+    }
+
+    protected final void breakLine() throws XMLStreamException {
+        if (mixed != 0 || !formatted())
+            return;
+        if (started)
+            writeWhiteSpace(lineBreak);
+        String indentation = indentation();
+        if (indentation.length() != 0)
+            writeWhiteSpace(indentation);
+    }
+
+    /**
+     * Writes the line break or indentation
+     */
+    protected void writeWhiteSpace(String whiteSpace) throws XMLStreamException {
+        writer.writeCharacters(whiteSpace);
+    }
+
+    /**
+     * Writes and escapes text content
+     */
+    protected void writeCharacters(String text) throws XMLStreamException {
+        writer.writeCharacters(text);
+    }
+
+    /**
+     * @return a prefix not in scope yet, the Package prefix of the nameSpace if possible
+     */
+    private String newPrefix(String nameSpace) {
+        NamespaceContext nameSpaces = writer.getNamespaceContext();
+        String prefix;
+        if (ExtendedMetaData.XSI_URI.equals(nameSpace))
+            prefix = ExtendedMetaData.XSI_PREFIX;
+        else {
+            EPackage ePackage = extendedMetaData.getPackage(nameSpace);
+            prefix = ePackage == null ? null : ePackage.getNsPrefix();
+        }
+        if (prefix == null || prefix.length() == 0 || bound(nameSpaces, prefix))
+            do
+                prefix = NAMESPACE_PREFIX + prefixSuffix++;
+            while (bound(nameSpaces, prefix));
+        return prefix;
+    }
+
+    static private boolean bound(NamespaceContext nameSpaces, String prefix) {
+        String nameSpace = nameSpaces.getNamespaceURI(prefix);
+        return nameSpace != null && nameSpace.length() != 0;
+    }
+
+    private String declare(String prefix, String nameSpace) throws XMLStreamException {
+        writer.writeNamespace(prefix, nameSpace);
+        writer.setPrefix(prefix, nameSpace);
+        return prefix;
+    }
+
+    /**
+     * @return the non-empty prefix bound to the nameSpace, declaring it on the current element if not in scope yet
+     */
+    protected String prefix(String nameSpace) throws XMLStreamException {
+        String prefix = writer.getPrefix(nameSpace);
+        if (prefix != null && prefix.length() != 0)
+            return prefix;
+        return declare(newPrefix(nameSpace), nameSpace);
+    }
+
+    protected void startElement(String nameSpace, String name) throws XMLStreamException {
+        breakLine();
+        started = true;
+        if (nameSpace == null || nameSpace.length() == 0) {
+            writer.writeStartElement(name);
+            if (bound(writer.getNamespaceContext(), "")) {
+                writer.writeDefaultNamespace("");
+                writer.setDefaultNamespace("");
+            }
+        } else {
+            String prefix = writer.getPrefix(nameSpace);
+            if (prefix != null)
+                writer.writeStartElement(prefix, name, nameSpace);
+            else {
+                prefix = newPrefix(nameSpace);
+                writer.writeStartElement(prefix, name, nameSpace);
+                declare(prefix, nameSpace);
+            }
+        }
+        ++nest;
+    }
+
+    /**
+     * Starts the element of a Property value
+     */
+    protected void startElement(EStructuralFeature feature) throws XMLStreamException {
+        startElement(extendedMetaData.getNamespace(feature), extendedMetaData.getName(feature));
+    }
+
+    /**
+     * Records a start tag written by a subclass itself, after {@link #breakLine()}
+     */
+    protected final void elementStarted() {
+        started = true;
+        ++nest;
+    }
+
+    /**
+     * @param complex
+     *            true if the element has element content
+     */
+    protected final void endElement(boolean complex) throws XMLStreamException {
+        --nest;
+        if (complex)
+            breakLine();
+        writeEndElement();
+    }
+
+    protected void writeEndElement() throws XMLStreamException {
+        writer.writeEndElement();
+    }
+
+    protected void writeAttribute(String nameSpace, String name, String value) throws XMLStreamException {
+        if (nameSpace == null || nameSpace.length() == 0)
+            writer.writeAttribute(name, value);
+        else
+            writer.writeAttribute(prefix(nameSpace), nameSpace, name, value);
+    }
+
+    /**
+     * Writes the attribute of a Property value
+     */
+    protected void writeAttribute(EStructuralFeature feature, String value) throws XMLStreamException {
+        writeAttribute(extendedMetaData.getNamespace(feature), extendedMetaData.getName(feature), value);
+    }
+
+    /**
+     * @return the name of the element declaring the anonymous Type, null if the Type isn't anonymous
+     */
+    protected final String getAnonymousElementName(EClassifier type) {
+        if (!extendedMetaData.isAnonymous(type))
+            return null;
+        String name = extendedMetaData.getName(type);
+        int index = name == null ? -1 : name.indexOf("_._");
+        return index > 0 ? name.substring(0, index) : null;
+    }
+
+    /**
+     * Writes the xsi:type attribute of the Type, none for an anonymous Type which has no QName
+     */
+    protected void writeXSIType(EClassifier type) throws XMLStreamException {
+        if (extendedMetaData.isAnonymous(type))
+            return;
+        String name = extendedMetaData.getName(type);
+        String nameSpace = extendedMetaData.getNamespace(type.getEPackage());
+        String value = nameSpace == null ? name : prefix(nameSpace) + ':' + name;
+        writeAttribute(ExtendedMetaData.XSI_URI, XMLResource.TYPE, value);
+    }
+
+    protected final void writeSchemaLocations(String schemaLocation, String noNamespaceSchemaLocation) throws XMLStreamException {
+        if (schemaLocation != null)
+            writeAttribute(ExtendedMetaData.XSI_URI, XMLResource.SCHEMA_LOCATION, schemaLocation);
+        if (noNamespaceSchemaLocation != null)
+            writeAttribute(ExtendedMetaData.XSI_URI, XMLResource.NO_NAMESPACE_SCHEMA_LOCATION, noNamespaceSchemaLocation);
+    }
+
+    protected final boolean isAttribute(Property property) {
+        return extendedMetaData.getFeatureKind((EStructuralFeature) property) == ExtendedMetaData.ATTRIBUTE_FEATURE;
+    }
+
+    protected String convertToString(EDataType dataType, Object value) throws XMLStreamException {
+        if (dataType == ((InternalFactoryImpl) InternalFactory.INSTANCE).getQName()) {
+            // SDO "namespace#name" to XML prefix:name
+            String sdoURI = value.toString();
+            int index = sdoURI.indexOf('#');
+            if (index != -1)
+                return prefix(sdoURI.substring(0, index)) + ':' + sdoURI.substring(index + 1);
+        }
+        return SDOUtil.convertToString((Type) dataType, value);
+    }
+
+    /**
+     * Writes the attributes then the element content of the DataObject, through the generated handler of its Type if
+     * any
+     *
+     * @return true if any element content has been written
+     */
+    protected boolean writeContent(DataObject dataObject) throws XMLStreamException {
+        TypeStreamHandler handler = TypeStreamHandler.getHandler(((EObject) dataObject).eClass());
+        if (handler != null)
+            return handler.write(dataObject, this);
+        Type type = dataObject.getType();
+        List properties = dataObject.getInstanceProperties();
+        int size = properties.size();
+        for (int index = 0; index != size; ++index) {
+            Property property = (Property) properties.get(index);
+            if (isAttribute(property) && dataObject.isSet(property) && !DataObjectXMLStreamReader.isTransient(property, type)) {
+                Object value = dataObject.get(property);
+                if (value != null)
+                    writeAttributeValue(property, value);
+            }
+        }
+        boolean complex = false;
+        if (type.isSequenced()) {
+            Sequence sequence = dataObject.getSequence();
+            size = sequence.size();
+            boolean text = false;
+            for (int index = 0; index != size; ++index)
+                if (sequence.getProperty(index) == null) {
+                    text = true;
+                    break;
+                }
+            if (text)
+                ++mixed;
+            for (int index = 0; index != size; ++index) {
+                Property property = sequence.getProperty(index);
+                Object value = sequence.getValue(index);
+                if (property == null)
+                    writeCharacters(value.toString());
+                else if (!isAttribute(property) && !DataObjectXMLStreamReader.isTransient(property, type))
+                    complex |= writeProperty(dataObject, property, value);
+            }
+            if (text) {
+                --mixed;
+                return false;
+            }
+        } else
+            for (int index = 0; index != size; ++index) {
+                Property property = (Property) properties.get(index);
+                if (!isAttribute(property) && dataObject.isSet(property) && !DataObjectXMLStreamReader.isTransient(property, type))
+                    complex |= writeProperty(dataObject, property, dataObject.get(property));
+            }
+        return complex;
+    }
+
+    private void writeAttributeValue(Property property, Object value) throws XMLStreamException {
+        EStructuralFeature feature = (EStructuralFeature) property;
+        String string;
+        if (property.getType().isDataType())
+            string = convertToString((EDataType) feature.getEType(), value);
+        else
+            string = reference(value);
+        writeAttribute(feature, string);
+    }
+
+    /**
+     * @return true if any element has been written
+     */
+    protected final boolean writeProperty(DataObject dataObject, Property property, Object value) throws XMLStreamException {
+        if (property.isMany() && property.getContainingType().isOpen() && value instanceof Sequence) {
+            Sequence sequence = (Sequence) value;
+            boolean complex = false;
+            for (int index = 0, size = sequence.size(); index != size; ++index)
+                complex |= writeValue(sequence.getProperty(index), sequence.getValue(index));
+            return complex;
+        }
+        if (value instanceof List && SDOUtil.isMany(property, dataObject)) {
+            List list = (List) value;
+            boolean complex = false;
+            for (int index = 0, size = list.size(); index != size; ++index)
+                complex |= writeValue(property, list.get(index));
+            return complex;
+        }
+        return writeValue(property, value);
+    }
+
+    /**
+     * @return true if an element has been written
+     */
+    protected boolean writeValue(Property property, Object value) throws XMLStreamException {
+        EStructuralFeature feature = (EStructuralFeature) property;
+        switch (extendedMetaData.getFeatureKind(feature)) {
+        case ExtendedMetaData.SIMPLE_FEATURE:
+            // the "value" of simpleContent
+            if (value != null)
+                writeCharacters(convertToString((EDataType) feature.getEType(), value));
+            return false;
+        case ExtendedMetaData.ATTRIBUTE_FEATURE:
+            return false;
+        }
+        Type type = property.getType();
+        if (type == ChangeSummaryStreamSerializer.ChangeSummary_TYPE) {
+            if (value != null)
+                writeChangeSummary((ChangeSummary) value, extendedMetaData.getNamespace(feature), extendedMetaData.getName(feature));
+            return true;
+        }
+        if (value == null) {
+            startElement(feature);
+            writeAttribute(ExtendedMetaData.XSI_URI, XMLResource.NIL, "true");
+            endElement(false);
+        } else if (type.isDataType()) {
+            startElement(feature);
+            writeCharacters(convertToString((EDataType) feature.getEType(), value));
+            endElement(false);
+        } else if (property.isContainment()) {
+            if (value == serializeRoot)
+                return false; // containment cycle
+            EClass eClass = ((EObject) value).eClass();
+            String anonymousElementName = eClass == feature.getEType() ? null : getAnonymousElementName(eClass);
+            if (anonymousElementName != null)
+                startElement(extendedMetaData.getNamespace(eClass.getEPackage()), anonymousElementName);
+            else {
+                startElement(feature);
+                if (eClass != feature.getEType())
+                    writeXSIType(eClass);
+            }
+            endElement(writeContent((DataObject) value));
+        } else {
+            startElement(feature);
+            writeCharacters(reference(value));
+            endElement(false);
+        }
+        return true;
+    }
+
+    /**
+     * @return the ID of the referenced DataObject if any, its URI fragment otherwise
+     */
+    protected String reference(Object value) {
+        EObject object = (EObject) value;
+        String id = EcoreUtil.getID(object);
+        return id == null ? EcoreUtil.getURI(object).toString() : id;
+    }
+
+    private void writeChangeSummary(ChangeSummary changeSummary, String nameSpace, String name) throws XMLStreamException {
+        if (changeSummarySerializer == null) {
+            changeSummarySerializer = new ChangeSummaryStreamSerializer();
+            changeSummaryOptions = new HashMap();
+        }
+        changeSummaryOptions.put(XMLResource.OPTION_EXTENDED_META_DATA, extendedMetaData);
+        if (options != null) {
+            Object option = options.get(ChangeSummaryStreamSerializer.OPTION_RootObject_PATH);
+            if (option != null)
+                changeSummaryOptions.put(ChangeSummaryStreamSerializer.OPTION_RootObject_PATH, option);
+        }
+        if (mixed == 0 && formatted()) {
+            breakLine();
+            changeSummaryOptions.put(SDOHelper.XMLOptions.XML_SAVE_LINE_BREAK, lineBreak);
+            changeSummaryOptions.put(SDOHelper.XMLOptions.XML_SAVE_INDENT, indent);
+            changeSummaryOptions.put(SDOHelper.XMLOptions.XML_SAVE_MARGIN, indentation());
+        } else {
+            changeSummaryOptions.remove(SDOHelper.XMLOptions.XML_SAVE_LINE_BREAK);
+            changeSummaryOptions.remove(SDOHelper.XMLOptions.XML_SAVE_INDENT);
+            changeSummaryOptions.remove(SDOHelper.XMLOptions.XML_SAVE_MARGIN);
+        }
+        XMLStreamWriter writer = changeSummaryWriter();
+        changeSummarySerializer.saveChangeSummary(changeSummary, nameSpace == null ? new LocalName(name) : new QName(nameSpace, name),
+                writer, changeSummaryOptions);
+        if (writer != this.writer)
+            writer.flush();
+    }
+
+    /**
+     * @return the XMLStreamWriter the ChangeSummaryStreamSerializer writes to
+     */
+    protected XMLStreamWriter changeSummaryWriter() throws XMLStreamException {
+        return writer;
+    }
+
+    static private final class LocalName extends QName {
+        private LocalName(String name) {
+            super(name);
+        }
+
+        public String getNamespaceURI() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+
+import commonj.sdo.DataObject;
+
+/**
+ * Writes a tree of DataObjects as UTF-8 bytes straight to an OutputStream. The tags, attribute names, namespace
+ * declarations and xsi:type values come pre-encoded from the {@link XMLNameTable} of the scope so only the values
+ * are encoded per DataObject.
+ * <p>
+ * The instance isn't thread-safe, however it's safe to use the instance any times on the same thread.
+ */
+public class DataObjectUTF8Serializer extends DataObjectStreamSerializer {
+    static final byte[] CLOSE_EMPTY = { '/', '>' }, XSI_NIL = XMLNameTable.encode(" xsi:nil=\"true\"");
+
+    protected final XMLNameTable nameTable;
+
+    private OutputStream outputStream;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    /**
+     * true while the last start tag is waiting for attributes
+     */
+    private boolean open;
+
+    /**
+     * end tags of the elements being written
+     */
+    private final List endTags = new ArrayList();
+
+    /**
+     * namespaces declared on the elements being written, and the number declared before each element
+     */
+    private final List declared = new ArrayList();
+
+    private int[] declaredMarks = new int[16];
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    public DataObjectUTF8Serializer(XMLNameTable nameTable, boolean formatByDefault) {
+        super(nameTable.extendedMetaData, formatByDefault);
+        this.nameTable = nameTable;
+    }
+
+    /**
+     * Saves the DataObject as the rootElementURI/rootElementName element, with the xsi:schemaLocation and
+     * xsi:noNamespaceSchemaLocation attributes if not null.
+     *
+     * @see DataObjectStreamSerializer#serialize(DataObject, String, String, String, String, XMLStreamWriter, Map)
+     */
+    public void serialize(DataObject dataObject, String rootElementURI, String rootElementName, String schemaLocation,
+            String noNamespaceSchemaLocation, OutputStream outputStream, Map options) throws IOException {
+        this.outputStream = outputStream;
+        position = 0;
+        open = false;
+        endTags.clear();
+        declared.clear();
+        begin(options);
+        try {
+            writeDocument(dataObject, rootElementURI, rootElementName, schemaLocation, noNamespaceSchemaLocation);
+        } catch (XMLStreamException e) {
+            throw new Resource.IOWrappedException(e);
+        }
+        flushBuffer();
+        outputStream.flush();
+        this.outputStream = null;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position != 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void write(byte[] bytes) throws XMLStreamException {
+        int length = bytes.length;
+        if (position + length > buffer.length)
+            try {
+                flushBuffer();
+                if (length > buffer.length) {
+                    outputStream.write(bytes);
+                    return;
+                }
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+        System.arraycopy(bytes, 0, buffer, position, length);
+        position += length;
+    }
+
+    private void write(int b) throws XMLStreamException {
+        if (position == buffer.length)
+            try {
+                flushBuffer();
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Encodes the characters as UTF-8
+     */
+    private void write(String string, boolean escape, boolean attribute) throws XMLStreamException {
+        for (int index = 0, length = string.length(); index != length; ++index) {
+            char c = string.charAt(index);
+            if (c < 0x80) {
+                if (escape)
+                    switch (c) {
+                    case '&':
+                        writeASCII("&amp;");
+                        continue;
+                    case '<':
+                        writeASCII("&lt;");
+                        continue;
+                    case '>':
+                        writeASCII("&gt;");
+                        continue;
+                    case '\r':
+                        writeASCII("&#xD;");
+                        continue;
+                    case '"':
+                        if (attribute) {
+                            writeASCII("&quot;");
+                            continue;
+                        }
+                        break;
+                    case '\n':
+                        if (attribute) {
+                            writeASCII("&#xA;");
+                            continue;
+                        }
+                        break;
+                    case '\t':
+                        if (attribute) {
+                            writeASCII("&#x9;");
+                            continue;
+                        }
+                    }
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | c >> 6);
+                write(0x80 | c & 0x3F);
+            } else if (c >= '\uD800' && c <= '\uDBFF' && index + 1 != length && string.charAt(index + 1) >= '\uDC00'
+                    && string.charAt(index + 1) <= '\uDFFF') {
+                // a surrogate pair
+                int codePoint = (c - 0xD800 << 10) + (string.charAt(++index) - 0xDC00) + 0x10000;
+                write(0xF0 | codePoint >> 18);
+                write(0x80 | codePoint >> 12 & 0x3F);
+                write(0x80 | codePoint >> 6 & 0x3F);
+                write(0x80 | codePoint & 0x3F);
+            } else {
+                write(0xE0 | c >> 12);
+                write(0x80 | c >> 6 & 0x3F);
+                write(0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void writeASCII(String string) throws XMLStreamException {
+        for (int index = 0, length = string.length(); index != length; ++index)
+            write(string.charAt(index));
+    }
+
+    /**
+     * @return the string with the XML markup characters escaped
+     */
+    static String escape(String string, boolean attribute) {
+        StringBuffer escaped = null;
+        for (int index = 0, length = string.length(); index != length; ++index) {
+            char c = string.charAt(index);
+            String entity;
+            switch (c) {
+            case '&':
+                entity = "&amp;";
+                break;
+            case '<':
+                entity = "&lt;";
+                break;
+            case '>':
+                entity = "&gt;";
+                break;
+            case '"':
+                entity = attribute ? "&quot;" : null;
+                break;
+            default:
+                entity = null;
+            }
+            if (entity != null) {
+                if (escaped == null)
+                    escaped = new StringBuffer(string.substring(0, index));
+                escaped.append(entity);
+            } else if (escaped != null)
+                escaped.append(c);
+        }
+        return escaped == null ? string : escaped.toString();
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (open) {
+            write('>');
+            open = false;
+        }
+    }
+
+    private boolean inScope(String nameSpace) {
+        for (int index = declared.size(); index != 0;)
+            if (nameSpace.equals(declared.get(--index)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Declares the nameSpace on the open start tag unless in scope already
+     */
+    private void declare(String nameSpace, byte[] declaration) throws XMLStreamException {
+        if (inScope(nameSpace))
+            return;
+        if (!open)
+            throw new XMLStreamException("Namespace " + nameSpace + " can't be declared after the start tag");
+        write(declaration);
+        declared.add(nameSpace);
+    }
+
+    protected void writeWhiteSpace(String whiteSpace) throws XMLStreamException {
+        closeStartTag();
+        write(whiteSpace, false, false);
+    }
+
+    protected void writeCharacters(String text) throws XMLStreamException {
+        closeStartTag();
+        write(text, true, false);
+    }
+
+    protected String prefix(String nameSpace) throws XMLStreamException {
+        declare(nameSpace, nameTable.getDeclaration(nameSpace));
+        return nameTable.getPrefix(nameSpace);
+    }
+
+    private void startElement(XMLNameTable.Name name) throws XMLStreamException {
+        closeStartTag();
+        breakLine();
+        int depth = endTags.size();
+        if (depth == declaredMarks.length) {
+            int[] marks = new int[depth << 1];
+            System.arraycopy(declaredMarks, 0, marks, 0, depth);
+            declaredMarks = marks;
+        }
+        declaredMarks[depth] = declared.size();
+        endTags.add(name.endTag);
+        write(name.startTag);
+        open = true;
+        elementStarted();
+        if (name.nameSpace != null)
+            declare(name.nameSpace, name.declaration);
+    }
+
+    protected void startElement(String nameSpace, String name) throws XMLStreamException {
+        EStructuralFeature element = extendedMetaData.getElement(nameSpace, name);
+        startElement(element == null ? nameTable.newName(nameSpace, name) : nameTable.getName(element));
+    }
+
+    protected void startElement(EStructuralFeature feature) throws XMLStreamException {
+        startElement(nameTable.getName(feature));
+    }
+
+    protected void writeEndElement() throws XMLStreamException {
+        int depth = endTags.size() - 1;
+        byte[] endTag = (byte[]) endTags.remove(depth);
+        if (open) {
+            write(CLOSE_EMPTY);
+            open = false;
+        } else
+            write(endTag);
+        for (int index = declared.size(), mark = declaredMarks[depth]; index != mark;)
+            declared.remove(--index);
+    }
+
+    private void writeAttribute(XMLNameTable.Name name, String value) throws XMLStreamException {
+        if (name.nameSpace != null)
+            declare(name.nameSpace, name.declaration);
+        write(name.attribute);
+        write(value, true, true);
+        write('"');
+    }
+
+    protected void writeAttribute(String nameSpace, String name, String value) throws XMLStreamException {
+        if (ExtendedMetaData.XSI_URI.equals(nameSpace) && "nil".equals(name) && "true".equals(value)) {
+            declare(nameSpace, nameTable.getDeclaration(nameSpace));
+            write(XSI_NIL);
+        } else
+            writeAttribute(nameTable.newName(nameSpace, name), value);
+    }
+
+    protected void writeAttribute(EStructuralFeature feature, String value) throws XMLStreamException {
+        writeAttribute(nameTable.getName(feature), value);
+    }
+
+    protected void writeXSIType(EClassifier type) throws XMLStreamException {
+        XMLNameTable.Name name = nameTable.getTypeName(type);
+        if (name == null)
+            return; // anonymous
+        declare(ExtendedMetaData.XSI_URI, nameTable.getDeclaration(ExtendedMetaData.XSI_URI));
+        if (name.nameSpace != null)
+            declare(name.nameSpace, name.declaration);
+        write(name.attribute);
+    }
+
+    /**
+     * Hands the OutputStream over to an XMLStreamWriter for the ChangeSummary
+     */
+    protected XMLStreamWriter changeSummaryWriter() throws XMLStreamException {
+        closeStartTag();
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+        return OUTPUT_FACTORY.createXMLStreamWriter(outputStream, XMLNameTable.ENCODING);
+    }
+}
@@ -46,395 +46,575 @@ import org.xml.sax.Locator;
  * 2) when Tag.record() is called (see class ChangeSummaryStreamDeserializer), it walks through and records 
  *    the StAX events produced by another XMLStreamReader.
  * 
+ * The events are kept in an {@link EventBuffer} rather than an object per event: an int array of opcodes and
+ * operands, a pool of the interned names, namespaces and prefixes, and a char pool of the text and attribute values.
+ * 
  * This class is used by the SDO StAX-based ChangeSummaryType-property loader, class
  * ChangeSummaryStreamDeserializer, which is inoked by and uses (for loading deleted object XML fragments)
  * the SAX-based loader class XMLResourceImpl.
  */
 public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
 
-    static private class Event {
-        int type;
+    /*
+     * Every event starts with a header of HEADER ints: type, index of the NamespaceContext, line, column and character offset.
+     * The operands follow:
+     * 
+     * START_ELEMENT: name namespace URI, local name, name prefix, nameSpace, prefix, the count of namespace declarations
+     *   followed by a prefix & URI pair per declaration, then the count of attributes followed by ATTRIBUTE_SIZE ints
+     *   per attribute
+     * END_ELEMENT: the position of its START_ELEMENT, which has the same name and declarations
+     * ATTRIBUTE: the count of attributes followed by the first attribute
+     * NAMESPACE: the count of namespaces followed by the first prefix & URI pair
+     * CHARACTERS, CDATA, COMMENT, SPACE, DTD: the text
+     * ENTITY_REFERENCE, PROCESSING_INSTRUCTION: the name or target, then the text or data
+     * 
+     * Names are string pool indices, -1 for null. Text is a char pool offset and length, -1 length for null.
+     */
+    static final int TYPE = 0, CONTEXT = 1, LINE = 2, COLUMN = 3, OFFSET = 4, HEADER = 5;
+
+    static final int NAME_URI = 0, LOCAL_NAME = 1, NAME_PREFIX = 2, NAME_SPACE = 3, PREFIX = 4, DECLARATIONS = 5;
+
+    static final int ATTRIBUTE_TYPE = 0, VALUE = 1, ATTRIBUTE_NAME = 3, SPECIFIED = 8, ATTRIBUTE_SIZE = 9;
 
-        public NamespaceContext nameSpaceContext;
+    static protected String prefix(String qName, String nameSpace) {
+        int delimiter = qName.indexOf(':');
+        if (delimiter != -1)
+            return qName.substring(0, delimiter);
+        if (nameSpace.length() != 0)
+            return XMLConstants.DEFAULT_NS_PREFIX;
+        // if (nameSpaceContext.getNamespaceURI(XMLConstants.DEFAULT_NS_PREFIX) != null || xsdHelper.getGlobalProperty(null, name, element) == null)
+        return null;
+    }
 
-        Location location;
+    static class NameSpace {
+        final String prefix, uri;
 
-        protected final void initialize(XMLStreamReader reader) {
-            nameSpaceContext = reader.getNamespaceContext();
-            location = reader.getLocation();
+        protected NameSpace(String p, String nameSpace) {
+            prefix = p;
+            uri = nameSpace;
         }
+    }
 
-        protected final void location(final Locator locator) {
-            location = new Location() {
-                public int getCharacterOffset() {
-                    return -1;
-                }
+    /**
+     * The recorded events of a Tag
+     */
+    static final class EventBuffer {
+        int[] codes = new int[32];
 
-                public int getColumnNumber() {
-                    return locator.getColumnNumber();
-                }
+        int length/* = 0 */;
 
-                public int getLineNumber() {
-                    return locator.getLineNumber();
-                }
+        String[] strings = new String[8];
 
-                public String getPublicId() {
-                    return locator.getPublicId();
-                }
+        int stringCount/* = 0 */;
 
-                public String getSystemId() {
-                    return locator.getSystemId();
-                }
-            };
-        }
-    }
+        /**
+         * open addressing hash of the strings, 1 + string index, 0 for free
+         */
+        private int[] stringTable = new int[16];
 
-    static class ValueEvent extends Event {
-        final String value;
+        char[] chars = new char[0];
 
-        protected ValueEvent(String v) {
-            value = v;
-        }
-    }
+        int charCount/* = 0 */;
 
-    static protected class Reference extends ValueEvent {
-        final String target;
+        NamespaceContext[] contexts = new NamespaceContext[2];
 
-        protected Reference(String name, String data) {
-            super(data);
-            target = name;
-        }
-    }
+        int contextCount/* = 0 */;
 
-    static protected final class AttributeEvent extends Reference {
-        final QName name;
+        String publicId, systemId;
 
-        final String nameSpace, prefix;
+        private void ensure(int size) {
+            if (length + size > codes.length) {
+                int[] grown = new int[Math.max(codes.length << 1, length + size)];
+                System.arraycopy(codes, 0, grown, 0, length);
+                codes = grown;
+            }
+        }
 
-        int attributes;
+        private void add(int code) {
+            ensure(1);
+            codes[length++] = code;
+        }
 
-        final boolean specified;
+        final int string(String string) {
+            if (string == null)
+                return -1;
+            if (stringTable == null) { // trimmed
+                int size = 16;
+                while (size <= stringCount << 1)
+                    size <<= 1;
+                rehash(size);
+            }
+            int mask = stringTable.length - 1;
+            for (int slot = string.hashCode() & mask;; slot = slot + 1 & mask) {
+                int entry = stringTable[slot];
+                if (entry == 0)
+                    break;
+                if (string.equals(strings[--entry]))
+                    return entry;
+            }
+            if (stringCount == strings.length) {
+                String[] grown = new String[stringCount << 1];
+                System.arraycopy(strings, 0, grown, 0, stringCount);
+                strings = grown;
+            }
+            strings[stringCount] = string;
+            if (++stringCount << 1 > stringTable.length)
+                rehash(stringTable.length << 1);
+            else
+                insert(string, stringCount);
+            return stringCount - 1;
+        }
 
-        protected AttributeEvent(XMLStreamReader reader) {
-            super(reader.getAttributeType(0), reader.getAttributeValue(0));
-            attributes = reader.getAttributeCount();
-            name = reader.getAttributeName(0);
-            nameSpace = reader.getAttributeNamespace(0);
-            prefix = reader.getAttributePrefix(0);
-            specified = reader.isAttributeSpecified(0);
+        private void insert(String string, int entry) {
+            int mask = stringTable.length - 1;
+            int slot = string.hashCode() & mask;
+            while (stringTable[slot] != 0)
+                slot = slot + 1 & mask;
+            stringTable[slot] = entry;
         }
-    }
 
-    static protected final class NameSpaceEvent extends Reference {
-        int nameSpaces;
+        private void rehash(int size) {
+            stringTable = new int[Math.max(size, 16)];
+            for (int index = 0; index != stringCount; ++index)
+                insert(strings[index], index + 1);
+        }
 
-        protected NameSpaceEvent(XMLStreamReader reader) {
-            super(reader.getNamespacePrefix(0), reader.getNamespaceURI(0));
-            nameSpaces = reader.getNamespaceCount();
+        final String string(int index) {
+            return index == -1 ? null : strings[index];
         }
-    }
 
-    static protected String prefix(String qName, String nameSpace) {
-        int delimiter = qName.indexOf(':');
-        if (delimiter != -1)
-            return qName.substring(0, delimiter);
-        if (nameSpace.length() != 0)
-            return XMLConstants.DEFAULT_NS_PREFIX;
-        // if (nameSpaceContext.getNamespaceURI(XMLConstants.DEFAULT_NS_PREFIX) != null || xsdHelper.getGlobalProperty(null, name, element) == null)
-        return null;
-    }
+        private void chars(char[] text, int start, int count) {
+            if (charCount + count > chars.length) {
+                char[] grown = new char[Math.max(chars.length << 1, Math.max(charCount + count, 256))];
+                System.arraycopy(chars, 0, grown, 0, charCount);
+                chars = grown;
+            }
+            System.arraycopy(text, start, chars, charCount, count);
+            add(charCount);
+            add(count);
+            charCount += count;
+        }
 
-    static class EndElement extends Event {
-        List nameSpaces/* = null */;
+        private void chars(String text) {
+            if (text == null) {
+                add(0);
+                add(-1);
+                return;
+            }
+            int count = text.length();
+            if (charCount + count > chars.length) {
+                char[] grown = new char[Math.max(chars.length << 1, Math.max(charCount + count, 256))];
+                System.arraycopy(chars, 0, grown, 0, charCount);
+                chars = grown;
+            }
+            text.getChars(0, count, chars, charCount);
+            add(charCount);
+            add(count);
+            charCount += count;
+        }
 
-        public final QName name;
+        final String chars(int position) {
+            int count = codes[position + 1];
+            return count == -1 ? null : new String(chars, codes[position], count);
+        }
 
-        public final String nameSpace;
+        final int context(NamespaceContext context) {
+            if (contextCount == contexts.length) {
+                NamespaceContext[] grown = new NamespaceContext[contextCount << 1];
+                System.arraycopy(contexts, 0, grown, 0, contextCount);
+                contexts = grown;
+            }
+            contexts[contextCount] = context;
+            return contextCount++;
+        }
 
-        final String prefix;
+        private int header(int type, int context) {
+            ensure(HEADER);
+            int position = length;
+            codes[position + TYPE] = type;
+            codes[position + CONTEXT] = context;
+            length += HEADER;
+            return position;
+        }
 
-        protected EndElement(XMLStreamReader reader) {
-            name = reader.getName();
-            nameSpace = reader.getNamespaceURI();
-            prefix = reader.getPrefix();
-            int count = reader.getNamespaceCount();
-            if (count == 0)
+        private void location(int position, Locator locator) {
+            if (locator == null) {
+                codes[position + LINE] = codes[position + COLUMN] = codes[position + OFFSET] = -1;
                 return;
-            nameSpaces = new ArrayList(count);
-            int index = 0;
-            do
-                Tag.bind(reader.getNamespacePrefix(index), reader.getNamespaceURI(index), nameSpaces);
-            while (++index != count);
+            }
+            codes[position + LINE] = locator.getLineNumber();
+            codes[position + COLUMN] = locator.getColumnNumber();
+            codes[position + OFFSET] = -1;
+            if (systemId == null && publicId == null) {
+                systemId = locator.getSystemId();
+                publicId = locator.getPublicId();
+            }
         }
 
-        protected EndElement(String uri, String local, String p, Locator locator) {
-            if (p == null) {
-                name = new QName(uri, local, XMLConstants.DEFAULT_NS_PREFIX);
-                nameSpace = null;
-            } else {
-                name = new QName(uri, local, p);
-                nameSpace = uri;
+        private void location(int position, XMLStreamReader reader) {
+            Location location = reader.getLocation();
+            if (location == null) {
+                codes[position + LINE] = codes[position + COLUMN] = codes[position + OFFSET] = -1;
+                return;
+            }
+            codes[position + LINE] = location.getLineNumber();
+            codes[position + COLUMN] = location.getColumnNumber();
+            codes[position + OFFSET] = location.getCharacterOffset();
+            if (systemId == null && publicId == null) {
+                systemId = location.getSystemId();
+                publicId = location.getPublicId();
             }
-            prefix = p;
-            location(locator);
         }
-    }
 
-    static class NameSpace {
-        final String prefix, uri;
-
-        protected NameSpace(String p, String nameSpace) {
-            prefix = p;
-            uri = nameSpace;
+        private void name(QName name, String nameSpace, String prefix) {
+            ensure(DECLARATIONS);
+            codes[length + NAME_URI] = string(name.getNamespaceURI());
+            codes[length + LOCAL_NAME] = string(name.getLocalPart());
+            codes[length + NAME_PREFIX] = string(name.getPrefix());
+            codes[length + NAME_SPACE] = string(nameSpace);
+            codes[length + PREFIX] = string(prefix);
+            length += DECLARATIONS;
         }
-    }
-
-    static final class Attribute extends NameSpace {
-        final String type, value;
 
-        final QName qName;
-
-        boolean specified/* = false */;
-
-        protected Attribute(String t, String v, QName name, String prefix, String nameSpace) {
-            super(prefix, nameSpace);
-            type = t;
-            value = v;
-            qName = name;
+        /**
+         * @return the position of the declaration count
+         */
+        private int declarations(XMLStreamReader reader) {
+            int position = length, count = reader.getNamespaceCount();
+            add(count);
+            for (int index = 0; index != count; ++index) {
+                add(string(reader.getNamespacePrefix(index)));
+                add(string(reader.getNamespaceURI(index)));
+            }
+            return position;
         }
-    }
-
-    static final class AttributeList /* implements Attributes */{// TODO exclude XMLConstants.XMLNS_ATTRIBUTE
-        final List attributes;
 
-        protected AttributeList(int size) {
-            attributes = new ArrayList(size);
+        private void attribute(XMLStreamReader reader, int index) {
+            add(string(reader.getAttributeType(index)));
+            chars(reader.getAttributeValue(index));
+            QName name = reader.getAttributeName(index);
+            add(string(name.getNamespaceURI()));
+            add(string(name.getLocalPart()));
+            add(string(name.getPrefix()));
+            add(string(reader.getAttributeNamespace(index)));
+            add(string(reader.getAttributePrefix(index)));
+            add(reader.isAttributeSpecified(index) ? 1 : 0);
         }
 
-        /*
-         * @param uri Never null
+        /**
+         * Records the START_ELEMENT the reader is at
+         * 
+         * @return the index of the NamespaceContext of the element
          */
-        public final int getIndex(String uri, String localName) {
-            for (int index = getLength(); index != 0;)
-                if (getLocalName(--index).equals(localName) && uri.equals(getURI(index)))
-                    return index;
-            return -1;
+        final int startElement(XMLStreamReader reader, int context) {
+            int position = header(START_ELEMENT, context);
+            location(position, reader);
+            name(reader.getName(), reader.getNamespaceURI(), reader.getPrefix());
+            int declarations = declarations(reader);
+            if (codes[declarations] != 0)
+                codes[position + CONTEXT] = context = context(new Context(contexts[context], this, declarations));
+            int count = reader.getAttributeCount();
+            add(count);
+            for (int index = 0; index != count; ++index)
+                attribute(reader, index);
+            return context;
         }
 
-        public final int getLength() {
-            return attributes.size();
+        final void startElement(String nameSpace, String local, String prefix, Attributes attributes, Locator locator, List bindings,
+                int context) {
+            int position = header(START_ELEMENT, context);
+            location(position, locator);
+            QName name;
+            if (prefix == null) {
+                name = new QName(nameSpace, local, XMLConstants.DEFAULT_NS_PREFIX);
+                nameSpace = null;
+            } else
+                name = new QName(nameSpace, local, prefix);
+            name(name, nameSpace, prefix);
+            int declarations = length;
+            if (bindings == null)
+                add(0);
+            else {
+                int count = bindings.size();
+                add(count);
+                for (int index = 0; index != count; ++index) {
+                    NameSpace binding = (NameSpace) bindings.get(index);
+                    add(string(binding.prefix));
+                    add(string(binding.uri));
+                }
+                if (count != 0)
+                    codes[position + CONTEXT] = context(new Context(contexts[context], this, declarations));
+            }
+            int count = attributes.getLength();
+            add(count);
+            for (int index = 0; index != count; ++index) {
+                nameSpace = attributes.getURI(index);
+                local = attributes.getLocalName(index);
+                prefix = prefix(attributes.getQName(index), nameSpace);
+                add(string(attributes.getType(index)));
+                chars(attributes.getValue(index));
+                add(string(nameSpace));
+                add(string(local));
+                if (prefix == null) {
+                    add(string(XMLConstants.DEFAULT_NS_PREFIX));
+                    nameSpace = null;
+                } else
+                    add(string(prefix));
+                add(string(nameSpace));
+                add(string(prefix));
+                add(0);
+            }
         }
 
-        protected final Attribute attribute(int index) {
-            return (Attribute) attributes.get(index);
+        final void endElement(XMLStreamReader reader, int context, int start) {
+            location(header(END_ELEMENT, context), reader);
+            add(start);
         }
 
-        public final String getLocalName(int index) {
-            return attribute(index).qName.getLocalPart();
+        final void endElement(Locator locator, int context, int start) {
+            location(header(END_ELEMENT, context), locator);
+            add(start);
         }
 
-        public final String getType(int index) {
-            return attribute(index).type;
+        final void text(int type, String value, Locator locator, int context) {
+            location(header(type, context), locator);
+            chars(value);
         }
 
-        /*public String getType(String uri, String localName) {
-            int index = getIndex(uri, localName);
-            return index == -1 ? null: getType(index);
-         } */
+        final void text(int type, char[] text, int start, int count, Locator locator, int context) {
+            location(header(type, context), locator);
+            chars(text, start, count);
+        }
 
-        public final String getURI(int index) {
-            return attribute(index).uri;
+        /**
+         * Records any other event the reader is at
+         */
+        final void event(XMLStreamReader reader, int type, int context) {
+            location(header(type, context), reader);
+            switch (type) {
+            case CHARACTERS:
+            case CDATA:
+            case COMMENT:
+            case SPACE:
+                chars(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            case DTD:
+                chars(reader.getText());
+                break;
+            case ENTITY_REFERENCE:
+                add(string(reader.getLocalName()));
+                chars(reader.getText());
+                break;
+            case PROCESSING_INSTRUCTION:
+                add(string(reader.getPITarget()));
+                chars(reader.getPIData());
+                break;
+            case ATTRIBUTE:
+                add(reader.getAttributeCount());
+                attribute(reader, 0);
+                break;
+            case NAMESPACE:
+                add(reader.getNamespaceCount());
+                add(string(reader.getNamespacePrefix(0)));
+                add(string(reader.getNamespaceURI(0)));
+            }
         }
 
-        public final String getValue(int index) {
-            return attribute(index).value;
+        /**
+         * Drops the room left for more events
+         */
+        final void trim() {
+            if (length != codes.length) {
+                int[] trimmed = new int[length];
+                System.arraycopy(codes, 0, trimmed, 0, length);
+                codes = trimmed;
+            }
+            if (charCount != chars.length) {
+                char[] trimmed = new char[charCount];
+                System.arraycopy(chars, 0, trimmed, 0, charCount);
+                chars = trimmed;
+            }
+            stringTable = null;
         }
 
-        /*
-         * @param uri Never null
+        /**
+         * @return the position of the attribute count of the START_ELEMENT
          */
-        public final String getValue(String uri, String localName) {
-            int index = getIndex(uri, localName);
-            return index == -1 ? null : getValue(index);
+        final int attributes(int position) {
+            position += HEADER + DECLARATIONS;
+            return position + 1 + (codes[position] << 1);
+        }
+
+        /**
+         * @return the number of ints of the event
+         */
+        final int size(int position) {
+            switch (codes[position]) {
+            case START_ELEMENT:
+                int attributes = attributes(position);
+                return attributes + 1 + codes[attributes] * ATTRIBUTE_SIZE - position;
+            case END_ELEMENT:
+                return HEADER + 1;
+            case ATTRIBUTE:
+                return HEADER + 1 + ATTRIBUTE_SIZE;
+            case NAMESPACE:
+            case ENTITY_REFERENCE:
+            case PROCESSING_INSTRUCTION:
+                return HEADER + 3;
+            case CHARACTERS:
+            case CDATA:
+            case COMMENT:
+            case SPACE:
+            case DTD:
+                return HEADER + 2;
+            }
+            return HEADER;
         }
     }
 
-    static protected class StartElement extends EndElement {
-        final AttributeList attributes;
+    /**
+     * The NamespaceContext of a recorded element declaring namespaces
+     */
+    static final class Context implements NamespaceContext {
+        final NamespaceContext parent;
 
-        protected StartElement(XMLStreamReader reader) {
-            super(reader);
-            int count = reader.getAttributeCount();
-            if (count == 0)
-                attributes = null;
-            else {
-                attributes = new AttributeList(count);
-                int index = 0;
-                do {
-                    Attribute attribute = new Attribute(reader.getAttributeType(index), reader.getAttributeValue(index), reader
-                            .getAttributeName(index), reader.getAttributePrefix(index), reader.getAttributeNamespace(index));
-                    attribute.specified = reader.isAttributeSpecified(index);
-                    attributes.attributes.add(attribute);
-                } while (++index != count);
-            }
+        final EventBuffer buffer;
+
+        /**
+         * position of the declaration count
+         */
+        final int declarations;
+
+        Context(NamespaceContext parent, EventBuffer buffer, int declarations) {
+            this.parent = parent;
+            this.buffer = buffer;
+            this.declarations = declarations;
         }
 
-        protected StartElement(String nameSpace, String local, String prefix, Attributes attributeArray, Locator locator, List bindings,
-                final NamespaceContext context) {
-            super(nameSpace, local, prefix, locator);
-            nameSpaces = bindings;
-            nameSpaceContext = bindings == null || bindings.isEmpty() ? context : new NamespaceContext() {
-                public String getNamespaceURI(String prefix) {
-                    for (int index = nameSpaces.size(); index != 0;) {
-                        NameSpace binding = (NameSpace) nameSpaces.get(--index);
-                        if (binding.prefix.equals(prefix))
-                            return binding.uri;
-                    }
-                    return context.getNamespaceURI(prefix);
-                }
+        static boolean samePrefix(String prefix, String other) {
+            return prefix == null || prefix.length() == 0 ? other == null || other.length() == 0 : prefix.equals(other);
+        }
 
-                public String getPrefix(String namespaceURI) {
-                    for (int index = nameSpaces.size(); index != 0;) {
-                        NameSpace binding = (NameSpace) nameSpaces.get(--index);
-                        if (binding.uri.equals(namespaceURI))
-                            return binding.prefix;
-                    }
-                    return context.getPrefix(namespaceURI);
+        public String getNamespaceURI(String prefix) {
+            int[] codes = buffer.codes;
+            for (int index = declarations + (codes[declarations] << 1); index != declarations; index -= 2)
+                if (samePrefix(buffer.string(codes[index - 1]), prefix))
+                    return buffer.string(codes[index]);
+            return parent == null ? null : parent.getNamespaceURI(prefix);
+        }
+
+        public String getPrefix(String namespaceURI) {
+            int[] codes = buffer.codes;
+            for (int index = declarations + (codes[declarations] << 1); index != declarations; index -= 2)
+                if (namespaceURI.equals(buffer.string(codes[index]))) {
+                    String prefix = buffer.string(codes[index - 1]);
+                    return prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix;
                 }
+            return parent == null ? null : parent.getPrefix(namespaceURI);
+        }
 
-                public Iterator getPrefixes(final String namespaceURI) {
-                    final Iterator iterator = context.getPrefixes(namespaceURI);
-                    return new Iterator() {
-                        Iterator bindings = nameSpaces.iterator();
-
-                        NameSpace binding/* = null */;
-
-                        protected final boolean prefix() {
-                            while (bindings.hasNext()) {
-                                binding = (NameSpace) bindings.next();
-                                if (binding.uri.equals(namespaceURI))
-                                    return true;
-                            }
-                            bindings = null;
-                            return false;
-                        }
-
-                        public boolean hasNext() {
-                            return bindings != null && prefix() || iterator.hasNext();
-                        }
-
-                        protected NameSpace nameSpace;
-
-                        public Object next() {
-                            if (bindings == null || binding == null && !prefix())
-                                return iterator.next();
-                            nameSpace = binding;
-                            binding = null;
-                            return nameSpace.prefix;
-                        }
-
-                        public void remove() {
-                            if (bindings == null)
-                                iterator.remove();
-                            else
-                                nameSpaces.remove(nameSpace);
-                        }
-                    };
+        public Iterator getPrefixes(String namespaceURI) {
+            List prefixes = new ArrayList();
+            int[] codes = buffer.codes;
+            for (int index = declarations + 1, end = index + (codes[declarations] << 1); index != end; index += 2)
+                if (namespaceURI.equals(buffer.string(codes[index + 1]))) {
+                    String prefix = buffer.string(codes[index]);
+                    prefixes.add(prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix);
                 }
-            };
-            int count = attributeArray.getLength();
-            if (count == 0)
-                attributes = null;
-            else {
-                attributes = new AttributeList(count);
-                int index = 0;
-                do {
-                    QName name;
-                    nameSpace = attributeArray.getURI(index);
-                    local = attributeArray.getLocalName(index);
-                    prefix = prefix(attributeArray.getQName(index), nameSpace);
-                    if (prefix == null) {
-                        name = new QName(nameSpace, local, XMLConstants.DEFAULT_NS_PREFIX);
-                        nameSpace = null;
-                    } else
-                        name = new QName(nameSpace, local, prefix);
-                    attributes.attributes.add(new Attribute(attributeArray.getType(index), attributeArray.getValue(index), name, prefix, nameSpace));
-                } while (++index != count);
-            }
+            if (parent != null)
+                for (Iterator iterator = parent.getPrefixes(namespaceURI); iterator.hasNext();)
+                    prefixes.add(iterator.next());
+            return prefixes.iterator();
         }
     }
 
-    static public class Tag extends StartElement {
-        public Tag(XMLStreamReader reader) {
-            super(reader);
-            initialize(reader);
-        }
+    static public class Tag {
+        public final QName name;
+
+        public final String nameSpace;
+
+        final String prefix;
+
+        public final NamespaceContext nameSpaceContext;
 
-        public List events/* = null */; // may be empty
+        final EventBuffer buffer = new EventBuffer();
 
-        protected final void events() {
-            events = new ArrayList();
+        private boolean recorded/* = false */;
+
+        /**
+         * the NamespaceContext index and START_ELEMENT position of each element being recorded, the Tag's first
+         */
+        private int[] scopes = new int[16];
+
+        public Tag(XMLStreamReader reader) {
+            name = reader.getName();
+            nameSpace = reader.getNamespaceURI();
+            prefix = reader.getPrefix();
+            nameSpaceContext = reader.getNamespaceContext();
+            buffer.context(nameSpaceContext);
+            buffer.startElement(reader, 0);
         }
 
         public Tag(String nameSpace, String local, String prefix, Attributes attributes, Locator locator, NamespaceContext context, List bindings) {
-            super(nameSpace, local, prefix, attributes, locator, bindings, context);
-            events();
+            if (prefix == null) {
+                name = new QName(nameSpace, local, XMLConstants.DEFAULT_NS_PREFIX);
+                this.nameSpace = null;
+            } else {
+                name = new QName(nameSpace, local, prefix);
+                this.nameSpace = nameSpace;
+            }
+            this.prefix = prefix;
+            buffer.context(context);
+            buffer.startElement(nameSpace, local, prefix, attributes, locator, bindings, 0);
+            scopes[0] = buffer.codes[CONTEXT];
+            nameSpaceContext = buffer.contexts[scopes[0]];
+            recorded = true;
         }
 
         static public void bind(String prefix, String nameSpace, Collection nameSpaces) {
             nameSpaces.add(new NameSpace(prefix, nameSpace));
         }
 
-        protected int nest/* = 0 */;
+        /**
+         * @return whether the content of the Tag has been recorded, to be {@link #play(XMLStreamReader) played}
+         */
+        public final boolean recorded() {
+            return recorded;
+        }
 
-        public final void start(String nameSpace, String local, String qName, Attributes attributes, Locator locator, List bindings) {
-            Event event;
-            for (int index = events.size();/* true */;) {
-                if (index == 0) {
-                    event = this;
-                    break;
-                }
-                event = (Event) events.get(--index);
-                if (event.type != END_ELEMENT)
-                    break;
-                siblings: for (int nest = 0;/* true */;)
-                    switch (((Event) events.get(--index)).type) {
-                    case START_ELEMENT:
-                        if (nest == 0)
-                            break siblings;
-                        --nest;
-                        break;
-                    case END_ELEMENT:
-                        ++nest;
-                    }
+        private void scope(int nest, int context, int start) {
+            nest <<= 1;
+            if (nest == scopes.length) {
+                int[] grown = new int[nest << 1];
+                System.arraycopy(scopes, 0, grown, 0, nest);
+                scopes = grown;
             }
-            Event start = new StartElement(nameSpace, local, prefix(qName, nameSpace), attributes, locator, bindings, event.nameSpaceContext);
-            start.type = START_ELEMENT;
-            events.add(start);
-            ++nest;
+            scopes[nest] = context;
+            scopes[nest + 1] = start;
         }
 
-        protected final void  add (Event event)
-        {
-            int index = events.size();
-            event.nameSpaceContext = index == 0 ? nameSpaceContext : ((Event) events.get(--index)).nameSpaceContext;
-            events.add(event);
+        protected int nest/* = 0 */;
+
+        public final void start(String nameSpace, String local, String qName, Attributes attributes, Locator locator, List bindings) {
+            int position = buffer.length;
+            buffer.startElement(nameSpace, local, prefix(qName, nameSpace), attributes, locator, bindings, scopes[nest << 1]);
+            scope(++nest, buffer.codes[position + CONTEXT], position);
         }
 
         public final void text(int type, String value, Locator locator) {
-            Event event = new ValueEvent(value);
-            event.type = type;
-            event.location(locator);
-            //int index = events.size();
-            add(event);
+            buffer.text(type, value, locator, scopes[nest << 1]);
+        }
+
+        public final void text(int type, char[] text, int start, int length, Locator locator) {
+            buffer.text(type, text, start, length, locator, scopes[nest << 1]);
         }
 
         public final boolean end(String nameSpace, String local, String qName, Locator locator) {
-            Event end = new EndElement(nameSpace, local, prefix(qName, nameSpace), locator);
-            end.type = END_ELEMENT;
-            add(end);
-            if (nest == 0)
+            buffer.endElement(locator, scopes[nest << 1], scopes[(nest << 1) + 1]);
+            if (nest == 0) {
+                buffer.trim();
                 return true;
+            }
             --nest;
             return false;
         }
@@ -470,54 +650,31 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
             };
         }
 
-        protected final void add(Event event, int type, XMLStreamReader reader) {
-            event.type = type;
-            event.initialize(reader);
-            events.add(event);
-        }
-
         public final boolean record(XMLStreamReader reader) throws XMLStreamException {
-            events();
+            recorded = true;
             for (int nest = 0; reader.hasNext();) {
-                Event event;
                 int type = reader.next();
                 switch (type) {
-                case CHARACTERS:
-                case CDATA:
-                case COMMENT:
-                case SPACE:
-                case DTD:
-                    event = new ValueEvent(reader.getText());
-                    break;
-                case ENTITY_REFERENCE:
-                    event = new Reference(reader.getLocalName(), reader.getText());
-                    break;
-                case PROCESSING_INSTRUCTION:
-                    event = new Reference(reader.getPITarget(), reader.getPIData());
-                    break;
-                case ATTRIBUTE:
-                    event = new AttributeEvent(reader);
-                    break;
-                case NAMESPACE:
-                    event = new NameSpaceEvent(reader);
-                    break;
                 case START_ELEMENT:
-                    ++nest;
-                    event = new StartElement(reader);
+                    int position = buffer.length, context = buffer.startElement(reader, scopes[nest << 1]);
+                    scope(++nest, context, position);
                     break;
                 case END_ELEMENT:
-                    add(new EndElement(reader), type, reader);
-                    if (nest == 0)
+                    buffer.endElement(reader, scopes[nest << 1], scopes[(nest << 1) + 1]);
+                    if (nest == 0) {
+                        buffer.trim();
                         return false;
+                    }
                     --nest;
-                    continue;
+                    break;
                 case END_DOCUMENT:
+                    buffer.trim();
                     return true; // report error?
-                default: // new type
-                    event = new Event();
+                default:
+                    buffer.event(reader, type, scopes[nest << 1]);
                 }
-                add(event, type, reader);
             }
+            buffer.trim();
             return true; // report error?
         }
 
@@ -554,152 +711,230 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
         }
     }
 
-    Event event;
+    final EventBuffer buffer;
 
-    final List events;
+    final int[] codes;
 
     final int size;
 
+    /**
+     * position of the current event
+     */
+    int event/* = 0 */;
+
+    private QName name/* = null */;
+
+    private String text/* = null */;
+
     protected RecordedEventXMLStreamReader(Tag tag) {
-        event = tag;
-        tag.type = START_ELEMENT;
-        events = tag.events;
-        size = events.size();
+        buffer = tag.buffer;
+        codes = buffer.codes;
+        size = buffer.length;
+        next = buffer.size(0);
+    }
+
+    /**
+     * @return the position of the START_ELEMENT of the current START_ELEMENT or END_ELEMENT
+     */
+    protected final int element() {
+        return getEventType() == END_ELEMENT ? codes[event + HEADER] : event;
     }
 
     public int getAttributeCount() {
         switch (getEventType()) {
         case START_ELEMENT:
-            AttributeList attributes = ((StartElement) event).attributes;
-            return attributes == null ? 0 : attributes.getLength();
+            return codes[buffer.attributes(event)];
         case ATTRIBUTE:
-            return ((AttributeEvent) event).attributes;
+            return codes[event + HEADER];
         }
         throw new IllegalStateException("Neither START_ELEMENT nor ATTRIBUTE");
     }
 
-    protected final AttributeList attributes() {
-        if (getEventType() == START_ELEMENT)
-            return ((StartElement) event).attributes;
+    /**
+     * @return the position of the attribute
+     */
+    protected final int attribute(int index) {
+        switch (getEventType()) {
+        case START_ELEMENT:
+            int attributes = buffer.attributes(event);
+            if (index < 0 || index >= codes[attributes])
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            return attributes + 1 + index * ATTRIBUTE_SIZE;
+        case ATTRIBUTE:
+            return event + HEADER + 1;
+        }
         throw new IllegalStateException("Neither START_ELEMENT nor ATTRIBUTE");
     }
 
     public String getAttributeLocalName(int index) {
-        return attributes().getLocalName(index);
-    }
-
-    static Attribute attribute(AttributeList attributes, int index) {
-        return (Attribute) attributes.attributes.get(index);
+        return buffer.string(codes[attribute(index) + ATTRIBUTE_NAME + LOCAL_NAME]);
     }
 
     public QName getAttributeName(int index) {
-        return getEventType() == ATTRIBUTE ? ((AttributeEvent) event).name : attribute(attributes(), index).qName;
+        int attribute = attribute(index) + ATTRIBUTE_NAME;
+        return new QName(buffer.string(codes[attribute + NAME_URI]), buffer.string(codes[attribute + LOCAL_NAME]), buffer
+                .string(codes[attribute + NAME_PREFIX]));
     }
 
     public String getAttributeNamespace(int index) {
-        return getEventType() == ATTRIBUTE ? ((AttributeEvent) event).nameSpace : attributes().getURI(index);
+        return buffer.string(codes[attribute(index) + ATTRIBUTE_NAME + NAME_SPACE]);
     }
 
     public String getAttributePrefix(int index) {
-        return getEventType() == ATTRIBUTE ? ((AttributeEvent) event).prefix : attribute(attributes(), index).prefix;
+        return buffer.string(codes[attribute(index) + ATTRIBUTE_NAME + PREFIX]);
     }
 
     public String getAttributeType(int index) {
-        return getEventType() == ATTRIBUTE ? ((Reference) event).target : attributes().getType(index);
+        return buffer.string(codes[attribute(index) + ATTRIBUTE_TYPE]);
     }
 
     public String getAttributeValue(int index) {
-        return getEventType() == ATTRIBUTE ? ((ValueEvent) event).value : attributes().getValue(index);
+        return buffer.chars(attribute(index) + VALUE);
     }
 
     public boolean isAttributeSpecified(int index) {
-        if (getEventType() == ATTRIBUTE)
-            return ((AttributeEvent) event).specified;
-        AttributeList attributes = attributes();
-        return attribute(attributes, index).specified;
+        return codes[attribute(index) + SPECIFIED] != 0;
     }
 
     public String getAttributeValue(String nameSpace, String name) {
         if (getEventType() == ATTRIBUTE) {
-            AttributeEvent attribute = (AttributeEvent) event;
-            return !attribute.name.getLocalPart().equals(name) ? null : nameSpace == null ? (attribute.nameSpace == null ? attribute.value : null)
-                    : nameSpace.equals(attribute.nameSpace) ? attribute.value : null;
+            int attribute = event + HEADER + 1;
+            if (!name.equals(buffer.string(codes[attribute + ATTRIBUTE_NAME + LOCAL_NAME])))
+                return null;
+            String attributeNameSpace = buffer.string(codes[attribute + ATTRIBUTE_NAME + NAME_SPACE]);
+            return (nameSpace == null ? attributeNameSpace == null : nameSpace.equals(attributeNameSpace)) ? buffer.chars(attribute
+                    + VALUE) : null;
         }
-        AttributeList attributes = attributes();
-        return attributes == null ? null : attributes.getValue(nameSpace == null ? "" : nameSpace, name);
+        if (getEventType() != START_ELEMENT)
+            throw new IllegalStateException("Neither START_ELEMENT nor ATTRIBUTE");
+        if (nameSpace == null)
+            nameSpace = "";
+        int attributes = buffer.attributes(event);
+        for (int attribute = attributes + 1 + codes[attributes] * ATTRIBUTE_SIZE; attribute != attributes + 1;) {
+            attribute -= ATTRIBUTE_SIZE;
+            if (name.equals(buffer.string(codes[attribute + ATTRIBUTE_NAME + LOCAL_NAME]))
+                    && nameSpace.equals(buffer.string(codes[attribute + ATTRIBUTE_NAME + NAME_SPACE])))
+                return buffer.chars(attribute + VALUE);
+        }
+        return null;
     }
 
-    protected StringBuffer buffer/* = null */;
+    protected StringBuffer stringBuffer/* = null */;
 
     public String getElementText() {
-        if (buffer != null)
-            buffer.delete(0, buffer.length());
+        if (stringBuffer != null)
+            stringBuffer.delete(0, stringBuffer.length());
         for (;;)
             switch (next()) {
             case END_ELEMENT:
-                return buffer == null ? null : buffer.toString();
+                return stringBuffer == null ? null : stringBuffer.toString();
             default:
-                if (buffer == null)
-                    buffer = new StringBuffer();
-                buffer.append(getText());
+                if (stringBuffer == null)
+                    stringBuffer = new StringBuffer();
+                stringBuffer.append(getText());
             case PROCESSING_INSTRUCTION:
             case COMMENT:
             }
     }
 
     public final int getEventType() {
-        return event.type;
+        return codes[event + TYPE];
     }
 
     public String getLocalName() {
-        if (getEventType() == ENTITY_REFERENCE)
-            return ((Reference) event).target;
-        if (event instanceof EndElement)
-            return ((EndElement) event).name.getLocalPart();
+        switch (getEventType()) {
+        case ENTITY_REFERENCE:
+            return buffer.string(codes[event + HEADER]);
+        case START_ELEMENT:
+        case END_ELEMENT:
+            return buffer.string(codes[element() + HEADER + LOCAL_NAME]);
+        }
         throw new IllegalStateException("Neither START_ELEMENT, END_ELEMENT nor ENTITY_REFERENCE");
     }
 
     public final Location getLocation() {
-        return event.location;
+        final int line = codes[event + LINE], column = codes[event + COLUMN], offset = codes[event + OFFSET];
+        return new Location() {
+            public int getCharacterOffset() {
+                return offset;
+            }
+
+            public int getColumnNumber() {
+                return column;
+            }
+
+            public int getLineNumber() {
+                return line;
+            }
+
+            public String getPublicId() {
+                return buffer.publicId;
+            }
+
+            public String getSystemId() {
+                return buffer.systemId;
+            }
+        };
     }
 
     public QName getName() {
-        if (hasName())
-            return ((EndElement) event).name;
-        throw new IllegalStateException("Neither START_ELEMENT nor END_ELEMENT");
+        if (!hasName())
+            throw new IllegalStateException("Neither START_ELEMENT nor END_ELEMENT");
+        if (name == null) {
+            int element = element() + HEADER;
+            name = new QName(buffer.string(codes[element + NAME_URI]), buffer.string(codes[element + LOCAL_NAME]), buffer
+                    .string(codes[element + NAME_PREFIX]));
+        }
+        return name;
     }
 
     public final NamespaceContext getNamespaceContext() {
-        return event.nameSpaceContext;
+        return buffer.contexts[codes[event + CONTEXT]];
     }
 
     public int getNamespaceCount() {
-        if (getEventType() == NAMESPACE)
-            return ((NameSpaceEvent) event).nameSpaces;
-        if (!(event instanceof EndElement))
-            throw new IllegalStateException("Neither START_ELEMENT, END_ELEMENT nor NAMESPACE");
-        Collection nameSpaces = ((EndElement) event).nameSpaces;
-        return nameSpaces == null ? 0 : nameSpaces.size();
+        switch (getEventType()) {
+        case NAMESPACE:
+            return codes[event + HEADER];
+        case START_ELEMENT:
+        case END_ELEMENT:
+            return codes[element() + HEADER + DECLARATIONS];
+        }
+        throw new IllegalStateException("Neither START_ELEMENT, END_ELEMENT nor NAMESPACE");
     }
 
-    protected final NameSpace getNameSpace(int index) {
-        if (event instanceof EndElement)
-            return (NameSpace) ((EndElement) event).nameSpaces.get(index);
+    /**
+     * @return the position of the prefix & URI pair
+     */
+    protected final int getNameSpace(int index) {
+        switch (getEventType()) {
+        case NAMESPACE:
+            return event + HEADER + 1;
+        case START_ELEMENT:
+        case END_ELEMENT:
+            int declarations = element() + HEADER + DECLARATIONS;
+            if (index < 0 || index >= codes[declarations])
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            return declarations + 1 + (index << 1);
+        }
         throw new IllegalStateException("Neither START_ELEMENT, END_ELEMENT nor NAMESPACE");
     }
 
     public String getNamespacePrefix(int index) {
-        return getEventType() == NAMESPACE ? ((Reference) event).target : getNameSpace(index).prefix;
+        return buffer.string(codes[getNameSpace(index)]);
     }
 
     public final String getNamespaceURI() {
         switch (getEventType()) {
         case ATTRIBUTE:
-            return ((AttributeEvent) event).nameSpace;
+            return buffer.string(codes[event + HEADER + 1 + ATTRIBUTE_NAME + NAME_SPACE]);
         case NAMESPACE:
-            return ((ValueEvent) event).value;
+            return buffer.string(codes[event + HEADER + 2]);
+        case START_ELEMENT:
+        case END_ELEMENT:
+            return buffer.string(codes[element() + HEADER + NAME_SPACE]);
         }
-        return event instanceof EndElement ? ((EndElement) event).nameSpace : null;
+        return null;
     }
 
     public String getNamespaceURI(String prefix) {
@@ -707,68 +942,104 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
     }
 
     public String getNamespaceURI(int index) {
-        return getEventType() == NAMESPACE ? ((ValueEvent) event).value : getNameSpace(index).uri;
+        return buffer.string(codes[getNameSpace(index) + 1]);
     }
 
     public String getPIData() {
-        return getEventType() == PROCESSING_INSTRUCTION ? ((ValueEvent) event).value : null;
+        return getEventType() == PROCESSING_INSTRUCTION ? buffer.chars(event + HEADER + 1) : null;
     }
 
     public String getPITarget() {
-        return getEventType() == PROCESSING_INSTRUCTION ? ((Reference) event).target : null;
+        return getEventType() == PROCESSING_INSTRUCTION ? buffer.string(codes[event + HEADER]) : null;
     }
 
     public String getPrefix() {
         switch (getEventType()) {
         case ATTRIBUTE:
-            return ((AttributeEvent) event).prefix;
+            return buffer.string(codes[event + HEADER + 1 + ATTRIBUTE_NAME + PREFIX]);
         case NAMESPACE:
-            return ((Reference) event).target;
+            return buffer.string(codes[event + HEADER + 1]);
+        case START_ELEMENT:
+        case END_ELEMENT:
+            return buffer.string(codes[element() + HEADER + PREFIX]);
         }
-        return event instanceof EndElement ? ((EndElement) event).prefix : null;
+        return null;
     }
 
-    public final String getText() {
-        if (hasText())
-            return ((ValueEvent) event).value;
+    /**
+     * @return the position of the text offset & length
+     */
+    protected final int text() {
+        switch (getEventType()) {
+        case CHARACTERS:
+        case CDATA:
+        case COMMENT:
+        case SPACE:
+        case DTD:
+            return event + HEADER;
+        case ENTITY_REFERENCE:
+            return event + HEADER + 1;
+        }
         throw new IllegalStateException("Neither CHARACTERS, CDATA, COMMENT, SPACE, ENTITY_REFERENCE nor DTD");
     }
 
-    public final char[] getTextCharacters() {
+    public final String getText() {
+        if (text == null)
+            text = buffer.chars(text());
+        return text;
+    }
+
+    protected final int textCharacters() {
         switch (getEventType()) {
         case CHARACTERS:
         case CDATA:
         case COMMENT:
         case SPACE:
-            return ((ValueEvent) event).value.toCharArray();
+            return event + HEADER;
         }
         throw new IllegalStateException("Neither CHARACTERS, CDATA, COMMENT nor SPACE");
     }
 
+    /**
+     * @return the char pool of the recorded events, the text from {@link #getTextStart()} for {@link #getTextLength()}
+     */
+    public final char[] getTextCharacters() {
+        textCharacters();
+        return buffer.chars;
+    }
+
     public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) {
-        char[] source = getTextCharacters();
-        if (sourceStart > source.length)
+        int text = textCharacters(), sourceLen = codes[text + 1];
+        if (sourceStart > sourceLen)
             throw new IndexOutOfBoundsException("source start > source length");
-        int sourceLen = source.length - sourceStart;
+        sourceLen -= sourceStart;
         if (length > sourceLen)
             length = sourceLen;
-        System.arraycopy(source, sourceStart, target, targetStart, length);
-        return sourceLen;
+        System.arraycopy(buffer.chars, codes[text] + sourceStart, target, targetStart, length);
+        return length;
     }
 
     public int getTextLength() {
-        return getTextCharacters().length;
+        return codes[textCharacters() + 1];
     }
 
     public int getTextStart() {
-        return 0;
+        return codes[textCharacters()];
     }
 
     public final boolean hasName() {
-        return event instanceof EndElement;
+        switch (getEventType()) {
+        case START_ELEMENT:
+        case END_ELEMENT:
+            return true;
+        }
+        return false;
     }
 
-    protected int next/* = 0 */;
+    /**
+     * position of the next event
+     */
+    protected int next;
 
     public final boolean hasNext() {
         return next != size;
@@ -806,9 +1077,10 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
     }
 
     protected final boolean areWhiteSpace() {
-        String text = getText();
-        for (int index = text.length(); index != 0;)
-            if (!Character.isWhitespace(text.charAt(--index)))
+        int text = text(), count = codes[text + 1];
+        char[] chars = buffer.chars;
+        for (int index = codes[text], end = index + count; index < end; ++index)
+            if (!Character.isWhitespace(chars[index]))
                 return false;
         return true;
     }
@@ -827,8 +1099,11 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
     public final int next() {
         if (!hasNext())
             throw new NoSuchElementException();
-        event = (Event) events.get(next++);
-        return event.type;
+        event = next;
+        next += buffer.size(event);
+        name = null;
+        text = null;
+        return getEventType();
     }
 
     protected final void throwXMLStreamException(String message) throws XMLStreamException {
@@ -860,9 +1135,7 @@ public abstract class RecordedEventXMLStreamReader implements XMLStreamReader {
             throwXMLStreamException("type not matched");
         if (nameSpace != null && !nameSpace.equals(getNamespaceURI()))
             throwXMLStreamException("Name Space not matched");
-        if (name != null
-                && !(getEventType() == ATTRIBUTE ? name.equals(((AttributeEvent) event).name.getLocalPart()) : event instanceof EndElement
-                        && name.equals(((EndElement) event).name.getLocalPart())))
+        if (name != null && !name.equals(getEventType() == ATTRIBUTE ? getAttributeLocalName(0) : hasName() ? getLocalName() : null))
             throwXMLStreamException("name not matched");
     }
 }
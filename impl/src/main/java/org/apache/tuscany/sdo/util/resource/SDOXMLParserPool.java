@@ -0,0 +1,268 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
+import org.xml.sax.SAXException;
+
+/**
+ * A SAXParser pool for the loads of one HelperContext, configured by the
+ * {@link SDOHelper.XMLOptions#XML_LOAD_PARSER_POOL_SIZE XML_LOAD_PARSER_POOL_*} and
+ * {@link SDOHelper.XMLOptions#XML_LOAD_PARSER_FEATURES} options of the context.
+ * <p>
+ * Idle parsers are kept per feature/property set up to the size, and evicted once idle longer than the idle timeout.
+ * When a maximum of parsers in use is set, a load waits for one to be released. The hits, misses, waits and
+ * evictions are counted for monitoring. The default handlers are cached like XMLParserPoolImpl does.
+ */
+public class SDOXMLParserPool extends XMLParserPoolImpl {
+    public static final int DEFAULT_SIZE = 16;
+
+    protected final int size;
+
+    /**
+     * milliseconds, 0 for never
+     */
+    protected final long idleTimeout;
+
+    /**
+     * 0 for no limit
+     */
+    protected final int maxActive;
+
+    /**
+     * set on every parser, before the requested ones
+     */
+    protected final Map features;
+
+    /**
+     * feature/property set to LinkedList of Idle, most recently released last
+     */
+    private final Map idle = new HashMap();
+
+    private int active;
+
+    private long hits, misses, waits, waitTime, evictions;
+
+    static private final class Idle {
+        final SAXParser parser;
+
+        final long released;
+
+        Idle(SAXParser parser, long released) {
+            this.parser = parser;
+            this.released = released;
+        }
+    }
+
+    public SDOXMLParserPool() {
+        this(DEFAULT_SIZE, 0, 0, null);
+    }
+
+    /**
+     * @param features
+     *            SAX feature URI String to Boolean, can be null
+     */
+    public SDOXMLParserPool(int size, long idleTimeout, int maxActive, Map features) {
+        this.size = size;
+        this.idleTimeout = idleTimeout;
+        this.maxActive = maxActive;
+        this.features = features == null ? Collections.EMPTY_MAP : new HashMap(features);
+    }
+
+    /**
+     * @param options
+     *            the HelperContext options, can be null
+     */
+    public SDOXMLParserPool(Map options) {
+        this((int) option(options, SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_SIZE, DEFAULT_SIZE), option(options,
+                SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_IDLE_TIMEOUT, 0), (int) option(options,
+                SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_MAX_ACTIVE, 0), options == null ? null : (Map) options
+                .get(SDOHelper.XMLOptions.XML_LOAD_PARSER_FEATURES));
+    }
+
+    static private long option(Map options, String option, long defaultValue) {
+        Object value = options == null ? null : options.get(option);
+        return value == null ? defaultValue : ((Number) value).longValue();
+    }
+
+    private Map features(Map features) {
+        if (features == null || features.isEmpty())
+            return this.features;
+        if (this.features.isEmpty())
+            return features;
+        Map merged = new HashMap(this.features);
+        merged.putAll(features);
+        return merged;
+    }
+
+    static private Object key(Map features, Map properties, boolean useLexicalHandler) {
+        List key = new ArrayList(3);
+        key.add(features);
+        key.add(properties == null ? Collections.EMPTY_MAP : properties);
+        key.add(Boolean.valueOf(useLexicalHandler));
+        return key;
+    }
+
+    /**
+     * Drops the parsers idle longer than the timeout, the least recently released first
+     */
+    private void evict(LinkedList parsers, long now) {
+        if (idleTimeout == 0)
+            return;
+        while (!parsers.isEmpty() && now - ((Idle) parsers.getFirst()).released > idleTimeout) {
+            parsers.removeFirst();
+            ++evictions;
+        }
+    }
+
+    public SAXParser get(Map features, Map properties, boolean useLexicalHandler) throws ParserConfigurationException, SAXException {
+        features = features(features);
+        Object key = key(features, properties, useLexicalHandler);
+        synchronized (this) {
+            if (maxActive > 0 && active >= maxActive) {
+                ++waits;
+                long start = System.currentTimeMillis();
+                try {
+                    do
+                        wait();
+                    while (active >= maxActive);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SAXException(e);
+                } finally {
+                    waitTime += System.currentTimeMillis() - start;
+                }
+            }
+            ++active;
+            LinkedList parsers = (LinkedList) idle.get(key);
+            if (parsers != null) {
+                evict(parsers, System.currentTimeMillis());
+                if (!parsers.isEmpty()) {
+                    ++hits;
+                    return ((Idle) parsers.removeLast()).parser;
+                }
+            }
+            ++misses;
+        }
+        boolean made = false;
+        try {
+            SAXParser parser = makeParser(features, properties);
+            made = true;
+            return parser;
+        } finally {
+            if (!made)
+                synchronized (this) {
+                    --active;
+                    notify();
+                }
+        }
+    }
+
+    public void release(SAXParser parser, Map features, Map properties, boolean useLexicalHandler) {
+        features = features(features);
+        Object key = key(features, properties, useLexicalHandler);
+        synchronized (this) {
+            --active;
+            notify();
+            LinkedList parsers = (LinkedList) idle.get(key);
+            if (parsers == null) {
+                parsers = new LinkedList();
+                idle.put(key, parsers);
+            }
+            long now = System.currentTimeMillis();
+            evict(parsers, now);
+            if (parsers.size() < size)
+                parsers.addLast(new Idle(parser, now));
+            else
+                ++evictions;
+        }
+    }
+
+    /**
+     * Drops all the idle parsers
+     */
+    public synchronized void clear() {
+        for (Iterator iterator = idle.values().iterator(); iterator.hasNext();) {
+            LinkedList parsers = (LinkedList) iterator.next();
+            evictions += parsers.size();
+            parsers.clear();
+        }
+        idle.clear();
+    }
+
+    /**
+     * @return the number of parsers reused
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of parsers created
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of loads which waited for a parser to be released
+     */
+    public synchronized long getWaitCount() {
+        return waits;
+    }
+
+    /**
+     * @return the total milliseconds waited for a parser to be released
+     */
+    public synchronized long getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @return the number of parsers dropped, for being idle too long or the pool being full
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of parsers in use
+     */
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized String toString() {
+        return "SDOXMLParserPool[hits=" + hits + ", misses=" + misses + ", waits=" + waits + ", waitTime=" + waitTime + "ms, evictions="
+                + evictions + ", active=" + active + ']';
+    }
+}
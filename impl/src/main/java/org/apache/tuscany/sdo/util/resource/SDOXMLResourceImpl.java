@@ -495,8 +495,8 @@ public class SDOXMLResourceImpl extends XMLResourceImpl {
 				if (tag == null)
 					super.characters(ch, start, length);
 				else
-					tag.text(XMLStreamConstants.CHARACTERS, new String(ch,
-							start, length), locator);
+					tag.text(XMLStreamConstants.CHARACTERS, ch, start, length,
+							locator);
 			}
 
 			protected Collection changeSummaryDeserializers/* = null */;
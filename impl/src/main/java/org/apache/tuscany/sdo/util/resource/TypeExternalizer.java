@@ -0,0 +1,315 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+import commonj.sdo.helper.XMLHelper;
+
+/**
+ * The binary form of the DataObjects of a static Type, generated with the -generateExternalizers option as the
+ * &lt;Type&gt;Externalizer class of the util package of the Type interface. An externalizer writes the Properties
+ * through the generated accessors and property indices, after a hash of the Properties of the Type and of the Types it
+ * contains computed by the generator, so that a stream is only read by classes generated from the same model.
+ * <p>
+ * The HelperProvider writes the root DataObjects of a Type having an externalizer this way, instead of as gzipped XML.
+ * The contained DataObjects of Types without an externalizer, such as open or sequenced ones, are written as XML. The
+ * externalizers are found by name the first time a Type is serialized; they're stateless and shared by the threads.
+ */
+public abstract class TypeExternalizer {
+    public static final String CLASS_NAME_SUFFIX = "Externalizer";
+
+    /**
+     * the kind byte of the root DataObjects written by an externalizer, following the ones of the XML form
+     */
+    public static final byte KIND = 2;
+
+    /**
+     * the kinds of a DataObject value: null, of the Type of the Property, of another Type, as XML
+     */
+    static final byte NULL = 0, DECLARED = 1, TYPED = 2, XML = 3;
+
+    static final String XML_URI = "commonj.sdo", XML_NAME = "dataObject";
+
+    private static final Object NONE = new Object();
+
+    /**
+     * EClass of a static Type to its externalizer or NONE, replaced on write
+     */
+    private static volatile Map externalizers = new HashMap();
+
+    /**
+     * @return the generated externalizer of the static Type, null if none
+     */
+    public static TypeExternalizer getExternalizer(EClass eClass) {
+        Object externalizer = externalizers.get(eClass);
+        if (externalizer == null) {
+            if (eClass.getInstanceClassName() == null)
+                return null; // dynamic
+            externalizer = loadExternalizer(eClass);
+            synchronized (NONE) {
+                Map copy = new HashMap(externalizers);
+                copy.put(eClass, externalizer);
+                externalizers = copy;
+            }
+        }
+        return externalizer == NONE ? null : (TypeExternalizer) externalizer;
+    }
+
+    private static Object loadExternalizer(EClass eClass) {
+        Class instanceClass = eClass.getInstanceClass();
+        if (instanceClass == null || instanceClass.isPrimitive() || instanceClass.isArray())
+            return NONE;
+        String name = instanceClass.getName();
+        int index = name.lastIndexOf('.') + 1;
+        name = name.substring(0, index) + "util." + name.substring(index) + CLASS_NAME_SUFFIX;
+        try {
+            return Class.forName(name, true, instanceClass.getClassLoader()).newInstance();
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the KIND byte then the root DataObject if its Type has an externalizer
+     * 
+     * @return false, having written nothing, if the Type has none
+     */
+    public static boolean writeRoot(DataObject dataObject, ObjectOutput out, HelperContext scope) throws IOException {
+        TypeExternalizer externalizer = getExternalizer(((EObject) dataObject).eClass());
+        if (externalizer == null)
+            return false;
+        out.writeByte(KIND);
+        writeTyped(dataObject, externalizer, out, scope);
+        return true;
+    }
+
+    /**
+     * Reads a root DataObject written by {@link #writeRoot}, after the KIND byte
+     */
+    public static DataObject readRoot(ObjectInput in, HelperContext scope) throws IOException, ClassNotFoundException {
+        return readTyped(in, scope);
+    }
+
+    static void writeTyped(DataObject dataObject, TypeExternalizer externalizer, ObjectOutput out, HelperContext scope)
+            throws IOException {
+        Type type = dataObject.getType();
+        writeString(out, type.getURI());
+        out.writeUTF(type.getName());
+        out.writeLong(externalizer.getTypeVersion());
+        externalizer.writeExternal(dataObject, out, scope);
+    }
+
+    static DataObject readTyped(ObjectInput in, HelperContext scope) throws IOException, ClassNotFoundException {
+        String uri = readString(in);
+        String name = in.readUTF();
+        long version = in.readLong();
+        Type type = scope.getTypeHelper().getType(uri, name);
+        TypeExternalizer externalizer = type instanceof EClass ? getExternalizer((EClass) type) : null;
+        if (externalizer == null)
+            throw new InvalidClassException(uri + '#' + name, "No externalizer");
+        if (externalizer.getTypeVersion() != version)
+            throw new InvalidClassException(uri + '#' + name, "The Type differs from the one of the stream");
+        return read(externalizer, (EClass) type, in, scope);
+    }
+
+    static DataObject read(TypeExternalizer externalizer, EClass eClass, ObjectInput in, HelperContext scope)
+            throws IOException, ClassNotFoundException {
+        DataObject dataObject = (DataObject) EcoreUtil.create(eClass);
+        externalizer.readExternal(dataObject, in, scope);
+        return dataObject;
+    }
+
+    /**
+     * @return the generated hash of the Properties of the Type and of the Types it contains
+     */
+    public abstract long getTypeVersion();
+
+    /**
+     * Writes the Properties of the DataObject, of the Type of the externalizer
+     */
+    public abstract void writeExternal(DataObject dataObject, ObjectOutput out, HelperContext scope) throws IOException;
+
+    /**
+     * Reads the Properties written by {@link #writeExternal} into the DataObject
+     */
+    public abstract void readExternal(DataObject dataObject, ObjectInput in, HelperContext scope) throws IOException,
+            ClassNotFoundException;
+
+    /**
+     * Writes whether the Property is set
+     * 
+     * @return whether its value(s) is to be written
+     */
+    protected static final boolean writeSet(ObjectOutput out, DataObject dataObject, int propertyIndex) throws IOException {
+        boolean set = dataObject.isSet(propertyIndex);
+        out.writeBoolean(set);
+        return set;
+    }
+
+    /**
+     * Writes a String of any length, or null
+     */
+    protected static final void writeString(ObjectOutput out, String string) throws IOException {
+        if (string == null)
+            out.writeByte(0);
+        else if (string.length() <= 0xFFFF / 3) { // the longest writeUTF can always encode
+            out.writeByte(1);
+            out.writeUTF(string);
+        } else {
+            out.writeByte(2);
+            out.writeInt(string.length());
+            out.writeChars(string);
+        }
+    }
+
+    protected static final String readString(ObjectInput in) throws IOException {
+        switch (in.readByte()) {
+        case 0:
+            return null;
+        case 1:
+            return in.readUTF();
+        }
+        char[] chars = new char[in.readInt()];
+        for (int index = 0; index != chars.length; ++index)
+            chars[index] = in.readChar();
+        return new String(chars);
+    }
+
+    /**
+     * Writes a data value of the Property as its XML literal
+     */
+    protected static final void writeValue(ObjectOutput out, DataObject dataObject, int propertyIndex, Object value)
+            throws IOException {
+        writeString(out, value == null ? null : SDOUtil.convertToString(getPropertyType(dataObject, propertyIndex), value));
+    }
+
+    protected static final Object readValue(ObjectInput in, DataObject dataObject, int propertyIndex) throws IOException {
+        String literal = readString(in);
+        return literal == null ? null : SDOUtil.createFromString(getPropertyType(dataObject, propertyIndex), literal);
+    }
+
+    /**
+     * Writes the data values of a many-valued Property
+     */
+    protected static final void writeValues(ObjectOutput out, DataObject dataObject, int propertyIndex) throws IOException {
+        List values = dataObject.getList(propertyIndex);
+        int size = values.size();
+        out.writeInt(size);
+        for (int index = 0; index != size; ++index)
+            writeValue(out, dataObject, propertyIndex, values.get(index));
+    }
+
+    protected static final void readValues(ObjectInput in, DataObject dataObject, int propertyIndex) throws IOException {
+        List values = dataObject.getList(propertyIndex);
+        for (int size = in.readInt(); size != 0; --size)
+            values.add(readValue(in, dataObject, propertyIndex));
+    }
+
+    /**
+     * Writes a contained DataObject, through the externalizer of its Type if any, as XML otherwise
+     */
+    protected static final void writeDataObject(ObjectOutput out, HelperContext scope, DataObject dataObject,
+            int propertyIndex, DataObject value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        EClass eClass = ((EObject) value).eClass();
+        TypeExternalizer externalizer = getExternalizer(eClass);
+        if (externalizer == null) {
+            out.writeByte(XML);
+            Map options = new HashMap();
+            options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE); // leaves the value in its container
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            XMLHelper xmlHelper = scope.getXMLHelper();
+            xmlHelper.save(xmlHelper.createDocument(value, XML_URI, XML_NAME), bytes, options);
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        } else if (eClass == getPropertyType(dataObject, propertyIndex)) {
+            out.writeByte(DECLARED);
+            externalizer.writeExternal(value, out, scope);
+        } else {
+            out.writeByte(TYPED);
+            writeTyped(value, externalizer, out, scope);
+        }
+    }
+
+    protected static final DataObject readDataObject(ObjectInput in, HelperContext scope, DataObject dataObject,
+            int propertyIndex) throws IOException, ClassNotFoundException {
+        switch (in.readByte()) {
+        case NULL:
+            return null;
+        case DECLARED:
+            EClass eClass = (EClass) getPropertyType(dataObject, propertyIndex);
+            TypeExternalizer externalizer = getExternalizer(eClass);
+            if (externalizer == null)
+                throw new InvalidClassException(eClass.getName(), "No externalizer");
+            return read(externalizer, eClass, in, scope);
+        case TYPED:
+            return readTyped(in, scope);
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return scope.getXMLHelper().load(new ByteArrayInputStream(bytes)).getRootObject();
+    }
+
+    /**
+     * Writes the contained DataObjects of a many-valued Property
+     */
+    protected static final void writeDataObjects(ObjectOutput out, HelperContext scope, DataObject dataObject,
+            int propertyIndex) throws IOException {
+        List values = dataObject.getList(propertyIndex);
+        int size = values.size();
+        out.writeInt(size);
+        for (int index = 0; index != size; ++index)
+            writeDataObject(out, scope, dataObject, propertyIndex, (DataObject) values.get(index));
+    }
+
+    protected static final void readDataObjects(ObjectInput in, HelperContext scope, DataObject dataObject,
+            int propertyIndex) throws IOException, ClassNotFoundException {
+        List values = dataObject.getList(propertyIndex);
+        for (int size = in.readInt(); size != 0; --size)
+            values.add(readDataObject(in, scope, dataObject, propertyIndex));
+    }
+
+    static Type getPropertyType(DataObject dataObject, int propertyIndex) {
+        return TypeStreamHandler.getProperty(dataObject, propertyIndex).getType();
+    }
+}
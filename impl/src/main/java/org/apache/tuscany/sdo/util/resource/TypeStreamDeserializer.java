@@ -0,0 +1,178 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.util.HashMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.tuscany.sdo.helper.XMLStreamHelper;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Reads the elements of the Types having a generated {@link TypeStreamHandler} through their handlers, and the
+ * elements of the other Types with the XMLStreamHelper of the scope. An unknown element or attribute, or one of a
+ * known local name in another namespace, throws an {@link UnknownContentException} for the caller to load the
+ * element with the EMF loader instead. The instance isn't thread-safe.
+ */
+public class TypeStreamDeserializer extends SDODeserializer {
+    /**
+     * Thrown on an element or attribute the generated handler doesn't read
+     */
+    public static class UnknownContentException extends XMLStreamException {
+        public UnknownContentException(String message, Location location) {
+            super(message, location);
+        }
+    }
+
+    public TypeStreamDeserializer(XMLStreamReader reader, HelperContext scope) {
+        initialize(reader, scope, null);
+    }
+
+    public final XMLStreamReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return whether the element the reader is at is xsi:nil
+     */
+    public final boolean isNil() {
+        return "true".equals(reader.getAttributeValue(ExtendedMetaData.XSI_URI, XMLResource.NIL));
+    }
+
+    /**
+     * @return the Type of the element the reader is at: its xsi:type, else the Type of the global element if any,
+     *         else the defaultType
+     */
+    public final Type elementType(Type defaultType) {
+        Type type = typeXSI();
+        if (type != null)
+            return type;
+        String nameSpace = reader.getNamespaceURI();
+        Property element = xsdHelper.getGlobalProperty(XMLConstants.NULL_NS_URI.equals(nameSpace) ? null : nameSpace,
+                reader.getLocalName(), true);
+        return element == null ? defaultType : element.getType();
+    }
+
+    /**
+     * @return whether the element the reader is at can be read through a generated handler
+     */
+    public final boolean isHandled(Type defaultType) {
+        if (isNil())
+            return false;
+        Type type = elementType(defaultType);
+        return type instanceof EClass && TypeStreamHandler.getHandler((EClass) type) != null;
+    }
+
+    /**
+     * Reads the element the reader is at, leaving the reader at its end tag
+     * 
+     * @return the DataObject of the element, null if nil
+     */
+    public DataObject read(Type type) throws XMLStreamException {
+        if (isNil()) {
+            reader.getElementText();
+            return null;
+        }
+        type = elementType(type);
+        TypeStreamHandler handler = type instanceof EClass ? TypeStreamHandler.getHandler((EClass) type) : null;
+        if (handler == null) {
+            if (options == null)
+                options = new HashMap();
+            options.put(XMLStreamHelper.OPTION_DEFAULT_ROOT_TYPE, type);
+            return (DataObject) load(reader, options);
+        }
+        DataObject dataObject = (DataObject) EcoreUtil.create((EClass) type);
+        handler.read(dataObject, this);
+        return dataObject;
+    }
+
+    /**
+     * Reads the element the reader is at as a DataObject value of the Property
+     */
+    public final DataObject read(DataObject dataObject, int propertyIndex) throws XMLStreamException {
+        return read(TypeStreamHandler.getProperty(dataObject, propertyIndex).getType());
+    }
+
+    /**
+     * Reads the text content of the element the reader is at, leaving the reader at its end tag
+     * 
+     * @return null if nil
+     */
+    public final String text() throws XMLStreamException {
+        if (isNil()) {
+            reader.getElementText();
+            return null;
+        }
+        return reader.getElementText();
+    }
+
+    /**
+     * @return the value of a data Property literal, null for a null literal
+     */
+    public final Object value(DataObject dataObject, int propertyIndex, String literal) {
+        return literal == null ? null : value(TypeStreamHandler.getProperty(dataObject, propertyIndex).getType(), literal,
+                reader.getNamespaceContext());
+    }
+
+    /**
+     * @return whether the element the reader is at is in the namespace, null for none
+     */
+    public final boolean isNameSpace(String nameSpace) {
+        return equals(nameSpace, reader.getNamespaceURI());
+    }
+
+    /**
+     * @return whether the attribute is in the namespace, null for none
+     */
+    public final boolean isNameSpace(int index, String nameSpace) {
+        return equals(nameSpace, reader.getAttributeNamespace(index));
+    }
+
+    private static boolean equals(String nameSpace, String readerNameSpace) {
+        return nameSpace == null ? readerNameSpace == null || readerNameSpace.length() == 0 : nameSpace.equals(readerNameSpace);
+    }
+
+    /**
+     * Skips an attribute not read by the handler if it's an XML Schema instance one, reports it otherwise
+     */
+    public void unknownAttribute(int index) throws XMLStreamException {
+        if (!ExtendedMetaData.XSI_URI.equals(reader.getAttributeNamespace(index)))
+            throw new UnknownContentException("Unknown attribute " + reader.getAttributeName(index), reader.getLocation());
+    }
+
+    /**
+     * Reports an element not read by the handler
+     */
+    public void unknownElement() throws XMLStreamException {
+        throw new UnknownContentException("Unknown element " + reader.getName(), reader.getLocation());
+    }
+}
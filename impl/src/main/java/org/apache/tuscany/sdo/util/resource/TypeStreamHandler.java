@@ -0,0 +1,180 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+
+/**
+ * The XML reader and writer of the DataObjects of a static Type, generated with the -generateStreamHandlers option as
+ * the &lt;Type&gt;StreamHandler class of the util package of the Type interface. A handler reads and writes the
+ * Properties through the generated accessors and property indices, switching on the hash of the element and
+ * attribute local names instead of looking up the ExtendedMetaData features.
+ * <p>
+ * {@link DataObjectStreamSerializer} writes the content of the DataObjects of a Type having a handler through it, and
+ * {@link TypeStreamDeserializer} reads their elements. The handlers are found by name the first time a Type is
+ * serialized; they're stateless and shared by the threads.
+ */
+public abstract class TypeStreamHandler {
+    public static final String CLASS_NAME_SUFFIX = "StreamHandler";
+
+    private static final Object NONE = new Object();
+
+    /**
+     * EClass of a static Type to its handler or NONE, replaced on write
+     */
+    private static volatile Map handlers = new HashMap();
+
+    /**
+     * @return the generated handler of the static Type, null if none
+     */
+    public static TypeStreamHandler getHandler(EClass eClass) {
+        Object handler = handlers.get(eClass);
+        if (handler == null) {
+            if (eClass.getInstanceClassName() == null)
+                return null; // dynamic
+            handler = loadHandler(eClass);
+            synchronized (NONE) {
+                Map copy = new HashMap(handlers);
+                copy.put(eClass, handler);
+                handlers = copy;
+            }
+        }
+        return handler == NONE ? null : (TypeStreamHandler) handler;
+    }
+
+    private static Object loadHandler(EClass eClass) {
+        Class instanceClass = eClass.getInstanceClass();
+        if (instanceClass == null || instanceClass.isPrimitive() || instanceClass.isArray())
+            return NONE;
+        String name = instanceClass.getName();
+        int index = name.lastIndexOf('.') + 1;
+        name = name.substring(0, index) + "util." + name.substring(index) + CLASS_NAME_SUFFIX;
+        try {
+            return Class.forName(name, true, instanceClass.getClassLoader()).newInstance();
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the attributes then the element content of the DataObject
+     * 
+     * @return true if any element content has been written
+     */
+    public abstract boolean write(DataObject dataObject, DataObjectStreamSerializer serializer) throws XMLStreamException;
+
+    /**
+     * Reads the attributes and the content of the element the reader of the deserializer is at into the DataObject,
+     * leaving the reader at the end tag
+     */
+    public abstract void read(DataObject dataObject, TypeStreamDeserializer deserializer) throws XMLStreamException;
+
+    protected static final void writeAttribute(DataObjectStreamSerializer serializer, String nameSpace, String name,
+            String value) throws XMLStreamException {
+        serializer.writeAttribute(nameSpace, name, value);
+    }
+
+    /**
+     * Writes an element of text content
+     */
+    protected static final void writeElement(DataObjectStreamSerializer serializer, String nameSpace, String name,
+            String text) throws XMLStreamException {
+        serializer.startElement(nameSpace, name);
+        serializer.writeCharacters(text);
+        serializer.endElement(false);
+    }
+
+    /**
+     * Writes the value(s) of a Property the generated code doesn't write itself, such as DataObjects and nulls
+     * 
+     * @return true if any element has been written
+     */
+    protected static final boolean writeProperty(DataObjectStreamSerializer serializer, DataObject dataObject,
+            int propertyIndex) throws XMLStreamException {
+        Property property = getProperty(dataObject, propertyIndex);
+        return serializer.writeProperty(dataObject, property, dataObject.get(property));
+    }
+
+    /**
+     * @return the XML literal of a data Property value
+     */
+    protected static final String convertToString(DataObjectStreamSerializer serializer, DataObject dataObject,
+            int propertyIndex, Object value) throws XMLStreamException {
+        return serializer.convertToString((EDataType) ((EStructuralFeature) getProperty(dataObject, propertyIndex)).getEType(), value);
+    }
+
+    static Property getProperty(DataObject dataObject, int propertyIndex) {
+        return (Property) dataObject.getType().getProperties().get(propertyIndex);
+    }
+
+    protected static final boolean parseBoolean(String literal) {
+        literal = literal.trim();
+        return "true".equals(literal) || "1".equals(literal);
+    }
+
+    protected static final int parseInt(String literal) {
+        return Integer.parseInt(trimPlus(literal));
+    }
+
+    protected static final long parseLong(String literal) {
+        return Long.parseLong(trimPlus(literal));
+    }
+
+    protected static final short parseShort(String literal) {
+        return Short.parseShort(trimPlus(literal));
+    }
+
+    protected static final byte parseByte(String literal) {
+        return Byte.parseByte(trimPlus(literal));
+    }
+
+    protected static final double parseDouble(String literal) {
+        literal = literal.trim();
+        if ("INF".equals(literal))
+            return Double.POSITIVE_INFINITY;
+        if ("-INF".equals(literal))
+            return Double.NEGATIVE_INFINITY;
+        return Double.parseDouble(literal);
+    }
+
+    protected static final float parseFloat(String literal) {
+        return (float) parseDouble(literal);
+    }
+
+    /**
+     * @return the literal without white space nor the leading + xsd:integer types allow
+     */
+    static String trimPlus(String literal) {
+        literal = literal.trim();
+        return literal.length() > 1 && literal.charAt(0) == '+' ? literal.substring(1) : literal;
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.util.resource;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * The UTF-8 encoded markup of the Properties and Types of a scope, computed once from the ExtendedMetaData
+ * so that {@link DataObjectUTF8Serializer} only encodes values.
+ * <p>
+ * Each namespace is given one prefix for the life of the table (the Package prefix when free), hence a start tag
+ * never depends on the declarations in scope. The table grows as Properties and Types are saved; it's thread-safe. The
+ * markup computed is published in maps which are replaced, never modified, so the lookups of published markup don't
+ * lock and concurrent saves don't serialize.
+ */
+public class XMLNameTable {
+    static final String ENCODING = "UTF-8";
+
+    static final String XML_PREFIX = "xml";
+
+    protected final ExtendedMetaData extendedMetaData;
+
+    /**
+     * nameSpace to prefix
+     */
+    private volatile Map prefixes;
+
+    /**
+     * the prefixes given, guarded by the table
+     */
+    private final Set reserved = new HashSet();
+
+    private int prefixSuffix;
+
+    /**
+     * nameSpace to declaration
+     */
+    private volatile Map declarations = Collections.EMPTY_MAP;
+
+    /**
+     * EStructuralFeature to element/attribute Name
+     */
+    private volatile Map features = Collections.EMPTY_MAP;
+
+    /**
+     * EClassifier to xsi:type Name
+     */
+    private volatile Map types = Collections.EMPTY_MAP;
+
+    public XMLNameTable(ExtendedMetaData extendedMetaData) {
+        this.extendedMetaData = extendedMetaData == null ? ExtendedMetaData.INSTANCE : extendedMetaData;
+        Map prefixes = new HashMap();
+        prefixes.put(ExtendedMetaData.XSI_URI, ExtendedMetaData.XSI_PREFIX);
+        prefixes.put(ExtendedMetaData.XML_URI, XML_PREFIX);
+        this.prefixes = prefixes;
+        reserved.add(ExtendedMetaData.XSI_PREFIX);
+        reserved.add(XML_PREFIX);
+        reserved.add(ExtendedMetaData.XMLNS_PREFIX);
+    }
+
+    /**
+     * @return a copy of the published map with the entry added
+     */
+    private static Map put(Map map, Object key, Object value) {
+        Map newMap = new HashMap(map);
+        newMap.put(key, value);
+        return newMap;
+    }
+
+    static byte[] encode(String string) {
+        try {
+            return string.getBytes(ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e); // should never happen
+        }
+    }
+
+    /**
+     * Encoded markup of a Property or a Type
+     */
+    public static final class Name {
+        /**
+         * null if unqualified
+         */
+        public final String nameSpace;
+
+        /**
+         * " xmlns:prefix=\"nameSpace\"", null if unqualified
+         */
+        public final byte[] declaration;
+
+        /**
+         * "&lt;prefix:name", null for a Type
+         */
+        public final byte[] startTag;
+
+        /**
+         * "&lt;/prefix:name&gt;", null for a Type
+         */
+        public final byte[] endTag;
+
+        /**
+         * " prefix:name=\"" for a Property, the whole " xsi:type=\"prefix:name\"" literal for a Type
+         */
+        public final byte[] attribute;
+
+        Name(String nameSpace, byte[] declaration, byte[] startTag, byte[] endTag, byte[] attribute) {
+            this.nameSpace = nameSpace;
+            this.declaration = declaration;
+            this.startTag = startTag;
+            this.endTag = endTag;
+            this.attribute = attribute;
+        }
+    }
+
+    /**
+     * @return the prefix the nameSpace is always bound to, never empty
+     */
+    public String getPrefix(String nameSpace) {
+        String prefix = (String) prefixes.get(nameSpace);
+        if (prefix != null)
+            return prefix;
+        synchronized (this) {
+            prefix = (String) prefixes.get(nameSpace);
+            if (prefix != null)
+                return prefix;
+            EPackage ePackage = extendedMetaData.getPackage(nameSpace);
+            prefix = ePackage == null ? null : ePackage.getNsPrefix();
+            if (prefix == null || prefix.length() == 0 || reserved.contains(prefix) || prefix.indexOf(':') != -1)
+                do
+                    prefix = DataObjectStreamSerializer.NAMESPACE_PREFIX + prefixSuffix++;
+                while (reserved.contains(prefix));
+            reserved.add(prefix);
+            prefixes = put(prefixes, nameSpace, prefix);
+            return prefix;
+        }
+    }
+
+    /**
+     * @return " xmlns:prefix=\"nameSpace\"" encoded
+     */
+    public byte[] getDeclaration(String nameSpace) {
+        byte[] declaration = (byte[]) declarations.get(nameSpace);
+        if (declaration != null)
+            return declaration;
+        declaration = encode(" xmlns:" + getPrefix(nameSpace) + "=\"" + DataObjectUTF8Serializer.escape(nameSpace, true) + '"');
+        synchronized (this) {
+            byte[] published = (byte[]) declarations.get(nameSpace);
+            if (published != null)
+                return published;
+            declarations = put(declarations, nameSpace, declaration);
+            return declaration;
+        }
+    }
+
+    /**
+     * @return the markup of the element or attribute a Property is saved as
+     */
+    public Name getName(EStructuralFeature feature) {
+        Name name = (Name) features.get(feature);
+        if (name != null)
+            return name;
+        name = newName(extendedMetaData.getNamespace(feature), extendedMetaData.getName(feature));
+        synchronized (this) {
+            Name published = (Name) features.get(feature);
+            if (published != null)
+                return published;
+            features = put(features, feature, name);
+            return name;
+        }
+    }
+
+    /**
+     * @return the markup of an element or attribute, not cached
+     */
+    public Name newName(String nameSpace, String name) {
+        if (nameSpace != null && nameSpace.length() == 0)
+            nameSpace = null;
+        String qName = nameSpace == null ? name : getPrefix(nameSpace) + ':' + name;
+        return new Name(nameSpace, nameSpace == null ? null : getDeclaration(nameSpace), encode('<' + qName), encode("</" + qName + '>'),
+                encode(' ' + qName + "=\""));
+    }
+
+    /**
+     * @return the markup of the xsi:type attribute of a Type, null for an anonymous Type
+     */
+    public Name getTypeName(EClassifier type) {
+        Name name = (Name) types.get(type);
+        if (name != null)
+            return name;
+        if (extendedMetaData.isAnonymous(type))
+            return null;
+        String typeName = extendedMetaData.getName(type);
+        String nameSpace = extendedMetaData.getNamespace(type.getEPackage());
+        if (nameSpace != null && nameSpace.length() == 0)
+            nameSpace = null;
+        String qName = nameSpace == null ? typeName : getPrefix(nameSpace) + ':' + typeName;
+        name = new Name(nameSpace, nameSpace == null ? null : getDeclaration(nameSpace), null, null, encode(' '
+                + ExtendedMetaData.XSI_PREFIX + ':' + XMLResource.TYPE + "=\"" + qName + '"'));
+        synchronized (this) {
+            Name published = (Name) types.get(type);
+            if (published != null)
+                return published;
+            types = put(types, type, name);
+            return name;
+        }
+    }
+}
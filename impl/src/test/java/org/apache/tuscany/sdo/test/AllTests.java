@@ -32,6 +32,7 @@ public class AllTests extends TestCase {
       
         suite.addTestSuite(ChangeSummaryOnDataObjectTestCase.class);
         suite.addTestSuite(ChangeSummaryPropertyTestCase.class);
+        suite.addTestSuite(ChangeSummaryRecordingTestCase.class);
         suite.addTestSuite(ChangeSummaryTestCase.class);
         suite.addTestSuite(ContainmentCycleTestCase.class);
         suite.addTestSuite(CrossScopeCopyTestCase.class);
@@ -65,6 +66,24 @@ public class AllTests extends TestCase {
         //suite.addTestSuite(XSDQNameTestCase.class);
         //suite.addTestSuite(XMLLoadOptionsTestCase.class);
         suite.addTestSuite(XMLSaveOptionsTestCase.class);
+        suite.addTestSuite(XMLSaveDirectTestCase.class);
+        suite.addTestSuite(XMLSmallMessageTestCase.class);
+        suite.addTestSuite(XMLParserPoolTestCase.class);
+        suite.addTestSuite(ImplementationClassTestCase.class);
+        suite.addTestSuite(PackedDataObjectTestCase.class);
+        suite.addTestSuite(PrimitiveListTestCase.class);
+        suite.addTestSuite(OffHeapStoreTestCase.class);
+        suite.addTestSuite(MappedStoreTestCase.class);
+        suite.addTestSuite(ColumnStoreTestCase.class);
+        suite.addTestSuite(KeyIndexTestCase.class);
+        suite.addTestSuite(TryGetTestCase.class);
+        suite.addTestSuite(QueryTestCase.class);
+        suite.addTestSuite(GraphWalkerTestCase.class);
+        suite.addTestSuite(FreezeTestCase.class);
+        suite.addTestSuite(SnapshotTestCase.class);
+        suite.addTestSuite(DataGraphTransactionTestCase.class);
+        suite.addTestSuite(TypeRegistryTestCase.class);
+        suite.addTestSuite(RowPopulatorTestCase.class);
         suite.addTestSuite(XMLUnknownPropertiesTestCase.class);
         suite.addTestSuite(ExpectedExceptionsTestCase.class);
         suite.addTestSuite(TypeHelperTestCase.class);
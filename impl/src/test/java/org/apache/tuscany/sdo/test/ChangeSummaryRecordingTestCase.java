@@ -0,0 +1,173 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URL;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.util.resource.RecordedEventXMLStreamReader;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+import commonj.sdo.helper.XMLHelper;
+
+/**
+ * Recording and replaying of the ChangeSummary elements by RecordedEventXMLStreamReader
+ */
+public class ChangeSummaryRecordingTestCase extends TestCase {
+    private static final String TEST_NAMESPACE = "http://www.example.com/simpleCS";
+
+    static final int QUOTES = 2000;
+
+    HelperContext hc;
+
+    XMLHelper xmlHelper;
+
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        xmlHelper = hc.getXMLHelper();
+        URL url = getClass().getResource("/simpleWithChangeSummary.xsd");
+        InputStream inputStream = url.openStream();
+        hc.getXSDHelper().define(inputStream, url.toString());
+        inputStream.close();
+    }
+
+    XMLStreamReader changes(InputStream inputStream) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+        while (!(reader.next() == XMLStreamConstants.START_ELEMENT && "changes".equals(reader.getLocalName())))
+            ;
+        return reader;
+    }
+
+    RecordedEventXMLStreamReader.Tag record(XMLStreamReader reader) throws XMLStreamException {
+        RecordedEventXMLStreamReader.Tag tag = new RecordedEventXMLStreamReader.Tag(reader);
+        assertFalse(tag.recorded());
+        assertFalse(tag.record(reader));
+        assertTrue(tag.recorded());
+        return tag;
+    }
+
+    public void testReplay() throws Exception {
+        URL url = getClass().getResource("/simpleWithChangeSummary.xml");
+        XMLStreamReader expected = changes(url.openStream()), played = record(changes(url.openStream())).play(expected);
+        for (int events = 1;; ++events) {
+            int type = played.getEventType();
+            assertEquals(expected.getEventType(), type);
+            assertEquals(expected.getLocation().getLineNumber(), played.getLocation().getLineNumber());
+            assertEquals(expected.getNamespaceURI("sdo"), played.getNamespaceURI("sdo"));
+            if (played.hasName()) {
+                assertEquals(expected.getName(), played.getName());
+                assertEquals(expected.getNamespaceURI(), played.getNamespaceURI());
+                assertEquals(expected.getNamespaceCount(), played.getNamespaceCount());
+                for (int index = 0; index != played.getNamespaceCount(); ++index) {
+                    assertEquals(expected.getNamespacePrefix(index), played.getNamespacePrefix(index));
+                    assertEquals(expected.getNamespaceURI(index), played.getNamespaceURI(index));
+                }
+            }
+            if (type == XMLStreamConstants.START_ELEMENT) {
+                assertEquals(expected.getAttributeCount(), played.getAttributeCount());
+                for (int index = 0; index != played.getAttributeCount(); ++index) {
+                    assertEquals(expected.getAttributeName(index), played.getAttributeName(index));
+                    assertEquals(expected.getAttributeValue(index), played.getAttributeValue(index));
+                }
+                assertEquals(expected.getAttributeValue("commonj.sdo", "ref"), played.getAttributeValue("commonj.sdo", "ref"));
+            } else if (played.isCharacters()) {
+                assertEquals(expected.getText(), played.getText());
+                assertEquals(expected.getText(), new String(played.getTextCharacters(), played.getTextStart(), played.getTextLength()));
+                assertEquals(expected.isWhiteSpace(), played.isWhiteSpace());
+            }
+            if (!played.hasNext()) {
+                assertEquals(XMLStreamConstants.END_ELEMENT, type);
+                assertEquals("changes", expected.getLocalName());
+                assertTrue(events > 20);
+                break;
+            }
+            played.next();
+            expected.next();
+        }
+    }
+
+    DataObject largeChangeSummary() {
+        DataObject quote = hc.getDataFactory().create(TEST_NAMESPACE, "RootQuote");
+        quote.setString("symbol", "fbnt");
+        for (int i = 0; i != QUOTES; ++i) {
+            DataObject child = quote.createDataObject("quotes");
+            child.setString("symbol", "s" + i);
+            child.setBigDecimal("price", new BigDecimal(i));
+        }
+        ChangeSummary cs = quote.getChangeSummary();
+        cs.beginLogging();
+        for (int i = QUOTES; i != 0;) {
+            DataObject child = quote.getDataObject("quotes." + --i);
+            if (i % 2 == 0)
+                child.delete();
+            else
+                child.setBigDecimal("price", new BigDecimal("0.5"));
+        }
+        cs.endLogging();
+        return quote;
+    }
+
+    public void testLargeChangeSummary() throws Exception {
+        DataObject quote = largeChangeSummary();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlHelper.save(quote, TEST_NAMESPACE, "stockQuote", outputStream);
+        byte[] bytes = outputStream.toByteArray();
+        DataObject loaded = xmlHelper.load(new ByteArrayInputStream(bytes)).getRootObject();
+        ChangeSummary cs = loaded.getChangeSummary();
+        assertEquals(QUOTES / 2, loaded.getList("quotes").size());
+        assertEquals(quote.getChangeSummary().getChangedDataObjects().size(), cs.getChangedDataObjects().size());
+        cs.undoChanges();
+        assertEquals(QUOTES, loaded.getList("quotes").size());
+        assertEquals(new BigDecimal(QUOTES - 1), loaded.getBigDecimal("quotes." + (QUOTES - 1) + "/price"));
+
+        // the recording of the large ChangeSummary element replays it
+        XMLStreamReader expected = changes(new ByteArrayInputStream(bytes)), played = record(
+                changes(new ByteArrayInputStream(bytes))).play(expected);
+        int events = 1;
+        for (; played.hasNext(); ++events) {
+            assertEquals(expected.getEventType(), played.getEventType());
+            if (played.hasName())
+                assertEquals(expected.getName(), played.getName());
+            else if (played.isCharacters())
+                assertEquals(expected.getText(), played.getText());
+            played.next();
+            expected.next();
+        }
+        assertEquals(XMLStreamConstants.END_ELEMENT, expected.getEventType());
+        assertEquals("changes", expected.getLocalName());
+        assertTrue(events > QUOTES);
+    }
+}
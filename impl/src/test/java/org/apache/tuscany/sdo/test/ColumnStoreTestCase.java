@@ -0,0 +1,172 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.impl.ColumnDataObjectImpl;
+import org.apache.tuscany.sdo.util.ColumnStore;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of dynamic Types with the COLUMN_STORE option, and scans of their columns
+ */
+public class ColumnStoreTestCase extends TestCase {
+    static final int PARTS = 10000;
+
+    ColumnStore store;
+
+    HelperContext hc;
+
+    Type partType;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = new ColumnStore();
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.COLUMN_STORE, store);
+        hc = PartTypeUtil.createHelperContext(options);
+        partType = hc.getTypeHelper().getType(PartTypeUtil.NAMESPACE, "Part");
+    }
+
+    public void testGetSet() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        assertTrue(root instanceof ColumnDataObjectImpl);
+        DataObject part = root.createDataObject("parts");
+        assertFalse(part.isSet("weight"));
+        part.setDouble("weight", 2.5);
+        part.setString("name", "part");
+        part.getList("tags").add("a");
+        assertEquals(2.5, part.getDouble("weight"), 0);
+        assertEquals("part", part.get("name"));
+        assertEquals("a", part.getList("tags").get(0));
+        assertSame(root, part.getContainer());
+        part.delete();
+        assertNull(part.getContainer());
+        assertTrue(root.getList("parts").isEmpty());
+
+        String xml = hc.getXMLHelper().save(root, PartTypeUtil.NAMESPACE, "part");
+        HelperContext dynamic = PartTypeUtil.createHelperContext();
+        assertEquals(dynamic.getXMLHelper().save(PartTypeUtil.createPart(dynamic, 0), PartTypeUtil.NAMESPACE,
+                "part"), xml);
+    }
+
+    public void testForEach() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i < PARTS; ++i)
+            parts.add(PartTypeUtil.createPart(hc, i));
+        assertEquals(PARTS, store.size(partType));
+
+        Property[] properties = { partType.getProperty("weight"), partType.getProperty("active"),
+                partType.getProperty("id") };
+        final double[] weight = new double[1];
+        final int[] active = new int[1];
+        store.forEach(partType, properties, new ColumnStore.RowVisitor() {
+            public void visit(ColumnStore.Row row) {
+                weight[0] += row.getDouble(0);
+                if (row.getBoolean(1))
+                    ++active[0];
+                if (row.getIndex() == 42) {
+                    assertEquals(42, row.getInt(2));
+                    assertEquals(new Integer(42), row.getDataObject().get("id"));
+                }
+            }
+        });
+        assertEquals((double) PARTS * (PARTS - 1) / 16, weight[0], 0);
+        assertEquals(PARTS / 2, active[0]);
+
+        double total = 0;
+        for (int i = 0; i < PARTS - 1; ++i)
+            total += ((DataObject) parts.get(i)).getDouble("weight");
+        assertEquals(weight[0], total, 0);
+    }
+
+    List ids() {
+        final List ids = new ArrayList();
+        store.forEach(partType, new Property[] { partType.getProperty("id") }, new ColumnStore.RowVisitor() {
+            public void visit(ColumnStore.Row row) {
+                ids.add(new Integer(row.getInt(0)));
+            }
+        });
+        return ids;
+    }
+
+    public void testDetachedAndDeleted() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 3; ++i)
+            parts.add(PartTypeUtil.createPart(hc, i));
+        assertEquals(4, store.size(partType));
+        DataObject detached = (DataObject) parts.remove(1);
+        DataObject deleted = (DataObject) parts.get(1);
+        deleted.delete();
+        assertEquals(2, store.size(partType));
+        assertEquals(2, ids().size());
+        assertFalse(ids().contains(new Integer(2)));
+        assertFalse(ids().contains(new Integer(3)));
+        parts.add(detached);
+        assertEquals(3, store.size(partType));
+        assertTrue(ids().contains(new Integer(2)));
+
+        // the row of the deleted DataObject is reused once it is collected
+        int row = ((ColumnDataObjectImpl) deleted).eRow();
+        WeakReference collected = new WeakReference(deleted);
+        deleted = null;
+        for (int i = 0; i < 10 && collected.get() != null; ++i)
+            System.gc();
+        if (collected.get() == null) {
+            DataObject part = PartTypeUtil.createPart(hc, 4);
+            assertEquals(row, ((ColumnDataObjectImpl) part).eRow());
+            assertFalse(part.isSet("price"));
+            assertNull(part.getContainer());
+            assertEquals(4, store.size(partType));
+        }
+    }
+
+    public void testSupersededTable() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        Property color = PartTypeUtil.createProperty(hc, partType, "color", "String");
+        DataObject part = PartTypeUtil.createPart(hc, 1);
+        part.setString("color", "red");
+        assertEquals(2, store.size(partType));
+        final List colors = new ArrayList();
+        store.forEach(partType, new Property[] { partType.getProperty("id"), color }, new ColumnStore.RowVisitor() {
+            public void visit(ColumnStore.Row row) {
+                colors.add(row.getInt(0) + ":" + row.get(1));
+            }
+        });
+        assertEquals(2, colors.size());
+        assertEquals("0:null", colors.get(0));
+        assertEquals("1:red", colors.get(1));
+        assertEquals(0, root.getInt("id"));
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.impl.DataGraphImpl;
+import org.apache.tuscany.sdo.impl.DataGraphTransaction;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Optimistic transactions over the tree of Parts of a DataGraph
+ */
+public class DataGraphTransactionTestCase extends TestCase {
+    HelperContext hc;
+
+    DataGraphImpl dataGraph;
+
+    DataObject root;
+
+    Property weight;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 10; ++i)
+            parts.add(PartTypeUtil.createPart(hc, i));
+        dataGraph = (DataGraphImpl) SDOUtil.createDataGraph();
+        SDOUtil.setRootObject(dataGraph, root);
+        weight = root.getType().getProperty("weight");
+    }
+
+    public void testIsolation() {
+        DataObject part = root.getDataObject("parts.0");
+        Property name = part.getType().getProperty("name");
+        DataGraphTransaction writer = dataGraph.beginTransaction();
+        DataGraphTransaction reader = dataGraph.beginTransaction();
+        writer.set(part, name, "changed");
+        writer.set(writer.getRootObject().getDataObject("parts.1"), part.getType().getProperty("tags"), Arrays
+                .asList(new String[] { "a", "b" }));
+        writer.unset(root, name);
+        assertEquals("changed", writer.get(part, name));
+        assertFalse(writer.isSet(root, name));
+        assertEquals("part 1", part.getString("name"));
+        assertEquals("part 1", reader.get(part, name));
+
+        writer.commit();
+        assertEquals("changed", part.getString("name"));
+        assertEquals(2, root.getList("parts.1/tags").size());
+        assertFalse(root.isSet("name"));
+        assertEquals("part 1", reader.get(part, name));
+        assertEquals("part 1", reader.getRootObject().getString("parts.0/name"));
+        assertEquals("changed", dataGraph.beginTransaction().get(part, name));
+        reader.rollback();
+        try {
+            writer.commit();
+            fail();
+        } catch (IllegalStateException e) {
+            // ended
+        }
+    }
+
+    public void testConflict() {
+        DataObject part = root.getDataObject("parts.0");
+        DataGraphTransaction first = dataGraph.beginTransaction();
+        DataGraphTransaction second = dataGraph.beginTransaction();
+        DataGraphTransaction other = dataGraph.beginTransaction();
+        first.set(part, weight, new Double(((Double) first.get(part, weight)).doubleValue() + 1));
+        second.set(part, weight, new Double(((Double) second.get(part, weight)).doubleValue() + 2));
+        DataObject otherPart = other.getRootObject().getDataObject("parts.1");
+        other.set(otherPart, weight, new Double(((Double) other.get(otherPart, weight)).doubleValue() + 3));
+        first.commit();
+        try {
+            second.commit();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // first committed the weight
+        }
+        other.commit();
+        assertEquals(1 / 8.0 + 1, part.getDouble("weight"), 0);
+        assertEquals(2 / 8.0 + 3, root.getDouble("parts.1/weight"), 0);
+    }
+
+    public void testFailedCommit() {
+        DataObject part = root.getDataObject("parts.0");
+        DataObject frozen = root.getDataObject("parts.1");
+        Property name = part.getType().getProperty("name");
+        DataGraphTransaction transaction = dataGraph.beginTransaction();
+        transaction.set(part, name, "changed");
+        transaction.unset(root, name);
+        transaction.set(frozen, weight, new Double(5));
+        SDOUtil.freeze(frozen);
+        try {
+            transaction.commit();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // frozen
+        }
+        assertEquals("part 1", part.getString("name"));
+        assertEquals("part 0", root.getString("name"));
+        assertEquals(2 / 8.0, frozen.getDouble("weight"), 0);
+        try {
+            transaction.commit();
+            fail();
+        } catch (IllegalStateException e) {
+            // ended
+        }
+
+        transaction = dataGraph.beginTransaction();
+        transaction.set(part, name, "changed");
+        transaction.commit();
+        assertEquals("changed", part.getString("name"));
+    }
+
+    public void testConcurrentCommits() throws Exception {
+        dataGraph.beginTransaction().rollback();
+        final Throwable[] failure = new Throwable[1];
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; ++i) {
+            writers[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 200; ++j) {
+                            for (;;) {
+                                DataGraphTransaction transaction = dataGraph.beginTransaction();
+                                DataObject part = transaction.getRootObject().getDataObject("parts." + j % 10);
+                                double value = ((Double) transaction.get(part, weight)).doubleValue();
+                                transaction.set(part, weight, new Double(value + 1));
+                                try {
+                                    transaction.commit();
+                                    break;
+                                } catch (ConcurrentModificationException e) {
+                                    // retry
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            writers[i].start();
+        }
+        for (int i = 0; i < writers.length; ++i)
+            writers[i].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+        double total = 0;
+        List parts = root.getList("parts");
+        for (int i = 0; i < parts.size(); ++i)
+            total += ((DataObject) parts.get(i)).getDouble("weight");
+        assertEquals(55 / 8.0 + writers.length * 200, total, 0);
+    }
+}
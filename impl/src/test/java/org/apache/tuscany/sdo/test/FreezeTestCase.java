@@ -0,0 +1,295 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.impl.FieldDataObjectImpl;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Sequence;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * A frozen tree of Parts, read-only and read concurrently
+ */
+public class FreezeTestCase extends TestCase {
+    HelperContext hc;
+
+    DataObject root;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 100; ++i) {
+            DataObject part = PartTypeUtil.createPart(hc, i);
+            part.getList("tags").add("tag " + i);
+            parts.add(part);
+        }
+        root.set("alternate", parts.get(9));
+    }
+
+    /**
+     * @return the document of the root, saved directly: the EMF save would move the frozen root into a document root
+     */
+    String save() throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        StringWriter writer = new StringWriter();
+        hc.getXMLHelper().save(hc.getXMLHelper().createDocument(root, PartTypeUtil.NAMESPACE, "part"), writer,
+                options);
+        return writer.toString();
+    }
+
+    public void testReadOnly() throws Exception {
+        String xml = save();
+        SDOUtil.freeze(root);
+        DataObject part = root.getDataObject("parts.4");
+        assertTrue(SDOUtil.isFrozen(root));
+        assertTrue(SDOUtil.isFrozen(part));
+        assertFalse(SDOUtil.isFrozen(PartTypeUtil.createPart(hc, 0)));
+
+        Runnable[] modifications = { new Runnable() {
+            public void run() {
+                root.setInt("id", 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                root.unset("name");
+            }
+        }, new Runnable() {
+            public void run() {
+                root.set(root.getType().getProperty("alternate"), null);
+            }
+        }, new Runnable() {
+            public void run() {
+                root.getList("parts").add(PartTypeUtil.createPart(hc, 101));
+            }
+        }, new Runnable() {
+            public void run() {
+                root.createDataObject("parts");
+            }
+        }, new Runnable() {
+            public void run() {
+                root.getList("parts").remove(0);
+            }
+        }, new Runnable() {
+            public void run() {
+                root.setString("parts.4/tags.0", "changed");
+            }
+        }, new Runnable() {
+            public void run() {
+                root.getDataObject("parts.4").getList("tags").clear();
+            }
+        }, new Runnable() {
+            public void run() {
+                root.getDataObject("parts.4").delete();
+            }
+        }, new Runnable() {
+            public void run() {
+                root.getDataObject("parts.4").detach();
+            }
+        } };
+        for (int i = 0; i < modifications.length; ++i) {
+            try {
+                modifications[i].run();
+                fail("modification " + i);
+            } catch (UnsupportedOperationException e) {
+                // frozen
+            }
+        }
+        assertEquals(xml, save());
+        assertEquals("tag 5", part.getList("tags").get(0));
+        assertSame(root.getList("parts").get(9), root.get("alternate"));
+    }
+
+    public void testGeneratedImplementationClass() {
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.GENERATE_IMPLEMENTATION_CLASSES, Boolean.TRUE);
+        hc = SDOUtil.createHelperContext(options);
+        PartTypeUtil.definePartType(hc);
+        final DataObject part = PartTypeUtil.createPart(hc, 4);
+        assertTrue(part instanceof FieldDataObjectImpl);
+        SDOUtil.freeze(part);
+
+        final Property id = part.getType().getProperty("id");
+        final Property weight = part.getType().getProperty("weight");
+        final Property active = part.getType().getProperty("active");
+        Runnable[] modifications = { new Runnable() {
+            public void run() {
+                part.setInt(id, 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setDouble(weight, 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setBoolean(active, false);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setLong(id, 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setFloat(weight, 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setInt(part.getType().getProperties().indexOf(id), 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.setDouble("weight", 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                part.unset(id);
+            }
+        } };
+        for (int i = 0; i < modifications.length; ++i) {
+            try {
+                modifications[i].run();
+                fail("modification " + i);
+            } catch (UnsupportedOperationException e) {
+                // frozen
+            }
+        }
+        assertEquals(4, part.getInt(id));
+        assertEquals(0.5, part.getDouble(weight), 0);
+        assertTrue(part.getBoolean(active));
+    }
+
+    public void testFeatureIDs() {
+        SDOUtil.freeze(hc, root);
+        final InternalEObject eObject = (InternalEObject) root;
+        final int featureID = eObject.eClass().getFeatureID((EStructuralFeature) root.getType().getProperty("id"));
+        Runnable[] modifications = { new Runnable() {
+            public void run() {
+                eObject.eSet(featureID, new Integer(1));
+            }
+        }, new Runnable() {
+            public void run() {
+                eObject.eUnset(featureID);
+            }
+        } };
+        for (int i = 0; i < modifications.length; ++i) {
+            try {
+                modifications[i].run();
+                fail("modification " + i);
+            } catch (UnsupportedOperationException e) {
+                // frozen
+            }
+        }
+        assertEquals(0, root.getInt("id"));
+    }
+
+    public void testSequence() {
+        String xsd = "<xsd:schema targetNamespace=\"http://www.example.com/frozenText\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">"
+                + "<xsd:complexType name=\"Text\" mixed=\"true\"><xsd:sequence>"
+                + "<xsd:element name=\"b\" type=\"xsd:string\" minOccurs=\"0\" maxOccurs=\"unbounded\"/>"
+                + "</xsd:sequence></xsd:complexType></xsd:schema>";
+        hc.getXSDHelper().define(xsd);
+        DataObject text = hc.getDataFactory().create("http://www.example.com/frozenText", "Text");
+        final Sequence sequence = text.getSequence();
+        sequence.addText("text");
+        sequence.add("b", "bold");
+        SDOUtil.freeze(hc, text);
+
+        Runnable[] modifications = { new Runnable() {
+            public void run() {
+                sequence.addText("more");
+            }
+        }, new Runnable() {
+            public void run() {
+                sequence.add("b", "more");
+            }
+        }, new Runnable() {
+            public void run() {
+                sequence.setValue(1, "changed");
+            }
+        }, new Runnable() {
+            public void run() {
+                sequence.remove(0);
+            }
+        }, new Runnable() {
+            public void run() {
+                sequence.move(0, 1);
+            }
+        } };
+        for (int i = 0; i < modifications.length; ++i) {
+            try {
+                modifications[i].run();
+                fail("modification " + i);
+            } catch (UnsupportedOperationException e) {
+                // frozen
+            }
+        }
+        assertEquals(2, sequence.size());
+        assertEquals("text", sequence.getValue(0));
+        assertEquals("bold", sequence.getValue(1));
+    }
+
+    public void testConcurrentReads() throws Exception {
+        final String xml = save();
+        SDOUtil.freeze(root);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] readers = new Thread[8];
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 20; ++j) {
+                            assertEquals(xml, save());
+                            double weight = 0;
+                            List parts = root.getList("parts");
+                            for (int k = 0; k < parts.size(); ++k)
+                                weight += ((DataObject) parts.get(k)).getDouble("weight");
+                            assertEquals(100 * 101 / 16.0, weight, 0);
+                            assertEquals("part 42", root.getString("parts[id=42]/name"));
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        for (int i = 0; i < readers.length; ++i)
+            readers[i].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.SDOGraphVisitor;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.util.GraphWalker;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Sequential and parallel walks of a tree of Parts
+ */
+public class GraphWalkerTestCase extends TestCase {
+    static final int FANOUT = 20;
+
+    HelperContext hc;
+
+    DataObject root;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        int id = 0;
+        for (int i = 0; i < FANOUT; ++i) {
+            DataObject part = PartTypeUtil.createPart(hc, ++id);
+            root.getList("parts").add(part);
+            for (int j = 0; j < FANOUT; ++j) {
+                DataObject child = PartTypeUtil.createPart(hc, ++id);
+                part.getList("parts").add(child);
+                for (int k = 0; k < FANOUT; ++k)
+                    child.getList("parts").add(PartTypeUtil.createPart(hc, ++id));
+            }
+        }
+        root.set("alternate", root.getList("parts").get(1));
+    }
+
+    static class Counter implements SDOGraphVisitor {
+        int dataObjects;
+
+        int values;
+
+        long ids;
+
+        int ends;
+
+        public synchronized boolean visitDataObject(DataObject dataObject) {
+            ++dataObjects;
+            return true;
+        }
+
+        public synchronized void visitProperty(DataObject dataObject, Property property, Object value) {
+            ++values;
+            if ("id".equals(property.getName()))
+                ids += ((Integer) value).intValue();
+        }
+
+        public synchronized void visitEnd(DataObject dataObject) {
+            ++ends;
+        }
+    }
+
+    public void testWalk() {
+        final List visited = new ArrayList();
+        new GraphWalker().walk((DataObject) root.getList("parts").get(0), new SDOGraphVisitor() {
+            public boolean visitDataObject(DataObject dataObject) {
+                visited.add("<" + dataObject.getInt("id"));
+                return dataObject.getInt("id") < 3;
+            }
+
+            public void visitProperty(DataObject dataObject, Property property, Object value) {
+                if (property.getName().equals("id") || property.getName().equals("parts"))
+                    visited.add(property.getName());
+            }
+
+            public void visitEnd(DataObject dataObject) {
+                visited.add(dataObject.getInt("id") + ">");
+            }
+        });
+        assertEquals("<1", visited.get(0));
+        assertEquals("id", visited.get(1));
+        assertEquals("parts", visited.get(2));
+        assertEquals("<2", visited.get(3));
+        assertEquals("id", visited.get(4));
+        assertEquals("parts", visited.get(5));
+        assertEquals("<3", visited.get(6));
+        assertEquals("parts", visited.get(7));
+        assertEquals("<4", visited.get(8));
+        assertEquals("1>", visited.get(visited.size() - 1));
+        assertEquals(4 + 2 * FANOUT + 2 * FANOUT + 1, visited.size());
+    }
+
+    public void testParallelWalk() {
+        int total = 1 + FANOUT + FANOUT * FANOUT + FANOUT * FANOUT * FANOUT;
+        Counter sequential = new Counter();
+        GraphWalker walker = new GraphWalker();
+        walker.walk(root, sequential);
+        assertEquals(total, sequential.dataObjects);
+        assertEquals(total, sequential.ends);
+        assertEquals((long) total * (total - 1) / 2, sequential.ids);
+        // id, weight, active, name of each Part, the contained Parts and the alternate
+        assertEquals(4 * total + total - 1 + 1, sequential.values);
+
+        Counter parallel = new Counter();
+        walker.walk(root, parallel, 4);
+        assertEquals(sequential.dataObjects, parallel.dataObjects);
+        assertEquals(sequential.values, parallel.values);
+        assertEquals(sequential.ids, parallel.ids);
+        assertEquals(sequential.ends, parallel.ends);
+    }
+
+    public void testParallelFailure() {
+        try {
+            new GraphWalker().walk(root, new Counter() {
+                public synchronized boolean visitDataObject(DataObject dataObject) {
+                    if (dataObject.getInt("id") == 500)
+                        throw new IllegalStateException();
+                    return true;
+                }
+            }, 4);
+            fail();
+        } catch (IllegalStateException e) {
+            // rethrown by the calling thread
+        }
+    }
+}
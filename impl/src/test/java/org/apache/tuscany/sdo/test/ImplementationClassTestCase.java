@@ -0,0 +1,149 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.impl.DynamicDataObjectImpl;
+import org.apache.tuscany.sdo.impl.FieldDataObjectImpl;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of dynamic Types with the GENERATE_IMPLEMENTATION_CLASSES option
+ */
+public class ImplementationClassTestCase extends TestCase {
+    private static final String TEST_NAMESPACE = "http://www.example.com/simpleCS";
+
+    HelperContext hc;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = createHelperContext(true);
+    }
+
+    HelperContext createHelperContext(boolean generate) throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.GENERATE_IMPLEMENTATION_CLASSES, Boolean.valueOf(generate));
+        HelperContext hc = SDOUtil.createHelperContext(options);
+        URL url = getClass().getResource("/simpleWithChangeSummary.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+        return hc;
+    }
+
+    DataObject createQuote(HelperContext hc) {
+        DataObject quote = hc.getDataFactory().create(TEST_NAMESPACE, "RootQuote");
+        quote.setString("symbol", "fbnt");
+        quote.setBigDecimal("price", new BigDecimal("1000.0"));
+        quote.setDouble("volume", 1000);
+        DataObject child = quote.createDataObject("quotes");
+        child.setString("symbol", "child");
+        child.setDouble("change1", -1.5);
+        return quote;
+    }
+
+    public void testGetSet() {
+        DataObject quote = hc.getDataFactory().create(TEST_NAMESPACE, "RootQuote");
+        assertTrue(quote instanceof FieldDataObjectImpl);
+        Property volume = quote.getType().getProperty("volume");
+        assertFalse(quote.isSet(volume));
+        assertEquals(0, quote.getDouble(volume), 0);
+        assertEquals(new Double(0), quote.get(volume));
+
+        quote.setDouble(volume, 12.5);
+        assertTrue(quote.isSet(volume));
+        assertEquals(new Double(12.5), quote.get(volume));
+        quote.set(volume, new Double(7));
+        assertEquals(7, quote.getDouble("volume"), 0);
+        assertEquals("7.0", quote.getString(volume));
+        quote.unset(volume);
+        assertFalse(quote.isSet(volume));
+        assertEquals(0, quote.getDouble(volume), 0);
+
+        quote.setString("symbol", "fbnt");
+        assertEquals("fbnt", quote.get("symbol"));
+        quote.unset("symbol");
+        assertNull(quote.get("symbol"));
+        assertFalse(quote.isSet("symbol"));
+
+        DataObject child = quote.createDataObject("quotes");
+        assertSame(quote, child.getContainer());
+        assertEquals(1, quote.getList("quotes").size());
+    }
+
+    public void testChangeSummary() {
+        DataObject quote = createQuote(hc);
+        ChangeSummary changeSummary = quote.getChangeSummary();
+        assertNotNull(changeSummary);
+        changeSummary.beginLogging();
+        quote.setDouble("volume", 2000);
+        quote.unset("price");
+        quote.setString("symbol", "FBNT");
+        ((DataObject) quote.getList("quotes").get(0)).setDouble("change1", 3);
+        assertEquals(2, changeSummary.getChangedDataObjects().size());
+        ChangeSummary.Setting setting = changeSummary.getOldValue(quote, quote.getType().getProperty("volume"));
+        assertEquals(new Double(1000), setting.getValue());
+        changeSummary.undoChanges();
+
+        assertTrue(hc.getEqualityHelper().equal(createQuote(hc), quote));
+    }
+
+    public void testXMLRoundTrip() throws IOException {
+        HelperContext dynamic = createHelperContext(false);
+        DataObject quote = createQuote(hc);
+        assertTrue(dynamic.getDataFactory().create(TEST_NAMESPACE, "RootQuote") instanceof DynamicDataObjectImpl);
+
+        String xml = hc.getXMLHelper().save(quote, TEST_NAMESPACE, "stockQuote");
+        assertEquals(xml, dynamic.getXMLHelper().save(createQuote(dynamic), TEST_NAMESPACE, "stockQuote"));
+        DataObject loaded = hc.getXMLHelper().load(xml).getRootObject();
+        assertTrue(loaded instanceof FieldDataObjectImpl);
+        assertTrue(hc.getEqualityHelper().equal(quote, loaded));
+        assertTrue(hc.getEqualityHelper().equal(quote, hc.getCopyHelper().copy(quote)));
+    }
+
+    public void testTypeHelperDefine() {
+        Type intType = hc.getTypeHelper().getType("commonj.sdo", "Int");
+        DataObject counterType = hc.getDataFactory().create("commonj.sdo", "Type");
+        counterType.set("uri", "http://example.com/counter");
+        counterType.set("name", "Counter");
+        DataObject countProperty = counterType.createDataObject("property");
+        countProperty.set("name", "count");
+        countProperty.set("type", intType);
+        hc.getTypeHelper().define(counterType);
+
+        DataObject counter = hc.getDataFactory().create("http://example.com/counter", "Counter");
+        assertTrue(counter instanceof FieldDataObjectImpl);
+        for (int i = 0; i < 10; ++i)
+            counter.setInt("count", counter.getInt("count") + 1);
+        assertEquals(new Integer(10), counter.get("count"));
+    }
+}
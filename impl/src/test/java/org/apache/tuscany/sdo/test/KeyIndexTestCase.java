@@ -0,0 +1,159 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.eclipse.emf.common.util.EList;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Path predicates and lookups on a many-valued containment indexed by a key Property
+ */
+public class KeyIndexTestCase extends TestCase {
+    static final int PARTS = 5000;
+
+    HelperContext hc;
+
+    DataObject root;
+
+    Property parts;
+
+    Property id;
+
+    Property name;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        Type partType = hc.getTypeHelper().getType(PartTypeUtil.NAMESPACE, "Part");
+        parts = partType.getProperty("parts");
+        id = partType.getProperty("id");
+        name = partType.getProperty("name");
+        root = PartTypeUtil.createPart(hc, -1);
+        List list = root.getList(parts);
+        for (int i = 0; i < PARTS; ++i)
+            list.add(PartTypeUtil.createPart(hc, i));
+    }
+
+    public void testLookup() {
+        DataObject part = (DataObject) root.getList(parts).get(42);
+        assertSame(part, SDOUtil.lookup(root, parts, id, new Integer(42)));
+        assertSame(part, root.getDataObject("parts[id=42]"));
+
+        SDOUtil.createIndex(root, parts, id);
+        SDOUtil.createIndex(root, parts, name);
+        assertSame(part, SDOUtil.lookup(root, parts, id, new Integer(42)));
+        assertSame(part, SDOUtil.lookup(root, parts, id, "42"));
+        assertSame(part, SDOUtil.lookup(root, parts, name, "part 42"));
+        assertSame(part, root.getDataObject("parts[id=42]"));
+        assertSame(part, root.getDataObject("parts[name='part 42']"));
+        assertNull(SDOUtil.lookup(root, parts, id, new Integer(PARTS)));
+        assertNull(root.getDataObject("parts[id=" + PARTS + "]"));
+
+        root.setString("parts[id=42]/name", "renamed");
+        assertNull(SDOUtil.lookup(root, parts, name, "part 42"));
+        assertSame(part, root.getDataObject("parts[name='renamed']"));
+
+        List list = root.getList(parts);
+        list.remove(0);
+        assertSame(part, root.getDataObject("parts[id=42]"));
+        assertEquals(41, list.indexOf(part));
+        list.remove(part);
+        assertNull(root.getDataObject("parts[id=42]"));
+        assertNull(part.getContainer());
+
+        DataObject added = PartTypeUtil.createPart(hc, 42);
+        list.add(10, added);
+        DataObject duplicate = PartTypeUtil.createPart(hc, 42);
+        list.add(duplicate);
+        assertSame(added, root.getDataObject("parts[id=42]"));
+        list.remove(duplicate);
+        list.add(0, duplicate);
+        assertSame(duplicate, root.getDataObject("parts[id=42]"));
+        root.set("parts[id=42]", part);
+        assertSame(part, root.getDataObject("parts[id=42]"));
+        assertSame(part, list.get(0));
+        assertNull(duplicate.getContainer());
+
+        SDOUtil.removeIndex(root, parts, id);
+        assertSame(part, root.getDataObject("parts[id=42]"));
+        part.setInt("id", -42);
+        assertSame(added, root.getDataObject("parts[id=42]"));
+    }
+
+    /**
+     * The indexed path lookups find the Parts the scanning ones do
+     */
+    public void testIndexedPaths() {
+        DataObject[] scanned = new DataObject[PARTS / 10];
+        for (int i = 0; i < PARTS; i += 10)
+            scanned[i / 10] = root.getDataObject("parts[name='part " + i + "']");
+        SDOUtil.createIndex(root, parts, name);
+        for (int i = 0; i < PARTS; i += 10) {
+            assertSame(scanned[i / 10], root.getDataObject("parts[name='part " + i + "']"));
+            assertEquals(i, root.getInt("parts[name='part " + i + "']/id"));
+        }
+        assertNull(root.getDataObject("parts[name='part " + PARTS + "']"));
+    }
+
+    public void testMove() {
+        SDOUtil.createIndex(root, parts, id);
+        List list = root.getList(parts);
+        DataObject part = (DataObject) list.get(PARTS - 1);
+        ((EList) list).move(0, PARTS - 1);
+        assertSame(part, list.get(0));
+        assertSame(part, root.getDataObject("parts[id=" + (PARTS - 1) + "]"));
+        assertSame(list.get(1), root.getDataObject("parts[id=0]"));
+    }
+
+    public void testConcurrentLookups() throws Exception {
+        SDOUtil.createIndex(root, parts, name);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t != threads.length; ++t) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = offset; i < PARTS; i += 7)
+                            if (root.getInt("parts[name='part " + i + "']/id") != i)
+                                throw new AssertionError("part " + i);
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t != threads.length; ++t)
+            threads[t].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+    }
+}
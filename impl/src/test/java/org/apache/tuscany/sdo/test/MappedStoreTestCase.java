@@ -0,0 +1,151 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.impl.OffHeapDataObjectImpl;
+import org.apache.tuscany.sdo.util.MappedStore;
+import org.eclipse.emf.ecore.EClass;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * A graph written to a memory-mapped store file and read back by another HelperContext
+ */
+public class MappedStoreTestCase extends TestCase {
+    File file;
+
+    String xml;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        HelperContext hc = PartTypeUtil.createHelperContext();
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 1000; ++i) {
+            DataObject part = PartTypeUtil.createPart(hc, i);
+            part.getList("tags").add("tag " + i);
+            parts.add(part);
+        }
+        root.set("alternate", parts.get(10));
+        xml = hc.getXMLHelper().save(root, PartTypeUtil.NAMESPACE, "part");
+        file = File.createTempFile("parts", ".sdo");
+        MappedStore.write(root, file);
+    }
+
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testOpen() throws Exception {
+        HelperContext hc = PartTypeUtil.createHelperContext();
+        MappedStore store = MappedStore.open(file, hc);
+        try {
+            assertEquals(1001, store.getRecordCount());
+            DataObject root = store.getRoot();
+            assertTrue(root instanceof OffHeapDataObjectImpl);
+            DataObject part = (DataObject) root.getList("parts").get(41);
+            assertEquals(42, part.getInt("id"));
+            assertEquals("tag 42", part.getList("tags").get(0));
+            assertSame(root, part.getContainer());
+            assertSame(root.getList("parts").get(10), root.get("alternate"));
+            assertEquals(xml, hc.getXMLHelper().save(root, PartTypeUtil.NAMESPACE, "part"));
+            try {
+                part.setInt("id", 0);
+                fail();
+            } catch (RuntimeException e) {
+                // read-only
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testCreate() throws Exception {
+        HelperContext hc = PartTypeUtil.createHelperContext();
+        MappedStore store = MappedStore.open(file, hc);
+        try {
+            DataObject part = (DataObject) store.create((EClass) hc.getTypeHelper().getType(PartTypeUtil.NAMESPACE,
+                    "Part"));
+            part.setInt("id", 2000);
+            part.setString("name", "created");
+            assertEquals(2000, part.getInt("id"));
+            assertEquals("created", part.getString("name"));
+            assertEquals(1002, store.getRecordCount());
+            assertEquals(xml, hc.getXMLHelper().save(store.getRoot(), PartTypeUtil.NAMESPACE, "part"));
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testConcurrentReads() throws Exception {
+        HelperContext hc = PartTypeUtil.createHelperContext();
+        final MappedStore store = MappedStore.open(file, hc);
+        try {
+            final Throwable[] failure = new Throwable[1];
+            Thread[] readers = new Thread[8];
+            for (int i = 0; i < readers.length; ++i) {
+                readers[i] = new Thread() {
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 20; ++j) {
+                                List parts = store.getRoot().getList("parts");
+                                for (int k = 0; k < parts.size(); ++k)
+                                    assertEquals(k + 1, ((DataObject) parts.get(k)).getInt("id"));
+                                assertSame(parts.get(10), store.getRoot().get("alternate"));
+                            }
+                        } catch (Throwable e) {
+                            failure[0] = e;
+                        }
+                    }
+                };
+                readers[i].start();
+            }
+            for (int i = 0; i < readers.length; ++i)
+                readers[i].join();
+            if (failure[0] != null)
+                fail(failure[0].toString());
+        } finally {
+            store.close();
+        }
+    }
+
+    public void testCopyOnWrite() throws Exception {
+        HelperContext hc = PartTypeUtil.createHelperContext();
+        MappedStore store = MappedStore.open(file, hc, true);
+        DataObject part = (DataObject) store.getRoot().getList("parts").get(0);
+        part.setInt("id", -1);
+        part.setString("name", "a name longer than the one in the file");
+        part.getList("tags").add("new");
+        assertEquals(-1, part.getInt("id"));
+        assertEquals("a name longer than the one in the file", part.getString("name"));
+        store.close();
+
+        store = MappedStore.open(file, hc);
+        assertEquals(xml, hc.getXMLHelper().save(store.getRoot(), PartTypeUtil.NAMESPACE, "part"));
+        store.close();
+    }
+}
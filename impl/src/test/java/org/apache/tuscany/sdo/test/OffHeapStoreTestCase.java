@@ -0,0 +1,184 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.impl.OffHeapDataObjectImpl;
+import org.apache.tuscany.sdo.util.FrozenAdapter;
+import org.apache.tuscany.sdo.util.OffHeapStore;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of dynamic Types with the OFF_HEAP_STORE option
+ */
+public class OffHeapStoreTestCase extends TestCase {
+    OffHeapStore store;
+
+    HelperContext hc;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = new OffHeapStore(1 << 16);
+        hc = createHelperContext(store);
+    }
+
+    static HelperContext createHelperContext(OffHeapStore store) {
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.OFF_HEAP_STORE, store);
+        return PartTypeUtil.createHelperContext(options);
+    }
+
+    public void testGetSet() {
+        DataObject part = hc.getDataFactory().create(PartTypeUtil.NAMESPACE, "Part");
+        assertTrue(part instanceof OffHeapDataObjectImpl);
+        assertFalse(part.isSet("id"));
+        assertEquals(0, part.getInt("id"));
+        assertNull(part.getString("name"));
+
+        part = PartTypeUtil.createPart(hc, 3);
+        assertEquals(3, part.getInt("id"));
+        assertEquals(0.375, part.getDouble("weight"), 0);
+        assertFalse(part.getBoolean("active"));
+        assertEquals("part 3", part.getString("name"));
+        part.setString("name", "p\u00E4rt");
+        assertEquals("p\u00E4rt", part.get("name"));
+        part.setString("name", "a longer name than the block of the first one");
+        assertEquals("a longer name than the block of the first one", part.get("name"));
+        part.setBigDecimal("price", new BigDecimal("12.50"));
+        assertEquals(new BigDecimal("12.50"), part.getBigDecimal("price"));
+
+        part.unset("id");
+        assertFalse(part.isSet("id"));
+        assertEquals(0, part.getInt("id"));
+        part.set("name", null);
+        assertFalse(part.isSet("name"));
+        assertNull(part.get("name"));
+
+        List tags = part.getList("tags");
+        tags.add("a");
+        tags.add("c");
+        tags.add(1, "b");
+        assertEquals("[a, b, c]", tags.toString());
+        tags.remove("a");
+        assertEquals(1, tags.indexOf("c"));
+        assertTrue(part.isSet("tags"));
+        part.unset("tags");
+        assertTrue(tags.isEmpty());
+    }
+
+    public void testContainment() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        DataObject child = root.createDataObject("parts");
+        child.setInt("id", 1);
+        DataObject other = PartTypeUtil.createPart(hc, 2);
+        root.getList("parts").add(other);
+        assertSame(root, child.getContainer());
+        assertSame(root.getType().getProperty("parts"), other.getContainmentProperty());
+        root.set("alternate", other);
+        assertSame(other, root.get("alternate"));
+
+        other.getList("parts").add(child);
+        assertSame(other, child.getContainer());
+        assertEquals(1, root.getList("parts").size());
+        child.delete();
+        assertNull(child.getContainer());
+        assertTrue(other.getList("parts").isEmpty());
+    }
+
+    public void testXMLRoundTrip() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        for (int i = 1; i < 10; ++i)
+            root.getList("parts").add(PartTypeUtil.createPart(hc, i));
+        root.getList("tags").add("root");
+        String xml = hc.getXMLHelper().save(root, PartTypeUtil.NAMESPACE, "part");
+        HelperContext dynamic = PartTypeUtil.createHelperContext();
+        DataObject dynamicRoot = PartTypeUtil.createPart(dynamic, 0);
+        for (int i = 1; i < 10; ++i)
+            dynamicRoot.getList("parts").add(PartTypeUtil.createPart(dynamic, i));
+        dynamicRoot.getList("tags").add("root");
+        assertEquals(dynamic.getXMLHelper().save(dynamicRoot, PartTypeUtil.NAMESPACE, "part"), xml);
+
+        DataObject loaded = hc.getXMLHelper().load(xml).getRootObject();
+        assertTrue(loaded instanceof OffHeapDataObjectImpl);
+        assertEquals(xml, hc.getXMLHelper().save(loaded, PartTypeUtil.NAMESPACE, "part"));
+    }
+
+    public void testCollectedDataObjects() {
+        int count = store.getRecordCount();
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 50000; ++i)
+            parts.add(PartTypeUtil.createPart(hc, i));
+        assertEquals(count + 50001, store.getRecordCount());
+        System.gc();
+        DataObject part = (DataObject) parts.get(12344);
+        assertEquals(12345, part.getInt("id"));
+        assertEquals("part 12345", part.getString("name"));
+        assertSame(root, part.getContainer());
+        assertSame(part, parts.get(12344));
+        assertTrue(store.getAllocatedBytes() > 0);
+        assertTrue(store.getAllocatedBytes() <= store.getCapacity());
+    }
+
+    static boolean collected(WeakReference reference) {
+        for (int i = 0; i < 10 && reference.get() != null; ++i)
+            System.gc();
+        return reference.get() == null;
+    }
+
+    public void testPinnedAdapters() {
+        DataObject root = PartTypeUtil.createPart(hc, 0);
+        root.getList("parts").add(PartTypeUtil.createPart(hc, 1));
+        EObject part = (EObject) root.getList("parts").get(0);
+        assertFalse(FrozenAdapter.isFrozen(part));
+        assertTrue(part.eAdapters().isEmpty());
+        WeakReference probed = new WeakReference(part);
+        part = null;
+        assertTrue("probing the adapters doesn't pin the DataObject", collected(probed));
+
+        part = (EObject) root.getList("parts").get(0);
+        Adapter adapter = new AdapterImpl();
+        part.eAdapters().add(adapter);
+        WeakReference pinned = new WeakReference(part);
+        part = null;
+        assertFalse(collected(pinned));
+        part = (EObject) root.getList("parts").get(0);
+        assertTrue(part.eAdapters().contains(adapter));
+
+        part.eAdapters().remove(adapter);
+        WeakReference unpinned = new WeakReference(part);
+        part = null;
+        assertTrue("removing the last adapter unpins the DataObject", collected(unpinned));
+        assertEquals(1, root.getInt("parts.0/id"));
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.impl.PackedDataObjectImpl;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of dynamic Types with the PACK_PRIMITIVE_PROPERTIES option, and numeric-heavy DataObjects with each
+ * storage
+ */
+public class PackedDataObjectTestCase extends TestCase {
+    private static final String SAMPLE_NAMESPACE = "http://example.com/sample";
+
+    static final String[] NUMERIC_TYPES = { "Int", "Long", "Double", "Float", "Short", "Boolean", "Int", "Double" };
+
+    HelperContext createHelperContext(String option) {
+        Map options = new HashMap();
+        if (option != null)
+            options.put(option, Boolean.TRUE);
+        HelperContext hc = SDOUtil.createHelperContext(options);
+        DataObject sampleType = hc.getDataFactory().create("commonj.sdo", "Type");
+        sampleType.set("uri", SAMPLE_NAMESPACE);
+        sampleType.set("name", "Sample");
+        for (int i = 0; i < NUMERIC_TYPES.length; ++i) {
+            DataObject property = sampleType.createDataObject("property");
+            property.set("name", "p" + i);
+            property.set("type", hc.getTypeHelper().getType("commonj.sdo", NUMERIC_TYPES[i]));
+        }
+        DataObject property = sampleType.createDataObject("property");
+        property.set("name", "label");
+        property.set("type", hc.getTypeHelper().getType("commonj.sdo", "String"));
+        hc.getTypeHelper().define(sampleType);
+        return hc;
+    }
+
+    DataObject createSample(HelperContext hc, int i) {
+        DataObject sample = hc.getDataFactory().create(SAMPLE_NAMESPACE, "Sample");
+        sample.setInt(0, i);
+        sample.setLong(1, i * 1000000000L);
+        sample.setDouble(2, i / 4.0);
+        sample.setFloat(3, i / 2f);
+        sample.setShort(4, (short) i);
+        sample.setBoolean(5, (i & 1) != 0);
+        sample.setInt(6, -i);
+        sample.setDouble(7, i * 1.5);
+        return sample;
+    }
+
+    public void testGetSet() {
+        HelperContext hc = createHelperContext(SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES);
+        DataObject sample = hc.getDataFactory().create(SAMPLE_NAMESPACE, "Sample");
+        assertTrue(sample instanceof PackedDataObjectImpl);
+        assertFalse(sample.isSet("p0"));
+        assertEquals(new Integer(0), sample.get("p0"));
+
+        sample = createSample(hc, 3);
+        assertEquals(3, sample.getInt("p0"));
+        assertEquals(3000000000L, sample.getLong("p1"));
+        assertEquals(0.75, sample.getDouble("p2"), 0);
+        assertEquals(new Float(1.5f), sample.get("p3"));
+        assertEquals(new Short((short) 3), sample.get("p4"));
+        assertTrue(sample.getBoolean("p5"));
+        assertEquals(-3, sample.getInt(6));
+        assertEquals("4.5", sample.getString("p7"));
+
+        sample.setString("label", "three");
+        assertEquals("three", sample.get("label"));
+        sample.set("p1", new Long(-1));
+        assertEquals(-1, sample.getLong("p1"));
+        sample.unset("p1");
+        assertFalse(sample.isSet("p1"));
+        assertEquals(0, sample.getLong("p1"));
+
+        HelperContext dynamic = createHelperContext(null);
+        assertEquals(dynamic.getXMLHelper().save(createSample(dynamic, 3), SAMPLE_NAMESPACE, "sample"), hc.getXMLHelper().save(
+                createSample(hc, 3), SAMPLE_NAMESPACE, "sample"));
+    }
+
+    public void testChangeSummary() throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES, Boolean.TRUE);
+        HelperContext hc = SDOUtil.createHelperContext(options);
+        URL url = getClass().getResource("/simpleWithChangeSummary.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+
+        DataObject quote = hc.getDataFactory().create("http://www.example.com/simpleCS", "RootQuote");
+        assertTrue(quote instanceof PackedDataObjectImpl);
+        quote.setString("symbol", "fbnt");
+        quote.setDouble("volume", 1000);
+        ChangeSummary changeSummary = quote.getChangeSummary();
+        changeSummary.beginLogging();
+        quote.setDouble("volume", 2000);
+        quote.setDouble("change1", 1);
+        quote.setString("symbol", "FBNT");
+        changeSummary.endLogging();
+        assertEquals(new Double(1000), changeSummary.getOldValue(quote, quote.getType().getProperty("volume")).getValue());
+        changeSummary.undoChanges();
+        assertEquals(1000, quote.getDouble("volume"), 0);
+        assertFalse(quote.isSet("change1"));
+        assertEquals("fbnt", quote.getString("symbol"));
+    }
+
+    String saveSample(HelperContext hc, int i) {
+        return hc.getXMLHelper().save(createSample(hc, i), SAMPLE_NAMESPACE, "sample");
+    }
+
+    public void testStorages() {
+        HelperContext dynamic = createHelperContext(null);
+        String[] options = { SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES,
+                SDOHelper.DynamicTypeOptions.GENERATE_IMPLEMENTATION_CLASSES };
+        for (int o = 0; o < options.length; ++o) {
+            HelperContext hc = createHelperContext(options[o]);
+            for (int i = 0; i < 10; ++i)
+                assertEquals(options[o], saveSample(dynamic, i * 1000 - 1), saveSample(hc, i * 1000 - 1));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.Map;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Provides methods to dynamically create the Part Type, a tree of Parts holding primitive, many-valued, containment
+ * and reference Properties, and its DataObjects.
+ */
+public class PartTypeUtil {
+    static final String NAMESPACE = "http://example.com/parts";
+
+    /**
+     * @return a HelperContext created with the options, the Part Type defined
+     */
+    static HelperContext createHelperContext(Map options) {
+        HelperContext hc = SDOUtil.createHelperContext(options);
+        definePartType(hc);
+        return hc;
+    }
+
+    /**
+     * @return a default HelperContext, the Part Type defined
+     */
+    static HelperContext createHelperContext() {
+        HelperContext hc = SDOUtil.createHelperContext();
+        definePartType(hc);
+        return hc;
+    }
+
+    static void definePartType(HelperContext hc) {
+        Type partType = SDOUtil.createType(hc, NAMESPACE, "Part", false);
+        createProperty(hc, partType, "id", "Int");
+        createProperty(hc, partType, "weight", "Double");
+        createProperty(hc, partType, "active", "Boolean");
+        createProperty(hc, partType, "name", "String");
+        createProperty(hc, partType, "price", "Decimal");
+        SDOUtil.setMany(createProperty(hc, partType, "tags", "String"), true);
+        Property parts = SDOUtil.createProperty(partType, "parts", partType);
+        SDOUtil.setContainment(parts, true);
+        SDOUtil.setMany(parts, true);
+        SDOUtil.createProperty(partType, "alternate", partType);
+    }
+
+    static Property createProperty(HelperContext hc, Type type, String name, String typeName) {
+        return SDOUtil.createProperty(type, name, hc.getTypeHelper().getType("commonj.sdo", typeName));
+    }
+
+    /**
+     * @return a Part with the id, weighing id/8, active if the id is even, and named "part id"
+     */
+    static DataObject createPart(HelperContext hc, int id) {
+        DataObject part = hc.getDataFactory().create(NAMESPACE, "Part");
+        part.setInt("id", id);
+        part.setDouble("weight", id / 8.0);
+        part.setBoolean("active", (id & 1) == 0);
+        part.setString("name", "part " + id);
+        return part;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.util.PrimitiveEList;
+
+import commonj.sdo.ChangeSummary;
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Many-valued int, long and double properties held in primitive arrays
+ */
+public class PrimitiveListTestCase extends TestCase {
+    static final String NAMESPACE = "http://example.com/series";
+
+    HelperContext hc;
+
+    Type seriesType;
+
+    Property ints, longs, doubles;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.PRIMITIVE_LISTS, Boolean.TRUE);
+        hc = SDOUtil.createHelperContext(options);
+        seriesType = SDOUtil.createType(hc, NAMESPACE, "Series", false);
+        ints = createManyProperty("ints", "Int");
+        longs = createManyProperty("longs", "Long");
+        doubles = createManyProperty("doubles", "Double");
+        SDOUtil.createProperty(seriesType, "changeSummary", hc.getTypeHelper().getType("commonj.sdo", "ChangeSummaryType"));
+    }
+
+    Property createManyProperty(String name, String typeName) {
+        Property property = SDOUtil.createProperty(seriesType, name, hc.getTypeHelper().getType("commonj.sdo", typeName));
+        SDOUtil.setMany(property, true);
+        return property;
+    }
+
+    public void testList() {
+        DataObject series = hc.getDataFactory().create(seriesType);
+        List list = series.getList(ints);
+        assertTrue(list instanceof PrimitiveEList);
+        assertTrue(series.getList(doubles) instanceof PrimitiveEList);
+        assertFalse(series.isSet(ints));
+        for (int i = 0; i < 100; ++i)
+            list.add(new Integer(i));
+        assertTrue(series.isSet(ints));
+        assertEquals(100, list.size());
+        assertEquals(new Integer(42), list.get(42));
+        assertEquals(new Integer(0), list.remove(0));
+        list.add(0, new Integer(-1));
+        assertEquals(new Integer(-1), list.set(0, new Integer(7)));
+        ((PrimitiveEList) list).move(99, 0);
+        assertEquals(new Integer(7), list.get(99));
+        assertEquals(new Integer(1), list.get(0));
+        assertTrue(list.contains(new Integer(50)));
+        assertEquals(50, list.indexOf(new Integer(51)));
+
+        series.getList(longs).add(new Long(1L << 40));
+        assertEquals(1L << 40, SDOUtil.getLongArray(series, longs)[0]);
+        series.unset(ints);
+        assertTrue(list.isEmpty());
+    }
+
+    public void testNull() {
+        DataObject series = hc.getDataFactory().create(seriesType);
+        List list = series.getList(longs);
+        list.add(new Long(1));
+        list.add(null);
+        list.add(0, null);
+        assertEquals(Arrays.asList(new Object[] { null, new Long(1), null }), list);
+        assertTrue(Arrays.equals(new long[] { 0, 1, 0 }, SDOUtil.getLongArray(series, longs)));
+        assertNull(list.remove(0));
+        assertNull(list.set(1, new Long(2)));
+        assertEquals(new Long(1), list.set(0, null));
+        assertEquals(Arrays.asList(new Object[] { null, new Long(2) }), list);
+    }
+
+    public void testDefault() {
+        HelperContext hc = SDOUtil.createHelperContext();
+        Type seriesType = SDOUtil.createType(hc, NAMESPACE, "Series", false);
+        Property ints = SDOUtil.createProperty(seriesType, "ints", hc.getTypeHelper().getType("commonj.sdo", "Int"));
+        SDOUtil.setMany(ints, true);
+        DataObject series = hc.getDataFactory().create(seriesType);
+        assertFalse(series.getList(ints) instanceof PrimitiveEList);
+        SDOUtil.setIntArray(series, ints, new int[] { 1, 2 });
+        assertTrue(Arrays.equals(new int[] { 1, 2 }, SDOUtil.getIntArray(series, ints)));
+    }
+
+    public void testArrays() {
+        DataObject series = hc.getDataFactory().create(seriesType);
+        double[] samples = new double[100000];
+        for (int i = 0; i < samples.length; ++i)
+            samples[i] = Math.sin(i);
+        SDOUtil.setDoubleArray(series, doubles, samples);
+        assertTrue(Arrays.equals(samples, SDOUtil.getDoubleArray(series, doubles)));
+        assertEquals(new Double(Math.sin(10)), series.getList(doubles).get(10));
+
+        int[] values = { 3, 1, 2 };
+        SDOUtil.setIntArray(series, ints, values);
+        values[0] = 0;
+        assertTrue(Arrays.equals(new int[] { 3, 1, 2 }, SDOUtil.getIntArray(series, ints)));
+        assertTrue(Arrays.equals(new long[] { 3, 1, 2 }, SDOUtil.getLongArray(series, ints)));
+    }
+
+    public void testChangeSummary() {
+        DataObject series = hc.getDataFactory().create(seriesType);
+        SDOUtil.setIntArray(series, ints, new int[] { 1, 2, 3 });
+        series.getList(doubles).add(new Double(0.5));
+
+        ChangeSummary changeSummary = series.getChangeSummary();
+        changeSummary.beginLogging();
+        SDOUtil.setIntArray(series, ints, new int[] { 4, 5 });
+        series.getList(doubles).add(new Double(1.5));
+        series.getList(doubles).remove(0);
+        changeSummary.endLogging();
+        assertTrue(changeSummary.isModified(series));
+        assertEquals(Arrays.asList(new Object[] { new Integer(1), new Integer(2), new Integer(3) }), changeSummary.getOldValue(series,
+                ints).getValue());
+        changeSummary.undoChanges();
+
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, SDOUtil.getIntArray(series, ints)));
+        assertTrue(Arrays.equals(new double[] { 0.5 }, SDOUtil.getDoubleArray(series, doubles)));
+    }
+
+    public void testXMLRoundTrip() {
+        DataObject series = hc.getDataFactory().create(seriesType);
+        SDOUtil.setIntArray(series, ints, new int[] { 1, -2, 3 });
+        SDOUtil.setDoubleArray(series, doubles, new double[] { 0.25 });
+        String xml = hc.getXMLHelper().save(series, NAMESPACE, "series");
+        DataObject loaded = hc.getXMLHelper().load(xml).getRootObject();
+        assertTrue(loaded.getList(ints) instanceof PrimitiveEList);
+        assertTrue(Arrays.equals(new int[] { 1, -2, 3 }, SDOUtil.getIntArray(loaded, ints)));
+        assertTrue(hc.getEqualityHelper().equal(series, loaded));
+    }
+}
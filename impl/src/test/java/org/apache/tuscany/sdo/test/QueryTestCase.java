@@ -0,0 +1,144 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Queries of a tree of Parts, with and without key indexes
+ */
+public class QueryTestCase extends TestCase {
+    HelperContext hc;
+
+    DataObject root;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 10; ++i) {
+            DataObject part = PartTypeUtil.createPart(hc, i);
+            part.getList("tags").add("tag " + i);
+            parts.add(part);
+            for (int j = 1; j <= 3; ++j)
+                part.getList("parts").add(PartTypeUtil.createPart(hc, i * 10 + j));
+        }
+        root.set("alternate", parts.get(4));
+    }
+
+    List query(String query, DataObject dataObject) {
+        return SDOUtil.compileQuery(hc, query).list(dataObject);
+    }
+
+    static int[] ids(List dataObjects) {
+        int[] ids = new int[dataObjects.size()];
+        for (int i = 0; i < ids.length; ++i)
+            ids[i] = ((DataObject) dataObjects.get(i)).getInt("id");
+        return ids;
+    }
+
+    static void assertIds(int[] expected, List dataObjects) {
+        int[] ids = ids(dataObjects);
+        assertEquals(expected.length, ids.length);
+        for (int i = 0; i < ids.length; ++i)
+            assertEquals(expected[i], ids[i]);
+    }
+
+    public void testPaths() {
+        assertEquals(10, query("parts", root).size());
+        assertEquals(30, query("parts/parts", root).size());
+        assertEquals(40, query("//parts", root).size());
+        assertEquals(11, query("//parts/..", root).size());
+        assertIds(new int[] { 0, 1, 11, 12, 13, 2 }, query("//.[id < 3 or id > 10 and id < 14]", root));
+        assertIds(new int[] { 0 }, query("/", (DataObject) query("parts/parts", root).get(7)));
+        assertIds(new int[] { 21 }, query("parts[2]/parts[1]", root));
+        assertIds(new int[] { 10 }, query("parts[unknown = 1 or position() = 10]", root));
+        assertIds(new int[] { 5, 0 }, query("alternate | .", root));
+        assertEquals("tag 3", query("parts[3]/tags", root).get(0));
+        assertEquals(10, query("parts/@tags", root).size());
+        assertEquals(15, query("*", root).size());
+    }
+
+    public void testPredicates() {
+        assertIds(new int[] { 2, 4, 6, 8, 10 }, query("parts[active = true()]", root));
+        assertIds(new int[] { 1, 3, 5, 7, 9 }, query("parts[not(active = true())]", root));
+        assertIds(new int[] { 9, 10 }, query("parts[weight >= 1.125]", root));
+        assertIds(new int[] { 7 }, query("parts[tags = 'tag 7']", root));
+        assertIds(new int[] { 7 }, query("parts[name = \"part 7\"]", root));
+        assertIds(new int[] { 5 }, query("parts[parts/id = 53]", root));
+        assertIds(new int[] { 1, 10 }, query("parts[starts-with(name, 'part 1')]", root));
+        assertIds(new int[] { 10 }, query("parts[string-length(name) = 7][contains(tags, '1')]", root));
+        assertIds(new int[] { 3 }, query("parts[count(parts[id > 32]) = 1]", root));
+        assertIds(new int[] { 4 }, query("parts[number(string(id)) = 4]", root));
+        assertEquals(41, query("//.[instance-of('" + PartTypeUtil.NAMESPACE + "', 'Part')]", root).size());
+    }
+
+    public void testIndex() {
+        Type partType = root.getType();
+        String[] queries = { "parts[id = 7]", "parts[7 = id][active = true()]", "parts[name = 'part 3']", "parts[id = '7']",
+                "//parts[id = 42]", "parts[id = 7.5]" };
+        int[][] expected = { { 7 }, {}, { 3 }, { 7 }, { 42 }, {} };
+        for (int i = 0; i < queries.length; ++i)
+            assertIds(expected[i], query(queries[i], root));
+        SDOUtil.createIndex(root, partType.getProperty("parts"), partType.getProperty("id"));
+        SDOUtil.createIndex(root, partType.getProperty("parts"), partType.getProperty("name"));
+        for (int i = 0; i < queries.length; ++i)
+            assertIds(expected[i], query(queries[i], root));
+        root.getList("parts").remove(6);
+        assertIds(new int[] {}, query(queries[0], root));
+    }
+
+    public void testLazy() {
+        SDOHelper.Query query = SDOUtil.compileQuery(hc, "parts");
+        assertEquals("parts", query.toString());
+        Iterator parts = query.iterator(root);
+        assertEquals(1, ((DataObject) parts.next()).getInt("id"));
+        root.getList("parts").add(PartTypeUtil.createPart(hc, 11));
+        int count = 0;
+        while (parts.hasNext())
+            count += ((DataObject) parts.next()).getInt("id") == 11 ? 1 : 0;
+        assertEquals(1, count);
+    }
+
+    public void testSyntaxErrors() {
+        String[] queries = { "parts[", "parts]", "parts[id = 'x]", "parts[unknown(1)]", "parts[count()]", "//..",
+                "parts ! 1", "parts[instance-of('urn:unknown', 'Part')]" };
+        for (int i = 0; i < queries.length; ++i) {
+            try {
+                SDOUtil.compileQuery(hc, queries[i]);
+                fail(queries[i]);
+            } catch (IllegalArgumentException e) {
+                // invalid
+            }
+        }
+    }
+}
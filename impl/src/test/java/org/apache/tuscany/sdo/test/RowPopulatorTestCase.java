@@ -0,0 +1,135 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Property;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Bulk creation of Parts, and from rows of values
+ */
+public class RowPopulatorTestCase extends TestCase {
+    static final int ROWS = 1000;
+
+    static Type partType(HelperContext hc) {
+        PartTypeUtil.definePartType(hc);
+        return hc.getTypeHelper().getType(PartTypeUtil.NAMESPACE, "Part");
+    }
+
+    static Property[] properties(Type type) {
+        return new Property[] { type.getProperty("id"), type.getProperty("name"), type.getProperty("weight"),
+                type.getProperty("active") };
+    }
+
+    static Object[] row(int id) {
+        return new Object[] { new Integer(id), "part " + id, new Double(id / 8.0), Boolean.valueOf((id & 1) == 0) };
+    }
+
+    public void testCreateMany() {
+        Type type = partType(SDOUtil.createHelperContext());
+        DataObject[] parts = SDOUtil.createMany(type, 100);
+        assertEquals(100, parts.length);
+        for (int i = 0; i < parts.length; ++i) {
+            assertSame(type, parts[i].getType());
+            assertFalse(parts[i].isSet("id"));
+        }
+        assertNotSame(parts[0], parts[1]);
+        try {
+            SDOUtil.createMany(SDOUtil.createHelperContext().getTypeHelper().getType("commonj.sdo", "String"), 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // data Type
+        }
+    }
+
+    void populate(HelperContext hc) {
+        Type type = partType(hc);
+        SDOHelper.RowPopulator populator = SDOUtil.createRowPopulator(type, properties(type));
+        DataObject part = populator.create(row(42));
+        assertEquals(42, part.getInt("id"));
+        assertEquals("part 42", part.getString("name"));
+        assertEquals(42 / 8.0, part.getDouble("weight"), 0);
+        assertTrue(part.getBoolean("active"));
+        assertFalse(part.isSet("price"));
+
+        DataObject[] parts = populator.createMany(new Object[][] { row(1), row(2) });
+        assertEquals(2, parts[1].getInt("id"));
+        populator.populate(parts[0], row(3));
+        assertEquals("part 3", parts[0].getString("name"));
+        try {
+            populator.populate(parts[0], new Object[1]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // short row
+        }
+    }
+
+    public void testPopulate() {
+        populate(SDOUtil.createHelperContext());
+        Map options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.PACK_PRIMITIVE_PROPERTIES, Boolean.TRUE);
+        populate(SDOUtil.createHelperContext(options));
+        options = new HashMap();
+        options.put(SDOHelper.DynamicTypeOptions.OFF_HEAP_STORE, Boolean.TRUE);
+        populate(SDOUtil.createHelperContext(options));
+    }
+
+    public void testUnknownProperty() {
+        Type type = partType(SDOUtil.createHelperContext());
+        Type otherType = partType(SDOUtil.createHelperContext());
+        try {
+            SDOUtil.createRowPopulator(type, new Property[] { otherType.getProperty("id") });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Property of another Type
+        }
+    }
+
+    /**
+     * The populated Parts equal the Parts set one Property at a time
+     */
+    public void testCreateManyRows() {
+        HelperContext hc = SDOUtil.createHelperContext();
+        Type type = partType(hc);
+        Property[] properties = properties(type);
+        Object[][] rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; ++i)
+            rows[i] = row(i);
+
+        DataObject[] parts = SDOUtil.createRowPopulator(type, properties).createMany(rows);
+        assertEquals(ROWS, parts.length);
+        for (int i = 0; i < ROWS; ++i) {
+            DataObject part = hc.getDataFactory().create(PartTypeUtil.NAMESPACE, "Part");
+            for (int j = 0; j < properties.length; ++j)
+                part.set(properties[j], rows[i][j]);
+            assertTrue(hc.getEqualityHelper().equal(part, parts[i]));
+        }
+    }
+}
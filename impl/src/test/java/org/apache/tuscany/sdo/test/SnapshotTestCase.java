@@ -0,0 +1,247 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.impl.SnapshotDataObjectImpl;
+import org.apache.tuscany.sdo.util.SnapshotAdapter;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Snapshots of a tree of Parts, unchanged by the writes to the tree and sharing its unmodified subtrees
+ */
+public class SnapshotTestCase extends TestCase {
+    HelperContext hc;
+
+    DataObject root;
+
+    volatile boolean done;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 100; ++i) {
+            DataObject part = PartTypeUtil.createPart(hc, i);
+            part.getList("tags").add("tag " + i);
+            part.getList("parts").add(PartTypeUtil.createPart(hc, 1000 + i));
+            parts.add(part);
+        }
+        root.set("alternate", parts.get(9));
+    }
+
+    String save(DataObject dataObject) throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        StringWriter writer = new StringWriter();
+        hc.getXMLHelper().save(hc.getXMLHelper().createDocument(dataObject, PartTypeUtil.NAMESPACE, "part"),
+                writer, options);
+        return writer.toString();
+    }
+
+    static Object node(DataObject dataObject, String path) {
+        return ((SnapshotDataObjectImpl) dataObject.getDataObject(path)).eNode();
+    }
+
+    public void testSnapshot() throws Exception {
+        String xml = save(root);
+        DataObject snapshot = SDOUtil.snapshot(root);
+        assertEquals(xml, save(snapshot));
+
+        root.setString("parts.4/parts.0/name", "changed");
+        root.getDataObject("parts.7").getList("tags").add("new");
+        root.getList("parts").remove(99);
+        root.getList("parts").add(PartTypeUtil.createPart(hc, 101));
+        DataObject next = SDOUtil.snapshot(root);
+        assertEquals(xml, save(snapshot));
+        assertEquals(save(root), save(next));
+
+        assertEquals("part 1005", snapshot.getString("parts.4/parts.0/name"));
+        assertEquals("changed", next.getString("parts.4/parts.0/name"));
+        assertEquals(1, snapshot.getList("parts.7/tags").size());
+        assertEquals(2, next.getList("parts.7/tags").size());
+        assertEquals(100, snapshot.getInt("parts.99/id"));
+        assertEquals(101, next.getInt("parts.99/id"));
+
+        assertSame(node(snapshot, "parts.5"), node(next, "parts.5"));
+        assertNotSame(node(snapshot, "parts.4"), node(next, "parts.4"));
+        assertNotSame(node(snapshot, "parts.4/parts.0"), node(next, "parts.4/parts.0"));
+        assertNotSame(node(snapshot, "parts.7"), node(next, "parts.7"));
+    }
+
+    public void testChangedFeature() {
+        DataObject snapshot = SDOUtil.snapshot(root);
+        root.setString("parts.4/parts.0/name", "changed");
+        DataObject next = SDOUtil.snapshot(root);
+
+        // only the slots of the changed feature and of the containments up to the root are copied
+        SnapshotAdapter.Node part = (SnapshotAdapter.Node) node(next, "parts.4");
+        SnapshotAdapter.Node oldPart = (SnapshotAdapter.Node) node(snapshot, "parts.4");
+        int tags = ((EObject) root).eClass().getFeatureID((EStructuralFeature) root.getType().getProperty("tags"));
+        assertSame(oldPart.getValue(tags), part.getValue(tags));
+        int parts = ((EObject) root).eClass().getFeatureID((EStructuralFeature) root.getType().getProperty("parts"));
+        assertNotSame(oldPart.getValue(parts), part.getValue(parts));
+        assertSame(((Object[]) oldPart.getValue(parts))[0], node(snapshot, "parts.4/parts.0"));
+        assertSame(((Object[]) part.getValue(parts))[0], node(next, "parts.4/parts.0"));
+
+        // the indices of the children follow the changes of their list
+        root.getList("parts").remove(0);
+        root.getList("parts").add(0, PartTypeUtil.createPart(hc, 0));
+        ((EList) root.getList("parts")).move(10, 5);
+        root.setString("parts.10/name", "moved");
+        root.setString("parts.3/name", "shifted");
+        next = SDOUtil.snapshot(root);
+        assertEquals("moved", next.getString("parts.10/name"));
+        assertEquals("shifted", next.getString("parts.3/name"));
+        assertEquals("part 7", next.getString("parts.5/name"));
+        assertEquals(save(root), save(next));
+    }
+
+    public void testSequenced() {
+        String xsd = "<xsd:schema targetNamespace=\"http://www.example.com/snapshotText\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">"
+                + "<xsd:complexType name=\"Text\" mixed=\"true\"><xsd:sequence>"
+                + "<xsd:element name=\"b\" type=\"xsd:string\" minOccurs=\"0\" maxOccurs=\"unbounded\"/>"
+                + "</xsd:sequence></xsd:complexType></xsd:schema>";
+        hc.getXSDHelper().define(xsd);
+        DataObject text = hc.getDataFactory().create("http://www.example.com/snapshotText", "Text");
+        text.getSequence().addText("text");
+        try {
+            SDOUtil.snapshot(text);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // sequenced
+        }
+        assertTrue(((EObject) text).eAdapters().isEmpty());
+    }
+
+    public void testViews() {
+        DataObject snapshot = SDOUtil.snapshot(root);
+        DataObject part = snapshot.getDataObject("parts.4");
+        assertSame(part, snapshot.getList("parts").get(4));
+        assertSame(snapshot, part.getContainer());
+        assertSame(snapshot.getType().getProperty("parts"), part.getContainmentProperty());
+        assertSame(snapshot, part.getRootObject());
+        assertSame(snapshot.getList("parts").get(9), snapshot.get("alternate"));
+        assertEquals("part 42", snapshot.getString("parts[id=42]/name"));
+        assertTrue(SDOUtil.isFrozen(part));
+        assertNull(snapshot.getContainer());
+
+        DataObject other = PartTypeUtil.createPart(hc, -1);
+        root.getDataObject("parts.0").set("alternate", other);
+        assertSame(other, SDOUtil.snapshot(root).get("parts.0/alternate"));
+    }
+
+    public void testReadOnly() {
+        final DataObject snapshot = SDOUtil.snapshot(root);
+        Runnable[] modifications = { new Runnable() {
+            public void run() {
+                snapshot.setInt("id", 1);
+            }
+        }, new Runnable() {
+            public void run() {
+                snapshot.unset("name");
+            }
+        }, new Runnable() {
+            public void run() {
+                snapshot.getList("parts").remove(0);
+            }
+        }, new Runnable() {
+            public void run() {
+                snapshot.getList("parts.4/tags").add("new");
+            }
+        }, new Runnable() {
+            public void run() {
+                snapshot.createDataObject("parts");
+            }
+        }, new Runnable() {
+            public void run() {
+                snapshot.getDataObject("parts.4").delete();
+            }
+        } };
+        for (int i = 0; i < modifications.length; ++i) {
+            try {
+                modifications[i].run();
+                fail("modification " + i);
+            } catch (UnsupportedOperationException e) {
+                // snapshot
+            }
+        }
+        assertEquals(0, root.getInt("id"));
+        assertEquals(100, root.getList("parts").size());
+    }
+
+    public void testConcurrentReads() throws Exception {
+        SDOUtil.snapshot(root);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (!done) {
+                            DataObject snapshot = SDOUtil.snapshot(root);
+                            double weight = weight(snapshot);
+                            Thread.yield();
+                            assertEquals(weight, weight(snapshot), 0);
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        List parts = root.getList("parts");
+        for (int i = 0; i < 10000; ++i) {
+            DataObject part = (DataObject) parts.get(i % parts.size());
+            part.setDouble("weight", part.getDouble("weight") + 1);
+        }
+        done = true;
+        for (int i = 0; i < readers.length; ++i)
+            readers[i].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+        assertEquals(weight(root), weight(SDOUtil.snapshot(root)), 0);
+    }
+
+    static double weight(DataObject root) {
+        double weight = 0;
+        List parts = root.getList("parts");
+        for (int i = 0; i < parts.size(); ++i)
+            weight += ((DataObject) parts.get(i)).getDouble("weight");
+        return weight;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * Probing paths which may not resolve with tryGet
+ */
+public class TryGetTestCase extends TestCase {
+    HelperContext hc;
+
+    DataObject root;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        PartTypeUtil.definePartType(hc);
+        root = PartTypeUtil.createPart(hc, 0);
+        List parts = root.getList("parts");
+        for (int i = 1; i <= 10; ++i)
+            parts.add(PartTypeUtil.createPart(hc, i));
+    }
+
+    public void testTryGet() {
+        assertEquals("part 0", SDOUtil.tryGet(root, "name"));
+        assertNull(SDOUtil.tryGet(root, "price"));
+        assertEquals("part 3", SDOUtil.tryGet(root, "parts[3]/name"));
+        assertEquals("part 3", SDOUtil.tryGet(root, "parts.2/name"));
+        assertEquals("part 3", SDOUtil.tryGet(root, "parts.+2/name"));
+        assertEquals("part 7", SDOUtil.tryGet(root, "parts[id=7]/name"));
+        assertSame(root, SDOUtil.tryGet((DataObject) root.getList("parts").get(0), ".."));
+
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "unknown"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts[11]/name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts[0]"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts[x]"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts.x"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts./name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts.-/name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts.0000000002/name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "name.0"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts[id=42]/name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "alternate/name"));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, "parts[1]/unknown"));
+    }
+
+    public void testCompiledPath() {
+        SDOHelper.Path path = SDOUtil.compilePath("parts[id=5]/weight");
+        assertEquals("parts[id=5]/weight", path.toString());
+        assertEquals(new Double(5 / 8.0), SDOUtil.tryGet(root, path));
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet((DataObject) root.getList("parts").get(0), path));
+        root.getList("parts").remove(4);
+        assertSame(SDOUtil.ABSENT, SDOUtil.tryGet(root, path));
+    }
+
+    public void testExceptions() {
+        assertNull(root.get("unknown"));
+        try {
+            root.getInt("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Class 'Part' does not have a feature named 'unknown'", e.getMessage());
+        }
+        try {
+            root.set("parts[11]/name", "name");
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals("Index value should have been less than 10", e.getMessage());
+        }
+        try {
+            root.set("parts.x", null);
+            fail();
+        } catch (NumberFormatException e) {
+            // not an index
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.helper.HelperContextImpl;
+import org.apache.tuscany.sdo.helper.TypeRegistry;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Type;
+import commonj.sdo.helper.DataFactory;
+import commonj.sdo.helper.HelperContext;
+import commonj.sdo.helper.TypeHelper;
+
+/**
+ * Type lookups while other Types are defined
+ */
+public class TypeRegistryTestCase extends TestCase {
+    static final String URI = "http://www.example.com/registry";
+
+    static final int TYPES = 200;
+
+    static final int PROPERTIES = 20;
+
+    HelperContext hc;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+    }
+
+    DataObject modelType(int index) {
+        Type stringType = hc.getTypeHelper().getType("commonj.sdo", "String");
+        DataObject type = hc.getDataFactory().create("commonj.sdo", "Type");
+        type.set("uri", URI);
+        type.set("name", "Type" + index);
+        for (int i = 0; i < PROPERTIES; ++i) {
+            DataObject property = type.createDataObject("property");
+            property.set("name", "property" + i);
+            property.set("type", stringType);
+        }
+        return type;
+    }
+
+    public void testLookups() {
+        TypeHelper typeHelper = hc.getTypeHelper();
+        assertNull(typeHelper.getType(URI, "Type0"));
+        Type type = typeHelper.define(modelType(0));
+        assertSame(type, typeHelper.getType(URI, "Type0"));
+        assertSame(type, typeHelper.getType(URI, "Type0"));
+        assertNull(typeHelper.getType(URI, "Type1"));
+        assertNotNull(typeHelper.getType("commonj.sdo", "String"));
+
+        List types = hc.getXSDHelper().define(
+                "<schema xmlns='http://www.w3.org/2001/XMLSchema' targetNamespace='http://www.example.com/registry/xsd'>"
+                        + "<complexType name='Item'><sequence><element name='id' type='string'/></sequence></complexType>"
+                        + "</schema>");
+        assertFalse(types.isEmpty());
+        Type item = typeHelper.getType("http://www.example.com/registry/xsd", "Item");
+        assertNotNull(item);
+        assertNotNull(item.getProperty("id"));
+    }
+
+    public void testMisses() {
+        TypeHelper typeHelper = hc.getTypeHelper();
+        typeHelper.define(modelType(0));
+        assertNull(typeHelper.getType(URI, "Type1"));
+        assertNull(typeHelper.getType(URI, "Type1"));
+        typeHelper.define(modelType(1));
+        assertNotNull(typeHelper.getType(URI, "Type1"));
+
+        assertNull(typeHelper.getType(URI, "Created"));
+        Type created = SDOUtil.createType(hc, URI, "Created", false);
+        assertSame(created, typeHelper.getType(URI, "Created"));
+    }
+
+    /**
+     * Looks the Type up in another thread while the registry is locked
+     *
+     * @return whether the lookup returned within the timeout, without the lock
+     */
+    boolean lookupLocked(final String name, long timeout) throws InterruptedException {
+        TypeRegistry registry = ((HelperContextImpl) hc).getTypeRegistry();
+        Thread lookup = new Thread() {
+            public void run() {
+                hc.getTypeHelper().getType(URI, name);
+            }
+        };
+        boolean returned;
+        synchronized (registry) {
+            lookup.start();
+            lookup.join(timeout);
+            returned = !lookup.isAlive();
+        }
+        lookup.join();
+        return returned;
+    }
+
+    public void testCachedMiss() throws Exception {
+        TypeHelper typeHelper = hc.getTypeHelper();
+        typeHelper.define(modelType(0));
+        assertNull(typeHelper.getType(URI, "Type1"));
+        assertTrue("repeated miss not served from the cached Miss", lookupLocked("Type1", 10000));
+        typeHelper.define(modelType(2));
+        assertFalse("Miss not invalidated by the define", lookupLocked("Type1", 200));
+        assertTrue("Miss not cached again", lookupLocked("Type1", 10000));
+        typeHelper.define(modelType(1));
+        assertNotNull(typeHelper.getType(URI, "Type1"));
+    }
+
+    public void testCreate() {
+        DataFactory dataFactory = hc.getDataFactory();
+        TypeHelper typeHelper = hc.getTypeHelper();
+        Type type = typeHelper.define(modelType(0));
+        for (int i = 0; i < 3; ++i) {
+            assertSame(type, dataFactory.create(type).getType());
+            assertSame(type, dataFactory.create(URI, "Type0").getType());
+            assertNull(typeHelper.getType(URI, "Missing"));
+        }
+        Type defined = typeHelper.define(modelType(1));
+        assertSame(defined, dataFactory.create(URI, "Type1").getType());
+    }
+
+    public void testConcurrentLookups() throws Exception {
+        final Throwable[] failure = new Throwable[1];
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i] = new Thread() {
+                public void run() {
+                    try {
+                        TypeHelper typeHelper = hc.getTypeHelper();
+                        int found = 0;
+                        while (found < TYPES) {
+                            Type type = typeHelper.getType(URI, "Type" + found);
+                            if (type == null)
+                                Thread.yield();
+                            else {
+                                assertEquals(PROPERTIES, type.getProperties().size());
+                                ++found;
+                            }
+                            assertNotNull(typeHelper.getType("commonj.sdo", "String"));
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        for (int i = 0; i < TYPES; ++i)
+            hc.getTypeHelper().define(modelType(i));
+        for (int i = 0; i < readers.length; ++i)
+            readers[i].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.helper.HelperContextImpl;
+import org.apache.tuscany.sdo.util.resource.SDOXMLParserPool;
+import org.xml.sax.SAXException;
+
+import commonj.sdo.helper.HelperContext;
+
+public class XMLParserPoolTestCase extends TestCase {
+    static final String QUOTE = "<simple:stockQuote xmlns:simple=\"http://www.example.com/simple\"><symbol>fbnt</symbol></simple:stockQuote>";
+
+    HelperContext createHelperContext(Map options) throws IOException {
+        HelperContext hc = SDOUtil.createHelperContext(options);
+        URL url = getClass().getResource("/simple.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+        return hc;
+    }
+
+    public void testContextPool() throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL_SIZE, new Integer(1));
+        HelperContext hc = createHelperContext(options);
+        SDOXMLParserPool pool = (SDOXMLParserPool) ((HelperContextImpl) hc).getXMLParserPool();
+        for (int i = 0; i != 3; ++i)
+            assertEquals("fbnt", hc.getXMLHelper().load(QUOTE).getRootObject().getString("symbol"));
+        assertEquals(1, pool.getMissCount());
+        assertEquals(2, pool.getHitCount());
+        assertEquals(0, pool.getActiveCount());
+
+        HelperContext other = createHelperContext(null);
+        assertNotSame(pool, ((HelperContextImpl) other).getXMLParserPool());
+        other.getXMLHelper().load(QUOTE);
+        assertEquals(2, pool.getHitCount());
+    }
+
+    public void testIdleTimeout() throws Exception {
+        SDOXMLParserPool pool = new SDOXMLParserPool(4, 1, 0, null);
+        SAXParser parser = pool.get(null, null, false);
+        pool.release(parser, null, null, false);
+        Thread.sleep(20);
+        assertNotSame(parser, pool.get(null, null, false));
+        assertEquals(1, pool.getEvictionCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    public void testMaxActive() throws Exception {
+        final SDOXMLParserPool pool = new SDOXMLParserPool(4, 0, 1, null);
+        final SAXParser parser = pool.get(null, null, false);
+        Thread releaser = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+                pool.release(parser, null, null, false);
+            }
+        };
+        releaser.start();
+        assertSame(parser, pool.get(null, null, false));
+        releaser.join();
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getWaitTime() > 0);
+    }
+
+    public void testHostPool() throws IOException {
+        final int[] gets = new int[1];
+        SDOXMLParserPool hostPool = new SDOXMLParserPool() {
+            public SAXParser get(Map features, Map properties, boolean useLexicalHandler) throws ParserConfigurationException,
+                    SAXException {
+                ++gets[0];
+                return super.get(features, properties, useLexicalHandler);
+            }
+        };
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_LOAD_PARSER_POOL, hostPool);
+        HelperContext hc = createHelperContext(options);
+        hc.getXMLHelper().load(QUOTE);
+        assertEquals(1, gets[0]);
+
+        HelperContext other = createHelperContext(null);
+        ((HelperContextImpl) other).setXMLParserPool(hostPool);
+        other.getXMLHelper().load(QUOTE);
+        assertEquals(2, gets[0]);
+    }
+}
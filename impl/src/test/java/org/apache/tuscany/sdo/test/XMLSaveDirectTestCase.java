@@ -0,0 +1,189 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.api.XMLStreamHelper;
+import org.apache.tuscany.sdo.helper.HelperContextImpl;
+import org.apache.tuscany.sdo.util.resource.XMLNameTable;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.Type;
+import commonj.sdo.helper.HelperContext;
+import commonj.sdo.helper.XMLDocument;
+import commonj.sdo.helper.XMLHelper;
+
+public class XMLSaveDirectTestCase extends TestCase {
+    private static final String TEST_NAMESPACE = "http://www.example.com/simple";
+
+    private static final String OPEN_NAMESPACE = "http://www.example.com/open";
+
+    static final String INDENT = " ", MARGIN = " ", LINE_BREAK = "\n";
+
+    HelperContext hc;
+
+    XMLHelper xmlHelper;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        xmlHelper = hc.getXMLHelper();
+        URL url = getClass().getResource("/simple.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+    }
+
+    DataObject createQuote(int quotes) {
+        DataObject quote = hc.getDataFactory().create(TEST_NAMESPACE, "Quote");
+        quote.setString("symbol", "fbnt");
+        quote.setString("companyName", "FlyByNight & <Technology>");
+        quote.setBigDecimal("price", new BigDecimal("1000.0"));
+        quote.setBigDecimal("open1", new BigDecimal("1000.0"));
+        quote.setBigDecimal("high", new BigDecimal("1000.0"));
+        quote.setBigDecimal("low", new BigDecimal("1000.0"));
+        quote.setDouble("volume", 1000);
+        quote.setDouble("change1", 1000);
+        for (int i = 0; i < quotes; ++i)
+            quote.createDataObject("quotes").setBigDecimal("price", new BigDecimal(i));
+        return quote;
+    }
+
+    byte[] save(DataObject quote, Map options) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlHelper.save(xmlHelper.createDocument(quote, TEST_NAMESPACE, "stockQuote"), outputStream, options);
+        return outputStream.toByteArray();
+    }
+
+    public void testXMLHelperRoundTrip() throws IOException {
+        DataObject quote = createQuote(3);
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        XMLDocument document = xmlHelper.load(new ByteArrayInputStream(save(quote, options)));
+        assertEquals(TEST_NAMESPACE, document.getRootElementURI());
+        assertEquals("stockQuote", document.getRootElementName());
+        assertTrue(hc.getEqualityHelper().equal(quote, document.getRootObject()));
+    }
+
+    public void testXMLHelperFormatting() throws IOException {
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        options.put(SDOHelper.XMLOptions.XML_SAVE_INDENT, INDENT);
+        options.put(SDOHelper.XMLOptions.XML_SAVE_MARGIN, MARGIN);
+        options.put(SDOHelper.XMLOptions.XML_SAVE_LINE_BREAK, LINE_BREAK);
+        String xml = new String(save(createQuote(1), options), "UTF-8");
+        assertTrue(xml.startsWith(MARGIN + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + LINE_BREAK + MARGIN + '<'));
+        assertTrue(xml.indexOf(LINE_BREAK + MARGIN + INDENT + "<symbol>fbnt</symbol>" + LINE_BREAK) != -1);
+        assertTrue(xml.indexOf(LINE_BREAK + MARGIN + INDENT + INDENT + "<price>0</price>" + LINE_BREAK + MARGIN + INDENT + "</quotes>") != -1);
+    }
+
+    public void testXMLStreamHelperRoundTrip() throws Exception {
+        DataObject quote = createQuote(2);
+        XMLStreamHelper streamHelper = SDOUtil.createXMLStreamHelper(hc);
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        StringWriter writer = new StringWriter();
+        XMLStreamWriter streamWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+        streamHelper.save(xmlHelper.createDocument(quote, TEST_NAMESPACE, "stockQuote"), streamWriter, options);
+        streamWriter.flush();
+        String xml = writer.toString();
+        assertEquals(-1, xml.indexOf(LINE_BREAK)); // unformatted unless asked
+        assertTrue(hc.getEqualityHelper().equal(quote, xmlHelper.load(xml).getRootObject()));
+    }
+
+    public void testUTF8NameTable() throws IOException {
+        DataObject quote = createQuote(2);
+        quote.setString("companyName", "\u00e9t\u00e9 \u20ac \ud834\udd1e \"&\"");
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        byte[] bytes = save(quote, options);
+        String xml = new String(bytes, "UTF-8");
+        assertTrue(xml.indexOf("<companyName>\u00e9t\u00e9 \u20ac \ud834\udd1e \"&amp;\"</companyName>") != -1);
+        assertTrue(hc.getEqualityHelper().equal(quote, xmlHelper.load(new ByteArrayInputStream(bytes)).getRootObject()));
+
+        XMLNameTable nameTable = ((HelperContextImpl) hc).getXMLNameTable();
+        EStructuralFeature symbol = (EStructuralFeature) quote.getType().getProperty("symbol");
+        XMLNameTable.Name name = nameTable.getName(symbol);
+        assertSame(name, nameTable.getName(symbol));
+        assertEquals("<symbol", new String(name.startTag, "UTF-8"));
+        assertEquals("</symbol>", new String(name.endTag, "UTF-8"));
+        assertEquals(nameTable.getPrefix(TEST_NAMESPACE), nameTable.getPrefix(TEST_NAMESPACE));
+        assertEquals(" xsi:type=\"" + nameTable.getPrefix(TEST_NAMESPACE) + ":Quote\"", new String(nameTable.getTypeName(
+                (EClassifier) quote.getType()).attribute, "UTF-8"));
+    }
+
+    /**
+     * A DataObject of an anonymous Type held by a Property of another Type is written as the element declaring its
+     * Type, as the EMF XMLSave does, an anonymous Type having no QName for xsi:type
+     */
+    public void testAnonymousType() throws IOException {
+        URL url = getClass().getResource("/open.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+        Type holderType = SDOUtil.createType(hc, TEST_NAMESPACE + "/holder", "Holder", false);
+        SDOUtil.setContainment(SDOUtil.createProperty(holderType, "item", hc.getTypeHelper().getType("commonj.sdo",
+                "DataObject")), true);
+        DataObject holder = hc.getDataFactory().create(holderType);
+        DataObject company = hc.getDataFactory().create(hc.getXSDHelper().getGlobalProperty(OPEN_NAMESPACE, "company",
+                true).getType());
+        company.setString("name", "FlyByNightTechnology");
+        holder.set("item", company);
+
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        String[] xml = { new String(save(holder, null), "UTF-8"), new String(save(holder, options), "UTF-8") };
+        for (int i = 0; i < xml.length; ++i) {
+            assertEquals(xml[i], -1, xml[i].indexOf("_._type"));
+            assertEquals(xml[i], -1, xml[i].indexOf("<item"));
+            assertTrue(xml[i], xml[i].indexOf(":company>") != -1);
+            assertTrue(xml[i], xml[i].indexOf("<name>FlyByNightTechnology</name>") != -1);
+        }
+    }
+
+    /**
+     * The markup published by the first save is reused by the next ones, which write the same document
+     */
+    public void testRepeatedSaves() throws IOException {
+        DataObject quote = createQuote(20);
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        byte[] bytes = save(quote, options);
+        XMLNameTable nameTable = ((HelperContextImpl) hc).getXMLNameTable();
+        XMLNameTable.Name name = nameTable.getName((EStructuralFeature) quote.getType().getProperty("quotes"));
+        for (int i = 0; i < 3; ++i)
+            assertEquals(new String(bytes, "UTF-8"), new String(save(quote, options), "UTF-8"));
+        assertSame(name, nameTable.getName((EStructuralFeature) quote.getType().getProperty("quotes")));
+        assertTrue(hc.getEqualityHelper().equal(quote, xmlHelper.load(new ByteArrayInputStream(bytes)).getRootObject()));
+    }
+}
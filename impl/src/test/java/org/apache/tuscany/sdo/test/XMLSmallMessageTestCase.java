@@ -0,0 +1,140 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.helper.HelperContextImpl;
+import org.apache.tuscany.sdo.helper.XMLDocumentEngine;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+import commonj.sdo.helper.XMLHelper;
+
+/**
+ * XMLHelper on small (2-5 KB) messages, where the per-document setup used to dominate, through the pooled engines
+ */
+public class XMLSmallMessageTestCase extends TestCase {
+    private static final String TEST_NAMESPACE = "http://www.example.com/simple";
+
+    HelperContext hc;
+
+    XMLHelper xmlHelper;
+
+    byte[] message;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        hc = SDOUtil.createHelperContext();
+        xmlHelper = hc.getXMLHelper();
+        URL url = getClass().getResource("/simple.xsd");
+        hc.getXSDHelper().define(url.openStream(), url.toString());
+
+        DataObject quote = hc.getDataFactory().create(TEST_NAMESPACE, "Quote");
+        quote.setString("symbol", "fbnt");
+        quote.setString("companyName", "FlyByNightTechnology");
+        quote.setBigDecimal("price", new BigDecimal("1000.0"));
+        for (int i = 0; i < 15; ++i) {
+            DataObject child = quote.createDataObject("quotes");
+            child.setString("symbol", "s" + i);
+            child.setBigDecimal("price", new BigDecimal(i));
+            child.setDouble("volume", i);
+        }
+        message = save(quote, null);
+        assertTrue(message.length > 2000 && message.length < 5000);
+    }
+
+    byte[] save(DataObject quote, Map options) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlHelper.save(xmlHelper.createDocument(quote, TEST_NAMESPACE, "stockQuote"), outputStream, options);
+        return outputStream.toByteArray();
+    }
+
+    DataObject load() throws IOException {
+        return xmlHelper.load(new ByteArrayInputStream(message)).getRootObject();
+    }
+
+    public void testEngineReuse() throws IOException {
+        XMLDocumentEngine.Pool engines = ((HelperContextImpl) hc).getXMLDocumentEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        engines.release(engine);
+        DataObject quote = load();
+        assertSame(engine, engines.acquire());
+        engines.release(engine);
+
+        Map options = new HashMap();
+        options.put(SDOHelper.XMLOptions.XML_LOAD_UNKNOWN_PROPERTIES, Boolean.TRUE);
+        assertTrue(hc.getEqualityHelper().equal(quote, xmlHelper.load(new ByteArrayInputStream(message), null, options).getRootObject()));
+        assertEquals("the caller options are left untouched", 1, options.size());
+        assertEquals(new String(message, "UTF-8"), new String(save(quote, null), "UTF-8"));
+    }
+
+    public void testConcurrentLoads() throws Exception {
+        final DataObject expected = load();
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t != threads.length; ++t) {
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i != 50; ++i)
+                            if (!hc.getEqualityHelper().equal(expected, load()))
+                                throw new AssertionError("load " + i);
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t != threads.length; ++t)
+            threads[t].join();
+        if (failure[0] != null)
+            fail(failure[0].toString());
+    }
+
+    public void testRepeatedMessages() throws IOException {
+        XMLDocumentEngine.Pool engines = ((HelperContextImpl) hc).getXMLDocumentEngines();
+        XMLDocumentEngine engine = engines.acquire();
+        engines.release(engine);
+        Map direct = new HashMap();
+        direct.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+        String xml = new String(message, "UTF-8");
+        for (int i = 0; i != 20; ++i) {
+            DataObject quote = load();
+            assertEquals(xml, new String(save(quote, null), "UTF-8"));
+            assertTrue(hc.getEqualityHelper().equal(quote, xmlHelper.load(new ByteArrayInputStream(save(quote, direct)))
+                    .getRootObject()));
+        }
+        assertEquals("the options are left untouched", 1, direct.size());
+        assertSame(engine, engines.acquire());
+        engines.release(engine);
+    }
+}
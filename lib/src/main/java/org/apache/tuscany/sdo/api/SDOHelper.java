@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -302,6 +303,241 @@ public interface SDOHelper
    */
   public void removeChangeListener(DataObject dob, EventListener listener);
 
+  /**
+   * Gets the values of a many-valued numeric property as an int array, without boxing them if the implementation
+   * holds them in a primitive array.
+   * @param dataObject the DataObject
+   * @param property the many-valued property
+   * @return a copy of the values
+   */
+  public int[] getIntArray(DataObject dataObject, Property property);
+
+  /**
+   * Gets the values of a many-valued numeric property as a long array.
+   * @see #getIntArray(DataObject, Property)
+   */
+  public long[] getLongArray(DataObject dataObject, Property property);
+
+  /**
+   * Gets the values of a many-valued numeric property as a double array.
+   * @see #getIntArray(DataObject, Property)
+   */
+  public double[] getDoubleArray(DataObject dataObject, Property property);
+
+  /**
+   * Replaces the values of a many-valued int property by the ones of the array. The change is recorded by the
+   * ChangeSummary like any list change.
+   * @param dataObject the DataObject
+   * @param property the many-valued property
+   * @param values the new values
+   */
+  public void setIntArray(DataObject dataObject, Property property, int[] values);
+
+  /**
+   * Replaces the values of a many-valued long property by the ones of the array.
+   * @see #setIntArray(DataObject, Property, int[])
+   */
+  public void setLongArray(DataObject dataObject, Property property, long[] values);
+
+  /**
+   * Replaces the values of a many-valued double property by the ones of the array.
+   * @see #setIntArray(DataObject, Property, int[])
+   */
+  public void setDoubleArray(DataObject dataObject, Property property, double[] values);
+
+  /**
+   * Indexes the DataObjects of a many-valued containment property by the value of one of their properties, for
+   * lookup and for the path predicates [keyProperty=value] on the list. The index is maintained as the list and the
+   * keys of its DataObjects change, until removed.
+   * @param dataObject the DataObject containing the list
+   * @param listProperty the many-valued containment property
+   * @param keyProperty the single-valued data property of the DataObjects of the list
+   */
+  public void createIndex(DataObject dataObject, Property listProperty, Property keyProperty);
+
+  /**
+   * Removes the index of a many-valued containment property by keyProperty, if any.
+   * @see #createIndex(DataObject, Property, Property)
+   */
+  public void removeIndex(DataObject dataObject, Property listProperty, Property keyProperty);
+
+  /**
+   * Gets the first DataObject of a many-valued containment property whose keyProperty has the value, through the
+   * index of the list if any.
+   * @param dataObject the DataObject containing the list
+   * @param listProperty the many-valued containment property
+   * @param keyProperty the single-valued data property of the DataObjects of the list
+   * @param value the key value, or its String literal
+   * @return the DataObject, or null
+   */
+  public DataObject lookup(DataObject dataObject, Property listProperty, Property keyProperty, Object value);
+
+  /**
+   * The value returned by tryGet when the path doesn't resolve.
+   */
+  public static final Object ABSENT = new Object()
+  {
+    public String toString()
+    {
+      return "ABSENT";
+    }
+  };
+
+  /**
+   * A path of DataObject properties parsed once, to be probed repeatedly by tryGet.
+   */
+  public interface Path
+  {
+    /**
+     * @return the path as a String
+     */
+    public String toString();
+  }
+
+  /**
+   * Parses a path for tryGet.
+   * @param path the path, as for DataObject.get(String)
+   * @return the parsed path, which can be shared between threads
+   */
+  public Path compilePath(String path);
+
+  /**
+   * Gets the value of a path without throwing or creating an exception when it doesn't resolve, because a property
+   * doesn't exist, an index is out of range, a predicate doesn't match or an intermediate DataObject is null.
+   * @param dataObject the DataObject the path starts from
+   * @param path the parsed path
+   * @return the value, null included, or ABSENT if the path doesn't resolve
+   */
+  public Object tryGet(DataObject dataObject, Path path);
+
+  /**
+   * Gets the value of a path, or ABSENT if it doesn't resolve.
+   * @see #tryGet(DataObject, SDOHelper.Path)
+   */
+  public Object tryGet(DataObject dataObject, String path);
+
+  /**
+   * A query of DataObject graphs parsed once, to be evaluated repeatedly. The query is a subset of XPath 1.0:
+   * <ul>
+   * <li>location paths, absolute (/) or relative, of steps separated by / or // (descendants or self), a step being
+   * a property name (its namespace prefix, if any, is ignored), @name, *, . or ..</li>
+   * <li>unions of paths (|)</li>
+   * <li>predicates of steps ([...]): a number selects a position, starting at 1; other expressions are combined with
+   * and, or, and compared by =, !=, &lt;, &lt;=, &gt;, &gt;=, a node set comparing if one of its values compares</li>
+   * <li>string and number literals, and the functions count, position, not, true, false, contains, starts-with,
+   * string-length, string, number and instance-of('uri', 'name') of a Type</li>
+   * </ul>
+   * The nodes are the DataObjects and the values of the many-valued properties. A predicate comparing a key property
+   * with a literal is looked up in the index of the list, if created by {@link #createIndex(DataObject, Property, Property)}.
+   */
+  public interface Query
+  {
+    /**
+     * @return the nodes selected from the DataObject, computed as they are iterated
+     */
+    public Iterator iterator(DataObject dataObject);
+
+    /**
+     * @return the nodes selected from the DataObject
+     */
+    public List list(DataObject dataObject);
+
+    /**
+     * @return the query as a String
+     */
+    public String toString();
+  }
+
+  /**
+   * Parses a query, resolving the Types of its instance-of calls in the HelperContext.
+   * @param helperContext the context of the Types of the query
+   * @param query the query
+   * @return the parsed query, which can be shared between threads
+   * @throws IllegalArgumentException if the query isn't valid
+   */
+  public Query compileQuery(HelperContext helperContext, String query);
+
+  /**
+   * Makes the containment tree of a DataObject read-only, and safe to read concurrently without synchronization once
+   * published to the reading threads. The values cached lazily by the implementation are computed, the proxies are
+   * resolved, and the DataObject API of the DataObjects of the tree then throws UnsupportedOperationException on
+   * modifications, including through the lists it returns.
+   * The Types are assumed to be defined in the default HelperContext.
+   * @param dataObject the root of the tree to freeze
+   * @throws IllegalStateException if a ChangeSummary is logging the changes of the tree
+   */
+  public void freeze(DataObject dataObject);
+
+  /**
+   * Freezes the containment tree of a DataObject whose Types are defined in a HelperContext, computing the XML
+   * metadata of the Types as the scope sees it.
+   * @param scope the HelperContext of the Types of the tree
+   * @param dataObject the root of the tree to freeze
+   * @see #freeze(DataObject)
+   */
+  public void freeze(HelperContext scope, DataObject dataObject);
+
+  /**
+   * @return whether the DataObject is part of a frozen tree
+   * @see #freeze(DataObject)
+   */
+  public boolean isFrozen(DataObject dataObject);
+
+  /**
+   * Returns an immutable view of the current state of the containment tree of a DataObject, in constant time once the
+   * tree is tracked. The writes to the live tree then replace the state of the modified DataObjects and of their
+   * containers up to the root, the unmodified subtrees being shared with the snapshots, so the readers of a snapshot
+   * and the writer of the tree never block each other. The first snapshot of a tree tracks it, and must be taken by the
+   * thread writing it; the changes are tracked through the notifications of the DataObjects. The DataObjects of a
+   * snapshot are frozen (see isFrozen); their open content isn't part of it.
+   * @param dataObject the root of the tree
+   * @return the root of the snapshot
+   * @throws UnsupportedOperationException if a DataObject of the tree is sequenced
+   */
+  public DataObject snapshot(DataObject dataObject);
+
+  /**
+   * Creates DataObjects of a Type, its factory being resolved once.
+   * @param type the Type of the DataObjects
+   * @param count the number of DataObjects
+   * @return the new DataObjects
+   * @throws IllegalArgumentException if the Type isn't a concrete DataObject Type
+   */
+  public DataObject[] createMany(Type type, int count);
+
+  /**
+   * Creates and fills DataObjects of a Type from rows of values, such as the rows of a JDBC result, the factory of the
+   * Type and its Properties being resolved once.
+   */
+  public interface RowPopulator
+  {
+    /**
+     * @return a new DataObject, its Properties set to the values of the row
+     */
+    public DataObject create(Object[] values);
+
+    /**
+     * @return a new DataObject for each row
+     */
+    public DataObject[] createMany(Object[][] rows);
+
+    /**
+     * Sets the Properties of the DataObject to the values of the row, in order.
+     * @throws IllegalArgumentException if the row doesn't have a value per Property
+     */
+    public void populate(DataObject dataObject, Object[] values);
+  }
+
+  /**
+   * Creates a RowPopulator of the Properties of a Type.
+   * @param type the Type of the DataObjects
+   * @param properties the Properties set by each row, in order
+   * @return the RowPopulator, which can be shared between threads
+   * @throws IllegalArgumentException if the Type isn't a concrete DataObject Type, or a Property isn't one of its
+   *           Properties
+   */
+  public RowPopulator createRowPopulator(Type type, Property[] properties);
+
   /**
    * This interface provides methods which can be used to programatically create SDO Types and Properties.
    * It provides a lower level and more efficient API then the DataObject-based one of TypeHelper.define().
@@ -447,6 +683,85 @@ public interface SDOHelper
      * The default is Boolean.FALSE unless set to Boolean.TRUE explicitly. 
      */
     final String XML_LOAD_UNKNOWN_PROPERTIES = "load unknown properties";
+
+    /**
+     * Boolean to save DataObjects straight to the target XMLStreamWriter or OutputStream instead of building the
+     * document through the EMF XMLSave buffer (XMLHelper) or a DataObject XMLStreamReader (XMLStreamHelper).
+     * The default is Boolean.FALSE unless set to Boolean.TRUE explicitly. The direct save uses the generated stream
+     * handler of the Type of the root DataObject if any (see the -generateStreamHandlers generator option), and is the
+     * one to use for a frozen root (see freeze), which the EMF save would move into a document root.
+     */
+    final String XML_SAVE_DIRECT = "save direct";
+
+    /**
+     * HelperContext option: the parser pool the XMLHelper loads of the context share instead of the JVM wide one.
+     * The value is implementation specific (an EMF XMLParserPool for the Tuscany implementation); absence/null is the
+     * default (a pool of the context configured by the XML_LOAD_PARSER_POOL_* options).
+     */
+    final String XML_LOAD_PARSER_POOL = "parser pool";
+
+    /**
+     * HelperContext option: Integer number of idle parsers kept per feature/property set, absence/null is the default (16)
+     */
+    final String XML_LOAD_PARSER_POOL_SIZE = "parser pool size";
+
+    /**
+     * HelperContext option: Number of milliseconds after which an idle parser is evicted, absence/null/0 is the default (never)
+     */
+    final String XML_LOAD_PARSER_POOL_IDLE_TIMEOUT = "parser pool idle timeout";
+
+    /**
+     * HelperContext option: Integer number of parsers in use beyond which a load waits for a parser to be released,
+     * absence/null/0 is the default (no limit)
+     */
+    final String XML_LOAD_PARSER_POOL_MAX_ACTIVE = "parser pool max active";
+
+    /**
+     * HelperContext option: Map of SAX feature URI String to Boolean set on every parser of the pool
+     */
+    final String XML_LOAD_PARSER_FEATURES = "parser features";
+  }
+
+  /**
+   * This interface contains the HelperContext options of the DataObjects created for the dynamic Types defined in the context.
+   */
+  public interface DynamicTypeOptions
+  {
+    /**
+     * HelperContext option: Boolean to generate, when a Type is defined, an implementation class holding the
+     * single-valued data properties of the Type in Java fields instead of boxed in a generic settings array.
+     * Needs ASM on the classpath. Absence/null/Boolean.FALSE is the default.
+     */
+    final String GENERATE_IMPLEMENTATION_CLASSES = "generate implementation classes";
+
+    /**
+     * HelperContext option: Boolean to pack the single-valued primitive properties of the DataObjects in a long and a
+     * double array laid out per Type, without boxing nor generating classes. GENERATE_IMPLEMENTATION_CLASSES takes
+     * precedence. Absence/null/Boolean.FALSE is the default.
+     */
+    final String PACK_PRIMITIVE_PROPERTIES = "pack primitive properties";
+
+    /**
+     * HelperContext option: Boolean to keep the property values of the DataObjects out of the Java heap, in direct
+     * ByteBuffer slabs of a store shared by the Types of the HelperContext, or the store of the implementation to
+     * use. Takes precedence over the other options. Absence/null/Boolean.FALSE is the default.
+     */
+    final String OFF_HEAP_STORE = "off-heap store";
+
+    /**
+     * HelperContext option: Boolean to keep the property values of the DataObjects of each Type in per property
+     * columns of a store shared by the Types of the HelperContext, or the store of the implementation to use, so that
+     * the DataObjects of a Type can be scanned column by column. Absence/null/Boolean.FALSE is the default.
+     */
+    final String COLUMN_STORE = "column store";
+
+    /**
+     * HelperContext option: Boolean to hold the values of the many-valued int, long and double properties of the
+     * DataObjects in primitive arrays instead of lists of boxes. Applies to the DynamicDataObjectImpl DataObjects, and
+     * the ones of the GENERATE_IMPLEMENTATION_CLASSES and PACK_PRIMITIVE_PROPERTIES options. Absence/null/Boolean.FALSE
+     * is the default.
+     */
+    final String PRIMITIVE_LISTS = "primitive lists";
   }
 
 }
@@ -440,6 +440,162 @@ public final class SDOUtil
   public static void removeChangeListener(DataObject dob, EventListener l) {
     defaultSDOHelper.removeChangeListener(dob, l);
   }
-  
-  
+
+  /**
+   * @see SDOHelper#getIntArray(DataObject, Property)
+   */
+  public static int[] getIntArray(DataObject dataObject, Property property)
+  {
+    return defaultSDOHelper.getIntArray(dataObject, property);
+  }
+
+  /**
+   * @see SDOHelper#getLongArray(DataObject, Property)
+   */
+  public static long[] getLongArray(DataObject dataObject, Property property)
+  {
+    return defaultSDOHelper.getLongArray(dataObject, property);
+  }
+
+  /**
+   * @see SDOHelper#getDoubleArray(DataObject, Property)
+   */
+  public static double[] getDoubleArray(DataObject dataObject, Property property)
+  {
+    return defaultSDOHelper.getDoubleArray(dataObject, property);
+  }
+
+  /**
+   * @see SDOHelper#setIntArray(DataObject, Property, int[])
+   */
+  public static void setIntArray(DataObject dataObject, Property property, int[] values)
+  {
+    defaultSDOHelper.setIntArray(dataObject, property, values);
+  }
+
+  /**
+   * @see SDOHelper#setLongArray(DataObject, Property, long[])
+   */
+  public static void setLongArray(DataObject dataObject, Property property, long[] values)
+  {
+    defaultSDOHelper.setLongArray(dataObject, property, values);
+  }
+
+  /**
+   * @see SDOHelper#setDoubleArray(DataObject, Property, double[])
+   */
+  public static void setDoubleArray(DataObject dataObject, Property property, double[] values)
+  {
+    defaultSDOHelper.setDoubleArray(dataObject, property, values);
+  }
+
+  /**
+   * @see SDOHelper#createIndex(DataObject, Property, Property)
+   */
+  public static void createIndex(DataObject dataObject, Property listProperty, Property keyProperty)
+  {
+    defaultSDOHelper.createIndex(dataObject, listProperty, keyProperty);
+  }
+
+  /**
+   * @see SDOHelper#removeIndex(DataObject, Property, Property)
+   */
+  public static void removeIndex(DataObject dataObject, Property listProperty, Property keyProperty)
+  {
+    defaultSDOHelper.removeIndex(dataObject, listProperty, keyProperty);
+  }
+
+  /**
+   * @see SDOHelper#lookup(DataObject, Property, Property, Object)
+   */
+  public static DataObject lookup(DataObject dataObject, Property listProperty, Property keyProperty, Object value)
+  {
+    return defaultSDOHelper.lookup(dataObject, listProperty, keyProperty, value);
+  }
+
+  /**
+   * The value returned by tryGet when the path doesn't resolve.
+   * @see SDOHelper#ABSENT
+   */
+  public static final Object ABSENT = SDOHelper.ABSENT;
+
+  /**
+   * @see SDOHelper#compilePath(String)
+   */
+  public static SDOHelper.Path compilePath(String path)
+  {
+    return defaultSDOHelper.compilePath(path);
+  }
+
+  /**
+   * @see SDOHelper#tryGet(DataObject, SDOHelper.Path)
+   */
+  public static Object tryGet(DataObject dataObject, SDOHelper.Path path)
+  {
+    return defaultSDOHelper.tryGet(dataObject, path);
+  }
+
+  /**
+   * @see SDOHelper#tryGet(DataObject, String)
+   */
+  public static Object tryGet(DataObject dataObject, String path)
+  {
+    return defaultSDOHelper.tryGet(dataObject, path);
+  }
+
+  /**
+   * @see SDOHelper#compileQuery(HelperContext, String)
+   */
+  public static SDOHelper.Query compileQuery(HelperContext helperContext, String query)
+  {
+    return defaultSDOHelper.compileQuery(helperContext, query);
+  }
+
+  /**
+   * @see SDOHelper#freeze(DataObject)
+   */
+  public static void freeze(DataObject dataObject)
+  {
+    defaultSDOHelper.freeze(dataObject);
+  }
+
+  /**
+   * @see SDOHelper#freeze(HelperContext, DataObject)
+   */
+  public static void freeze(HelperContext scope, DataObject dataObject)
+  {
+    defaultSDOHelper.freeze(scope, dataObject);
+  }
+
+  /**
+   * @see SDOHelper#isFrozen(DataObject)
+   */
+  public static boolean isFrozen(DataObject dataObject)
+  {
+    return defaultSDOHelper.isFrozen(dataObject);
+  }
+
+  /**
+   * @see SDOHelper#snapshot(DataObject)
+   */
+  public static DataObject snapshot(DataObject dataObject)
+  {
+    return defaultSDOHelper.snapshot(dataObject);
+  }
+
+  /**
+   * @see SDOHelper#createMany(Type, int)
+   */
+  public static DataObject[] createMany(Type type, int count)
+  {
+    return defaultSDOHelper.createMany(type, count);
+  }
+
+  /**
+   * @see SDOHelper#createRowPopulator(Type, Property[])
+   */
+  public static SDOHelper.RowPopulator createRowPopulator(Type type, Property[] properties)
+  {
+    return defaultSDOHelper.createRowPopulator(type, properties);
+  }
 }
@@ -22,6 +22,7 @@ package org.apache.tuscany.sdo.spi;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.NotSerializableException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -181,7 +182,7 @@ public abstract class HelperProviderBase extends HelperProvider
         objectOutput.writeUTF(SDOUtil.getXPath(dataObject));
         objectOutput.writeObject(dataObject.getRootObject());
       }
-      else
+      else if (!writeRootObject(dataObject, objectOutput))
       {
         // Root object
         objectOutput.writeByte(1);
@@ -202,9 +203,24 @@ public abstract class HelperProviderBase extends HelperProvider
       }
     }
 
+    /**
+     * Writes a root DataObject in a form other than XML, starting with a kind byte greater than 1
+     * 
+     * @return false, having written nothing, if the DataObject is to be written as XML
+     */
+    protected boolean writeRootObject(DataObject dataObject, ObjectOutput objectOutput) throws IOException
+    {
+      return false;
+    }
+
     protected DataObject readDataObject(ObjectInput objectInput) throws IOException, ClassNotFoundException
     {
-      boolean isRoot = objectInput.readByte() == 1;
+      byte kind = objectInput.readByte();
+      if (kind > 1)
+      {
+        return readRootObject(kind, objectInput);
+      }
+      boolean isRoot = kind == 1;
       if (isRoot)
       {
         // Root object: [rootXML] = length + XML contents
@@ -241,6 +257,14 @@ public abstract class HelperProviderBase extends HelperProvider
         return xpath.equals("") ? root : root.getDataObject(xpath);
       }
     }
+
+    /**
+     * Reads a root DataObject written by {@link #writeRootObject}, after its kind byte
+     */
+    protected DataObject readRootObject(byte kind, ObjectInput objectInput) throws IOException, ClassNotFoundException
+    {
+      throw new InvalidObjectException("Unknown DataObject kind " + kind);
+    }
   }
   
 }
@@ -29,6 +29,7 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -172,5 +173,119 @@ public abstract class SDOHelperBase implements SDOHelper, SDOHelper.MetaDataBuil
     xsdToSdoMappings.put("unsignedLong","Integer");
     xsdToSdoMappings.put("unsignedShort","Int");
   }
-  
+
+  public int[] getIntArray(DataObject dataObject, Property property)
+  {
+    List list = dataObject.getList(property);
+    int[] values = new int[list.size()];
+    for (int index = 0; index < values.length; ++index)
+      values[index] = ((Number)list.get(index)).intValue();
+    return values;
+  }
+
+  public long[] getLongArray(DataObject dataObject, Property property)
+  {
+    List list = dataObject.getList(property);
+    long[] values = new long[list.size()];
+    for (int index = 0; index < values.length; ++index)
+      values[index] = ((Number)list.get(index)).longValue();
+    return values;
+  }
+
+  public double[] getDoubleArray(DataObject dataObject, Property property)
+  {
+    List list = dataObject.getList(property);
+    double[] values = new double[list.size()];
+    for (int index = 0; index < values.length; ++index)
+      values[index] = ((Number)list.get(index)).doubleValue();
+    return values;
+  }
+
+  public void setIntArray(DataObject dataObject, Property property, int[] values)
+  {
+    List list = new ArrayList(values.length);
+    for (int index = 0; index < values.length; ++index)
+      list.add(new Integer(values[index]));
+    dataObject.setList(property, list);
+  }
+
+  public void setLongArray(DataObject dataObject, Property property, long[] values)
+  {
+    List list = new ArrayList(values.length);
+    for (int index = 0; index < values.length; ++index)
+      list.add(new Long(values[index]));
+    dataObject.setList(property, list);
+  }
+
+  public void setDoubleArray(DataObject dataObject, Property property, double[] values)
+  {
+    List list = new ArrayList(values.length);
+    for (int index = 0; index < values.length; ++index)
+      list.add(new Double(values[index]));
+    dataObject.setList(property, list);
+  }
+
+  /**
+   * Does nothing, lookup scanning the list
+   */
+  public void createIndex(DataObject dataObject, Property listProperty, Property keyProperty)
+  {
+  }
+
+  public void removeIndex(DataObject dataObject, Property listProperty, Property keyProperty)
+  {
+  }
+
+  public DataObject lookup(DataObject dataObject, Property listProperty, Property keyProperty, Object value)
+  {
+    List list = dataObject.getList(listProperty);
+    for (int index = 0, size = list.size(); index < size; ++index)
+    {
+      DataObject element = (DataObject)list.get(index);
+      Property property = element.getInstanceProperty(keyProperty.getName());
+      if (property == null)
+        continue;
+      Object key = element.get(property);
+      if (key != null && (value.equals(key)
+          || value instanceof String && value.equals(convertToString(property.getType(), key))))
+        return element;
+    }
+    return null;
+  }
+
+  public Path compilePath(final String path)
+  {
+    return new Path()
+    {
+      public String toString()
+      {
+        return path;
+      }
+    };
+  }
+
+  public Object tryGet(DataObject dataObject, Path path)
+  {
+    return tryGet(dataObject, path.toString());
+  }
+
+  /**
+   * Catches the exceptions of DataObject.get(String), the implementations not throwing returning null for the paths
+   * which don't resolve
+   */
+  public Object tryGet(DataObject dataObject, String path)
+  {
+    try
+    {
+      return dataObject.get(path);
+    }
+    catch (IllegalArgumentException e)
+    {
+      return ABSENT;
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      return ABSENT;
+    }
+  }
 }
@@ -0,0 +1,209 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The digests of the schema files generated into a target directory, kept in a state file of the directory. A digest
+ * covers the content of the schema file and of the schemas it includes, imports or redefines, so that a schema file is
+ * only generated again when it, one of its dependencies, or its generator options changed.
+ * 
+ * @version $Rev$ $Date$
+ */
+class GenerationState {
+    static final String FILE_NAME = ".sdo-gen.state";
+
+    static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+
+    private final File file;
+
+    private final Properties digests = new Properties();
+
+    private boolean modified;
+
+    GenerationState(File directory) {
+        file = new File(directory, FILE_NAME);
+        if (file.isFile()) {
+            try {
+                InputStream input = new FileInputStream(file);
+                try {
+                    digests.load(input);
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                digests.clear(); // generates everything again
+            }
+        }
+    }
+
+    /**
+     * @param key
+     *            the schema file and its generator options
+     * @return whether the schema file was generated from the same content
+     */
+    boolean isCurrent(String key, String digest) {
+        return digest.equals(digests.getProperty(key));
+    }
+
+    /**
+     * Records the digest of a schema file once generated
+     */
+    void update(String key, String digest) {
+        digests.setProperty(key, digest);
+        modified = true;
+    }
+
+    void store() throws IOException {
+        if (!modified) {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        OutputStream output = new FileOutputStream(file);
+        try {
+            digests.store(output, "Digests of the generated SDO schema files");
+        } finally {
+            output.close();
+        }
+        modified = false;
+    }
+
+    /**
+     * @return the schema file followed by the local schema files it includes, imports or redefines, directly or not,
+     *         and by the locations of the other schemas, as Strings
+     */
+    static List getSchemaClosure(File schemaFile) throws IOException {
+        List closure = new ArrayList();
+        closure.add(schemaFile.getCanonicalFile());
+        SAXParser parser;
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            parser = factory.newSAXParser();
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException(e);
+        } catch (SAXException e) {
+            throw new RuntimeException(e);
+        }
+        for (int index = 0; index < closure.size(); ++index) {
+            Object schema = closure.get(index);
+            if (!(schema instanceof File)) {
+                continue;
+            }
+            final List locations = new ArrayList();
+            try {
+                parser.parse((File)schema, new DefaultHandler() {
+                    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                        if (XSD_NAMESPACE.equals(uri)
+                            && ("include".equals(localName) || "import".equals(localName) || "redefine".equals(localName))) {
+                            String location = attributes.getValue("schemaLocation");
+                            if (location != null) {
+                                locations.add(location);
+                            }
+                        }
+                    }
+                });
+            } catch (SAXException e) {
+                throw new IOException(schema + ": " + e.getMessage());
+            }
+            URL base = ((File)schema).toURI().toURL();
+            for (int i = 0, size = locations.size(); i < size; ++i) {
+                String location = (String)locations.get(i);
+                URL url = new URL(base, location);
+                Object dependency = url.toString();
+                if ("file".equals(url.getProtocol())) {
+                    try {
+                        File dependencyFile = new File(new URI(url.toString()));
+                        if (dependencyFile.isFile()) {
+                            dependency = dependencyFile.getCanonicalFile();
+                        }
+                    } catch (URISyntaxException e) {
+                        // digested as a location
+                    } catch (IllegalArgumentException e) {
+                        // digested as a location
+                    }
+                }
+                if (!closure.contains(dependency)) {
+                    closure.add(dependency);
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * @return the hexadecimal SHA-1 digest of the content of the local schema files of the closure, and of the other
+     *         locations
+     */
+    static String digest(List closure) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] buffer = new byte[8192];
+        for (int index = 0, size = closure.size(); index < size; ++index) {
+            Object schema = closure.get(index);
+            if (schema instanceof File) {
+                InputStream input = new FileInputStream((File)schema);
+                try {
+                    for (int count; (count = input.read(buffer)) != -1;) {
+                        digest.update(buffer, 0, count);
+                    }
+                } finally {
+                    input.close();
+                }
+            } else {
+                digest.update(((String)schema).getBytes("UTF-8"));
+            }
+            digest.update((byte)0);
+        }
+        StringBuffer result = new StringBuffer();
+        byte[] bytes = digest.digest();
+        for (int index = 0; index < bytes.length; ++index) {
+            result.append(Character.forDigit((bytes[index] >> 4) & 0xF, 16));
+            result.append(Character.forDigit(bytes[index] & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
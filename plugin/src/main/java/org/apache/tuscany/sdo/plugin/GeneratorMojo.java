@@ -22,6 +22,7 @@ package org.apache.tuscany.sdo.plugin;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -113,6 +114,32 @@ public class GeneratorMojo extends AbstractMojo {
      */
     private Boolean noUnsettable;
 
+    /**
+     * Packs the boolean values and isSet flags of the generated classes into
+     * int bit fields.
+     * 
+     * @parameter
+     */
+    private Boolean packedFlags;
+
+    /**
+     * Generates an XML stream handler, read and written by the XML helpers,
+     * for each generated class whose properties are all plain elements and
+     * attributes.
+     * 
+     * @parameter
+     */
+    private Boolean generateStreamHandlers;
+
+    /**
+     * Generates a binary externalizer, used by the Java serialization of the
+     * root DataObjects, for each generated class of a Type neither open nor
+     * sequenced.
+     * 
+     * @parameter
+     */
+    private Boolean generateExternalizers;
+
     /**
      * Generate a fast XML parser/loader for instances of the model.
      * 
@@ -190,6 +217,15 @@ public class GeneratorMojo extends AbstractMojo {
                 if (null == sf.isNoUnsettable()) {
                     sf.setNoUnsettable(noUnsettable);
                 }
+                if (null == sf.isPackedFlags()) {
+                    sf.setPackedFlags(packedFlags);
+                }
+                if (null == sf.isGenerateStreamHandlers()) {
+                    sf.setGenerateStreamHandlers(generateStreamHandlers);
+                }
+                if (null == sf.isGenerateExternalizers()) {
+                    sf.setGenerateExternalizers(generateExternalizers);
+                }
                 if (null == sf.isGenerateLoader()) {
                     sf.setGenerateLoader(generateLoader);
                 }
@@ -227,6 +263,9 @@ public class GeneratorMojo extends AbstractMojo {
                     schemaFiles[i].setNoInterfaces(noInterfaces);
                     schemaFiles[i].setNoNotification(noNotification);
                     schemaFiles[i].setNoUnsettable(noUnsettable);
+                    schemaFiles[i].setPackedFlags(packedFlags);
+                    schemaFiles[i].setGenerateStreamHandlers(generateStreamHandlers);
+                    schemaFiles[i].setGenerateExternalizers(generateExternalizers);
                     schemaFiles[i].setPrefix(prefix);
                     schemaFiles[i].setTargetDirectory(targetDirectory);
                     schemaFiles[i].setSchemaNamespace(schemaNamespace);
@@ -243,56 +282,60 @@ public class GeneratorMojo extends AbstractMojo {
                 schemaFiles[0].setNoInterfaces(noInterfaces);
                 schemaFiles[0].setNoNotification(noNotification);
                 schemaFiles[0].setNoUnsettable(noUnsettable);
+                schemaFiles[0].setPackedFlags(packedFlags);
+                schemaFiles[0].setGenerateStreamHandlers(generateStreamHandlers);
+                schemaFiles[0].setGenerateExternalizers(generateExternalizers);
                 schemaFiles[0].setPrefix(prefix);
                 schemaFiles[0].setTargetDirectory(targetDirectory);
                 schemaFiles[0].setSchemaNamespace(schemaNamespace);
             }
         }
 
-        for (int i = 0; i < schemaFiles.length; i++) {
-            File file = schemaFiles[i].getFileName();
-            File marker = new File(schemaFiles[i].getTargetDirectory(), ".gen#" + file.getName());
-            if (file.lastModified() > marker.lastModified()) {
-                getLog().info("Generating SDO interfaces from " + file);
-
-                int genOptions = 0;
-
-                if (schemaFiles[i].isNoInterfaces() != null && schemaFiles[i].isNoInterfaces().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_NO_INTERFACES;
+        // The schema files are generated again when their content, the content of the schemas they include or import,
+        // their generator options or the plugin changed since the last generation into the target directory
+        String version = ((MojoDescriptor)mojos.get(0)).getPluginDescriptor().getVersion();
+        Map states = new HashMap();
+        try {
+            for (int i = 0; i < schemaFiles.length; i++) {
+                File file = schemaFiles[i].getFileName();
+                File directory = new File(schemaFiles[i].getTargetDirectory());
+                GenerationState state = (GenerationState)states.get(directory);
+                if (state == null) {
+                    state = new GenerationState(directory);
+                    states.put(directory, state);
                 }
-                if (schemaFiles[i].isNoContainment() != null && schemaFiles[i].isNoContainment().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_NO_CONTAINMENT;
+                int genOptions = getGenOptions(schemaFiles[i]);
+                String key = file.getAbsolutePath() + '|' + schemaFiles[i].getSchemaNamespace() + '|'
+                    + schemaFiles[i].getJavaPackage() + '|' + schemaFiles[i].getPrefix() + '|' + genOptions + '|'
+                    + version;
+                String digest;
+                try {
+                    digest = GenerationState.digest(GenerationState.getSchemaClosure(file));
+                } catch (IOException e) {
+                    throw new MojoExecutionException(e.getMessage() + "'" + file.getAbsolutePath() + "'", e);
                 }
-                if (schemaFiles[i].isNoNotification() != null && schemaFiles[i].isNoNotification().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_NO_NOTIFICATION;
+                if (state.isCurrent(key, digest)) {
+                    getLog().info("SDO interfaces from " + file + " are up to date");
+                    continue;
                 }
-                if (schemaFiles[i].isGenerateLoader() != null && schemaFiles[i].isGenerateLoader().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_GENERATE_LOADER;
-                }
-                if (schemaFiles[i].isNoUnsettable() != null && schemaFiles[i].isNoUnsettable().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_NO_UNSETTABLE;
-                }
-                if (schemaFiles[i].isGenerateSwitch() != null && schemaFiles[i].isGenerateSwitch().booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_GENERATE_SWITCH;
-                }
-                if (schemaFiles[i].isInterfaceDataObject() != null && schemaFiles[i].isInterfaceDataObject()
-                    .booleanValue()) {
-                    genOptions |= JavaGenerator.OPTION_INTERFACE_DO;
-                }
-
+                getLog().info("Generating SDO interfaces from " + file);
                 XSD2JavaGenerator.generateFromXMLSchema(file.toString(),
                                                         schemaFiles[i].getSchemaNamespace(),
                                                         schemaFiles[i].getTargetDirectory(),
                                                         schemaFiles[i].getJavaPackage(),
                                                         schemaFiles[i].getPrefix(),
                                                         genOptions);
+                state.update(key, digest);
             }
-            try {
-                marker.createNewFile();
-            } catch (IOException e) {
-                throw new MojoExecutionException(e.getMessage() + "'" + marker.getAbsolutePath() + "'", e);
+        } finally {
+            for (Iterator i = states.values().iterator(); i.hasNext();) {
+                GenerationState state = (GenerationState)i.next();
+                try {
+                    state.store();
+                } catch (IOException e) {
+                    getLog().warn("Can't store the SDO generation state: " + e.getMessage());
+                }
             }
-            marker.setLastModified(System.currentTimeMillis());
         }
 
         targetDirectory = targetDirectory.replace('/', File.separatorChar);
@@ -314,6 +357,43 @@ public class GeneratorMojo extends AbstractMojo {
         }
     }
 
+    private static int getGenOptions(SchemaFileOption schemaFile) {
+        int genOptions = 0;
+
+        if (schemaFile.isNoInterfaces() != null && schemaFile.isNoInterfaces().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_NO_INTERFACES;
+        }
+        if (schemaFile.isNoContainment() != null && schemaFile.isNoContainment().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_NO_CONTAINMENT;
+        }
+        if (schemaFile.isNoNotification() != null && schemaFile.isNoNotification().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_NO_NOTIFICATION;
+        }
+        if (schemaFile.isGenerateLoader() != null && schemaFile.isGenerateLoader().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_GENERATE_LOADER;
+        }
+        if (schemaFile.isNoUnsettable() != null && schemaFile.isNoUnsettable().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_NO_UNSETTABLE;
+        }
+        if (schemaFile.isPackedFlags() != null && schemaFile.isPackedFlags().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_PACKED_FLAGS;
+        }
+        if (schemaFile.isGenerateStreamHandlers() != null && schemaFile.isGenerateStreamHandlers().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_GENERATE_STREAM_HANDLERS;
+        }
+        if (schemaFile.isGenerateExternalizers() != null && schemaFile.isGenerateExternalizers().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_GENERATE_EXTERNALIZERS;
+        }
+        if (schemaFile.isGenerateSwitch() != null && schemaFile.isGenerateSwitch().booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_GENERATE_SWITCH;
+        }
+        if (schemaFile.isInterfaceDataObject() != null && schemaFile.isInterfaceDataObject()
+            .booleanValue()) {
+            genOptions |= JavaGenerator.OPTION_INTERFACE_DO;
+        }
+        return genOptions;
+    }
+
     private static final FileFilter FILTER = new FileFilter() {
         public boolean accept(File pathname) {
             return (pathname.isFile() || !pathname.isHidden());
@@ -79,6 +79,27 @@ public class SchemaFileOption {
      */
     private Boolean noUnsettable;
 
+    /**
+     * Packs the boolean values and isSet flags of the generated classes into int bit fields.
+     * 
+     * @parameter
+     */
+    private Boolean packedFlags;
+
+    /**
+     * Generates an XML stream handler for each generated class whose properties are all plain elements and attributes.
+     * 
+     * @parameter
+     */
+    private Boolean generateStreamHandlers;
+
+    /**
+     * Generates a binary externalizer for each generated class of a Type neither open nor sequenced.
+     * 
+     * @parameter
+     */
+    private Boolean generateExternalizers;
+
     /**
      * Generate a fast XML parser/loader for instances of the model.
      * 
@@ -165,6 +186,30 @@ public class SchemaFileOption {
         this.noUnsettable = noUnsettable;
     }
 
+    public Boolean isPackedFlags() {
+        return packedFlags;
+    }
+
+    public void setPackedFlags(Boolean packedFlags) {
+        this.packedFlags = packedFlags;
+    }
+
+    public Boolean isGenerateStreamHandlers() {
+        return generateStreamHandlers;
+    }
+
+    public void setGenerateStreamHandlers(Boolean generateStreamHandlers) {
+        this.generateStreamHandlers = generateStreamHandlers;
+    }
+
+    public Boolean isGenerateExternalizers() {
+        return generateExternalizers;
+    }
+
+    public void setGenerateExternalizers(Boolean generateExternalizers) {
+        this.generateExternalizers = generateExternalizers;
+    }
+
     public String getPrefix() {
         return prefix;
     }
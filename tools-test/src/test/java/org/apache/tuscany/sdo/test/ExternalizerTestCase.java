@@ -0,0 +1,144 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.util.resource.TypeExternalizer;
+import org.eclipse.emf.ecore.EClass;
+
+import com.example.externalizers.Address;
+import com.example.externalizers.ExternalizersFactory;
+import com.example.externalizers.GiftItem;
+import com.example.externalizers.Item;
+import com.example.externalizers.Order;
+import com.example.externalizers.util.OrderExternalizer;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of classes generated with the -generateExternalizers option, serialized through their externalizers
+ */
+public class ExternalizerTestCase extends TestCase
+{
+  static final String NAMESPACE = "http://www.example.com/externalizers";
+
+  HelperContext hc;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    hc = SDOUtil.createHelperContext();
+    ExternalizersFactory.INSTANCE.register(hc);
+  }
+
+  DataObject createOrder()
+  {
+    Order order = (Order)hc.getDataFactory().create(NAMESPACE, "Order");
+    order.setId(Long.MIN_VALUE);
+    order.setUrgent(true);
+    ((DataObject)order).setString("created", "2008-02-29");
+    order.setCustomer("customer");
+    order.setQuantity(-3);
+    order.setWeight(Double.NaN);
+    order.setTotal(new BigDecimal("12.50"));
+    Address address = (Address)((DataObject)order).createDataObject("shipTo");
+    address.setStreet("street");
+    address.setCity(null);
+    Address previous = (Address)((DataObject)address).createDataObject("previous");
+    previous.setStreet("previous street");
+    previous.setCity("city");
+    for (int i = 0; i < 3; ++i)
+    {
+      Item item = (Item)((DataObject)order).createDataObject("items", NAMESPACE, i == 1 ? "GiftItem" : "Item");
+      item.setSku("sku " + i);
+      item.setPrice(i / 4f);
+      if (item instanceof GiftItem)
+      {
+        ((GiftItem)item).setMessage("message");
+      }
+    }
+    StringBuffer note = new StringBuffer();
+    for (int i = 0; i < 0x10000; ++i)
+    {
+      note.append((char)('a' + i % 26));
+    }
+    order.getNotes().add("first");
+    order.getNotes().add(note.toString());
+    DataObject extension = ((DataObject)order).createDataObject("extension");
+    extension.setString("name", "extension");
+    return (DataObject)order;
+  }
+
+  public void testExternalizers()
+  {
+    DataObject order = createOrder();
+    assertTrue(TypeExternalizer.getExternalizer((EClass)order.getType()) instanceof OrderExternalizer);
+    assertNotNull(TypeExternalizer.getExternalizer((EClass)order.getType().getProperty("items").getType()));
+    assertNull(TypeExternalizer.getExternalizer((EClass)order.getType().getProperty("extension").getType()));
+  }
+
+  public void testSerialize() throws Exception
+  {
+    DataObject order = createOrder();
+    DataObject loaded = (DataObject)deserialize(serialize(order));
+    assertTrue(loaded instanceof Order);
+    assertTrue(hc.getEqualityHelper().equal(order, loaded));
+    assertTrue(loaded.getDataObject("items.1") instanceof GiftItem);
+    assertTrue(loaded.isSet("shipTo/city"));
+    assertNull(loaded.get("shipTo/city"));
+    assertEquals("extension", loaded.getString("extension/name"));
+    assertSame(loaded, loaded.getDataObject("extension").getContainer());
+
+    DataObject item = (DataObject)deserialize(serialize(order.getDataObject("items.2")));
+    assertEquals("sku 2", item.getString("sku"));
+    assertTrue(item.getContainer() instanceof Order);
+  }
+
+  byte[] serialize(Object object) throws Exception
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream output = SDOUtil.createObjectOutputStream(bytes, hc);
+    output.writeObject(object);
+    output.close();
+    return bytes.toByteArray();
+  }
+
+  Object deserialize(byte[] bytes) throws Exception
+  {
+    ObjectInputStream input = SDOUtil.createObjectInputStream(new ByteArrayInputStream(bytes), hc);
+    try
+    {
+      return input.readObject();
+    }
+    finally
+    {
+      input.close();
+    }
+  }
+}
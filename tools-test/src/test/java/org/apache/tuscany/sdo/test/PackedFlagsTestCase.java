@@ -0,0 +1,99 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.impl.DataObjectBase;
+
+import com.example.flags.FlagsFactory;
+import com.example.packedFlags.PackedFlagsFactory;
+
+import commonj.sdo.DataObject;
+
+/**
+ * Classes generated with and without the -packedFlags option
+ */
+public class PackedFlagsTestCase extends TestCase
+{
+  public void testIsSet()
+  {
+    checkIsSet((DataObject)FlagsFactory.INSTANCE.createOptions());
+    checkIsSet((DataObject)PackedFlagsFactory.INSTANCE.createOptions());
+  }
+
+  void checkIsSet(DataObject options)
+  {
+    assertFalse(options.isSet("enabled"));
+    assertFalse(options.getBoolean("enabled"));
+    options.setBoolean("enabled", false);
+    assertTrue(options.isSet("enabled"));
+    options.setBoolean("visible", true);
+    assertTrue(options.getBoolean("visible"));
+    assertFalse(options.getBoolean("enabled"));
+    assertFalse(options.isSet("editable"));
+    options.setInt("count", 0);
+    assertTrue(options.isSet("count"));
+    assertFalse(options.isSet("size"));
+    options.unset("visible");
+    assertFalse(options.isSet("visible"));
+    assertFalse(options.getBoolean("visible"));
+    assertTrue(options.isSet("enabled"));
+    options.unset("count");
+    assertFalse(options.isSet("count"));
+  }
+
+  public void testFootprint()
+  {
+    Class unpacked = FlagsFactory.INSTANCE.createOptions().getClass();
+    Class packed = PackedFlagsFactory.INSTANCE.createOptions().getClass();
+    assertTrue(fieldBytes(packed) < fieldBytes(unpacked));
+  }
+
+  /**
+   * @return the bytes of the instance fields declared by the generated classes, not counting the alignment
+   */
+  static int fieldBytes(Class implementation)
+  {
+    int bytes = 0;
+    for (Class c = implementation; c != DataObjectBase.class; c = c.getSuperclass())
+    {
+      Field[] fields = c.getDeclaredFields();
+      for (int i = 0; i < fields.length; ++i)
+      {
+        if (Modifier.isStatic(fields[i].getModifiers()))
+          continue;
+        Class type = fields[i].getType();
+        if (type == boolean.class || type == byte.class)
+          bytes += 1;
+        else if (type == char.class || type == short.class)
+          bytes += 2;
+        else if (type == long.class || type == double.class)
+          bytes += 8;
+        else
+          bytes += 4;
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.tuscany.sdo.test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import junit.framework.TestCase;
+
+import org.apache.tuscany.sdo.api.SDOHelper;
+import org.apache.tuscany.sdo.api.SDOUtil;
+import org.apache.tuscany.sdo.api.XMLStreamHelper;
+import org.apache.tuscany.sdo.util.resource.TypeStreamDeserializer;
+import org.apache.tuscany.sdo.util.resource.TypeStreamHandler;
+import org.eclipse.emf.ecore.EClass;
+
+import com.example.streamHandlers.Address;
+import com.example.streamHandlers.Order;
+import com.example.streamHandlers.OrderLine;
+import com.example.streamHandlers.StreamHandlersFactory;
+import com.example.streamHandlers.util.OrderStreamHandler;
+
+import commonj.sdo.DataObject;
+import commonj.sdo.helper.HelperContext;
+
+/**
+ * DataObjects of classes generated with the -generateStreamHandlers option, written and read through their handlers
+ */
+public class StreamHandlerTestCase extends TestCase
+{
+  static final String NAMESPACE = "http://www.example.com/streamHandlers";
+
+  HelperContext hc;
+
+  protected void setUp() throws Exception
+  {
+    super.setUp();
+    hc = SDOUtil.createHelperContext();
+    StreamHandlersFactory.INSTANCE.register(hc);
+  }
+
+  DataObject createOrder()
+  {
+    Order order = (Order)hc.getDataFactory().create(NAMESPACE, "Order");
+    order.setId(42);
+    order.setCode("A<&>\"");
+    order.setUrgent(true);
+    ((DataObject)order).setString("created", "2008-02-29");
+    order.setCustomer("customer");
+    order.setQuantity(-3);
+    order.setTotal(new BigDecimal("12.50"));
+    Address address = (Address)((DataObject)order).createDataObject("shipTo");
+    address.setStreet("street");
+    for (int i = 0; i < 3; ++i)
+    {
+      OrderLine line = (OrderLine)((DataObject)order).createDataObject("lines");
+      line.setSku("sku " + i);
+      line.setQuantity(Long.MAX_VALUE - i);
+      line.setPrice(i == 0 ? Double.POSITIVE_INFINITY : i / 4.0);
+    }
+    order.getNotes().add("first");
+    order.getNotes().add("second");
+    DataObject extension = ((DataObject)order).createDataObject("extension");
+    extension.setString("name", "extension");
+    return (DataObject)order;
+  }
+
+  public void testHandlers()
+  {
+    DataObject order = createOrder();
+    assertTrue(TypeStreamHandler.getHandler((EClass)order.getType()) instanceof OrderStreamHandler);
+    assertNotNull(TypeStreamHandler.getHandler((EClass)order.getType().getProperty("lines").getType()));
+    assertNull(TypeStreamHandler.getHandler((EClass)order.getType().getProperty("extension").getType()));
+  }
+
+  public void testWrite() throws Exception
+  {
+    DataObject order = createOrder();
+    Map options = new HashMap();
+    options.put(SDOHelper.XMLOptions.XML_SAVE_DIRECT, Boolean.TRUE);
+    String xml = hc.getXMLHelper().save(hc.getXMLHelper().createDocument(order, NAMESPACE, "order"), options);
+    String reference = hc.getXMLHelper().save(order, NAMESPACE, "order");
+
+    DataObject loaded = hc.getXMLHelper().load(xml).getRootObject();
+    assertTrue(hc.getEqualityHelper().equal(order, loaded));
+    assertTrue(hc.getEqualityHelper().equal(hc.getXMLHelper().load(reference).getRootObject(), loaded));
+    assertTrue(xml.indexOf("price>INF</price>") != -1);
+  }
+
+  public void testRead() throws Exception
+  {
+    DataObject order = createOrder();
+    String xml = hc.getXMLHelper().save(order, NAMESPACE, "order");
+    DataObject loaded = SDOUtil.createXMLStreamHelper(hc).loadObject(reader(xml));
+    assertTrue(loaded instanceof Order);
+    assertTrue(hc.getEqualityHelper().equal(order, loaded));
+    assertEquals("2008-02-29", loaded.getString("created"));
+    assertEquals("extension", loaded.getString("extension/name"));
+    assertSame(loaded, loaded.getDataObject("extension").getContainer());
+
+  }
+
+  public void testFallback() throws Exception
+  {
+    XMLStreamHelper streamHelper = SDOUtil.createXMLStreamHelper(hc);
+    String xml = "<sh:order xmlns:sh=\"" + NAMESPACE + "\"><customer>customer</customer><unknown>value</unknown></sh:order>";
+    try
+    {
+      streamHelper.loadObject(reader(xml));
+      fail();
+    }
+    catch (TypeStreamDeserializer.UnknownContentException e)
+    {
+      fail(); // the EMF loader reports it
+    }
+    catch (Exception e)
+    {
+      // not a Property of Order
+    }
+
+    // the handlers don't read the load options
+    Map options = new HashMap();
+    options.put(SDOHelper.XMLOptions.XML_LOAD_UNKNOWN_PROPERTIES, Boolean.TRUE);
+    DataObject loaded = streamHelper.loadObject(reader(xml), options);
+    assertEquals("customer", loaded.getString("customer"));
+
+    // customer is unqualified
+    try
+    {
+      loaded = streamHelper.loadObject(reader("<sh:order xmlns:sh=\"" + NAMESPACE
+          + "\"><sh:customer>customer</sh:customer></sh:order>"));
+      assertFalse(loaded.isSet("customer"));
+    }
+    catch (TypeStreamDeserializer.UnknownContentException e)
+    {
+      fail();
+    }
+    catch (Exception e)
+    {
+      // not a Property of Order
+    }
+  }
+
+  static XMLStreamReader reader(String xml) throws XMLStreamException
+  {
+    XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+    reader.nextTag();
+    return reader;
+  }
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 import org.apache.tuscany.sdo.generate.adapter.SDOGenModelGeneratorAdapterFactory;
+import org.apache.tuscany.sdo.generate.util.SDOGenUtil;
 import org.apache.tuscany.sdo.helper.HelperContextImpl;
 import org.apache.tuscany.sdo.impl.SDOPackageImpl;
 import org.apache.tuscany.sdo.model.ModelFactory;
@@ -39,6 +40,7 @@ import org.apache.tuscany.sdo.model.internal.InternalFactory;
 import org.apache.tuscany.sdo.util.DataObjectUtil;
 import org.eclipse.emf.codegen.ecore.generator.Generator;
 import org.eclipse.emf.codegen.ecore.generator.GeneratorAdapterFactory;
+import org.eclipse.emf.codegen.ecore.genmodel.GenAnnotation;
 import org.eclipse.emf.codegen.ecore.genmodel.GenClass;
 import org.eclipse.emf.codegen.ecore.genmodel.GenDelegationKind;
 import org.eclipse.emf.codegen.ecore.genmodel.GenModel;
@@ -78,6 +80,9 @@ import commonj.sdo.helper.XSDHelper;
  *     [ -noContainment ]
  *     [ -noNotification ]
  *     [ -noUnsettable ]
+ *     [ -packedFlags ]
+ *     [ -generateStreamHandlers ]
+ *     [ -generateExternalizers ]
  *     
  *   Not supported (future options):
  *   
@@ -125,6 +130,25 @@ import commonj.sdo.helper.XSDHelper;
  *         implementation to choose to provide this behavior or not. With this option, all generated properties
  *         will not record their unset state. The generated isSet() methods simply returns whether the current
  *         value is equal to the property's "default value".
+ *     -packedFlags
+ *         Packs the values of the boolean properties, and the flags recording whether the unsettable properties
+ *         have been set, as bits of int fields shared by all the properties of a class hierarchy, instead of
+ *         generating one boolean field per flag. This reduces the memory footprint of each DataObject, at the
+ *         cost of a mask operation in the accessors.
+ *     -generateStreamHandlers
+ *         Generates, in the "util" package of each interface whose properties are all plain elements and attributes
+ *         (no sequence, wildcard, substitution group, non-containment reference or ChangeSummary), a
+ *         <interface>StreamHandler class reading and writing its DataObjects on StAX streams through the generated
+ *         accessors. XMLStreamHelper.loadObject reads the elements of such Types through the handlers, unless
+ *         given load options or content they don't know, which the EMF loader reads instead; XMLHelper.load
+ *         always uses the EMF loader. XMLStreamHelper and XMLHelper save the DataObjects of such Types through the
+ *         handlers when given the XML_SAVE_DIRECT option.
+ *     -generateExternalizers
+ *         Generates, in the "util" package of each interface of a Type neither open nor sequenced, without
+ *         non-containment reference or ChangeSummary, a <interface>Externalizer class writing and reading its
+ *         DataObjects in a compact binary form through the generated accessors. Java serialization of the root
+ *         DataObjects of such Types uses it instead of XML, checking the hash of their properties generated in
+ *         the class; the contained DataObjects of other Types are still written as XML.
  *         
  *   Following are planned but not supported yet:
  *   
@@ -175,6 +199,9 @@ public abstract class JavaGenerator
   public static int OPTION_GENERATE_SWITCH=0x100;
   public static int OPTION_INTERFACE_DO=0x400;
   public static int OPTION_NO_GENERATE=0x800;
+  public static int OPTION_PACKED_FLAGS=0x1000;
+  public static int OPTION_GENERATE_STREAM_HANDLERS=0x2000;
+  public static int OPTION_GENERATE_EXTERNALIZERS=0x4000;
   
   static 
   {
@@ -276,6 +303,18 @@ public abstract class JavaGenerator
     {
       genOptions |= OPTION_NO_UNSETTABLE;
     }
+    else if (args[index].equalsIgnoreCase("-packedFlags"))
+    {
+      genOptions |= OPTION_PACKED_FLAGS;
+    }
+    else if (args[index].equalsIgnoreCase("-generateStreamHandlers"))
+    {
+      genOptions |= OPTION_GENERATE_STREAM_HANDLERS;
+    }
+    else if (args[index].equalsIgnoreCase("-generateExternalizers"))
+    {
+      genOptions |= OPTION_GENERATE_EXTERNALIZERS;
+    }
     else if (args[index].equalsIgnoreCase("-noEMF"))
     {
       System.out.println("Warning: -noEMF is deprecated. It is the default now.");
@@ -605,6 +644,26 @@ public abstract class JavaGenerator
       genModel.setSuppressUnsettable(true);
     }
     
+    if ((genOptions & OPTION_PACKED_FLAGS) != 0)
+    {
+      genModel.setBooleanFlagsField("eFlags");
+      genModel.setBooleanFlagsReservedBits(-1);
+    }
+    
+    if ((genOptions & OPTION_GENERATE_STREAM_HANDLERS) != 0)
+    {
+      GenAnnotation genAnnotation = GenModelFactory.eINSTANCE.createGenAnnotation();
+      genAnnotation.setSource(SDOGenUtil.STREAM_HANDLERS_ANNOTATION_SOURCE);
+      genModel.getGenAnnotations().add(genAnnotation);
+    }
+    
+    if ((genOptions & OPTION_GENERATE_EXTERNALIZERS) != 0)
+    {
+      GenAnnotation genAnnotation = GenModelFactory.eINSTANCE.createGenAnnotation();
+      genAnnotation.setSource(SDOGenUtil.EXTERNALIZERS_ANNOTATION_SOURCE);
+      genModel.getGenAnnotations().add(genAnnotation);
+    }
+    
     //if ((genOptions & OPTION_USE_EMF_PATTERNS) == 0)
     {
       genModel.setRootExtendsClass("org.apache.tuscany.sdo.impl.DataObjectBase");
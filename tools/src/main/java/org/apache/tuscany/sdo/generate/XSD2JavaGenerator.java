@@ -278,6 +278,9 @@ public class XSD2JavaGenerator extends JavaGenerator
     System.out.println("  [ -noContainment ]");
     System.out.println("  [ -noNotification ]");
     System.out.println("  [ -noUnsettable ]");
+    System.out.println("  [ -packedFlags ]");
+    System.out.println("  [ -generateStreamHandlers ]");
+    System.out.println("  [ -generateExternalizers ]");
     /* Future Option: System.out.println("  [ -sparsePattern | -storePattern ]"); */
     /* Future Option: System.out.println("  [ -arrayAccessors ]"); */
     /* Future Option: System.out.println("  [ -generateLoader ]"); */
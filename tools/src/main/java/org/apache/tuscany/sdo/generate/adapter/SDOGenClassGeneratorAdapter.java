@@ -19,8 +19,13 @@
  */
 package org.apache.tuscany.sdo.generate.adapter;
 
+import org.apache.tuscany.sdo.generate.util.SDOGenUtil;
+import org.apache.tuscany.sdo.util.resource.TypeExternalizer;
+import org.apache.tuscany.sdo.util.resource.TypeStreamHandler;
 import org.eclipse.emf.codegen.ecore.generator.GeneratorAdapterFactory;
+import org.eclipse.emf.codegen.ecore.genmodel.GenClass;
 import org.eclipse.emf.codegen.ecore.genmodel.generator.GenClassGeneratorAdapter;
+import org.eclipse.emf.common.util.Diagnostic;
 import org.eclipse.emf.common.util.Monitor;
 
 public class SDOGenClassGeneratorAdapter extends GenClassGeneratorAdapter {
@@ -32,18 +37,60 @@ public class SDOGenClassGeneratorAdapter extends GenClassGeneratorAdapter {
 		
 	private static JETEmitterDescriptor[] jetEmitterDescriptors; 
     
+	private static int STREAM_HANDLER_ID;
+    
+	private static int EXTERNALIZER_ID;
+    
 	protected JETEmitterDescriptor[] getJETEmitterDescriptors()
 	{
 	  if (jetEmitterDescriptors == null)
 	  {
 	      JETEmitterDescriptor[] base = super.getJETEmitterDescriptors();
-	      jetEmitterDescriptors = new JETEmitterDescriptor[base.length];
+	      jetEmitterDescriptors = new JETEmitterDescriptor[base.length + 2];
 	      System.arraycopy(base, 0, jetEmitterDescriptors, 0, base.length);
 	      jetEmitterDescriptors[CLASS_ID] = new JETEmitterDescriptor("model/SDOClass.javajet", "org.apache.tuscany.sdo.generate.templates.model.SDOClass");
+	      STREAM_HANDLER_ID = base.length;
+	      jetEmitterDescriptors[STREAM_HANDLER_ID] = new JETEmitterDescriptor("model/SDOStreamHandler.javajet", "org.apache.tuscany.sdo.generate.templates.model.SDOStreamHandler");
+	      EXTERNALIZER_ID = base.length + 1;
+	      jetEmitterDescriptors[EXTERNALIZER_ID] = new JETEmitterDescriptor("model/SDOExternalizer.javajet", "org.apache.tuscany.sdo.generate.templates.model.SDOExternalizer");
 	  }
 	    return jetEmitterDescriptors;
 	}
 
+	/**
+	 * Also generates the stream handler of the class, named after its interface as TypeStreamHandler looks it up,
+	 * with the -generateStreamHandlers option, and its externalizer, as TypeExternalizer looks it up, with the
+	 * -generateExternalizers option
+	 */
+	protected Diagnostic generateModel(Object object, Monitor monitor)
+	{
+	  Diagnostic diagnostic = super.generateModel(object, monitor);
+	  GenClass genClass = (GenClass)object;
+	  if (SDOGenUtil.isGenerateStreamHandlers(genClass.getGenModel()) && SDOGenUtil.isStreamHandled(genClass))
+	  {
+	      generateUtil(genClass, TypeStreamHandler.CLASS_NAME_SUFFIX, STREAM_HANDLER_ID, monitor);
+	  }
+	  if (SDOGenUtil.isGenerateExternalizers(genClass.getGenModel()) && SDOGenUtil.isExternalized(genClass))
+	  {
+	      generateUtil(genClass, TypeExternalizer.CLASS_NAME_SUFFIX, EXTERNALIZER_ID, monitor);
+	  }
+	  return diagnostic;
+	}
+
+	/**
+	 * Generates the class of the "util" package named after the interface of the GenClass and the suffix
+	 */
+	protected void generateUtil(GenClass genClass, String suffix, int id, Monitor monitor)
+	{
+	  String qualifiedName = genClass.getQualifiedInterfaceName();
+	  int index = qualifiedName.lastIndexOf('.');
+	  String packageName = index == -1 ? "util" : qualifiedName.substring(0, index) + ".util";
+	  String className = qualifiedName.substring(index + 1) + suffix;
+	  generateJava(genClass.getGenModel().getModelDirectory(), packageName, className,
+	      getJETEmitter(getJETEmitterDescriptors(), id), new Object[] { new Object[] { genClass, packageName, className } },
+	      createMonitor(monitor, 1));
+	}
+
         protected void ensureProjectExists(String workspacePath, Object object,
                                            Object projectType, boolean force, Monitor monitor) 
         {
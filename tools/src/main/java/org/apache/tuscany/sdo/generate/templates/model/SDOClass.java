@@ -214,7 +214,7 @@ public class SDOClass
   protected final String TEXT_194 = NL + "\tpublic void set";
   protected final String TEXT_195 = "(";
   protected final String TEXT_196 = "[] new";
-  protected final String TEXT_197 = ")" + NL + "\t{" + NL + "\t\t((";
+  protected final String TEXT_197 = ")" + NL + "\t{" + NL + "\t\tcheckNotFrozen();" + NL + "\t\t((";
   protected final String TEXT_198 = ")";
   protected final String TEXT_199 = "()).setData(new";
   protected final String TEXT_200 = ".length, new";
@@ -225,7 +225,7 @@ public class SDOClass
   protected final String TEXT_205 = " element);" + NL;
   protected final String TEXT_206 = NL + "\tpublic void set";
   protected final String TEXT_207 = "(int index, ";
-  protected final String TEXT_208 = " element)" + NL + "\t{" + NL + "\t\t";
+  protected final String TEXT_208 = " element)" + NL + "\t{" + NL + "\t\tcheckNotFrozen();" + NL + "\t\t";
   protected final String TEXT_209 = "().set(index, element);" + NL + "\t}" + NL;
   protected final String TEXT_210 = NL + "\t/**" + NL + "\t * Returns the value of the '<em><b>";
   protected final String TEXT_211 = "</b></em>' ";
@@ -527,7 +527,7 @@ public class SDOClass
   protected final String TEXT_507 = NL + "\tpublic void set";
   protected final String TEXT_508 = "(";
   protected final String TEXT_509 = " new";
-  protected final String TEXT_510 = ")" + NL + "\t{";
+  protected final String TEXT_510 = ")" + NL + "\t{" + NL + "\t\tcheckNotFrozen();";
   protected final String TEXT_511 = NL + "\t\t_set_(";
   protected final String TEXT_512 = ", ";
   protected final String TEXT_513 = "new ";
@@ -769,7 +769,7 @@ public class SDOClass
   protected final String TEXT_749 = NL + "\tvoid unset";
   protected final String TEXT_750 = "();" + NL;
   protected final String TEXT_751 = NL + "\tpublic void unset";
-  protected final String TEXT_752 = "()" + NL + "\t{";
+  protected final String TEXT_752 = "()" + NL + "\t{" + NL + "\t\tcheckNotFrozen();";
   protected final String TEXT_753 = NL + "\t\tunset(";
   protected final String TEXT_754 = ");";
   protected final String TEXT_755 = NL + "\t\t((";
@@ -1065,7 +1065,7 @@ public class SDOClass
   protected final String TEXT_1045 = NL + "\t\treturn super.get(propertyIndex, resolve);";
   protected final String TEXT_1046 = NL + "\t\treturn eDynamicGet(propertyIndex, resolve, coreType);";
   protected final String TEXT_1047 = NL + "\t}" + NL;
-  protected final String TEXT_1048 = NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void set(int propertyIndex, Object newValue)" + NL + "\t{" + NL + "\t\tswitch (propertyIndex)" + NL + "\t\t{";
+  protected final String TEXT_1048 = NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void set(int propertyIndex, Object newValue)" + NL + "\t{" + NL + "\t\tcheckNotFrozen();" + NL + "\t\tswitch (propertyIndex)" + NL + "\t\t{";
   protected final String TEXT_1049 = NL + "\t\t\tcase ";
   protected final String TEXT_1050 = ":";
   protected final String TEXT_1051 = NL + "      \tset";
@@ -1096,7 +1096,7 @@ public class SDOClass
   protected final String TEXT_1076 = NL + "\t\t}";
   protected final String TEXT_1077 = NL + "\t\tsuper.set(propertyIndex, newValue);";
   protected final String TEXT_1078 = NL + "\t\teDynamicSet(propertyIndex, newValue);";
-  protected final String TEXT_1079 = NL + "\t}" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void unset(int propertyIndex)" + NL + "\t{" + NL + "\t\tswitch (propertyIndex)" + NL + "\t\t{";
+  protected final String TEXT_1079 = NL + "\t}" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void unset(int propertyIndex)" + NL + "\t{" + NL + "\t\tcheckNotFrozen();" + NL + "\t\tswitch (propertyIndex)" + NL + "\t\t{";
   protected final String TEXT_1080 = NL + "\t\t\tcase ";
   protected final String TEXT_1081 = ":";
   protected final String TEXT_1082 = NL + "\t\t\t\tunset";
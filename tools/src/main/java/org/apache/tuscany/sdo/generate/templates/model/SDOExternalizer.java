@@ -0,0 +1,226 @@
+package org.apache.tuscany.sdo.generate.templates.model;
+
+import org.apache.tuscany.sdo.generate.util.*;
+import java.util.*;
+import org.eclipse.emf.codegen.ecore.genmodel.*;
+
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+ public class SDOExternalizer
+ {
+  protected static String nl;
+  public static synchronized SDOExternalizer create(String lineSeparator)
+  {
+    nl = lineSeparator;
+    SDOExternalizer result = new SDOExternalizer();
+    nl = null;
+    return result;
+  }
+
+  protected final String NL = nl == null ? (System.getProperties().getProperty("line.separator")) : nl;
+  protected final String TEXT_1 = "";
+  protected final String TEXT_2 = "/**" + NL + " * <copyright>" + NL + " * </copyright>" + NL + " *" + NL + " * ";
+  protected final String TEXT_3 = "Id";
+  protected final String TEXT_4 = NL + " */" + NL + "package ";
+  protected final String TEXT_5 = ";" + NL + "" + NL + "import java.io.IOException;" + NL + "import java.io.ObjectInput;" + NL + "import java.io.ObjectOutput;" + NL + "" + NL + "import org.apache.tuscany.sdo.util.resource.TypeExternalizer;" + NL + "" + NL + "import commonj.sdo.DataObject;" + NL + "import commonj.sdo.helper.HelperContext;";
+  protected final String TEXT_6 = NL + NL + "/**" + NL + " * <!-- begin-user-doc -->" + NL + " * The binary writer and reader of the '<em><b>";
+  protected final String TEXT_7 = "</b></em>' DataObjects." + NL + " * <!-- end-user-doc -->" + NL + " * @generated" + NL + " */" + NL + "public class ";
+  protected final String TEXT_8 = " extends TypeExternalizer" + NL + "{" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * The hash of the properties written, checked when reading." + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic static final long TYPE_VERSION = ";
+  protected final String TEXT_9 = ";" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic long getTypeVersion()" + NL + "\t{" + NL + "\t\treturn TYPE_VERSION;" + NL + "\t}" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void writeExternal(DataObject dataObject, ObjectOutput out, HelperContext scope) throws IOException" + NL + "\t{" + NL + "\t\t";
+  protected final String TEXT_10 = " instance = (";
+  protected final String TEXT_11 = ")dataObject;";
+  protected final String TEXT_12 = NL + "\t\twriteDataObjects(out, scope, dataObject, ";
+  protected final String TEXT_13 = ");";
+  protected final String TEXT_14 = NL + "\t\twriteValues(out, dataObject, ";
+  protected final String TEXT_15 = ");";
+  protected final String TEXT_16 = NL + "\t\tif (writeSet(out, dataObject, ";
+  protected final String TEXT_17 = "))" + NL + "\t\t\twriteDataObject(out, scope, dataObject, ";
+  protected final String TEXT_18 = ", (DataObject)instance.";
+  protected final String TEXT_19 = "());";
+  protected final String TEXT_20 = NL + "\t\tif (writeSet(out, dataObject, ";
+  protected final String TEXT_21 = "))" + NL + "\t\t\twriteString(out, instance.";
+  protected final String TEXT_22 = "());";
+  protected final String TEXT_23 = NL + "\t\tif (writeSet(out, dataObject, ";
+  protected final String TEXT_24 = "))" + NL + "\t\t\tout.write";
+  protected final String TEXT_25 = "(instance.";
+  protected final String TEXT_26 = "());";
+  protected final String TEXT_27 = NL + "\t\tif (writeSet(out, dataObject, ";
+  protected final String TEXT_28 = "))" + NL + "\t\t\twriteValue(out, dataObject, ";
+  protected final String TEXT_29 = ", instance.";
+  protected final String TEXT_30 = "());";
+  protected final String TEXT_31 = NL + "\t}" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void readExternal(DataObject dataObject, ObjectInput in, HelperContext scope) throws IOException, ClassNotFoundException" + NL + "\t{" + NL + "\t\t";
+  protected final String TEXT_32 = " instance = (";
+  protected final String TEXT_33 = ")dataObject;";
+  protected final String TEXT_34 = NL + "\t\treadDataObjects(in, scope, dataObject, ";
+  protected final String TEXT_35 = ");";
+  protected final String TEXT_36 = NL + "\t\treadValues(in, dataObject, ";
+  protected final String TEXT_37 = ");";
+  protected final String TEXT_38 = NL + "\t\tif (in.readBoolean())" + NL + "\t\t\tdataObject.set(";
+  protected final String TEXT_39 = ", readDataObject(in, scope, dataObject, ";
+  protected final String TEXT_40 = "));";
+  protected final String TEXT_41 = NL + "\t\tif (in.readBoolean())" + NL + "\t\t\tinstance.set";
+  protected final String TEXT_42 = "(readString(in));";
+  protected final String TEXT_43 = NL + "\t\tif (in.readBoolean())" + NL + "\t\t\tinstance.set";
+  protected final String TEXT_44 = "(in.read";
+  protected final String TEXT_45 = "());";
+  protected final String TEXT_46 = NL + "\t\tif (in.readBoolean())" + NL + "\t\t\tdataObject.set(";
+  protected final String TEXT_47 = ", readValue(in, dataObject, ";
+  protected final String TEXT_48 = "));";
+  protected final String TEXT_49 = NL + "\t}" + NL + "" + NL + "} //";
+  protected final String TEXT_50 = NL;
+
+   public String generate(Object argument)
+  {
+    final StringBuffer stringBuffer = new StringBuffer();
+    
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+    GenClass genClass = (GenClass)((Object[])argument)[0]; GenModel genModel=genClass.getGenModel();
+    String packageName = (String)((Object[])argument)[1]; String className = (String)((Object[])argument)[2];
+    List features = SDOGenUtil.getExternalizerFeatures(genClass);
+    stringBuffer.append(TEXT_1);
+    stringBuffer.append(TEXT_2);
+    stringBuffer.append("$");
+    stringBuffer.append(TEXT_3);
+    stringBuffer.append("$");
+    stringBuffer.append(TEXT_4);
+    stringBuffer.append(packageName);
+    stringBuffer.append(TEXT_5);
+    genModel.markImportLocation(stringBuffer);
+    stringBuffer.append(TEXT_6);
+    stringBuffer.append(genClass.getFormattedName());
+    stringBuffer.append(TEXT_7);
+    stringBuffer.append(className);
+    stringBuffer.append(TEXT_8);
+    stringBuffer.append(SDOGenUtil.getTypeVersion(genClass));
+    stringBuffer.append(TEXT_9);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_10);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_11);
+    for (Iterator f=features.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName(); String suffix = SDOGenUtil.getExternalizerMethodSuffix(genFeature);
+    if (genFeature.isListType()) {
+    if (genFeature.isContains()) {
+    stringBuffer.append(TEXT_12);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_13);
+    } else {
+    stringBuffer.append(TEXT_14);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_15);
+    }
+    } else if (genFeature.isContains()) {
+    stringBuffer.append(TEXT_16);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_17);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_18);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_19);
+    } else if ("String".equals(suffix)) {
+    stringBuffer.append(TEXT_20);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_21);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_22);
+    } else if (suffix != null) {
+    stringBuffer.append(TEXT_23);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_24);
+    stringBuffer.append(suffix);
+    stringBuffer.append(TEXT_25);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_26);
+    } else {
+    stringBuffer.append(TEXT_27);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_28);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_29);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_30);
+    }
+    }
+    stringBuffer.append(TEXT_31);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_32);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_33);
+    for (Iterator f=features.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName(); String suffix = SDOGenUtil.getExternalizerMethodSuffix(genFeature);
+    if (genFeature.isListType()) {
+    if (genFeature.isContains()) {
+    stringBuffer.append(TEXT_34);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_35);
+    } else {
+    stringBuffer.append(TEXT_36);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_37);
+    }
+    } else if (genFeature.isContains()) {
+    stringBuffer.append(TEXT_38);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_39);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_40);
+    } else if ("String".equals(suffix)) {
+    stringBuffer.append(TEXT_41);
+    stringBuffer.append(genFeature.getAccessorName());
+    stringBuffer.append(TEXT_42);
+    } else if (suffix != null) {
+    stringBuffer.append(TEXT_43);
+    stringBuffer.append(genFeature.getAccessorName());
+    stringBuffer.append(TEXT_44);
+    stringBuffer.append(suffix);
+    stringBuffer.append(TEXT_45);
+    } else {
+    stringBuffer.append(TEXT_46);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_47);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_48);
+    }
+    }
+    stringBuffer.append(TEXT_49);
+    stringBuffer.append(className);
+    genModel.emitSortedImports();
+    stringBuffer.append(TEXT_50);
+    return stringBuffer.toString();
+  }
+}
\ No newline at end of file
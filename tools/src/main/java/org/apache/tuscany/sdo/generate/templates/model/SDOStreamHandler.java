@@ -0,0 +1,371 @@
+package org.apache.tuscany.sdo.generate.templates.model;
+
+import org.apache.tuscany.sdo.generate.util.*;
+import java.util.*;
+import org.eclipse.emf.codegen.ecore.genmodel.*;
+import org.eclipse.emf.codegen.ecore.genmodel.impl.Literals;
+
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+ public class SDOStreamHandler
+ {
+  protected static String nl;
+  public static synchronized SDOStreamHandler create(String lineSeparator)
+  {
+    nl = lineSeparator;
+    SDOStreamHandler result = new SDOStreamHandler();
+    nl = null;
+    return result;
+  }
+
+  protected final String NL = nl == null ? (System.getProperties().getProperty("line.separator")) : nl;
+  protected final String TEXT_1 = "";
+  protected final String TEXT_2 = "/**" + NL + " * <copyright>" + NL + " * </copyright>" + NL + " *" + NL + " * ";
+  protected final String TEXT_3 = "Id";
+  protected final String TEXT_4 = NL + " */" + NL + "package ";
+  protected final String TEXT_5 = ";" + NL + "" + NL + "import javax.xml.stream.XMLStreamConstants;" + NL + "import javax.xml.stream.XMLStreamException;" + NL + "import javax.xml.stream.XMLStreamReader;" + NL + "" + NL + "import org.apache.tuscany.sdo.util.resource.DataObjectStreamSerializer;" + NL + "import org.apache.tuscany.sdo.util.resource.TypeStreamDeserializer;" + NL + "import org.apache.tuscany.sdo.util.resource.TypeStreamHandler;" + NL + "" + NL + "import commonj.sdo.DataObject;";
+  protected final String TEXT_6 = NL + NL + "/**" + NL + " * <!-- begin-user-doc -->" + NL + " * The XML reader and writer of the '<em><b>";
+  protected final String TEXT_7 = "</b></em>' DataObjects." + NL + " * <!-- end-user-doc -->" + NL + " * @generated" + NL + " */" + NL + "public class ";
+  protected final String TEXT_8 = " extends TypeStreamHandler" + NL + "{" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic boolean write(DataObject dataObject, DataObjectStreamSerializer serializer) throws XMLStreamException" + NL + "\t{" + NL + "\t\t";
+  protected final String TEXT_9 = " instance = (";
+  protected final String TEXT_10 = ")dataObject;" + NL + "\t\tObject value;";
+  protected final String TEXT_11 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_12 = "))" + NL + "\t\t\twriteAttribute(serializer, ";
+  protected final String TEXT_13 = ", ";
+  protected final String TEXT_14 = ", ";
+  protected final String TEXT_15 = ");";
+  protected final String TEXT_16 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_17 = ") && (value = instance.";
+  protected final String TEXT_18 = "()) != null)" + NL + "\t\t\twriteAttribute(serializer, ";
+  protected final String TEXT_19 = ", ";
+  protected final String TEXT_20 = ", (";
+  protected final String TEXT_21 = ")value);";
+  protected final String TEXT_22 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_23 = ") && (value = dataObject.get(";
+  protected final String TEXT_24 = ")) != null)" + NL + "\t\t\twriteAttribute(serializer, ";
+  protected final String TEXT_25 = ", ";
+  protected final String TEXT_26 = ", convertToString(serializer, dataObject, ";
+  protected final String TEXT_27 = ", value));";
+  protected final String TEXT_28 = NL + "\t\tboolean complex = false;";
+  protected final String TEXT_29 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_30 = "))" + NL + "\t\t{" + NL + "\t\t\twriteElement(serializer, ";
+  protected final String TEXT_31 = ", ";
+  protected final String TEXT_32 = ", ";
+  protected final String TEXT_33 = ");" + NL + "\t\t\tcomplex = true;" + NL + "\t\t}";
+  protected final String TEXT_34 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_35 = "))" + NL + "\t\t\tcomplex |= writeProperty(serializer, dataObject, ";
+  protected final String TEXT_36 = ");";
+  protected final String TEXT_37 = NL + "\t\tif (dataObject.isSet(";
+  protected final String TEXT_38 = "))" + NL + "\t\t{";
+  protected final String TEXT_39 = NL + "\t\t\tvalue = instance.";
+  protected final String TEXT_40 = "();";
+  protected final String TEXT_41 = NL + "\t\t\tvalue = dataObject.get(";
+  protected final String TEXT_42 = ");";
+  protected final String TEXT_43 = NL + "\t\t\tif (value == null)" + NL + "\t\t\t\twriteProperty(serializer, dataObject, ";
+  protected final String TEXT_44 = ");" + NL + "\t\t\telse";
+  protected final String TEXT_45 = NL + "\t\t\t\twriteElement(serializer, ";
+  protected final String TEXT_46 = ", ";
+  protected final String TEXT_47 = ", (";
+  protected final String TEXT_48 = ")value);";
+  protected final String TEXT_49 = NL + "\t\t\t\twriteElement(serializer, ";
+  protected final String TEXT_50 = ", ";
+  protected final String TEXT_51 = ", convertToString(serializer, dataObject, ";
+  protected final String TEXT_52 = ", value));";
+  protected final String TEXT_53 = NL + "\t\t\tcomplex = true;" + NL + "\t\t}";
+  protected final String TEXT_54 = NL + "\t\treturn complex;" + NL + "\t}" + NL + "" + NL + "\t/**" + NL + "\t * <!-- begin-user-doc -->" + NL + "\t * <!-- end-user-doc -->" + NL + "\t * @generated" + NL + "\t */" + NL + "\tpublic void read(DataObject dataObject, TypeStreamDeserializer deserializer) throws XMLStreamException" + NL + "\t{" + NL + "\t\t";
+  protected final String TEXT_55 = " instance = (";
+  protected final String TEXT_56 = ")dataObject;" + NL + "\t\tXMLStreamReader reader = deserializer.getReader();" + NL + "\t\tfor (int index = 0, count = reader.getAttributeCount(); index != count; ++index)" + NL + "\t\t{";
+  protected final String TEXT_57 = NL + "\t\t\tString name = reader.getAttributeLocalName(index);" + NL + "\t\t\tswitch (name.hashCode())" + NL + "\t\t\t{";
+  protected final String TEXT_58 = NL + "\t\t\t\tcase ";
+  protected final String TEXT_59 = ":";
+  protected final String TEXT_60 = NL + "\t\t\t\t\tif (";
+  protected final String TEXT_61 = ".equals(name) && deserializer.isNameSpace(index, ";
+  protected final String TEXT_62 = "))" + NL + "\t\t\t\t\t{";
+  protected final String TEXT_63 = NL + "\t\t\t\t\t\tinstance.set";
+  protected final String TEXT_64 = "(";
+  protected final String TEXT_65 = ");";
+  protected final String TEXT_66 = NL + "\t\t\t\t\t\tdataObject.set(";
+  protected final String TEXT_67 = ", deserializer.value(dataObject, ";
+  protected final String TEXT_68 = ", reader.getAttributeValue(index)));";
+  protected final String TEXT_69 = NL + "\t\t\t\t\t\tcontinue;" + NL + "\t\t\t\t\t}";
+  protected final String TEXT_70 = NL + "\t\t\t\t\tbreak;";
+  protected final String TEXT_71 = NL + "\t\t\t}";
+  protected final String TEXT_72 = NL + "\t\t\tdeserializer.unknownAttribute(index);" + NL + "\t\t}" + NL + "\t\twhile (reader.nextTag() == XMLStreamConstants.START_ELEMENT)" + NL + "\t\t{";
+  protected final String TEXT_73 = NL + "\t\t\tString name = reader.getLocalName();" + NL + "\t\t\tswitch (name.hashCode())" + NL + "\t\t\t{";
+  protected final String TEXT_74 = NL + "\t\t\t\tcase ";
+  protected final String TEXT_75 = ":";
+  protected final String TEXT_76 = NL + "\t\t\t\t\tif (";
+  protected final String TEXT_77 = ".equals(name) && deserializer.isNameSpace(";
+  protected final String TEXT_78 = "))" + NL + "\t\t\t\t\t{";
+  protected final String TEXT_79 = NL + "\t\t\t\t\t\tinstance.set";
+  protected final String TEXT_80 = "(";
+  protected final String TEXT_81 = ");";
+  protected final String TEXT_82 = NL + "\t\t\t\t\t\tdataObject.getList(";
+  protected final String TEXT_83 = ").add(deserializer.read(dataObject, ";
+  protected final String TEXT_84 = "));";
+  protected final String TEXT_85 = NL + "\t\t\t\t\t\tdataObject.getList(";
+  protected final String TEXT_86 = ").add(deserializer.value(dataObject, ";
+  protected final String TEXT_87 = ", deserializer.text()));";
+  protected final String TEXT_88 = NL + "\t\t\t\t\t\tdataObject.set(";
+  protected final String TEXT_89 = ", deserializer.read(dataObject, ";
+  protected final String TEXT_90 = "));";
+  protected final String TEXT_91 = NL + "\t\t\t\t\t\tdataObject.set(";
+  protected final String TEXT_92 = ", deserializer.value(dataObject, ";
+  protected final String TEXT_93 = ", deserializer.text()));";
+  protected final String TEXT_94 = NL + "\t\t\t\t\t\tcontinue;" + NL + "\t\t\t\t\t}";
+  protected final String TEXT_95 = NL + "\t\t\t\t\tbreak;";
+  protected final String TEXT_96 = NL + "\t\t\t}";
+  protected final String TEXT_97 = NL + "\t\t\tdeserializer.unknownElement();" + NL + "\t\t}" + NL + "\t}" + NL + "" + NL + "} //";
+  protected final String TEXT_98 = NL;
+
+   public String generate(Object argument)
+  {
+    final StringBuffer stringBuffer = new StringBuffer();
+    
+/**
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+    GenClass genClass = (GenClass)((Object[])argument)[0]; GenModel genModel=genClass.getGenModel();
+    String packageName = (String)((Object[])argument)[1]; String className = (String)((Object[])argument)[2];
+    List attributes = SDOGenUtil.getStreamHandlerFeatures(genClass, true); List elements = SDOGenUtil.getStreamHandlerFeatures(genClass, false);
+    stringBuffer.append(TEXT_1);
+    stringBuffer.append(TEXT_2);
+    stringBuffer.append("$");
+    stringBuffer.append(TEXT_3);
+    stringBuffer.append("$");
+    stringBuffer.append(TEXT_4);
+    stringBuffer.append(packageName);
+    stringBuffer.append(TEXT_5);
+    genModel.markImportLocation(stringBuffer);
+    stringBuffer.append(TEXT_6);
+    stringBuffer.append(genClass.getFormattedName());
+    stringBuffer.append(TEXT_7);
+    stringBuffer.append(className);
+    stringBuffer.append(TEXT_8);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_9);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_10);
+    for (Iterator f=attributes.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName();
+    String name = Literals.toLiteral(SDOGenUtil.getLocalName(genFeature));
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature) && genFeature.isPrimitiveType()) {
+    stringBuffer.append(TEXT_11);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_12);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_13);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_14);
+    stringBuffer.append(SDOGenUtil.getStreamHandlerLiteral(genFeature, "instance." + genFeature.getGetAccessor() + "()"));
+    stringBuffer.append(TEXT_15);
+    } else if (SDOGenUtil.isStreamHandlerTyped(genFeature)) {
+    stringBuffer.append(TEXT_16);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_17);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_18);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_19);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_20);
+    stringBuffer.append(genFeature.getImportedType());
+    stringBuffer.append(TEXT_21);
+    } else {
+    stringBuffer.append(TEXT_22);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_23);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_24);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_25);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_26);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_27);
+    }
+    }
+    stringBuffer.append(TEXT_28);
+    for (Iterator f=elements.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName();
+    String name = Literals.toLiteral(SDOGenUtil.getLocalName(genFeature));
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature) && genFeature.isPrimitiveType()) {
+    stringBuffer.append(TEXT_29);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_30);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_31);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_32);
+    stringBuffer.append(SDOGenUtil.getStreamHandlerLiteral(genFeature, "instance." + genFeature.getGetAccessor() + "()"));
+    stringBuffer.append(TEXT_33);
+    } else if (genFeature.isListType() || genFeature.isReferenceType()) {
+    stringBuffer.append(TEXT_34);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_35);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_36);
+    } else {
+    stringBuffer.append(TEXT_37);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_38);
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature)) {
+    stringBuffer.append(TEXT_39);
+    stringBuffer.append(genFeature.getGetAccessor());
+    stringBuffer.append(TEXT_40);
+    } else {
+    stringBuffer.append(TEXT_41);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_42);
+    }
+    stringBuffer.append(TEXT_43);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_44);
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature)) {
+    stringBuffer.append(TEXT_45);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_46);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_47);
+    stringBuffer.append(genFeature.getImportedType());
+    stringBuffer.append(TEXT_48);
+    } else {
+    stringBuffer.append(TEXT_49);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_50);
+    stringBuffer.append(name);
+    stringBuffer.append(TEXT_51);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_52);
+    }
+    stringBuffer.append(TEXT_53);
+    }
+    }
+    stringBuffer.append(TEXT_54);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_55);
+    stringBuffer.append(genClass.getImportedInterfaceName());
+    stringBuffer.append(TEXT_56);
+    if (!attributes.isEmpty()) {
+    stringBuffer.append(TEXT_57);
+    for (Iterator g=SDOGenUtil.getLocalNameHashGroups(attributes).iterator(); g.hasNext();) { List group = (List)g.next();
+    stringBuffer.append(TEXT_58);
+    stringBuffer.append(SDOGenUtil.getLocalName((GenFeature)group.get(0)).hashCode());
+    stringBuffer.append(TEXT_59);
+    for (Iterator f=group.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName();
+    stringBuffer.append(TEXT_60);
+    stringBuffer.append(Literals.toLiteral(SDOGenUtil.getLocalName(genFeature)));
+    stringBuffer.append(TEXT_61);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_62);
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature)) {
+    stringBuffer.append(TEXT_63);
+    stringBuffer.append(genFeature.getAccessorName());
+    stringBuffer.append(TEXT_64);
+    stringBuffer.append(SDOGenUtil.getStreamHandlerValue(genFeature, "reader.getAttributeValue(index)"));
+    stringBuffer.append(TEXT_65);
+    } else {
+    stringBuffer.append(TEXT_66);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_67);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_68);
+    }
+    stringBuffer.append(TEXT_69);
+    }
+    stringBuffer.append(TEXT_70);
+    }
+    stringBuffer.append(TEXT_71);
+    }
+    stringBuffer.append(TEXT_72);
+    if (!elements.isEmpty()) {
+    stringBuffer.append(TEXT_73);
+    for (Iterator g=SDOGenUtil.getLocalNameHashGroups(elements).iterator(); g.hasNext();) { List group = (List)g.next();
+    stringBuffer.append(TEXT_74);
+    stringBuffer.append(SDOGenUtil.getLocalName((GenFeature)group.get(0)).hashCode());
+    stringBuffer.append(TEXT_75);
+    for (Iterator f=group.iterator(); f.hasNext();) { GenFeature genFeature = (GenFeature)f.next();
+    String index = genClass.getImportedClassName() + "." + genFeature.getUpperName();
+    stringBuffer.append(TEXT_76);
+    stringBuffer.append(Literals.toLiteral(SDOGenUtil.getLocalName(genFeature)));
+    stringBuffer.append(TEXT_77);
+    stringBuffer.append(SDOGenUtil.getNamespaceLiteral(genFeature));
+    stringBuffer.append(TEXT_78);
+    if (SDOGenUtil.isStreamHandlerTyped(genFeature)) {
+    stringBuffer.append(TEXT_79);
+    stringBuffer.append(genFeature.getAccessorName());
+    stringBuffer.append(TEXT_80);
+    stringBuffer.append(SDOGenUtil.getStreamHandlerValue(genFeature, genFeature.isPrimitiveType() ? "reader.getElementText()" : "deserializer.text()"));
+    stringBuffer.append(TEXT_81);
+    } else if (genFeature.isListType() && genFeature.isReferenceType()) {
+    stringBuffer.append(TEXT_82);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_83);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_84);
+    } else if (genFeature.isListType()) {
+    stringBuffer.append(TEXT_85);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_86);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_87);
+    } else if (genFeature.isReferenceType()) {
+    stringBuffer.append(TEXT_88);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_89);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_90);
+    } else {
+    stringBuffer.append(TEXT_91);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_92);
+    stringBuffer.append(index);
+    stringBuffer.append(TEXT_93);
+    }
+    stringBuffer.append(TEXT_94);
+    }
+    stringBuffer.append(TEXT_95);
+    }
+    stringBuffer.append(TEXT_96);
+    }
+    stringBuffer.append(TEXT_97);
+    stringBuffer.append(className);
+    genModel.emitSortedImports();
+    stringBuffer.append(TEXT_98);
+    return stringBuffer.toString();
+  }
+}
\ No newline at end of file
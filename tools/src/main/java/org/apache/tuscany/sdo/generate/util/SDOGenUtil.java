@@ -19,7 +19,11 @@
  */
 package org.apache.tuscany.sdo.generate.util;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.tuscany.sdo.model.ModelFactory;
 import org.apache.tuscany.sdo.model.impl.ModelFactoryImpl;
@@ -33,14 +37,29 @@ import org.eclipse.emf.codegen.ecore.genmodel.GenPackage;
 import org.eclipse.emf.codegen.ecore.genmodel.impl.GenFeatureImpl;
 import org.eclipse.emf.codegen.ecore.genmodel.impl.Literals;
 import org.eclipse.emf.codegen.util.CodeGenUtil;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.ExtendedMetaData;
 
 import commonj.sdo.Type;
 
 public class SDOGenUtil {
 	
+	/**
+	 * The source of the GenModel annotation enabling the generation of the stream handlers
+	 */
+	public static final String STREAM_HANDLERS_ANNOTATION_SOURCE = "http://tuscany.apache.org/sdo/generate/streamHandlers";
+	
+	/**
+	 * The source of the GenModel annotation enabling the generation of the externalizers
+	 */
+	public static final String EXTERNALIZERS_ANNOTATION_SOURCE = "http://tuscany.apache.org/sdo/generate/externalizers";
+	
 	public static String getQualifiedTypeAccessor(GenClassifier genClassifier)
     {
 	  GenPackage genPackage = genClassifier.getGenPackage();
@@ -248,6 +267,15 @@ public class SDOGenUtil {
     	if (genModel.isSuppressUnsettable()) {
     		result.append(" -noUnsettable");
     	}
+    	if (genModel.isBooleanFlagsEnabled()) {
+    		result.append(" -packedFlags");
+    	}
+    	if (isGenerateStreamHandlers(genModel)) {
+    		result.append(" -generateStreamHandlers");
+    	}
+    	if (isGenerateExternalizers(genModel)) {
+    		result.append(" -generateExternalizers");
+    	}
     	
     	return result.toString();
     }
@@ -323,4 +351,345 @@ public class SDOGenUtil {
   
       return result;
     }
+
+    public static boolean isGenerateStreamHandlers(GenModel genModel)
+    {
+      return genModel.getGenAnnotation(STREAM_HANDLERS_ANNOTATION_SOURCE) != null;
+    }
+
+    /**
+     * @return whether the features of the class are all simple enough for a generated stream handler: no sequence,
+     * wildcard, substitution group, non containment reference nor ChangeSummary
+     */
+    public static boolean isStreamHandled(GenClass genClass)
+    {
+      if (!hasPropertyIndices(genClass))
+      {
+        return false;
+      }
+      EClass eClass = genClass.getEcoreClass();
+      ExtendedMetaData extendedMetaData = ExtendedMetaData.INSTANCE;
+      if (extendedMetaData.getContentKind(eClass) == ExtendedMetaData.MIXED_CONTENT || extendedMetaData.getContentKind(eClass) == ExtendedMetaData.SIMPLE_CONTENT)
+      {
+        return false;
+      }
+      Type type = (Type)eClass;
+      if (type.isSequenced() || type.isOpen())
+      {
+        return false;
+      }
+      List properties = type.getProperties();
+      for (Iterator i = genClass.getAllGenFeatures().iterator(); i.hasNext(); )
+      {
+        EStructuralFeature feature = ((GenFeature)i.next()).getEcoreFeature();
+        if (isTransient(feature))
+        {
+          continue;
+        }
+        if (!properties.contains(feature) || extendedMetaData.getGroup(feature) != null || extendedMetaData.getAffiliation(feature) != null
+            || isChangeSummary(feature))
+        {
+          return false;
+        }
+        switch (extendedMetaData.getFeatureKind(feature))
+        {
+          case ExtendedMetaData.ATTRIBUTE_FEATURE:
+            if (feature.isMany() || !(feature instanceof EAttribute))
+            {
+              return false;
+            }
+            break;
+          case ExtendedMetaData.ELEMENT_FEATURE:
+            if (feature instanceof EReference && !((EReference)feature).isContainment())
+            {
+              return false;
+            }
+            break;
+          default:
+            return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return whether the generated class declares the property index constants, and can be instantiated
+     */
+    static boolean hasPropertyIndices(GenClass genClass)
+    {
+      return !genClass.isAbstract() && !genClass.isInterface() && !genClass.isDynamic() && !genClass.isExternalInterface()
+          && !genClass.getGenModel().isReflectiveDelegation();
+    }
+
+    static boolean isChangeSummary(EStructuralFeature feature)
+    {
+      Type csType = ((ModelFactoryImpl)ModelFactory.INSTANCE).getChangeSummaryType();
+      EClassifier eClassifier = feature.getEType();
+      return eClassifier instanceof Type && csType.getName().equals(((Type)eClassifier).getName())
+          && csType.getURI().equals(((Type)eClassifier).getURI());
+    }
+
+    /**
+     * @return whether the feature isn't serialized, as DataObjectXMLStreamReader.isTransient
+     */
+    static boolean isTransient(EStructuralFeature feature)
+    {
+      if (feature.isTransient())
+      {
+        return true;
+      }
+      if (feature instanceof EReference)
+      {
+        EReference opposite = ((EReference)feature).getEOpposite();
+        return opposite != null && opposite.isContainment();
+      }
+      return !((EDataType)feature.getEType()).isSerializable();
+    }
+
+    /**
+     * @return the GenFeatures of the class read and written as attributes, or else as elements, in Property order
+     */
+    public static List getStreamHandlerFeatures(GenClass genClass, boolean attributes)
+    {
+      List result = new ArrayList();
+      int kind = attributes ? ExtendedMetaData.ATTRIBUTE_FEATURE : ExtendedMetaData.ELEMENT_FEATURE;
+      for (Iterator i = genClass.getAllGenFeatures().iterator(); i.hasNext(); )
+      {
+        GenFeature genFeature = (GenFeature)i.next();
+        EStructuralFeature feature = genFeature.getEcoreFeature();
+        if (!isTransient(feature) && ExtendedMetaData.INSTANCE.getFeatureKind(feature) == kind)
+        {
+          result.add(genFeature);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * @return the lists of the GenFeatures whose local names share a hash code, the generated handlers switching on
+     * the hash of the name
+     */
+    public static List getLocalNameHashGroups(List genFeatures)
+    {
+      List result = new ArrayList();
+      for (Iterator i = genFeatures.iterator(); i.hasNext(); )
+      {
+        GenFeature genFeature = (GenFeature)i.next();
+        int hashCode = getLocalName(genFeature).hashCode();
+        List group = null;
+        for (Iterator g = result.iterator(); g.hasNext(); )
+        {
+          List candidate = (List)g.next();
+          if (getLocalName((GenFeature)candidate.get(0)).hashCode() == hashCode)
+          {
+            group = candidate;
+            break;
+          }
+        }
+        if (group == null)
+        {
+          group = new ArrayList();
+          result.add(group);
+        }
+        group.add(genFeature);
+      }
+      return result;
+    }
+
+    public static String getLocalName(GenFeature genFeature)
+    {
+      return ExtendedMetaData.INSTANCE.getName(genFeature.getEcoreFeature());
+    }
+
+    /**
+     * @return the Java literal of the XML namespace of the feature, null if none
+     */
+    public static String getNamespaceLiteral(GenFeature genFeature)
+    {
+      String nameSpace = ExtendedMetaData.INSTANCE.getNamespace(genFeature.getEcoreFeature());
+      return nameSpace == null || nameSpace.length() == 0 ? "null" : Literals.toLiteral(nameSpace);
+    }
+
+    /**
+     * @return whether the generated handler converts the values of the feature itself, through the typed accessors
+     */
+    public static boolean isStreamHandlerTyped(GenFeature genFeature)
+    {
+      return !genFeature.isListType() && getStreamHandlerParser(genFeature) != null;
+    }
+
+    /**
+     * @return the name of the TypeStreamHandler method parsing the XML literals of the feature, "" for Strings, null
+     * if the values are converted by the Type
+     */
+    static String getStreamHandlerParser(GenFeature genFeature)
+    {
+      String instanceClassName = genFeature.getEcoreFeature().getEType().getInstanceClassName();
+      if ("java.lang.String".equals(instanceClassName))
+      {
+        return "";
+      }
+      if ("int".equals(instanceClassName))
+      {
+        return "parseInt";
+      }
+      if ("long".equals(instanceClassName))
+      {
+        return "parseLong";
+      }
+      if ("short".equals(instanceClassName))
+      {
+        return "parseShort";
+      }
+      if ("byte".equals(instanceClassName))
+      {
+        return "parseByte";
+      }
+      if ("boolean".equals(instanceClassName))
+      {
+        return "parseBoolean";
+      }
+      return null;
+    }
+
+    /**
+     * @return the Java expression of the XML literal of the value of a typed feature
+     */
+    public static String getStreamHandlerLiteral(GenFeature genFeature, String value)
+    {
+      return genFeature.isPrimitiveType() ? "String.valueOf(" + value + ")" : value;
+    }
+
+    /**
+     * @return the Java expression of the value of a typed feature parsed from its XML literal
+     */
+    public static String getStreamHandlerValue(GenFeature genFeature, String literal)
+    {
+      String parser = getStreamHandlerParser(genFeature);
+      return parser.length() == 0 ? literal : parser + '(' + literal + ')';
+    }
+
+    public static boolean isGenerateExternalizers(GenModel genModel)
+    {
+      return genModel.getGenAnnotation(EXTERNALIZERS_ANNOTATION_SOURCE) != null;
+    }
+
+    /**
+     * @return whether the class can have a generated externalizer: neither open nor sequenced, without non containment
+     * reference nor ChangeSummary
+     */
+    public static boolean isExternalized(GenClass genClass)
+    {
+      if (!hasPropertyIndices(genClass))
+      {
+        return false;
+      }
+      Type type = (Type)genClass.getEcoreClass();
+      if (type.isSequenced() || type.isOpen())
+      {
+        return false;
+      }
+      List properties = type.getProperties();
+      for (Iterator i = genClass.getAllGenFeatures().iterator(); i.hasNext(); )
+      {
+        EStructuralFeature feature = ((GenFeature)i.next()).getEcoreFeature();
+        if (isTransient(feature))
+        {
+          continue;
+        }
+        if (!properties.contains(feature) || isChangeSummary(feature)
+            || feature instanceof EReference && !((EReference)feature).isContainment())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return the GenFeatures of the class written by its externalizer, in Property order
+     */
+    public static List getExternalizerFeatures(GenClass genClass)
+    {
+      List result = new ArrayList();
+      for (Iterator i = genClass.getAllGenFeatures().iterator(); i.hasNext(); )
+      {
+        GenFeature genFeature = (GenFeature)i.next();
+        if (!isTransient(genFeature.getEcoreFeature()))
+        {
+          result.add(genFeature);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * @return the suffix of the DataOutput and DataInput methods writing and reading the values of a single-valued
+     * primitive or String feature, "String" for the TypeExternalizer ones, null if the values are written as literals
+     */
+    public static String getExternalizerMethodSuffix(GenFeature genFeature)
+    {
+      if (genFeature.isListType())
+      {
+        return null;
+      }
+      String instanceClassName = genFeature.getEcoreFeature().getEType().getInstanceClassName();
+      if ("java.lang.String".equals(instanceClassName))
+      {
+        return "String";
+      }
+      if (genFeature.isPrimitiveType())
+      {
+        return CodeGenUtil.capName(instanceClassName);
+      }
+      return null;
+    }
+
+    /**
+     * @return the Java literal of the hash of the serialized features of the class and of the classes it contains,
+     * checked when reading the DataObjects written by its externalizer
+     */
+    public static String getTypeVersion(GenClass genClass)
+    {
+      StringBuffer signature = new StringBuffer();
+      appendTypeSignature(genClass.getEcoreClass(), signature, new HashSet());
+      long hash = 0xcbf29ce484222325L; // 64 bit FNV-1a
+      for (int i = 0; i < signature.length(); ++i)
+      {
+        hash ^= signature.charAt(i);
+        hash *= 0x100000001b3L;
+      }
+      return "0x" + Long.toHexString(hash) + "L";
+    }
+
+    static void appendTypeSignature(EClass eClass, StringBuffer signature, Set visited)
+    {
+      Type type = (Type)eClass;
+      signature.append(type.getURI()).append('#').append(type.getName());
+      if (!visited.add(eClass))
+      {
+        return;
+      }
+      signature.append('{');
+      for (Iterator i = eClass.getEAllStructuralFeatures().iterator(); i.hasNext(); )
+      {
+        EStructuralFeature feature = (EStructuralFeature)i.next();
+        if (isTransient(feature))
+        {
+          continue;
+        }
+        signature.append(feature.getName()).append(feature.isMany() ? "*:" : ":");
+        EClassifier eType = feature.getEType();
+        if (eType instanceof EClass)
+        {
+          appendTypeSignature((EClass)eType, signature, visited);
+        }
+        else
+        {
+          signature.append(eType.getInstanceClassName());
+        }
+        signature.append(';');
+      }
+      signature.append('}');
+    }
 }